@@ -16,15 +16,20 @@
 package minicp.cp;
 
 import minicp.engine.core.IntVar;
+import minicp.engine.core.IntervalVar;
+import minicp.engine.core.SequenceVar;
 import minicp.engine.core.Solver;
+import minicp.search.DecisionBranching;
 import minicp.search.LimitedDiscrepancyBranching;
 import minicp.search.Sequencer;
 import minicp.search.variable.ConflictOrderingSearch;
 import minicp.search.variable.LastConflictSearch;
+import minicp.search.variable.UnboundVariables;
 import minicp.util.Procedure;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 
+import java.util.Arrays;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -121,15 +126,19 @@ public final class BranchingScheme {
      * Then it creates two branches. The left branch
      * assigning the variable to its minimum value.
      * The right branch removing this minimum value from the domain.
+     * <p>The unbound variables are tracked incrementally
+     * with {@link UnboundVariables} such that the selection
+     * only iterates over the variables that are not yet bound.
      * @param x the variable on which the first fail strategy is applied.
      * @return a first-fail branching strategy
      * @see Factory#makeDfs(Solver, Supplier)
      */
     public static Supplier<Procedure[]> firstFail(IntVar... x) {
+        if (x.length == 0)
+            return () -> EMPTY;
+        UnboundVariables unbound = new UnboundVariables(x[0].getSolver().getStateManager(), x);
         return () -> {
-            IntVar xs = selectMin(x,
-                    xi -> xi.size() > 1,
-                    IntVar::size);
+            IntVar xs = unbound.selectMin(IntVar::size);
             if (xs == null)
                 return EMPTY;
             else {
@@ -140,6 +149,138 @@ public final class BranchingScheme {
         };
     }
 
+    /**
+     * First-Fail strategy producing primitive decisions.
+     * It selects the same variable and creates the same two branches
+     * as {@link #firstFail(IntVar...)} but without allocating
+     * any closure at each node.
+     * @param x the variable on which the first fail strategy is applied.
+     * @return a first-fail branching to be used with
+     *         {@link Factory#makeDfs(Solver, IntVar[], DecisionBranching)}
+     *         on the same array of variables
+     */
+    public static DecisionBranching firstFailDecisions(IntVar... x) {
+        if (x.length == 0)
+            return decisions -> { };
+        UnboundVariables unbound = new UnboundVariables(x[0].getSolver().getStateManager(), x);
+        return decisions -> {
+            int i = unbound.selectMinIndex(IntVar::size);
+            if (i != -1)
+                decisions.addEqualBranches(i, x[i].min());
+        };
+    }
+
+    /**
+     * Branching on interval variables.
+     * It first decides the presence of the optional intervals, present first.
+     * Then it selects the first present interval that is not fixed,
+     * fixes its length to its minimum or removes it
+     * and then fixes its start to its minimum or removes it.
+     * @param x the intervals to schedule
+     * @return a branching strategy fixing the intervals
+     * @see Factory#makeDfs(Solver, Supplier)
+     */
+    public static Supplier<Procedure[]> schedule(IntervalVar... x) {
+        return () -> {
+            for (IntervalVar xi : x) {
+                if (xi.isOptional()) {
+                    Solver cp = xi.getSolver();
+                    return branch(() -> { xi.setPresent(); cp.fixPoint(); },
+                            () -> { xi.setAbsent(); cp.fixPoint(); });
+                }
+            }
+            for (IntervalVar xi : x) {
+                if (xi.isPresent() && !xi.isFixed()) {
+                    Solver cp = xi.getSolver();
+                    if (xi.lengthMin() < xi.lengthMax()) {
+                        int l = xi.lengthMin();
+                        return branch(() -> { xi.setLengthMax(l); cp.fixPoint(); },
+                                () -> { xi.setLengthMin(l + 1); cp.fixPoint(); });
+                    }
+                    int s = xi.startMin();
+                    return branch(() -> { xi.setStartMax(s); cp.fixPoint(); },
+                            () -> { xi.setStartMin(s + 1); cp.fixPoint(); });
+                }
+            }
+            return EMPTY;
+        };
+    }
+
+    /**
+     * Insertion based branching on sequence variables over the same nodes,
+     * each node being visited by exactly one of them.
+     * It selects the node that is not yet a member of a sequence
+     * with the fewest possible insertions, at least one, and creates one branch
+     * per insertion, by increasing cost of the detour
+     * {@code transition[p][x] + transition[x][s] - transition[p][s]}
+     * when inserting x between p and its successor s.
+     * The node is excluded from the other sequences in each branch.
+     * A failure occurs when no remaining node can be inserted.
+     * @param seqs the sequences with the same number of nodes n
+     * @param transition the transition costs between the n+2 nodes,
+     *                   the start and end of the sequences being n and n+1
+     * @return a branching strategy inserting every node in a sequence
+     * @see Factory#makeDfs(Solver, Supplier)
+     */
+    public static Supplier<Procedure[]> insertion(SequenceVar[] seqs, int[][] transition) {
+        Solver cp = seqs[0].getSolver();
+        int n = seqs[0].nNode();
+        int[] preds = new int[n + 1];
+        return () -> {
+            int best = -1;
+            int bestSize = Integer.MAX_VALUE;
+            boolean unvisited = false;
+            for (int x = 0; x < n; x++) {
+                int size = 0;
+                boolean member = false;
+                for (SequenceVar seq : seqs) {
+                    if (seq.isMember(x)) member = true;
+                    else if (seq.isPossible(x)) size += seq.nInsert(x);
+                }
+                if (member) continue;
+                unvisited = true;
+                // a node without insertion may still be inserted after a node that is not yet a member
+                if (size > 0 && size < bestSize) {
+                    best = x;
+                    bestSize = size;
+                }
+            }
+            if (!unvisited)
+                return EMPTY;
+            if (best == -1)
+                return branch(() -> {
+                    throw InconsistencyException.INCONSISTENCY;
+                });
+            int x = best;
+            Procedure[] branches = new Procedure[bestSize];
+            int[] cost = new int[bestSize];
+            int k = 0;
+            for (int i = 0; i < seqs.length; i++) {
+                SequenceVar seq = seqs[i];
+                if (!seq.isPossible(x)) continue;
+                int nPreds = seq.fillInsert(x, preds);
+                for (int j = 0; j < nPreds; j++) {
+                    int p = preds[j];
+                    int s = seq.next(p);
+                    int v = i;
+                    cost[k] = transition[p][x] + transition[x][s] - transition[p][s];
+                    branches[k++] = () -> {
+                        seq.insert(x, p);
+                        for (int l = 0; l < seqs.length; l++)
+                            if (l != v) seqs[l].exclude(x);
+                        cp.fixPoint();
+                    };
+                }
+            }
+            Integer[] order = new Integer[bestSize];
+            for (int j = 0; j < bestSize; j++) order[j] = j;
+            Arrays.sort(order, (a, b) -> Integer.compare(cost[a], cost[b]));
+            Procedure[] sorted = new Procedure[bestSize];
+            for (int j = 0; j < bestSize; j++) sorted[j] = branches[order[j]];
+            return sorted;
+        };
+    }
+
     /**
      * Sequential Search combinator that linearly
      * considers a list of branching generator.
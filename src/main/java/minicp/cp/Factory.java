@@ -17,17 +17,23 @@ package minicp.cp;
 
 import minicp.engine.constraints.*;
 import minicp.engine.core.*;
+import minicp.search.BestFirstSearch;
 import minicp.search.DFSearch;
+import minicp.search.DiscrepancySearch;
+import minicp.search.DecisionBranching;
 import minicp.search.Objective;
 import minicp.state.Copier;
 import minicp.state.Trailer;
+import minicp.util.DFA;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.Procedure;
 import minicp.util.exception.IntOverFlowException;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
@@ -172,6 +178,91 @@ public final class Factory {
         return t;
     }
 
+    /**
+     * Creates a present interval variable of fixed length.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start
+     * @param endMax the maximum end
+     * @param length the length of the interval, non negative
+     * @return a present interval of the given length inside {@code [startMin, endMax)}
+     */
+    public static IntervalVar makeIntervalVar(Solver cp, int startMin, int endMax, int length) {
+        return new IntervalVarImpl(cp, startMin, endMax, length, length, false);
+    }
+
+    /**
+     * Creates an interval variable.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start
+     * @param endMax the maximum end
+     * @param lengthMin the minimum length, non negative
+     * @param lengthMax the maximum length with {@code lengthMax >= lengthMin}
+     * @param optional true if the interval may be absent,
+     *                 otherwise it is present
+     * @return an interval inside {@code [startMin, endMax)}
+     *         with a length in {@code [lengthMin, lengthMax]}
+     */
+    public static IntervalVar makeIntervalVar(Solver cp, int startMin, int endMax,
+                                              int lengthMin, int lengthMax, boolean optional) {
+        return new IntervalVarImpl(cp, startMin, endMax, lengthMin, lengthMax, optional);
+    }
+
+    /**
+     * Returns a view on a variable as a present interval of fixed length.
+     *
+     * @param start the start of the interval
+     * @param length the length of the interval, non negative
+     * @return an interval spanning {@code [start, start + length)}
+     */
+    public static IntervalVar makeIntervalVar(IntVar start, int length) {
+        return new IntervalVarViewStart(start, length);
+    }
+
+    /**
+     * Returns views on variables as present intervals of fixed lengths.
+     *
+     * @param start the start of the intervals
+     * @param length the length of the intervals, non negative
+     * @return an array of intervals, the one at index <i>i</i>
+     *         spanning {@code [start[i], start[i] + length[i])}
+     */
+    public static IntervalVar[] makeIntervalVarArray(IntVar[] start, int[] length) {
+        IntervalVar[] t = new IntervalVar[start.length];
+        for (int i = 0; i < start.length; i++)
+            t[i] = makeIntervalVar(start[i], length[i]);
+        return t;
+    }
+
+    /**
+     * Returns views on variables as present intervals of variable lengths.
+     *
+     * @param start the start of the intervals
+     * @param length the length of the intervals, its negative values are removed
+     * @return an array of intervals, the one at index <i>i</i>
+     *         spanning {@code [start[i], start[i] + length[i])}
+     */
+    public static IntervalVar[] makeIntervalVarArray(IntVar[] start, IntVar[] length) {
+        IntervalVar[] t = new IntervalVar[start.length];
+        for (int i = 0; i < start.length; i++)
+            t[i] = new IntervalVarViewStartLength(start[i], length[i]);
+        return t;
+    }
+
+    /**
+     * Creates a sequence variable.
+     *
+     * @param cp the solver in which the variable is created
+     * @param nNode the number of nodes that may be visited,
+     *              the start and end of the sequence being nNode and nNode+1
+     * @return a sequence from its start to its end
+     *         with every node possible
+     */
+    public static SequenceVar makeSequenceVar(Solver cp, int nNode) {
+        return new SequenceVarImpl(cp, nNode);
+    }
+
     /**
      * Creates a Depth First Search with custom branching heuristic
      * <pre>
@@ -211,6 +302,97 @@ public final class Factory {
         return new DFSearch(cp.getStateManager(), branching);
     }
 
+    /**
+     * Creates a Depth First Search with a branching producing
+     * primitive (variable index, operator, value) decisions
+     * that are applied directly by the search.
+     *
+     * @param cp the solver that will be used for the search
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching called at each node of the depth first search
+     *                  tree to add the decisions of the children nodes
+     * @return the depth first search object ready to execute with
+     *         {@link DFSearch#solve()} or
+     *         {@link DFSearch#optimize(Objective)}
+     *         using the given branching
+     * @see BranchingScheme#firstFailDecisions(IntVar...)
+     */
+    public static DFSearch makeDfs(Solver cp, IntVar[] x, DecisionBranching branching) {
+        return new DFSearch(cp, x, branching);
+    }
+
+    /**
+     * Creates a Best First Search that always expands the open node
+     * of smallest priority.
+     * <pre>
+     * {@code
+     * IntVar obj = ...;
+     * BestFirstSearch search = Factory.makeBestFirst(cp, firstFail(x), () -> obj.min());
+     * search.optimize(cp.minimize(obj));
+     * }
+     * </pre>
+     *
+     * @param cp the solver that will be used for the search
+     * @param branching a generator that is called at each node of the search
+     *                 tree to generate an array of {@link Procedure} objects
+     *                 that will be used to commit to child nodes
+     * @param priority the priority of the current node, for instance a lower bound
+     *                 on the objective to minimize
+     * @return the best first search object ready to execute
+     */
+    public static BestFirstSearch makeBestFirst(Solver cp, Supplier<Procedure[]> branching, IntSupplier priority) {
+        return new BestFirstSearch(cp.getStateManager(), branching, priority);
+    }
+
+    /**
+     * Creates a Best First Search with a branching producing
+     * primitive (variable index, operator, value) decisions.
+     *
+     * @param cp the solver that will be used for the search
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching called at each node of the search
+     *                  tree to add the decisions of the children nodes
+     * @param priority the priority of the current node, for instance a lower bound
+     *                 on the objective to minimize
+     * @return the best first search object ready to execute
+     * @see BranchingScheme#firstFailDecisions(IntVar...)
+     */
+    public static BestFirstSearch makeBestFirst(Solver cp, IntVar[] x, DecisionBranching branching, IntSupplier priority) {
+        return new BestFirstSearch(cp, x, branching, priority);
+    }
+
+    /**
+     * Creates an iterative Limited Discrepancy Search
+     * exploring the nodes by increasing discrepancy.
+     *
+     * @param cp the solver that will be used for the search
+     * @param branching a generator that is called at each node of the search
+     *                 tree to generate an array of {@link Procedure} objects
+     *                 that will be used to commit to child nodes
+     * @param maxDiscrepancy the maximum discrepancy of the explored nodes
+     * @return the discrepancy search object ready to execute
+     * @see BranchingScheme#limitedDiscrepancy(Supplier, int)
+     */
+    public static DiscrepancySearch makeLds(Solver cp, Supplier<Procedure[]> branching, int maxDiscrepancy) {
+        return new DiscrepancySearch(cp.getStateManager(), branching, maxDiscrepancy);
+    }
+
+    /**
+     * Creates an iterative Limited Discrepancy Search with a branching
+     * producing primitive (variable index, operator, value) decisions.
+     *
+     * @param cp the solver that will be used for the search
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching called at each node of the search
+     *                  tree to add the decisions of the children nodes
+     * @param maxDiscrepancy the maximum discrepancy of the explored nodes
+     * @return the discrepancy search object ready to execute
+     * @see BranchingScheme#firstFailDecisions(IntVar...)
+     */
+    public static DiscrepancySearch makeLds(Solver cp, IntVar[] x, DecisionBranching branching, int maxDiscrepancy) {
+        return new DiscrepancySearch(cp, x, branching, maxDiscrepancy);
+    }
+
     // -------------- constraints -----------------------
 
     /**
@@ -621,13 +803,118 @@ public final class Factory {
     }
 
     /**
-     * Returns a binary decomposition of the allDifferent constraint.
+     * Returns a variable representing
+     * the weighted sum of a given set of variables.
+     * This relation is enforced by the {@link LinearSum} constraint
+     * posted by calling this method.
+     *
+     * @param a the n coefficients
+     * @param x the n variables to sum
+     * @return a variable equal to {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static IntVar sum(int[] a, IntVar[] x) {
+        long sumMin = 0;
+        long sumMax = 0;
+        for (int i = 0; i < x.length; i++) {
+            sumMin += Math.min((long) a[i] * x[i].min(), (long) a[i] * x[i].max());
+            sumMax += Math.max((long) a[i] * x[i].min(), (long) a[i] * x[i].max());
+        }
+        if (sumMin < (long) Integer.MIN_VALUE || sumMax > (long) Integer.MAX_VALUE) {
+            throw new IntOverFlowException("domains are too large for sum constraint and would exceed Integer bounds");
+        }
+        Solver cp = x[0].getSolver();
+        IntVar s = makeIntVar(cp, (int) sumMin, (int) sumMax);
+        cp.post(sum(a, x, s));
+        return s;
+    }
+
+    /**
+     * Returns a weighted sum constraint.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param y a variable
+     * @return a constraint so that {@code y = a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static Constraint sum(int[] a, IntVar[] x, IntVar y) {
+        int[] coefs = Arrays.copyOf(a, a.length + 1);
+        coefs[a.length] = -1;
+        IntVar[] vars = Arrays.copyOf(x, x.length + 1);
+        vars[x.length] = y;
+        return new LinearSum(coefs, vars, LinearSum.Relation.EQUAL, 0);
+    }
+
+    /**
+     * Returns a weighted sum constraint.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a constraint so that {@code c = a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static Constraint sum(int[] a, IntVar[] x, int c) {
+        return new LinearSum(a, x, LinearSum.Relation.EQUAL, c);
+    }
+
+    /**
+     * Returns a constraint imposing that a weighted sum
+     * is less or equal to some given value.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a constraint so that {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] <= c}
+     */
+    public static Constraint lessOrEqual(int[] a, IntVar[] x, int c) {
+        return new LinearSum(a, x, LinearSum.Relation.LESS_OR_EQUAL, c);
+    }
+
+    /**
+     * Returns a constraint imposing that a weighted sum
+     * is different from some given value.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a constraint so that {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] != c}
+     */
+    public static Constraint notEqual(int[] a, IntVar[] x, int c) {
+        return new LinearSum(a, x, LinearSum.Relation.NOT_EQUAL, c);
+    }
+
+    /**
+     * Minimum domain size from which {@link #allDifferent(IntVar[])}
+     * also filters the bounds in addition to the bound values.
+     */
+    private static final int LARGE_DOMAIN = 64;
+
+    /**
+     * Returns an allDifferent constraint adapted to the domains.
+     * <p>When all the domains are intervals of at least 64 values,
+     * such as positions or successors on large instances,
+     * a bounds consistent {@link AllDifferentBC} is returned,
+     * that also removes the values of the bound variables.
+     * Otherwise, the values of the bound variables are removed
+     * from the other domains (forward checking).
      *
      * @param x an array of variables
      * @return a constraint so that {@code x[i] != x[j] for all i < j}
      */
     public static Constraint allDifferent(IntVar[] x) {
-        return new AllDifferentFW(x);
+        boolean large = true;
+        for (IntVar var : x)
+            large &= var.size() >= LARGE_DOMAIN && var.size() == var.max() - var.min() + 1;
+        return large ? new AllDifferentBC(x) : new AllDifferentFW(x);
+    }
+
+    /**
+     * Returns a bounds consistent allDifferent constraint.
+     *
+     * @param x an array of variables
+     * @return a constraint so that {@code x[i] != x[j] for all i < j}
+     */
+    public static Constraint allDifferentBC(IntVar[] x) {
+        return new AllDifferentBC(x);
     }
 
     /**
@@ -640,4 +927,317 @@ public final class Factory {
     public static Constraint allDifferentAC(IntVar[] x) {
         return new AllDifferentDC(x);
     }
+
+    /**
+     * Returns a global cardinality constraint that enforces
+     * global arc consistency.
+     *
+     * @param x an array of variables
+     * @param values the distinct values with a restricted number of occurrences
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     * @return a constraint so that {@code low[k] <= #{i | x[i] = values[k]} <= up[k]} for all k
+     */
+    public static Constraint cardinality(IntVar[] x, int[] values, int[] low, int[] up) {
+        return new CardinalityDC(x, values, low, up);
+    }
+
+    /**
+     * Returns a global cardinality constraint with cardinality variables.
+     * It replaces the sum of reified equalities
+     * {@code sum(isEqual(x[0], values[k]), ..., isEqual(x[n-1], values[k])) = counts[k]}.
+     *
+     * @param x an array of variables
+     * @param values the distinct values whose number of occurrences is counted
+     * @param counts the number of occurrences of each value
+     * @return a constraint so that {@code #{i | x[i] = values[k]} = counts[k]} for all k
+     */
+    public static Constraint cardinality(IntVar[] x, int[] values, IntVar[] counts) {
+        return new CardinalityDC(x, values, counts);
+    }
+
+    /**
+     * Returns a global cardinality constraint filtering the bounds,
+     * cheaper than {@link #cardinality(IntVar[], int[], int[], int[])} on large domains.
+     * The bounds are consistent for the upper capacities
+     * while the lower capacities are filtered more weakly.
+     *
+     * @param x an array of variables
+     * @param values the distinct values with a restricted number of occurrences
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     * @return a constraint so that {@code low[k] <= #{i | x[i] = values[k]} <= up[k]} for all k
+     */
+    public static Constraint cardinalityBC(IntVar[] x, int[] values, int[] low, int[] up) {
+        return new CardinalityBC(x, values, low, up);
+    }
+
+    /**
+     * Returns an Hamiltonian circuit constraint on a successor model
+     * with a domain consistent allDifferent.
+     *
+     * @param x the successor of each node
+     * @return a constraint so that {@code x} forms a single circuit visiting every node
+     */
+    public static Constraint circuit(IntVar[] x) {
+        return new Circuit(x);
+    }
+
+    /**
+     * Returns an Hamiltonian circuit constraint on a successor model
+     * with a given filtering.
+     * A bounds consistent or forward checking allDifferent with the
+     * graph reasoning scales better than the domain consistent
+     * allDifferent on instances with many nodes.
+     *
+     * @param x the successor of each node
+     * @param level the strength of the allDifferent on the successors
+     * @param rules the graph reasoning to apply on the successor graph
+     * @return a constraint so that {@code x} forms a single circuit visiting every node
+     */
+    public static Constraint circuit(IntVar[] x, Circuit.AllDifferentLevel level, EnumSet<Circuit.Rule> rules) {
+        return new Circuit(x, level, rules);
+    }
+
+    /**
+     * Returns a weighted Hamiltonian circuit constraint on a successor model.
+     * The cost is filtered with the 1-tree bound if the distances
+     * are symmetric and with the assignment bound otherwise.
+     *
+     * @param x the successor of each node
+     * @param distance the distance between each pair of nodes
+     * @param cost the cost of the circuit
+     * @return a constraint so that {@code x} forms a single circuit visiting every node
+     *         and {@code cost = sum_i distance[i][x[i]]}
+     */
+    public static Constraint circuit(IntVar[] x, int[][] distance, IntVar cost) {
+        return new WeightedCircuit(x, distance, cost);
+    }
+
+    /**
+     * Returns a bin-packing constraint.
+     *
+     * @param bin the bin of each item
+     * @param size the non negative size of each item
+     * @param load the load of each bin
+     * @return a constraint so that {@code load[j]} is the sum
+     *         of the sizes of the items i with {@code bin[i] = j}
+     */
+    public static Constraint binPacking(IntVar[] bin, int[] size, IntVar[] load) {
+        return new BinPacking(bin, size, load);
+    }
+
+    /**
+     * Returns a constraint linking the visits of a sequence to their times.
+     *
+     * @param seq the sequence
+     * @param time the time of each node including the start and end,
+     *             whose domains are the time windows
+     * @param service the service duration of each node including the start and end
+     * @param transition the transition times between the nodes, satisfying the triangle inequality
+     * @return a constraint so that {@code time[s] >= time[p] + service[p] + transition[p][s]}
+     *         for every member p of the sequence and its successor s
+     */
+    public static Constraint transitionTimes(SequenceVar seq, IntVar[] time, int[] service, int[][] transition) {
+        return new TransitionTimes(seq, time, service, transition);
+    }
+
+    /**
+     * Returns a constraint on the length of a sequence.
+     *
+     * @param seq the sequence
+     * @param distance the distance between the nodes including the start and end,
+     *                 satisfying the triangle inequality
+     * @param length the length of the sequence
+     * @return a constraint so that {@code length} is the sum of the distances
+     *         between the consecutive members of the sequence
+     */
+    public static Constraint sequenceDistance(SequenceVar seq, int[][] distance, IntVar length) {
+        return new SequenceDistance(seq, distance, length);
+    }
+
+    /**
+     * Returns a capacity constraint on a sequence with pickup and delivery requests.
+     *
+     * @param seq the sequence
+     * @param pickup the pickup node of each request
+     * @param drop the drop node of each request
+     * @param load the non negative load of each request
+     * @param capacity the capacity of the vehicle
+     * @return a constraint so that the pickup of each visited request precedes its drop
+     *         and the load in the vehicle never exceeds the capacity
+     */
+    public static Constraint sequenceCapacity(SequenceVar seq, int[] pickup, int[] drop, int[] load, int capacity) {
+        return new SequenceCapacity(seq, pickup, drop, load, capacity);
+    }
+
+    /**
+     * Returns a constraint linking the successors of routes to their times.
+     *
+     * @param succ the successor of each node
+     * @param time the arrival time at each node, whose domains are the time windows
+     * @param transition the travel time between each pair of nodes, satisfying the triangle inequality
+     * @param ends the ends of the routes, whose successors carry no travel time
+     * @param pickup the pickup node of each request
+     * @param drop the drop node of each request
+     * @param maxRideTime the maximum time between a pickup and its drop
+     * @return a constraint so that {@code time[succ[i]] = time[i] + transition[i][succ[i]]}
+     *         for every node i that is not an end and each drop is reached
+     *         on the route of its pickup at most {@code maxRideTime} later
+     */
+    public static Constraint routeTimes(IntVar[] succ, IntVar[] time, int[][] transition, int[] ends,
+                                        int[] pickup, int[] drop, int maxRideTime) {
+        return new RouteTimes(succ, time, transition, ends, pickup, drop, maxRideTime);
+    }
+
+    /**
+     * Returns a capacity constraint on routes given by a successor model.
+     *
+     * @param succ the successor of each node
+     * @param load the load of the vehicle when leaving each node
+     * @param demand the variation of the load at each node
+     * @param ends the ends of the routes, whose successors are not related by the load
+     * @param capacity the capacity of the vehicles
+     * @return a constraint so that {@code load[succ[i]] = load[i] + demand[succ[i]]}
+     *         for every node i that is not an end and {@code 0 <= load[i] <= capacity}
+     */
+    public static Constraint routeLoad(IntVar[] succ, IntVar[] load, int[] demand, int[] ends, int capacity) {
+        return new RouteLoad(succ, load, demand, ends, capacity);
+    }
+
+    /**
+     * Returns a cumulative constraint with time-table filtering.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities (non negative)
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the resource
+     * @return a constraint so that at any time-point t, the sum of the demands
+     *         of the activities overlapping t does not exceed the capacity
+     */
+    public static Constraint cumulative(IntVar[] start, int[] duration, int[] demand, int capa) {
+        return new Cumulative(start, duration, demand, capa);
+    }
+
+    /**
+     * Returns a cumulative constraint with a given filtering level.
+     * Stronger levels explore smaller search trees at the price
+     * of a more expensive propagation.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities (non negative)
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the resource
+     * @param filtering the filtering level
+     * @return a constraint so that at any time-point t, the sum of the demands
+     *         of the activities overlapping t does not exceed the capacity
+     */
+    public static Constraint cumulative(IntVar[] start, int[] duration, int[] demand, int capa,
+                                        Cumulative.Filtering filtering) {
+        return new Cumulative(start, duration, demand, capa, filtering);
+    }
+
+    /**
+     * Returns a cumulative constraint with time-table filtering
+     * where the durations, the demands and the capacity are variables.
+     * The filtering relies on the minimum durations and demands
+     * and on the maximum capacity.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities
+     * @param demand the demand of each activities
+     * @param capa the capacity of the resource
+     * @return a constraint so that at any time-point t, the sum of the demands
+     *         of the activities overlapping t does not exceed the capacity
+     */
+    public static Constraint cumulative(IntVar[] start, IntVar[] duration, IntVar[] demand, IntVar capa) {
+        return new Cumulative(start, duration, demand, capa);
+    }
+
+    /**
+     * Returns a cumulative constraint with a given filtering level
+     * where the durations, the demands and the capacity are variables.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities
+     * @param demand the demand of each activities
+     * @param capa the capacity of the resource
+     * @param filtering the filtering level
+     * @return a constraint so that at any time-point t, the sum of the demands
+     *         of the activities overlapping t does not exceed the capacity
+     */
+    public static Constraint cumulative(IntVar[] start, IntVar[] duration, IntVar[] demand, IntVar capa,
+                                        Cumulative.Filtering filtering) {
+        return new Cumulative(start, duration, demand, capa, filtering);
+    }
+
+    /**
+     * Returns a disjunctive constraint with every filtering rule enabled.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities (non negative)
+     * @return a constraint so that no two activities overlap in time
+     */
+    public static Constraint disjunctive(IntVar[] start, int[] duration) {
+        return new Disjunctive(start, duration);
+    }
+
+    /**
+     * Returns a disjunctive constraint with a given set of filtering rules.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities (non negative)
+     * @param rules the filtering rules to apply
+     * @return a constraint so that no two activities overlap in time
+     */
+    public static Constraint disjunctive(IntVar[] start, int[] duration, EnumSet<Disjunctive.Rule> rules) {
+        return new Disjunctive(start, duration, rules);
+    }
+
+    /**
+     * Returns a disjunctive constraint over interval variables,
+     * with every filtering rule enabled.
+     *
+     * @param intervals the activities, possibly optional
+     * @return a constraint so that no two present activities overlap in time
+     */
+    public static Constraint disjunctive(IntervalVar[] intervals) {
+        return new Disjunctive(intervals);
+    }
+
+    /**
+     * Returns a cumulative constraint over interval variables with time-table filtering.
+     *
+     * @param intervals the activities, possibly optional
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the resource
+     * @return a constraint so that at any time-point t, the sum of the demands
+     *         of the present activities overlapping t does not exceed the capacity
+     */
+    public static Constraint cumulative(IntervalVar[] intervals, int[] demand, int capa) {
+        return new Cumulative(intervals, demand, capa);
+    }
+
+    /**
+     * Returns a precedence constraint between two interval variables.
+     *
+     * @param a the interval that comes first
+     * @param b the interval that comes second
+     * @return a constraint so that {@code end(a) <= start(b)} if both intervals are present
+     */
+    public static Constraint endBeforeStart(IntervalVar a, IntervalVar b) {
+        return new EndBeforeStart(a, b);
+    }
+
+    /**
+     * Returns a regular constraint.
+     *
+     * @param x a non empty array of variables
+     * @param automaton a deterministic finite automaton
+     * @return a constraint so that the sequence {@code x[0], x[1], ..., x[n-1]}
+     *         is a word accepted by the automaton
+     */
+    public static Constraint regular(IntVar[] x, DFA automaton) {
+        return new Regular(x, automaton);
+    }
 }
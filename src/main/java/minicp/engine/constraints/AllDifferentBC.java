@@ -0,0 +1,253 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.Arrays;
+
+/**
+ * Bounds consistent AllDifferent constraint.
+ * <p>The bounds of every variable are filtered such that
+ * they belong to a solution of the relaxation where the domains are
+ * replaced by their interval. The values inside the domains are not
+ * filtered, which is much cheaper than {@link AllDifferentDC} on large domains,
+ * except the value of a bound variable that is removed from the other
+ * domains such that the filtering is never weaker than {@link AllDifferentFW}.
+ * <p>The Hall intervals are detected in {@code O(n log n)} by
+ * sweeping the variables sorted by bounds with a union-find on the
+ * distinct bounds. The sorted orders are kept from one propagation
+ * to the next and restored with an insertion sort, that is
+ * linear when few bounds changed, or with a {@code O(n log n)}
+ * sort when the insertion sort exceeds {@code O(n log n)} moves,
+ * for instance after a backtrack.
+ *
+ * <p>López-Ortiz, A., Quimper, C. G., Tromp, J., & Van Beek, P. (2003).
+ * A fast and simple algorithm for bounds consistency of the alldifferent constraint.
+ * In IJCAI (pp. 245-250).
+ */
+public class AllDifferentBC extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int n;
+    private final int[] min; // bounds of the variables at the start of the propagation
+    private final int[] max;
+    private final int[] minRank; // minRank[i] is the index of min[i] in bounds
+    private final int[] maxRank; // maxRank[i] is the index of max[i]+1 in bounds
+    private final int[] minSorted; // indices of the variables by increasing min
+    private final int[] maxSorted; // indices of the variables by increasing max
+    private final long[] keys; // key and index of each variable for the fallback sort
+    private final int sortBudget; // maximum number of moves of the insertion sort
+
+    private final int[] bounds; // distinct min and max+1 values, with sentinels
+    private int nb;
+    private final int[] t; // tree links
+    private final int[] d; // diffs between critical capacities
+    private final int[] h; // hall interval links
+
+    /**
+     * Creates a bounds consistent AllDifferent constraint.
+     *
+     * @param x the variables that must take different values
+     */
+    public AllDifferentBC(IntVar... x) {
+        super(x[0].getSolver());
+        this.x = x;
+        this.n = x.length;
+        min = new int[n];
+        max = new int[n];
+        minRank = new int[n];
+        maxRank = new int[n];
+        minSorted = new int[n];
+        maxSorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            minSorted[i] = i;
+            maxSorted[i] = i;
+        }
+        keys = new long[n];
+        sortBudget = n * (32 - Integer.numberOfLeadingZeros(n));
+        bounds = new int[2 * n + 2];
+        t = new int[2 * n + 2];
+        d = new int[2 * n + 2];
+        h = new int[2 * n + 2];
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < n; i++) {
+            final int ii = i;
+            x[i].propagateOnBoundChange(this);
+            x[i].whenBind(() -> removeValue(ii));
+        }
+        for (int i = 0; i < n; i++)
+            if (x[i].isBound())
+                removeValue(i);
+        propagate();
+    }
+
+    // removes the value of the bound variable x[i] from the other domains
+    private void removeValue(int i) {
+        int v = x[i].min();
+        for (int j = 0; j < n; j++)
+            if (j != i)
+                x[j].remove(v);
+    }
+
+    @Override
+    public void propagate() {
+        for (int i = 0; i < n; i++) {
+            min[i] = x[i].min();
+            max[i] = x[i].max();
+        }
+        sortBounds();
+        filterLower();
+        filterUpper();
+    }
+
+    private void sortBounds() {
+        sort(minSorted, min);
+        sort(maxSorted, max);
+        int nextMin = min[minSorted[0]];
+        int nextMax = max[maxSorted[0]] + 1;
+        int last = nextMin - 2;
+        nb = 0;
+        bounds[0] = last;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            if (i < n && nextMin < nextMax) {
+                if (nextMin != last) bounds[++nb] = last = nextMin;
+                minRank[minSorted[i]] = nb;
+                if (++i < n) nextMin = min[minSorted[i]];
+            } else {
+                if (nextMax != last) bounds[++nb] = last = nextMax;
+                maxRank[maxSorted[j]] = nb;
+                if (++j == n) break;
+                nextMax = max[maxSorted[j]] + 1;
+            }
+        }
+        bounds[nb + 1] = bounds[nb] + 2;
+    }
+
+    // sorts the indices by increasing key, with an insertion sort
+    // while it moved less than sortBudget indices and then with Arrays.sort
+    private void sort(int[] order, int[] key) {
+        int moves = 0;
+        for (int i = 1; i < n; i++) {
+            if (moves > sortBudget) {
+                for (int k = 0; k < n; k++)
+                    keys[k] = ((long) key[order[k]] << 32) | order[k];
+                Arrays.sort(keys);
+                for (int k = 0; k < n; k++)
+                    order[k] = (int) keys[k];
+                return;
+            }
+            int v = order[i];
+            int k = key[v];
+            int j = i - 1;
+            while (j >= 0 && key[order[j]] > k) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            moves += i - 1 - j;
+            order[j + 1] = v;
+        }
+    }
+
+    private void filterLower() {
+        for (int i = 1; i <= nb + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = bounds[i] - bounds[i - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            int v = maxSorted[i];
+            int a = minRank[v];
+            int b = maxRank[v];
+            int z = pathMax(t, a + 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z + 1;
+                z = pathMax(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, a + 1, z, z);
+            if (d[z] < bounds[z] - bounds[b])
+                throw InconsistencyException.INCONSISTENCY;
+            if (h[a] > a) {
+                int w = pathMax(h, h[a]);
+                x[v].removeBelow(bounds[w]);
+                pathSet(h, a, w, w);
+            }
+            if (d[z] == bounds[z] - bounds[b]) {
+                // [bounds[j], bounds[b]) is a Hall interval
+                pathSet(h, h[b], j - 1, b);
+                h[b] = j - 1;
+            }
+        }
+    }
+
+    private void filterUpper() {
+        for (int i = 0; i <= nb; i++) {
+            t[i] = h[i] = i + 1;
+            d[i] = bounds[i + 1] - bounds[i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int v = minSorted[i];
+            int a = maxRank[v];
+            int b = minRank[v];
+            int z = pathMin(t, a - 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z - 1;
+                z = pathMin(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, a - 1, z, z);
+            if (d[z] < bounds[b] - bounds[z])
+                throw InconsistencyException.INCONSISTENCY;
+            if (h[a] < a) {
+                int w = pathMin(h, h[a]);
+                x[v].removeAbove(bounds[w] - 1);
+                pathSet(h, a, w, w);
+            }
+            if (d[z] == bounds[b] - bounds[z]) {
+                pathSet(h, h[b], j + 1, b);
+                h[b] = j + 1;
+            }
+        }
+    }
+
+    private static void pathSet(int[] p, int start, int end, int to) {
+        int l = start;
+        while (l != end) {
+            int k = p[l];
+            p[l] = to;
+            l = k;
+        }
+    }
+
+    private static int pathMin(int[] p, int i) {
+        while (p[i] < i) i = p[i];
+        return i;
+    }
+
+    private static int pathMax(int[] p, int i) {
+        while (p[i] > i) i = p[i];
+        return i;
+    }
+}
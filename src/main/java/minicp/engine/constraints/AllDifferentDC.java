@@ -17,10 +17,9 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.GraphUtil;
-import minicp.util.GraphUtil.*;
-
-import java.util.ArrayList;
+import minicp.state.StateInt;
+import minicp.util.GraphUtil.CSRGraph;
+import minicp.util.GraphUtil.Tarjan;
 
 import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
@@ -29,6 +28,13 @@ import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
  *
  * Algorithm described in
  * "A filtering algorithm for constraints of difference in CSPs" J-C. Régin, AAAI-94
+ * <p>The maximum matching is repaired from the previous one,
+ * only for the variables that lost their matched value.
+ * The residual graph is rebuilt in a reusable {@link CSRGraph}
+ * and its strongly connected components are computed by an iterative {@link Tarjan},
+ * such that a propagation does not allocate.
+ * The propagation is skipped when no domain changed since the
+ * last fix-point of this constraint.
  */
 public class AllDifferentDC extends AbstractConstraint {
 
@@ -40,10 +46,10 @@ public class AllDifferentDC extends AbstractConstraint {
     private int nVal;
 
     // residual graph
-    private ArrayList<Integer>[] in;
-    private ArrayList<Integer>[] out;
     private int nNodes;
-    private DirectedGraph g;
+    private CSRGraph g;
+    private final Tarjan tarjan = new Tarjan();
+    private int[] components;
 
     private int[] match;
     private int[] domain;
@@ -52,6 +58,9 @@ public class AllDifferentDC extends AbstractConstraint {
     private int maxVal;
     private int maxSize;
 
+    // sum of the domain sizes at the end of the last propagation
+    private final StateInt lastTotalSize;
+
 
     public AllDifferentDC(IntVar... x) {
         super(x[0].getSolver());
@@ -60,6 +69,7 @@ public class AllDifferentDC extends AbstractConstraint {
         maximumMatching = new MaximumMatching(x);
         match = new int[x.length];
         this.nVar = x.length;
+        lastTotalSize = getSolver().getStateManager().makeStateInt(-1);
     }
 
 
@@ -71,13 +81,8 @@ public class AllDifferentDC extends AbstractConstraint {
         updateRange();
         domain = new int[maxSize];
         nNodes = nVar + nVal + 1;
-        g = new DirectedGraph(nNodes);
-        in = new ArrayList[nNodes];
-        out = new ArrayList[nNodes];
-        for (int i = 0; i < nNodes; i++) {
-            in[i] = new ArrayList<>();
-            out[i] = new ArrayList<>();
-        }
+        g = new CSRGraph(nNodes);
+        components = new int[nNodes];
         propagate();
     }
 
@@ -103,51 +108,47 @@ public class AllDifferentDC extends AbstractConstraint {
 
 
     private void updateGraph() {
-        g.clear();
-        nNodes = nVar + nVal + 1;
+        g.clear(nNodes);
         int sink = nNodes - 1;
-        for (int j = 0; j < nNodes; j++) {
-            in[j].clear();
-            out[j].clear();
-        }
-
-        for (int v = minVal; v <= maxVal; ++v) {
-            int id = getNodeId(v);
-
-            // Link value to dummy
-            g.link(id, sink);
-        }
 
         for (int i = 0; i < x.length; ++i) {
             int v = match[i];
-            int id = getNodeId(v);
-            // Link matching val to variable
-            g.link(id, i);
-
-            // unlink matched value to dummy
-            g.unlink(id, sink);
-
-            // Link dummy to value
-            g.link(sink, id);
-
             int size = x[i].fillArray(domain);
             for (int j = 0; j < size; ++j) {
                 if (domain[j] != v) {
-
                     // Match variable to node value
-                    g.link(i, getNodeId(domain[j]));
+                    g.addEdge(i, getNodeId(domain[j]));
                 }
             }
+            // Link matching val to variable
+            g.addEdge(getNodeId(v), i);
+            // Link dummy to value
+            g.addEdge(sink, getNodeId(v));
         }
+        for (int v = minVal; v <= maxVal; ++v) {
+            int id = getNodeId(v);
+            // Link free value to dummy
+            if (!isMatched(v)) g.addEdge(id, sink);
+        }
+        g.build();
+    }
+
+    private boolean isMatched(int v) {
+        return maximumMatching.isMatched(v);
+    }
+
+    private int totalSize() {
+        int total = 0;
+        for (int i = 0; i < nVar; i++) total += x[i].size();
+        return total;
     }
 
 
     @Override
     public void propagate() {
-        // hint: use maximumMatching.compute(match) to update the maximum matching
-        //       use updateRange() to update the range of values
-        //       use updateGraph() to update the residual graph
-        //       use  GraphUtil.stronglyConnectedComponents to compute SCC's
+        if (totalSize() == lastTotalSize.value())
+            return; // no value removed since the last fix-point of this constraint
+
         int sizeMatching = maximumMatching.compute(match);
 
         if (sizeMatching < x.length) {
@@ -156,7 +157,7 @@ public class AllDifferentDC extends AbstractConstraint {
 
         updateGraph();
 
-        int[] components = GraphUtil.stronglyConnectedComponents(g);
+        tarjan.run(g, components);
         for (int i = 0; i < x.length; ++i) {
             int size = x[i].fillArray(domain);
             for (int j = 0; j < size; ++j) {
@@ -168,5 +169,6 @@ public class AllDifferentDC extends AbstractConstraint {
                 }
             }
         }
+        lastTotalSize.setValue(totalSize());
     }
 }
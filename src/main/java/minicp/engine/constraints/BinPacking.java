@@ -0,0 +1,286 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Bin-packing constraint.
+ * <p>Item i of size {@code size[i]} is placed in bin {@code bin[i]}
+ * and {@code load[j]} is the sum of the sizes of the items placed in bin j.
+ * <p>The filtering combines:
+ * <ul>
+ *     <li>the load/size reasoning: the load of a bin is between the sizes
+ *     of the items that are placed in it and the ones that may be placed in it,
+ *     the sum of the loads is the sum of the sizes,
+ *     an item that does not fit in a bin is removed from it and an item
+ *     without which a bin cannot reach its minimum load is placed in it,</li>
+ *     <li>the knapsack reasoning: the same rules when the sums of the subsets
+ *     of the candidate items of a bin cannot reach its load,
+ *     detected by the linear time NoSum test,</li>
+ *     <li>the failure detection with the L2 lower bound of Martello and Toth
+ *     on the number of bins needed to pack the items that are not yet placed.</li>
+ * </ul>
+ * <p>The filtering of one propagation works on a snapshot of the domains
+ * taken when it starts: the items placed or removed during the propagation
+ * are still considered as candidates, which only weakens the filtering
+ * until the next propagation.
+ *
+ * <p>Shaw, P. (2004). A constraint for bin packing.
+ * In CP (pp. 648-662). Springer.
+ */
+public class BinPacking extends AbstractConstraint {
+
+    private final IntVar[] bin;
+    private final int[] size;
+    private final IntVar[] load;
+    private final int nItems;
+    private final int nBins;
+    private final int totalSize;
+    private final int[] order; // items by decreasing size
+    private final int[] required; // size of the items placed in each bin
+    private final int[][] candidates; // items that may be placed in each bin, by decreasing size
+    private final int[] nCandidates;
+    private final int[] candidateSize; // size of the candidates of each bin
+    private final int[] values;
+    private final int[] sizes;
+    private final int[] others;
+    private final int[] l2Sizes;
+    // results of noSum
+    private int sumBelow;
+    private int sumAbove;
+
+    /**
+     * Creates a bin-packing constraint.
+     *
+     * @param bin the bin of each item, its values outside {@code [0, load.length)} are removed
+     * @param size the non negative size of each item
+     * @param load the load of each bin
+     */
+    public BinPacking(IntVar[] bin, int[] size, IntVar[] load) {
+        super(bin[0].getSolver());
+        this.bin = bin;
+        this.size = size;
+        this.load = load;
+        nItems = bin.length;
+        nBins = load.length;
+        totalSize = Arrays.stream(size).sum();
+        order = IntStream.range(0, nItems).boxed()
+                .sorted((i, j) -> Integer.compare(size[j], size[i]))
+                .mapToInt(i -> i).toArray();
+        required = new int[nBins];
+        candidates = new int[nBins][nItems];
+        nCandidates = new int[nBins];
+        candidateSize = new int[nBins];
+        values = new int[Math.max(nBins, Arrays.stream(bin).mapToInt(IntVar::size).max().getAsInt())];
+        sizes = new int[nItems];
+        others = new int[nItems];
+        l2Sizes = new int[nItems + nBins];
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < nItems; i++) {
+            bin[i].removeBelow(0);
+            bin[i].removeAbove(nBins - 1);
+            bin[i].propagateOnDomainChange(this);
+        }
+        for (int j = 0; j < nBins; j++) {
+            load[j].removeBelow(0);
+            load[j].propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        snapshot();
+        // load/size reasoning
+        for (int j = 0; j < nBins; j++) {
+            load[j].removeBelow(required[j]);
+            load[j].removeAbove(required[j] + candidateSize[j]);
+        }
+        int sumMin = 0;
+        int sumMax = 0;
+        for (int j = 0; j < nBins; j++) {
+            sumMin += load[j].min();
+            sumMax += load[j].max();
+        }
+        for (int j = 0; j < nBins; j++) {
+            load[j].removeBelow(totalSize - (sumMax - load[j].max()));
+            load[j].removeAbove(totalSize - (sumMin - load[j].min()));
+        }
+        // knapsack reasoning on each bin
+        for (int j = 0; j < nBins; j++)
+            if (nCandidates[j] > 0)
+                filterBin(j);
+        // no more bins than available
+        if (lowerBoundL2() > nBins)
+            throw INCONSISTENCY;
+    }
+
+    // items placed in each bin and candidates of each bin
+    private void snapshot() {
+        Arrays.fill(required, 0);
+        Arrays.fill(nCandidates, 0);
+        Arrays.fill(candidateSize, 0);
+        for (int i : order) {
+            if (bin[i].isBound()) {
+                required[bin[i].min()] += size[i];
+            } else {
+                int s = bin[i].fillArray(values);
+                for (int k = 0; k < s; k++) {
+                    int j = values[k];
+                    candidates[j][nCandidates[j]++] = i;
+                    candidateSize[j] += size[i];
+                }
+            }
+        }
+    }
+
+    private void filterBin(int j) {
+        int r = required[j];
+        int[] items = candidates[j];
+        int c = nCandidates[j];
+        int total = candidateSize[j];
+        if (load[j].min() - r <= 0 && load[j].max() - r >= total)
+            return; // every subset of the candidates fits
+        for (int k = 0; k < c; k++)
+            sizes[k] = size[items[k]];
+        if (noSum(sizes, c, -1, total, load[j].min() - r, load[j].max() - r))
+            throw INCONSISTENCY;
+        if (noSum(sizes, c, -1, total, load[j].min() - r, load[j].min() - r))
+            load[j].removeBelow(r + sumAbove);
+        if (noSum(sizes, c, -1, total, load[j].max() - r, load[j].max() - r))
+            load[j].removeAbove(r + sumBelow);
+        int alpha = load[j].min() - r;
+        int beta = load[j].max() - r;
+        for (int k = 0; k < c; k++) {
+            int i = items[k];
+            int s = sizes[k];
+            if (!bin[i].contains(j))
+                continue;
+            if (s > beta || noSum(sizes, c, k, total - s, alpha - s, beta - s))
+                bin[i].remove(j);
+            else if (total - s < alpha || noSum(sizes, c, k, total - s, alpha, beta))
+                bin[i].assign(j);
+        }
+    }
+
+    /**
+     * Tests if no subset of the items sums in {@code [alpha, beta]}.
+     * When it returns true, {@link #sumBelow} is a sum of a subset below alpha
+     * and {@link #sumAbove} is a sum of a subset above beta,
+     * which are the largest and the smallest ones when the test is exact.
+     *
+     * @param x the sizes of the items, by decreasing size
+     * @param n the number of items
+     * @param excluded the index of an item that is not considered, -1 if none
+     * @param total the sum of the sizes of the items that are considered
+     * @param alpha the lower bound
+     * @param beta the upper bound
+     * @return true if it is proven that no subset sums in {@code [alpha, beta]}
+     */
+    private boolean noSum(int[] x, int n, int excluded, int total, int alpha, int beta) {
+        if (alpha <= 0 || beta >= total)
+            return false;
+        if (alpha > total) {
+            sumBelow = total;
+            sumAbove = Integer.MAX_VALUE;
+            return true;
+        }
+        int[] y = x;
+        if (excluded >= 0) {
+            y = others;
+            System.arraycopy(x, 0, y, 0, excluded);
+            System.arraycopy(x, excluded + 1, y, excluded, n - excluded - 1);
+            n--;
+        }
+        int sumA = 0, sumB = 0, sumC = 0;
+        int k = 0; // number of largest items in A
+        int kp = 0; // number of smallest items in C
+        while (sumC + y[n - kp - 1] < alpha) {
+            sumC += y[n - kp - 1];
+            kp++;
+        }
+        sumB = y[n - kp - 1];
+        while (sumA < alpha && sumB <= beta) {
+            k++;
+            sumA += y[k - 1];
+            if (sumA < alpha) {
+                kp--;
+                sumB += y[n - kp - 1];
+                sumC -= y[n - kp - 1];
+                while (sumA + sumC >= alpha) {
+                    kp--;
+                    sumC -= y[n - kp - 1];
+                    sumB += y[n - kp - 1] - y[n - kp - k - 2];
+                }
+            }
+        }
+        sumBelow = sumA + sumC;
+        sumAbove = sumB;
+        return sumA < alpha;
+    }
+
+    /**
+     * Lower bound L2 of Martello and Toth on the number of bins
+     * of capacity C, the largest maximum load, needed to pack the items
+     * that are not yet placed. Each bin j is filled beforehand with an item of size
+     * {@code C - load[j].max()} plus the sizes of its placed items.
+     */
+    private int lowerBoundL2() {
+        int capa = 0;
+        for (int j = 0; j < nBins; j++)
+            capa = Math.max(capa, load[j].max());
+        if (capa == 0)
+            return 0;
+        int n = 0;
+        for (int j = 0; j < nBins; j++)
+            l2Sizes[n++] = capa - load[j].max() + required[j];
+        for (int i = 0; i < nItems; i++)
+            if (!bin[i].isBound())
+                l2Sizes[n++] = size[i];
+        Arrays.sort(l2Sizes, 0, n);
+        int best = 0;
+        for (int t = 0; t < n; t++) {
+            int kk = l2Sizes[t];
+            if (2 * kk > capa) break;
+            if (t > 0 && kk == l2Sizes[t - 1]) continue;
+            best = Math.max(best, lowerBoundL2(n, capa, kk));
+        }
+        return Math.max(best, lowerBoundL2(n, capa, 0));
+    }
+
+    private int lowerBoundL2(int n, int capa, int kk) {
+        int n1 = 0, n2 = 0, sum2 = 0, sum3 = 0;
+        for (int t = 0; t < n; t++) {
+            int s = l2Sizes[t];
+            if (s > capa - kk) n1++;
+            else if (2 * s > capa) {
+                n2++;
+                sum2 += s;
+            } else if (s >= kk) sum3 += s;
+        }
+        int free = n2 * capa - sum2;
+        return n1 + n2 + Math.max(0, (sum3 - free + capa - 1) / capa);
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import java.util.Arrays;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Global Cardinality Constraint with fixed capacities
+ * filtering the bounds of the variables.
+ * <p>The number of variables taking the value {@code values[k]}
+ * is between {@code low[k]} and {@code up[k]}.
+ * The other values may be taken by any number of variables.
+ * <p>The upper capacities are enforced as in {@link AllDifferentBC}
+ * where the number of values of an interval is replaced by
+ * the sum of their capacities, computed with partial sums.
+ * The values that cannot be taken are removed once at post,
+ * and the bounds are then ranked among the remaining values
+ * such that every value has a positive capacity.
+ * The bounds are thus consistent for the upper capacities.
+ * The lower capacities are only enforced by counting the variables
+ * whose interval contains each value:
+ * when they are just enough, they are all bound to the value.
+ * This is weaker than the bounds consistency of the lower capacities
+ * of Quimper et al. which reasons on intervals of values.
+ * The values inside the domains are not filtered, which is
+ * much cheaper than {@link CardinalityDC} on large domains.
+ *
+ * <p>Quimper, C. G., Van Beek, P., López-Ortiz, A., Golynski, A., & Sadjad, S. B. (2003).
+ * An efficient bounds consistency algorithm for the global cardinality constraint.
+ * In CP (pp. 600-614).
+ */
+public class CardinalityBC extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int n;
+    private final int[] values;
+    private final int[] low;
+    private final int[] up;
+
+    // the values that can be taken, ranked from 0 to nRank-1
+    private int minVal;
+    private int[] rank; // rank of the values from minVal, -1 if it cannot be taken
+    private int[] rankValue; // value of each rank
+    private int nRank;
+    private long[] capSum; // capSum[r+2] is the sum of the capacities of the ranks below r
+
+    private final int[] min; // bounds ranks of the variables at the start of the propagation
+    private final int[] max;
+    private final int[] minRank; // minRank[i] is the index of min[i] in bounds
+    private final int[] maxRank; // maxRank[i] is the index of max[i]+1 in bounds
+    private final int[] minSorted;
+    private final int[] maxSorted;
+
+    private final int[] bounds; // distinct min and max+1 ranks, with sentinels
+    private int nb;
+    private final int[] t; // tree links
+    private final long[] d; // diffs between critical capacities
+    private final int[] h; // hall interval links
+
+    /**
+     * Creates a global cardinality constraint filtering the bounds.
+     *
+     * @param x the variables
+     * @param values the distinct values with a restricted number of occurrences
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     */
+    public CardinalityBC(IntVar[] x, int[] values, int[] low, int[] up) {
+        super(x[0].getSolver());
+        if (values.length != low.length || values.length != up.length)
+            throw new IllegalArgumentException("one capacity per value is expected");
+        this.x = x;
+        this.n = x.length;
+        this.values = values;
+        this.low = low;
+        this.up = up;
+        min = new int[n];
+        max = new int[n];
+        minRank = new int[n];
+        maxRank = new int[n];
+        minSorted = new int[n];
+        maxSorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            minSorted[i] = i;
+            maxSorted[i] = i;
+        }
+        bounds = new int[2 * n + 2];
+        t = new int[2 * n + 2];
+        d = new long[2 * n + 2];
+        h = new int[2 * n + 2];
+    }
+
+    @Override
+    public void post() {
+        minVal = Integer.MAX_VALUE;
+        int maxVal = Integer.MIN_VALUE;
+        for (IntVar var : x) {
+            minVal = Math.min(minVal, var.min());
+            maxVal = Math.max(maxVal, var.max());
+        }
+        int[] cap = new int[maxVal - minVal + 1];
+        Arrays.fill(cap, n);
+        for (int k = 0; k < values.length; k++) {
+            int v = values[k];
+            if (low[k] > up[k]) throw INCONSISTENCY;
+            if (v < minVal || v > maxVal) {
+                if (low[k] > 0) throw INCONSISTENCY;
+            } else {
+                cap[v - minVal] = Math.max(0, Math.min(n, up[k]));
+            }
+        }
+        rank = new int[cap.length];
+        rankValue = new int[cap.length];
+        nRank = 0;
+        for (int v = 0; v < cap.length; v++) {
+            if (cap[v] == 0) {
+                rank[v] = -1;
+                for (IntVar var : x) var.remove(v + minVal);
+            } else {
+                rankValue[nRank] = v + minVal;
+                rank[v] = nRank++;
+            }
+        }
+        capSum = new long[nRank + 5];
+        for (int r = -2; r <= nRank + 1; r++)
+            capSum[r + 3] = capSum[r + 2] + (r >= 0 && r < nRank ? cap[rankValue[r] - minVal] : n);
+
+        for (IntVar var : x)
+            var.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        for (int i = 0; i < n; i++) {
+            min[i] = rank[x[i].min() - minVal];
+            max[i] = rank[x[i].max() - minVal];
+        }
+        sortBounds();
+        filterLower();
+        filterUpper();
+        filterLowerCapacities();
+    }
+
+    // sum of the capacities of the ranks in [a, b)
+    private long capacity(int a, int b) {
+        return capSum[b + 2] - capSum[a + 2];
+    }
+
+    private void filterLowerCapacities() {
+        for (int k = 0; k < values.length; k++) {
+            int v = values[k];
+            if (low[k] <= 0 || v < minVal || v >= minVal + rank.length) continue;
+            int possible = 0;
+            for (int i = 0; i < n; i++)
+                if (x[i].min() <= v && v <= x[i].max()) possible++;
+            if (possible < low[k]) throw INCONSISTENCY;
+            if (possible == low[k]) {
+                for (int i = 0; i < n; i++)
+                    if (x[i].min() <= v && v <= x[i].max()) x[i].assign(v);
+            }
+        }
+    }
+
+    private void sortBounds() {
+        insertionSort(minSorted, min);
+        insertionSort(maxSorted, max);
+        int nextMin = min[minSorted[0]];
+        int nextMax = max[maxSorted[0]] + 1;
+        int last = nextMin - 2;
+        nb = 0;
+        bounds[0] = last;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            if (i < n && nextMin < nextMax) {
+                if (nextMin != last) bounds[++nb] = last = nextMin;
+                minRank[minSorted[i]] = nb;
+                if (++i < n) nextMin = min[minSorted[i]];
+            } else {
+                if (nextMax != last) bounds[++nb] = last = nextMax;
+                maxRank[maxSorted[j]] = nb;
+                if (++j == n) break;
+                nextMax = max[maxSorted[j]] + 1;
+            }
+        }
+        bounds[nb + 1] = bounds[nb] + 2;
+    }
+
+    private static void insertionSort(int[] order, int[] key) {
+        for (int i = 1; i < order.length; i++) {
+            int v = order[i];
+            int k = key[v];
+            int j = i - 1;
+            while (j >= 0 && key[order[j]] > k) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+    }
+
+    private void filterLower() {
+        for (int i = 1; i <= nb + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = capacity(bounds[i - 1], bounds[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            int v = maxSorted[i];
+            int a = minRank[v];
+            int b = maxRank[v];
+            int z = pathMax(t, a + 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z + 1;
+                z = pathMax(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, a + 1, z, z);
+            if (d[z] < capacity(bounds[b], bounds[z]))
+                throw INCONSISTENCY;
+            if (h[a] > a) {
+                int w = pathMax(h, h[a]);
+                x[v].removeBelow(bounds[w] < nRank ? rankValue[bounds[w]] : Integer.MAX_VALUE);
+                pathSet(h, a, w, w);
+            }
+            if (d[z] == capacity(bounds[b], bounds[z])) {
+                // [bounds[j], bounds[b]) is a Hall interval
+                pathSet(h, h[b], j - 1, b);
+                h[b] = j - 1;
+            }
+        }
+    }
+
+    private void filterUpper() {
+        for (int i = 0; i <= nb; i++) {
+            t[i] = h[i] = i + 1;
+            d[i] = capacity(bounds[i], bounds[i + 1]);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int v = minSorted[i];
+            int a = maxRank[v];
+            int b = minRank[v];
+            int z = pathMin(t, a - 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z - 1;
+                z = pathMin(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, a - 1, z, z);
+            if (d[z] < capacity(bounds[z], bounds[b]))
+                throw INCONSISTENCY;
+            if (h[a] < a) {
+                int w = pathMin(h, h[a]);
+                x[v].removeAbove(bounds[w] > 0 ? rankValue[bounds[w] - 1] : Integer.MIN_VALUE);
+                pathSet(h, a, w, w);
+            }
+            if (d[z] == capacity(bounds[z], bounds[b])) {
+                pathSet(h, h[b], j + 1, b);
+                h[b] = j + 1;
+            }
+        }
+    }
+
+    private static void pathSet(int[] p, int start, int end, int to) {
+        int l = start;
+        while (l != end) {
+            int k = p[l];
+            p[l] = to;
+            l = k;
+        }
+    }
+
+    private static int pathMin(int[] p, int i) {
+        while (p[i] < i) i = p[i];
+        return i;
+    }
+
+    private static int pathMax(int[] p, int i) {
+        while (p[i] > i) i = p[i];
+        return i;
+    }
+}
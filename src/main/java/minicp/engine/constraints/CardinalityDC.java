@@ -0,0 +1,327 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.util.GraphUtil.CSRGraph;
+import minicp.util.GraphUtil.Tarjan;
+
+import java.util.Arrays;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Arc Consistent Global Cardinality Constraint
+ * <p>The number of variables taking the value {@code values[k]}
+ * is between {@code low[k]} and {@code up[k]},
+ * or is equal to the variable {@code counts[k]}.
+ * The other values may be taken by any number of variables.
+ * <p>A feasible flow in the variable-value network is maintained as
+ * a matching where each value can be matched to several variables
+ * within its capacities. As in {@link MaximumMatching}, it is repaired
+ * from the previous one, only for the variables that lost their matched value,
+ * first to match every variable within the upper capacities
+ * and then to satisfy the lower capacities along alternating paths.
+ * A value that is not matched to a variable is then removed from its domain
+ * when they are not in the same strongly connected component of the residual graph.
+ * With cardinality variables, their bounds are adjusted to the number of
+ * variables bound to and possibly taking each value.
+ *
+ * <p>Régin, J. C. (1996). Generalized arc consistency for global
+ * cardinality constraint. In AAAI (pp. 209-215).
+ */
+public class CardinalityDC extends AbstractConstraint {
+
+    private static final int NONE = -1;
+
+    private final IntVar[] x;
+    private final int n;
+    private final int[] values;
+    private final IntVar[] counts;
+
+    private final int minVal;
+    private final int nVal;
+    // capacities of the values, by offset from minVal
+    private final int[] low;
+    private final int[] up;
+
+    // matching, values by offset from minVal
+    private final int[] match;
+    private final int[] count;
+    private final int[] first; // first variable matched to a value
+    private final int[] next; // doubly linked lists of the variables matched to the same value
+    private final int[] prev;
+    private final int[] varSeen;
+    private final int[] valSeen;
+    private int magic;
+
+    // residual graph
+    private final int nNodes;
+    private final CSRGraph g;
+    private final Tarjan tarjan = new Tarjan();
+    private final int[] components;
+    private final int[] domain;
+    private final int[] nBound; // number of variables bound to each value
+    private final int[] nPossible; // number of variables that can take each value
+
+    // sum of the domain sizes at the end of the last propagation
+    private final StateInt lastTotalSize;
+
+    /**
+     * Creates a global cardinality constraint with fixed capacities.
+     *
+     * @param x the variables
+     * @param values the distinct values with a restricted number of occurrences
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     */
+    public CardinalityDC(IntVar[] x, int[] values, int[] low, int[] up) {
+        this(x, values, low, up, null);
+    }
+
+    /**
+     * Creates a global cardinality constraint with cardinality variables.
+     *
+     * @param x the variables
+     * @param values the distinct values whose number of occurrences is counted
+     * @param counts the number of occurrences of each value
+     */
+    public CardinalityDC(IntVar[] x, int[] values, IntVar[] counts) {
+        this(x, values, new int[values.length], new int[values.length], counts);
+    }
+
+    private CardinalityDC(IntVar[] x, int[] values, int[] low, int[] up, IntVar[] counts) {
+        super(x[0].getSolver());
+        if (values.length != low.length || values.length != up.length
+                || counts != null && counts.length != values.length)
+            throw new IllegalArgumentException("one capacity or count per value is expected");
+        this.x = x;
+        this.n = x.length;
+        this.values = values;
+        this.counts = counts;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int maxSize = 0;
+        for (IntVar var : x) {
+            min = Math.min(min, var.min());
+            max = Math.max(max, var.max());
+            maxSize = Math.max(maxSize, var.size());
+        }
+        for (int v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        minVal = min;
+        nVal = max - min + 1;
+        this.low = new int[nVal];
+        this.up = new int[nVal];
+        Arrays.fill(this.up, n);
+        boolean[] listed = new boolean[nVal];
+        for (int k = 0; k < values.length; k++) {
+            int v = values[k] - minVal;
+            if (listed[v]) throw new IllegalArgumentException("value " + values[k] + " is repeated");
+            listed[v] = true;
+            this.low[v] = Math.max(0, low[k]);
+            this.up[v] = Math.min(n, up[k]);
+        }
+
+        match = new int[n];
+        Arrays.fill(match, NONE);
+        next = new int[n];
+        prev = new int[n];
+        varSeen = new int[n];
+        count = new int[nVal];
+        first = new int[nVal];
+        Arrays.fill(first, NONE);
+        valSeen = new int[nVal];
+
+        nNodes = n + nVal + 1;
+        g = new CSRGraph(nNodes);
+        components = new int[nNodes];
+        domain = new int[maxSize];
+        nBound = new int[nVal];
+        nPossible = new int[nVal];
+        lastTotalSize = getSolver().getStateManager().makeStateInt(-1);
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x)
+            var.propagateOnDomainChange(this);
+        if (counts != null) {
+            for (IntVar c : counts) {
+                c.removeBelow(0);
+                c.removeAbove(n);
+                c.propagateOnBoundChange(this);
+            }
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        if (totalSize() == lastTotalSize.value())
+            return; // nothing changed since the last fix-point of this constraint
+        if (counts != null) {
+            for (int k = 0; k < values.length; k++) {
+                low[values[k] - minVal] = counts[k].min();
+                up[values[k] - minVal] = counts[k].max();
+            }
+        }
+        repairMatching();
+        updateGraph();
+        tarjan.run(g, components);
+        for (int i = 0; i < n; i++) {
+            int size = x[i].fillArray(domain);
+            for (int j = 0; j < size; j++) {
+                int v = domain[j] - minVal;
+                if (match[i] != v && components[i] != components[n + v])
+                    x[i].remove(domain[j]);
+            }
+        }
+        int total = totalSize();
+        if (counts != null) {
+            Arrays.fill(nBound, 0);
+            Arrays.fill(nPossible, 0);
+            for (int i = 0; i < n; i++) {
+                int size = x[i].fillArray(domain);
+                for (int j = 0; j < size; j++)
+                    nPossible[domain[j] - minVal]++;
+                if (size == 1) nBound[domain[0] - minVal]++;
+            }
+            for (int k = 0; k < values.length; k++) {
+                counts[k].removeBelow(nBound[values[k] - minVal]);
+                counts[k].removeAbove(nPossible[values[k] - minVal]);
+            }
+        }
+        // the counts may also be some of the variables, the fix-point is not reached if they changed
+        lastTotalSize.setValue(totalSize() == total ? total : -1);
+    }
+
+    private int totalSize() {
+        int total = 0;
+        for (int i = 0; i < n; i++) total += x[i].size();
+        if (counts != null)
+            for (IntVar c : counts) total += c.size();
+        return total;
+    }
+
+    private void repairMatching() {
+        // unmatch the variables that lost their value or exceed the capacity
+        for (int i = 0; i < n; i++) {
+            if (match[i] != NONE && (!x[i].contains(match[i] + minVal) || count[match[i]] > up[match[i]]))
+                unmatch(i);
+        }
+        for (int i = 0; i < n; i++) {
+            if (match[i] == NONE) {
+                magic++;
+                if (!findValue(i)) throw INCONSISTENCY;
+            }
+        }
+        for (int v = 0; v < nVal; v++) {
+            while (count[v] < low[v]) {
+                magic++;
+                if (!findVariable(v)) throw INCONSISTENCY;
+            }
+        }
+    }
+
+    // finds an alternating path from variable i to a value below its upper capacity
+    private boolean findValue(int i) {
+        varSeen[i] = magic;
+        int xMin = x[i].min();
+        int xMax = x[i].max();
+        for (int v = xMin; v <= xMax; v++) {
+            if (count[v - minVal] < up[v - minVal] && x[i].contains(v)) {
+                assign(i, v - minVal);
+                return true;
+            }
+        }
+        for (int v = xMin; v <= xMax; v++) {
+            int w = v - minVal;
+            if (valSeen[w] != magic && match[i] != w && x[i].contains(v)) {
+                valSeen[w] = magic;
+                for (int j = first[w]; j != NONE; j = next[j]) {
+                    if (varSeen[j] != magic && findValue(j)) {
+                        assign(i, w);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // finds an alternating path giving one more variable to value v
+    // from a value above its lower capacity
+    private boolean findVariable(int v) {
+        valSeen[v] = magic;
+        for (int i = 0; i < n; i++) {
+            int w = match[i];
+            if (w != v && count[w] > low[w] && x[i].contains(v + minVal)) {
+                assign(i, v);
+                return true;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int w = match[i];
+            if (w != v && valSeen[w] != magic && x[i].contains(v + minVal) && findVariable(w)) {
+                assign(i, v);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assign(int i, int v) {
+        if (match[i] != NONE) unmatch(i);
+        match[i] = v;
+        count[v]++;
+        prev[i] = NONE;
+        next[i] = first[v];
+        if (first[v] != NONE) prev[first[v]] = i;
+        first[v] = i;
+    }
+
+    private void unmatch(int i) {
+        int v = match[i];
+        if (prev[i] == NONE) first[v] = next[i];
+        else next[prev[i]] = next[i];
+        if (next[i] != NONE) prev[next[i]] = prev[i];
+        count[v]--;
+        match[i] = NONE;
+    }
+
+    private void updateGraph() {
+        g.clear(nNodes);
+        int sink = nNodes - 1;
+        for (int i = 0; i < n; i++) {
+            int size = x[i].fillArray(domain);
+            for (int j = 0; j < size; j++) {
+                int v = domain[j] - minVal;
+                if (v != match[i]) g.addEdge(i, n + v); // the flow can increase
+            }
+            g.addEdge(n + match[i], i); // the flow can decrease
+        }
+        for (int v = 0; v < nVal; v++) {
+            if (count[v] < up[v]) g.addEdge(n + v, sink);
+            if (count[v] > low[v]) g.addEdge(sink, n + v);
+        }
+        g.build();
+    }
+}
@@ -19,19 +19,88 @@ package minicp.engine.constraints;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
+import minicp.util.GraphUtil.CSRGraph;
+import minicp.util.GraphUtil.Dominators;
+import minicp.util.GraphUtil.Tarjan;
+
+import java.util.EnumSet;
 
 import static minicp.cp.Factory.allDifferentAC;
+import static minicp.cp.Factory.allDifferentBC;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Hamiltonian Circuit Constraint with a successor model
+ * <p>The sub-tours are eliminated incrementally by merging the chains
+ * of bound successors, the strength of the allDifferent
+ * on the successors is configurable and the successor graph
+ * given by the domains can be checked and filtered with
+ * graph reasoning (see {@link Rule}).
+ * The graph reasoning is not incremental: the successor domains
+ * are the only reversible representation of the graph, which is
+ * rebuilt in a reusable {@link CSRGraph} and on which the strongly connected
+ * components or the dominators are recomputed from scratch, in O(n+m)
+ * for n nodes and m arcs, each time a domain changed since the last
+ * fix-point of this constraint.
+ *
+ * <p>Fages, J. G., &amp; Lorca, X. (2011). Revisiting the tree constraint.
+ * In International Conference on Principles and Practice of Constraint Programming
+ * (pp. 271-285). Springer.
  */
 public class Circuit extends AbstractConstraint {
 
+    /**
+     * Strength of the allDifferent on the successors.
+     */
+    public enum AllDifferentLevel {
+        /**
+         * The successor of a bound variable is removed from the other domains.
+         */
+        FORWARD_CHECKING,
+        /**
+         * Bounds consistency (see {@link AllDifferentBC}).
+         */
+        BOUNDS,
+        /**
+         * Domain consistency (see {@link AllDifferentDC}),
+         * the most expensive on large instances.
+         */
+        DOMAIN
+    }
+
+    /**
+     * Graph reasoning on the successor graph.
+     */
+    public enum Rule {
+        /**
+         * Fails if the successor graph is not strongly connected.
+         */
+        STRONG_CONNECTIVITY,
+        /**
+         * Removes the successors that must be visited before their predecessor
+         * from a root node, that is the dominators of the node in the successor graph,
+         * and symmetrically on the reverse graph (includes the strong connectivity check).
+         */
+        DOMINATORS
+    }
+
     private final IntVar[] x;
+    private final AllDifferentLevel level;
+    private final EnumSet<Rule> rules;
     private final StateInt[] dest;
     private final StateInt[] orig;
     private final StateInt[] lengthToDest;
 
+    // successor graph
+    private CSRGraph graph;
+    private CSRGraph reversed;
+    private Tarjan tarjan;
+    private Dominators dominators;
+    private int[] component;
+    private int[] values;
+    // sum of the domain sizes at the end of the last propagation
+    private StateInt lastTotalSize;
+
     /**
      * Creates an Hamiltonian Circuit Constraint
      * with a successor model.
@@ -40,9 +109,24 @@ public class Circuit extends AbstractConstraint {
      *          {@code x[i]} is the city visited after city i
      */
     public Circuit(IntVar[] x) {
+        this(x, AllDifferentLevel.DOMAIN, EnumSet.noneOf(Rule.class));
+    }
+
+    /**
+     * Creates an Hamiltonian Circuit Constraint
+     * with a successor model and a given filtering.
+     *
+     * @param x the variables representing the successor array that is
+     *          {@code x[i]} is the city visited after city i
+     * @param level the strength of the allDifferent on the successors
+     * @param rules the graph reasoning to apply on the successor graph
+     */
+    public Circuit(IntVar[] x, AllDifferentLevel level, EnumSet<Rule> rules) {
         super(x[0].getSolver());
         assert (x.length > 0);
         this.x = x;
+        this.level = level;
+        this.rules = rules;
         dest = new StateInt[x.length];
         orig = new StateInt[x.length];
         lengthToDest = new StateInt[x.length];
@@ -57,7 +141,16 @@ public class Circuit extends AbstractConstraint {
     @Override
     public void post() {
         // Post allDifferent constraint.
-        getSolver().post(allDifferentAC(x));
+        switch (level) {
+            case FORWARD_CHECKING:
+                getSolver().post(new AllDifferentFW(x));
+                break;
+            case BOUNDS:
+                getSolver().post(allDifferentBC(x));
+                break;
+            default:
+                getSolver().post(allDifferentAC(x));
+        }
 
         for (int i = 0; i < x.length; ++i) {
             int k = i;
@@ -74,6 +167,20 @@ public class Circuit extends AbstractConstraint {
             if (x.length > 1)
                 x[i].remove(i);
         }
+
+        if (x.length > 1 && !rules.isEmpty()) {
+            int n = x.length;
+            graph = new CSRGraph(n);
+            reversed = new CSRGraph(n);
+            tarjan = new Tarjan();
+            dominators = new Dominators();
+            component = new int[n];
+            values = new int[n];
+            lastTotalSize = getSolver().getStateManager().makeStateInt(-1);
+            for (IntVar var : x)
+                var.propagateOnDomainChange(this);
+            propagate();
+        }
     }
 
     private void bind(int i) {
@@ -103,4 +210,52 @@ public class Circuit extends AbstractConstraint {
             x[d].remove(origin);
         }
     }
+
+    // rebuilds the successor graph and runs the graph reasoning from scratch
+    @Override
+    public void propagate() {
+        int n = x.length;
+        int totalSize = 0;
+        for (IntVar var : x) totalSize += var.size();
+        if (totalSize == lastTotalSize.value()) return;
+        // the size before the filtering such that the constraint,
+        // rescheduled by its own removals, reaches its fix-point
+        lastTotalSize.setValue(totalSize);
+
+        graph.clear(n);
+        for (int i = 0; i < n; i++) {
+            int s = x[i].fillArray(values);
+            for (int k = 0; k < s; k++)
+                graph.addEdge(i, values[k]);
+        }
+        graph.build();
+
+        if (rules.contains(Rule.DOMINATORS)) {
+            // a circuit is a path from the root 0 visiting every node and coming back to 0,
+            // the dominators of v must be visited before v and cannot be its successors
+            graph.reverse(reversed);
+            if (dominators.run(graph, reversed, 0) < n)
+                throw INCONSISTENCY;
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.begin(v); e < graph.end(v); e++) {
+                    int d = graph.head(e);
+                    if (d != 0 && dominators.dominates(d, v))
+                        x[v].remove(d);
+                }
+            }
+            // symmetrically, the dominators of v on the path back to the root
+            // must be visited after v and cannot be its predecessors
+            if (dominators.run(reversed, graph, 0) < n)
+                throw INCONSISTENCY;
+            for (int u = 1; u < n; u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.head(e);
+                    if (v != 0 && dominators.dominates(u, v))
+                        x[u].remove(v);
+                }
+            }
+        } else if (tarjan.run(graph, component) > 1) {
+            throw INCONSISTENCY;
+        }
+    }
 }
@@ -20,26 +20,110 @@ import minicp.cp.Factory;
 import minicp.engine.constraints.Profile.Rectangle;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
+import minicp.engine.core.IntervalVar;
+import minicp.engine.core.IntervalVarViewMirror;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
-import static minicp.cp.Factory.minus;
-import static minicp.cp.Factory.plus;
 import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Cumulative constraint with time-table filtering
+ * <p>The profile of the compulsory parts is kept in a reversible
+ * {@link TimeTable} and only the part of the compulsory parts
+ * that grew since the last propagation is added to it.
+ * The activities that are fixed have their compulsory part
+ * complete and are removed from a reversible set
+ * such that only the unfixed activities are visited and filtered.
+ * When the horizon exceeds {@link #MAX_HORIZON} time points, the profile
+ * is rebuilt from the compulsory parts at each propagation instead.
+ * <p>Stronger filtering can be added on top of the time-table
+ * by choosing a {@link Filtering} level.
+ * <p>The activities are {@link IntervalVar} that may be optional:
+ * only the present activities contribute to the profile,
+ * the optional ones are pushed as if they were present
+ * and become absent when they cannot fit.
+ * The stronger filtering levels only reason on the present activities
+ * with their minimum length.
  */
 public class Cumulative extends AbstractConstraint {
 
-    private final IntVar[] start;
-    private final int[] duration;
-    private final IntVar[] end;
-    private final int[] demand;
-    private final int capa;
+    /**
+     * Filtering levels of the cumulative constraint,
+     * each level includes the filtering of the previous ones.
+     */
+    public enum Filtering {
+        /**
+         * Time-table filtering from the compulsory parts.
+         */
+        TIME_TABLE,
+        /**
+         * Time-table edge-finding: the energy of the activities that must
+         * execute inside a window {@code [est_a, lct_b)} plus the energy of the compulsory parts
+         * in the window is compared to the available energy,
+         * and the activities extending the window are pushed
+         * when their energy in the window does not fit.
+         * It is done in {@code O(n^2 log n)}.
+         *
+         * <p>Vilím, P. (2011). Timetable edge finding filtering algorithm
+         * for discrete cumulative resources. In CPAIOR (pp. 230-245).
+         */
+        TIME_TABLE_EDGE_FINDING,
+        /**
+         * Energetic reasoning consistency check on the {@code O(n^2)} relevant intervals
+         * {@code [t1, t2)} with t1 in {est, ect, lst} and t2 in {lst, ect, lct}
+         * of the activities, the minimum intersection energy
+         * of the activities being swept over t2 for each t1
+         * in {@code O(n^2 log n)}, followed by the time-table edge-finding.
+         *
+         * <p>Baptiste, P., Le Pape, C., & Nuijten, W. (1999). Satisfiability tests
+         * and time-bound adjustments for cumulative scheduling problems.
+         * Annals of Operations research, 92, 305-333.
+         */
+        ENERGETIC_REASONING
+    }
+
+    /**
+     * Maximum number of time points of a reversible profile.
+     */
+    public static final int MAX_HORIZON = 1 << 16;
+
+    private final IntervalVar[] act;
+    private final IntVar[] demand;
+    private final IntVar capa;
+    // minimum demands and maximum capacity when the propagation starts
+    private final int[] demandMin;
+    private int capaMax;
+    // true if every demand is bound when posted, the demands are then never filtered
+    private boolean fixedDemands;
     private final boolean postMirror;
+    private final Filtering filtering;
+
+    private TimeTable profile; // null if the horizon is too large
+    private final int[] unfixed;
+    private final StateInt nUnfixed;
+    // compulsory part of each activity in the profile, empty if cpStart >= cpEnd
+    private final StateInt[] cpStart;
+    private final StateInt[] cpEnd;
+    private final StateInt[] cpHeight;
+
+    // bounds of the activities for the energetic filtering
+    private int[] est, lct, ect, lst, duration;
+    private int[] estOrder, lctOrder;
+    private int[] newEst;
+    // breakpoints of the profile of the compulsory parts with the energy before them
+    private long[] events;
+    private int[] bpTime;
+    private int[] bpHeight;
+    private long[] bpEnergy;
+    private int nbp;
+    private long[] energyEst, energyLct; // energy of the compulsory parts before est and lct
+    private int[] t1s, t2s;
+    private long[] slopes;
 
 
     /**
@@ -53,34 +137,165 @@ public class Cumulative extends AbstractConstraint {
      * @param capa the capacity of the constraint
      */
     public Cumulative(IntVar[] start, int[] duration, int[] demand, int capa) {
-        this(start, duration, demand, capa, true);
+        this(start, duration, demand, capa, Filtering.TIME_TABLE);
+    }
+
+    /**
+     * Creates a cumulative constraint with a given filtering level.
+     * At any time-point t, the sum of the demands
+     * of the activities overlapping t do not overlap the capacity.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities (non negative)
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the constraint
+     * @param filtering the filtering level
+     */
+    public Cumulative(IntVar[] start, int[] duration, int[] demand, int capa, Filtering filtering) {
+        this(Factory.makeIntervalVarArray(start, duration), demand, capa, filtering);
+    }
+
+    /**
+     * Creates a cumulative constraint with a time-table filtering
+     * where the durations, the demands and the capacity are variables.
+     * At any time-point t, the sum of the demands
+     * of the activities overlapping t do not overlap the capacity.
+     * The filtering relies on the minimum durations and demands
+     * and on the maximum capacity, the maximum demands
+     * and the minimum capacity are also filtered.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities, its negative values are removed
+     * @param demand the demand of each activities, its negative values are removed
+     * @param capa the capacity of the constraint
+     */
+    public Cumulative(IntVar[] start, IntVar[] duration, IntVar[] demand, IntVar capa) {
+        this(start, duration, demand, capa, Filtering.TIME_TABLE);
     }
 
-    private Cumulative(IntVar[] start, int[] duration, int[] demand, int capa, boolean postMirror) {
-        super(start[0].getSolver());
-        this.start = start;
-        this.duration = duration;
-        this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
+    /**
+     * Creates a cumulative constraint with a given filtering level
+     * where the durations, the demands and the capacity are variables.
+     *
+     * @param start the start time of each activities
+     * @param duration the duration of each activities, its negative values are removed
+     * @param demand the demand of each activities, its negative values are removed
+     * @param capa the capacity of the constraint
+     * @param filtering the filtering level
+     * @see #Cumulative(IntVar[], IntVar[], IntVar[], IntVar)
+     */
+    public Cumulative(IntVar[] start, IntVar[] duration, IntVar[] demand, IntVar capa, Filtering filtering) {
+        this(Factory.makeIntervalVarArray(start, duration), demand, capa, filtering, true);
+    }
+
+    /**
+     * Creates a cumulative constraint with a time-table filtering.
+     * At any time-point t, the sum of the demands
+     * of the present activities overlapping t do not overlap the capacity.
+     *
+     * @param intervals the activities, possibly optional
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the constraint
+     */
+    public Cumulative(IntervalVar[] intervals, int[] demand, int capa) {
+        this(intervals, demand, capa, Filtering.TIME_TABLE);
+    }
+
+    /**
+     * Creates a cumulative constraint with a given filtering level.
+     * At any time-point t, the sum of the demands
+     * of the present activities overlapping t do not overlap the capacity.
+     *
+     * @param intervals the activities, possibly optional
+     * @param demand the demand of each activities, non negative
+     * @param capa the capacity of the constraint
+     * @param filtering the filtering level
+     */
+    public Cumulative(IntervalVar[] intervals, int[] demand, int capa, Filtering filtering) {
+        this(intervals, Factory.makeIntVarArray(demand.length, i -> Factory.makeIntVar(intervals[0].getSolver(), demand[i], demand[i])),
+                Factory.makeIntVar(intervals[0].getSolver(), capa, capa), filtering, true);
+    }
+
+    /**
+     * Creates a cumulative constraint with a given filtering level
+     * where the demands and the capacity are variables.
+     * At any time-point t, the sum of the demands
+     * of the present activities overlapping t do not overlap the capacity.
+     *
+     * @param intervals the activities, possibly optional
+     * @param demand the demand of each activities, its negative values are removed
+     * @param capa the capacity of the constraint
+     * @param filtering the filtering level
+     * @see #Cumulative(IntVar[], IntVar[], IntVar[], IntVar)
+     */
+    public Cumulative(IntervalVar[] intervals, IntVar[] demand, IntVar capa, Filtering filtering) {
+        this(intervals, demand, capa, filtering, true);
+    }
+
+    private Cumulative(IntervalVar[] intervals, IntVar[] demand, IntVar capa, Filtering filtering, boolean postMirror) {
+        super(intervals[0].getSolver());
+        this.act = intervals;
         this.demand = demand;
         this.capa = capa;
         this.postMirror = postMirror;
+        this.filtering = filtering;
+        int n = act.length;
+        demandMin = new int[n];
+        StateManager sm = getSolver().getStateManager();
+        unfixed = new int[n];
+        for (int i = 0; i < n; i++) unfixed[i] = i;
+        nUnfixed = sm.makeStateInt(n);
+        cpStart = new StateInt[n];
+        cpEnd = new StateInt[n];
+        cpHeight = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            cpStart[i] = sm.makeStateInt(0);
+            cpEnd[i] = sm.makeStateInt(0);
+            cpHeight[i] = sm.makeStateInt(0);
+        }
     }
 
 
     @Override
     public void post() {
-        if (capa == 1) {
-            getSolver().post(new Disjunctive(start, duration));
+        int n = act.length;
+        for (int i = 0; i < n; i++) {
+            act[i].setLengthMin(0);
+            demand[i].removeBelow(0);
+            demandMin[i] = demand[i].min();
+        }
+        fixedDemands = Arrays.stream(demand).allMatch(IntVar::isBound);
+        if (capa.isBound() && capa.min() == 1 && fixedDemands && Arrays.stream(demandMin).allMatch(d -> d <= 1)) {
+            // the activities of null demand do not use the resource
+            IntervalVar[] unary = IntStream.range(0, n).filter(i -> demand[i].min() == 1)
+                    .mapToObj(i -> act[i]).toArray(IntervalVar[]::new);
+            if (unary.length > 0)
+                getSolver().post(new Disjunctive(unary));
             this.setActive(false);
         } else {
-            for (int i = 0; i < start.length; i++) {
-                start[i].propagateOnBoundChange(this);
+            for (int i = 0; i < n; i++) {
+                act[i].propagateOnChange(this);
+                demand[i].propagateOnBoundChange(this);
             }
+            capa.propagateOnBoundChange(this);
 
             if (postMirror) {
-                IntVar[] startMirror = Factory.makeIntVarArray(start.length, i -> minus(end[i]));
-                getSolver().post(new Cumulative(startMirror, duration, demand, capa, false), false);
+                IntervalVar[] mirror = new IntervalVar[n];
+                for (int i = 0; i < n; i++) mirror[i] = new IntervalVarViewMirror(act[i]);
+                getSolver().post(new Cumulative(mirror, demand, capa, filtering, false), false);
+            }
+
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (act[i].isAbsent()) continue;
+                min = Math.min(min, act[i].startMin());
+                max = Math.max(max, act[i].endMax());
             }
+            if (max - min <= MAX_HORIZON)
+                profile = new TimeTable(getSolver().getStateManager(), (int) min, (int) max);
+            if (filtering != Filtering.TIME_TABLE)
+                initEnergetic();
 
             propagate();
         }
@@ -88,20 +303,127 @@ public class Cumulative extends AbstractConstraint {
 
     @Override
     public void propagate() {
+        if (!fixedDemands) {
+            // the demand of an activity removed from the unfixed set is bound
+            int nU = nUnfixed.value();
+            for (int k = 0; k < nU; k++)
+                demandMin[unfixed[k]] = demand[unfixed[k]].min();
+        }
+        capaMax = capa.max();
+        if (profile == null) propagateProfile();
+        else propagateTimeTable();
+        // the stronger filtering is delayed until the time-table reaches its fix-point
+        if (filtering != Filtering.TIME_TABLE && !isScheduled()) {
+            updateBounds();
+            if (filtering == Filtering.ENERGETIC_REASONING)
+                energeticCheck();
+            edgeFinding();
+        }
+    }
+
+    private void propagateTimeTable() {
+        updateProfile();
+        if (profile.maxHeight() > capaMax)
+            throw INCONSISTENCY;
+        capa.removeBelow(profile.maxHeight());
+        int nU = nUnfixed.value();
+        for (int k = 0; k < nU; k++) {
+            int i = unfixed[k];
+            if (act[i].lengthMin() > 0 && demandMin[i] > 0)
+                pushStart(i);
+            if (!fixedDemands && !demand[i].isBound()) {
+                // the demand of i cannot exceed the room left by the others over its compulsory part
+                int a = cpStart[i].value();
+                int b = cpEnd[i].value();
+                if (a < b)
+                    demand[i].removeAbove(capaMax - profile.maxHeight(a, b) + cpHeight[i].value());
+            }
+        }
+    }
+
+    // adds to the profile the part of the compulsory parts that grew
+    // and removes the fixed activities from the unfixed ones
+    private void updateProfile() {
+        int nU = nUnfixed.value();
+        for (int k = nU - 1; k >= 0; k--) {
+            int i = unfixed[k];
+            IntervalVar x = act[i];
+            int lst = x.startMax();
+            int ect = x.endMin();
+            int h = demandMin[i];
+            // the compulsory part of a null demand is only kept to bound this demand
+            if (lst < ect && x.isPresent() && (h > 0 || !demand[i].isBound())) {
+                int a = cpStart[i].value();
+                int b = cpEnd[i].value();
+                if (a >= b) {
+                    if (h > 0) profile.add(lst, ect, h);
+                    cpStart[i].setValue(lst);
+                    cpEnd[i].setValue(ect);
+                    cpHeight[i].setValue(h);
+                } else {
+                    int c = cpHeight[i].value();
+                    if (h > c) {
+                        profile.add(a, b, h - c);
+                        cpHeight[i].setValue(h);
+                    }
+                    if (h > 0 && lst < a) profile.add(lst, a, h);
+                    if (h > 0 && ect > b) profile.add(b, ect, h);
+                    cpStart[i].setValue(Math.min(a, lst));
+                    cpEnd[i].setValue(Math.max(b, ect));
+                }
+            }
+            if (x.isAbsent() || x.isPresent() && x.isFixed() && demand[i].isBound()) {
+                unfixed[k] = unfixed[nU - 1];
+                unfixed[nU - 1] = i;
+                nU--;
+            }
+        }
+        nUnfixed.setValue(nU);
+    }
+
+    // pushes the start of i after the last time point of its window
+    // where it does not fit, the window being re-checked once moved
+    private void pushStart(int i) {
+        IntervalVar x = act[i];
+        if (x.isAbsent()) return;
+        int est = x.startMin();
+        int lst = x.startMax();
+        int duration = x.lengthMin();
+        int a = cpStart[i].value(); // i is already counted in the profile on [a, b)
+        int b = cpEnd[i].value();
+        int h = capaMax - demandMin[i];
+        while (true) {
+            int ect = est + duration;
+            int t;
+            if (a < b) {
+                t = profile.lastAbove(Math.max(b, est), ect, h);
+                if (t == TimeTable.NONE)
+                    t = profile.lastAbove(est, Math.min(a, ect), h);
+            } else {
+                t = profile.lastAbove(est, ect, h);
+            }
+            if (t == TimeTable.NONE) break;
+            est = t + 1;
+            if (est > lst) break; // fails or makes i absent
+        }
+        x.setStartMin(est);
+    }
+
+    // time-table filtering rebuilding the profile, for large horizons
+    private void propagateProfile() {
         Profile profile = buildProfile();
         // 2: check that the profile is not exceeding the capa otherwise throw an INCONSISTENCY
         Rectangle[] rectangles = profile.rectangles();
         // Check whether at least one rectangle in the profile exceeds the capacity.
         for (Rectangle r: rectangles) {
-            if (r.height() > capa) {
+            if (r.height() > capaMax) {
                 throw INCONSISTENCY;
             }
         }
 
-        for (int i = 0; i < start.length; i++) {
-            if (!start[i].isBound()) {
-                // j is the index of the profile rectangle overlapping t
-                int j = profile.rectangleIndex(start[i].min());
+        for (int i = 0; i < act.length; i++) {
+            IntervalVar x = act[i];
+            if (!x.isAbsent() && !(x.isPresent() && x.isFixed())) {
                 // 3: push i to the right
                 // hint:
                 // Check that at every-point on the interval
@@ -110,10 +432,10 @@ public class Cumulative extends AbstractConstraint {
                 // Be careful that the activity you are currently pushing may have contributed to the profile.
 
                 // Start and end of interval.
-                int first = start[i].min();
-                int last = first + duration[i];
+                int first = x.startMin();
+                int last = first + x.lengthMin();
 
-                int max = start[i].max();
+                int max = x.startMax();
 
                 // rect is the profile rectangle overlapping at the current time.
                 Rectangle rect = profile.get(profile.rectangleIndex(first));
@@ -125,13 +447,14 @@ public class Cumulative extends AbstractConstraint {
                 // Find the earliest starting time which does not violate the capa constraint.
                 for (int t = first; t < last; t++) {
                     // Check whether this part of activity i has already been counted at t:
-                    // beenCounted <=> start[i].max = max <= t < last = end[i].min(),
-                    // where the second inequality is guaranteed by the for loop.
+                    // beenCounted <=> start[i].max = max <= t < last <= end[i].min(),
+                    // where the second inequality is guaranteed by the for loop,
+                    // and i is present
                     // and choose the demand left to contribute:
                     //  beenCounted => toContribute = 0,
-                    // !beenCounted => toContribute = demand[i].
+                    // !beenCounted => toContribute = demandMin[i].
                     boolean tGeMax = t >= max;
-                    int toContribute = tGeMax ? 0 : demand[i];
+                    int toContribute = tGeMax && x.isPresent() ? 0 : demandMin[i];
 
                     // Recompute height at t if needed.
                     if (rEnd <= t) {
@@ -142,31 +465,211 @@ public class Cumulative extends AbstractConstraint {
 
                     // If the profile at t exceeds the capacity,
                     // then activity i must start after t.
-                    if (rHeight + toContribute > capa) {
-                        // If we are going to remove everything below t + 1,
-                        // and t >= max, then we can already throw the error.
-                        if (tGeMax) {
-                            throw INCONSISTENCY;
-                        } else {
-                            removePosition = t;
+                    if (rHeight + toContribute > capaMax) {
+                        removePosition = t;
+                    }
+                }
+
+                // Remove every start position beyond the last failure,
+                // i fails or becomes absent if it is beyond its latest start.
+                x.setStartMin(removePosition + 1);
+            }
+        }
+    }
+
+    private void initEnergetic() {
+        int n = act.length;
+        est = new int[n];
+        lct = new int[n];
+        ect = new int[n];
+        lst = new int[n];
+        duration = new int[n];
+        newEst = new int[n];
+        estOrder = new int[n];
+        lctOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            estOrder[i] = i;
+            lctOrder[i] = i;
+        }
+        events = new long[2 * n];
+        bpTime = new int[2 * n];
+        bpHeight = new int[2 * n];
+        bpEnergy = new long[2 * n];
+        energyEst = new long[n];
+        energyLct = new long[n];
+        t1s = new int[3 * n];
+        t2s = new int[3 * n];
+        slopes = new long[2 * n];
+    }
+
+    // reads the bounds, sorts the activities and builds the profile of the compulsory parts,
+    // the activities that are not present have a null duration
+    // and a present activity is relaxed to a fixed duration, its minimum one
+    private void updateBounds() {
+        int n = act.length;
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            IntervalVar x = act[i];
+            duration[i] = x.isPresent() ? x.lengthMin() : 0;
+            est[i] = x.startMin();
+            lct[i] = x.endMax();
+            ect[i] = est[i] + duration[i];
+            lst[i] = lct[i] - duration[i];
+            if (lst[i] < ect[i] && demandMin[i] > 0) {
+                events[m++] = ((long) lst[i] << 32) | (2 * i);
+                events[m++] = ((long) ect[i] << 32) | (2 * i + 1);
+            }
+        }
+        insertionSort(estOrder, est);
+        insertionSort(lctOrder, lct);
+        Arrays.sort(events, 0, m);
+        nbp = 0;
+        int height = 0;
+        long energy = 0;
+        for (int k = 0; k < m; k++) {
+            int t = (int) (events[k] >> 32);
+            int e = (int) events[k];
+            if (nbp > 0) energy += (long) height * (t - bpTime[nbp - 1]);
+            height += (e & 1) == 0 ? demandMin[e >> 1] : -demandMin[e >> 1];
+            if (nbp > 0 && bpTime[nbp - 1] == t) {
+                bpHeight[nbp - 1] = height;
+            } else {
+                bpTime[nbp] = t;
+                bpHeight[nbp] = height;
+                bpEnergy[nbp] = energy;
+                nbp++;
+            }
+        }
+    }
+
+    // energy of the compulsory parts before time[i] for each i, the activities being sorted by time
+    private void energyBefore(int[] order, int[] time, long[] energy) {
+        int j = -1; // last breakpoint <= t
+        for (int i : order) {
+            int t = time[i];
+            while (j + 1 < nbp && bpTime[j + 1] <= t) j++;
+            energy[i] = j < 0 ? 0 : bpEnergy[j] + (long) bpHeight[j] * (t - bpTime[j]);
+        }
+    }
+
+    private void edgeFinding() {
+        int n = act.length;
+        energyBefore(estOrder, est, energyEst);
+        energyBefore(lctOrder, lct, energyLct);
+        for (int i = 0; i < n; i++) newEst[i] = est[i];
+        for (int kb = 0; kb < n; kb++) {
+            int b = lctOrder[kb];
+            int tb = lct[b];
+            if (kb + 1 < n && lct[lctOrder[kb + 1]] == tb) continue; // a single window per distinct lct
+            long eFree = 0; // energy of the free parts of the activities inside the window
+            long maxExtra = 0;
+            int cand = -1;
+            for (int ka = n - 1; ka >= 0; ka--) {
+                int a = estOrder[ka];
+                if (duration[a] > 0 && demandMin[a] > 0) {
+                    int cp = Math.max(0, ect[a] - lst[a]);
+                    if (lct[a] <= tb) {
+                        eFree += (long) demandMin[a] * (duration[a] - cp);
+                    } else if (est[a] < tb) {
+                        // energy of a in the window when left shifted, not counting its compulsory part
+                        long extra = (long) demandMin[a] * (Math.min(duration[a], tb - est[a])
+                                - Math.max(0, Math.min(ect[a], tb) - lst[a]));
+                        if (extra > maxExtra) {
+                            maxExtra = extra;
+                            cand = a;
                         }
                     }
                 }
+                int ta = est[a];
+                if (ta >= tb || ka > 0 && est[estOrder[ka - 1]] == ta) continue;
+                long available = (long) capaMax * (tb - ta) - eFree - (energyLct[b] - energyEst[a]);
+                if (available < 0)
+                    throw INCONSISTENCY;
+                if (maxExtra > available) {
+                    // the part of cand in the window is at most available / demand
+                    long cpIn = Math.max(0, Math.min(ect[cand], tb) - lst[cand]);
+                    long s = tb - cpIn - available / demandMin[cand];
+                    if (s > newEst[cand]) newEst[cand] = (int) s;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++)
+            if (newEst[i] > est[i]) act[i].setStartMin(newEst[i]);
+    }
+
+    private void energeticCheck() {
+        int n = act.length;
+        int n1 = 0;
+        int n2 = 0;
+        for (int i = 0; i < n; i++) {
+            if (duration[i] == 0 || demandMin[i] == 0) continue;
+            t1s[n1++] = est[i];
+            t1s[n1++] = lst[i];
+            t1s[n1++] = ect[i];
+            t2s[n2++] = lct[i];
+            t2s[n2++] = ect[i];
+            t2s[n2++] = lst[i];
+        }
+        Arrays.sort(t1s, 0, n1);
+        Arrays.sort(t2s, 0, n2);
+        for (int k1 = 0; k1 < n1; k1++) {
+            int t1 = t1s[k1];
+            if (k1 > 0 && t1s[k1 - 1] == t1) continue;
+            // the minimum intersection of i with [t1, t2) is demandMin[i] times t2 - max(t1, lst[i])
+            // clamped between 0 and min(duration[i], ect[i] - t1), a ramp in t2
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int amount = Math.min(duration[i], ect[i] - t1);
+                if (amount <= 0 || demandMin[i] == 0) continue;
+                int from = Math.max(t1, lst[i]);
+                slopes[m++] = ((long) from << 32) | (2 * i);
+                slopes[m++] = ((long) (from + amount) << 32) | (2 * i + 1);
+            }
+            Arrays.sort(slopes, 0, m);
+            long energy = 0;
+            long slope = 0;
+            int t = t1;
+            int k = 0;
+            for (int k2 = 0; k2 < n2; k2++) {
+                int t2 = t2s[k2];
+                if (t2 <= t1 || k2 > 0 && t2s[k2 - 1] == t2) continue;
+                while (k < m && (int) (slopes[k] >> 32) <= t2) {
+                    int ts = (int) (slopes[k] >> 32);
+                    int e = (int) slopes[k];
+                    energy += slope * (ts - t);
+                    t = ts;
+                    slope += (e & 1) == 0 ? demandMin[e >> 1] : -demandMin[e >> 1];
+                    k++;
+                }
+                energy += slope * (t2 - t);
+                t = t2;
+                if (energy > (long) capaMax * (t2 - t1))
+                    throw INCONSISTENCY;
+            }
+        }
+    }
 
-                // Remove every start position beyond the last failure.
-                start[i].removeBelow(removePosition + 1);
+    private static void insertionSort(int[] order, int[] key) {
+        for (int i = 1; i < order.length; i++) {
+            int v = order[i];
+            int k = key[v];
+            int j = i - 1;
+            while (j >= 0 && key[order[j]] > k) {
+                order[j + 1] = order[j];
+                j--;
             }
+            order[j + 1] = v;
         }
     }
 
     public Profile buildProfile() {
         ArrayList<Rectangle> mandatoryParts = new ArrayList<Rectangle>();
-        for (int i = 0; i < start.length; i++) {
+        for (int i = 0; i < act.length; i++) {
             // 1: add mandatory part of activity i if any
-            int s = start[i].max();
-            int e = end[i].min();
-            if (s < e) {
-                mandatoryParts.add(new Rectangle(s, e, demand[i]));
+            int s = act[i].startMax();
+            int e = act[i].endMin();
+            if (s < e && act[i].isPresent()) {
+                mandatoryParts.add(new Rectangle(s, e, demandMin[i]));
             }
         }
         return new Profile(mandatoryParts.toArray(new Profile.Rectangle[0]));
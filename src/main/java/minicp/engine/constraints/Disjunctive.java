@@ -13,122 +13,191 @@
  * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
  */
 
-
 package minicp.engine.constraints;
 
 import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
-import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
-import minicp.engine.core.Solver;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
+import minicp.engine.core.IntervalVar;
+import minicp.engine.core.IntervalVarViewMirror;
 
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.stream.IntStream;
+import java.util.EnumSet;
 
-import static minicp.cp.Factory.*;
 import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Disjunctive Scheduling Constraint:
  * Any two pairs of activities cannot overlap in time.
+ * <p>The filtering combines the O(n log n) rules of Vilím
+ * for unary resources, each of them can be enabled individually
+ * (see {@link Rule}). They are applied on the earliest start times
+ * and, through a mirror constraint, on the latest completion times.
+ * When the detectable precedences are disabled, the fixed activities
+ * are also checked pairwise to keep the constraint correct.
+ * <p>The activities are {@link IntervalVar} that may be optional:
+ * the optional activities are pushed as if they were present,
+ * and become absent when they cannot fit,
+ * but they never impact the other activities.
+ * The length of an activity is taken as its minimum length.
+ *
+ * <p>Vilím, P. (2004). O(n log n) filtering algorithms for unary resource
+ * constraint. In CPAIOR (pp. 335-347).
+ * <p>Vilím, P., Barták, R., &amp; Čepek, O. (2004). Unary resource constraint
+ * with optional activities. In CP (pp. 62-76).
  */
 public class Disjunctive extends AbstractConstraint {
 
-    private final IntVar[] start;
-    private final int[] duration;
-    private final IntVar[] end;
+    /**
+     * Filtering rules of the disjunctive constraint.
+     */
+    public enum Rule {
+        /**
+         * Fails if a set of activities cannot be completed before
+         * the largest latest completion time of the set.
+         */
+        OVERLOAD_CHECKING,
+        /**
+         * Pushes an activity after the activities that must precede it pairwise,
+         * it subsumes the binary decomposition.
+         */
+        DETECTABLE_PRECEDENCE,
+        /**
+         * Pulls an activity before the end of a set of activities
+         * when it cannot be the last one of the set (not-first on the mirror).
+         */
+        NOT_FIRST_NOT_LAST,
+        /**
+         * Pushes an activity after a set of activities
+         * when it cannot be completed before the set (includes the overload checking).
+         */
+        EDGE_FINDING
+    }
+
+    private final IntervalVar[] act;
+    private final EnumSet<Rule> rules;
     private final boolean postMirror;
     private final int n;
 
     private final ThetaTree tree;
-    private final int[] earliestStartingTime;
-    private final int[] latestStartingTime;
-    private final int[] earliestCompletionTime;
-    private final int[] latestCompletionTime;
-    private final int[] earliestStartingTimePlusDuration;
-    private final int[] latestCompletionTimeMinusDuration;
+    private final ThetaLambdaTree lambdaTree;
+    private final boolean[] present;
+    private final boolean[] optional;
+    private final int[] est;
+    private final int[] lst;
+    private final int[] ect;
+    private final int[] lct;
+    private final int[] length;
+    private final int[] newEst;
+    private final int[] newLct;
+
+    private final int[] rank; // position of each activity in the increasing order of est
 
-    private final int[] indexOrder;
-
-    private final int[] orderedByLCT;
     private final int[] orderedByEST;
-    private final int[] orderedByLCTMinusDuration;
-    private final int[] orderedByESTPlusDuration;
-
-    private final int[] tmp;
+    private final int[] orderedByLST;
+    private final int[] orderedByECT;
+    private final int[] orderedByLCT;
 
-    private boolean failure = false;
-    
 
     /**
      * Creates a disjunctive constraint that enforces
      * that for any two pair i,j of activities we have
      * {@code start[i]+duration[i] <= start[j] or start[j]+duration[j] <= start[i]}.
+     * Every filtering rule is enabled.
      *
      * @param start the start times of the activities
      * @param duration the durations of the activities
      */
     public Disjunctive(IntVar[] start, int[] duration) {
-        this(start, duration, true);
+        this(start, duration, EnumSet.allOf(Rule.class));
     }
 
+    /**
+     * Creates a disjunctive constraint that enforces
+     * that for any two pair i,j of activities we have
+     * {@code start[i]+duration[i] <= start[j] or start[j]+duration[j] <= start[i]}.
+     *
+     * @param start the start times of the activities
+     * @param duration the durations of the activities
+     * @param rules the filtering rules to apply
+     */
+    public Disjunctive(IntVar[] start, int[] duration, EnumSet<Rule> rules) {
+        this(Factory.makeIntervalVarArray(start, duration), rules);
+    }
 
-    private Disjunctive(IntVar[] start, int[] duration, boolean postMirror) {
-        super(start[0].getSolver());
-        this.start = start;
-        this.duration = duration;
-        this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
-        this.postMirror = postMirror;
-        this.n = start.length;
+    /**
+     * Creates a disjunctive constraint that enforces
+     * that the present activities do not overlap in time,
+     * that is for any two present intervals i,j we have
+     * {@code end[i] <= start[j] or end[j] <= start[i]}.
+     * Every filtering rule is enabled.
+     *
+     * @param intervals the activities, possibly optional
+     */
+    public Disjunctive(IntervalVar[] intervals) {
+        this(intervals, EnumSet.allOf(Rule.class));
+    }
 
-        this.earliestStartingTime = new int[n];
-        this.latestStartingTime = new int[n];
-        this.earliestCompletionTime = new int[n];
-        this.latestCompletionTime = new int[n];
-        this.earliestStartingTimePlusDuration = new int[n];
-        this.latestCompletionTimeMinusDuration = new int[n];
+    /**
+     * Creates a disjunctive constraint that enforces
+     * that the present activities do not overlap in time,
+     * that is for any two present intervals i,j we have
+     * {@code end[i] <= start[j] or end[j] <= start[i]}.
+     *
+     * @param intervals the activities, possibly optional
+     * @param rules the filtering rules to apply
+     */
+    public Disjunctive(IntervalVar[] intervals, EnumSet<Rule> rules) {
+        this(intervals, EnumSet.copyOf(rules), true);
+    }
 
-        this.tree = new ThetaTree(n);
+    private Disjunctive(IntervalVar[] intervals, EnumSet<Rule> rules, boolean postMirror) {
+        super(intervals[0].getSolver());
+        this.act = intervals;
+        this.rules = rules;
+        this.postMirror = postMirror;
+        this.n = intervals.length;
 
-        this.indexOrder = new int[n];
+        this.tree = new ThetaTree(n);
+        this.lambdaTree = new ThetaLambdaTree(n);
+
+        this.present = new boolean[n];
+        this.optional = new boolean[n];
+        this.est = new int[n];
+        this.lst = new int[n];
+        this.ect = new int[n];
+        this.lct = new int[n];
+        this.length = new int[n];
+        this.newEst = new int[n];
+        this.newLct = new int[n];
+        this.rank = new int[n];
 
-        this.orderedByLCT = new int[n];
         this.orderedByEST = new int[n];
-
-        this.orderedByLCTMinusDuration = new int[n];
-        this.orderedByESTPlusDuration = new int[n];
-
-        this.tmp = new int[n];
+        this.orderedByLST = new int[n];
+        this.orderedByECT = new int[n];
+        this.orderedByLCT = new int[n];
+        for (int i = 0; i < n; i++) {
+            orderedByEST[i] = i;
+            orderedByLST[i] = i;
+            orderedByECT[i] = i;
+            orderedByLCT[i] = i;
+        }
     }
 
-
     @Override
     public void post() {
-        // 1: replace by  posting  binary decomposition using IsLessOrEqualVar
-        Solver cp = getSolver();
+        if (n < 2)
+            return;
 
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                BoolVar bij = makeBoolVar(cp);
-                BoolVar bji = makeBoolVar(cp);
-                cp.post(new IsLessOrEqualVar(bij, end[i], start[j]));
-                cp.post(new IsLessOrEqualVar(bji, end[j], start[i]));
-                cp.post(new NotEqual(bij, bji), false);
+        if (postMirror && !rules.isEmpty()) {
+            IntervalVar[] mirror = new IntervalVar[n];
+            for (int i = 0; i < n; i++) {
+                mirror[i] = new IntervalVarViewMirror(act[i]);
             }
-        }
-
-        // 2: add the mirror filtering as done in the Cumulative Constraint
-        if (postMirror) {
-            IntVar[] startMirror = Factory.makeIntVarArray(n, i -> minus(end[i]));
-            getSolver().post(new Disjunctive(startMirror, duration, false), false);
+            getSolver().post(new Disjunctive(mirror, rules, false), false);
         }
 
         for (int i = 0; i < n; i++) {
-            start[i].propagateOnBoundChange(this);
+            act[i].propagateOnChange(this);
         }
 
         propagate();
@@ -136,175 +205,221 @@ public class Disjunctive extends AbstractConstraint {
 
     @Override
     public void propagate() {
-        // TODO 6 (optional, for a bonus): implement the Lambda-Theta tree and implement the Edge-Finding        overLoadChecker();
-
         boolean changed = true;
-        failure = false;
-
-        setup();
-
-        while (!failure && changed) {
-            changed = overLoadChecker() || detectablePrecedence() || notLast();
-            if (changed) {
-                setup();
+        while (changed) {
+            setup();
+            if (!rules.contains(Rule.DETECTABLE_PRECEDENCE)) {
+                checkFixed();
+            }
+            if (rules.contains(Rule.OVERLOAD_CHECKING) && !rules.contains(Rule.EDGE_FINDING)) {
+                overLoadChecker();
+            }
+            changed = rules.contains(Rule.DETECTABLE_PRECEDENCE) && detectablePrecedence();
+            if (!changed && rules.contains(Rule.NOT_FIRST_NOT_LAST)) {
+                changed = notLast();
+            }
+            if (!changed && rules.contains(Rule.EDGE_FINDING)) {
+                changed = edgeFinding();
             }
         }
-
-        if (failure) {
-            throw INCONSISTENCY;
-        }
-
     }
 
     private void setup() {
         for (int i = 0; i < n; i++) {
-            earliestStartingTime[i] = start[i].min();
-            latestStartingTime[i] = start[i].max();
-            earliestCompletionTime[i] = end[i].min();
-            latestCompletionTime[i] = end[i].max();
-            earliestStartingTimePlusDuration[i] = earliestStartingTime[i] + duration[i];
-            latestCompletionTimeMinusDuration[i] = latestCompletionTime[i] - duration[i];
+            IntervalVar a = act[i];
+            present[i] = a.isPresent();
+            optional[i] = !present[i] && !a.isAbsent();
+            est[i] = a.startMin();
+            lst[i] = a.startMax();
+            ect[i] = a.endMin();
+            lct[i] = a.endMax();
+            length[i] = a.lengthMin();
+        }
+        // the orders are kept from one call to the next one
+        // such that they are almost sorted already
+        insertionSort(orderedByEST, est);
+        insertionSort(orderedByLST, lst);
+        insertionSort(orderedByECT, ect);
+        insertionSort(orderedByLCT, lct);
+        for (int k = 0; k < n; k++) {
+            rank[orderedByEST[k]] = k;
         }
     }
 
-    private int[] orderedIndices(int[] a) {
-        return IntStream.range(0, a.length)
-                .boxed().sorted(Comparator.comparingInt(i -> a[i]))
-                .mapToInt(ele -> ele).toArray();
-    }
-
-    private void getIndexOrder(int[] indices, int[] order) {
-        for (int i = 0; i < indices.length; i++) {
-            order[indices[i]] = i;
+    private static void insertionSort(int[] order, int[] key) {
+        for (int i = 1; i < order.length; i++) {
+            int v = order[i];
+            int k = key[v];
+            int j = i - 1;
+            while (j >= 0 && key[order[j]] > k) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
         }
     }
 
-    private boolean overLoadChecker() {
-        // 3: add the OverLoadCheck algorithms.
-
-        tree.reset(); // Start with empty tree.
-
-        // Get ordered indices for EST and LCT.
-        System.arraycopy(orderedIndices(earliestStartingTime), 0, orderedByEST, 0, n);
-        System.arraycopy(orderedIndices(latestCompletionTime), 0, orderedByLCT, 0, n);
-
-        // Get order of indices.
-        getIndexOrder(orderedByEST, indexOrder);
+    private boolean inactive(int i) {
+        return !present[i] && !optional[i];
+    }
 
-        // Loop over activities.
+    /**
+     * Fails if two fixed present activities overlap.
+     */
+    private void checkFixed() {
         for (int i = 0; i < n; i++) {
-            int index = orderedByLCT[i]; // Increasing order of LCT.
-
-            // Insert node in tree.
-            tree.insert(indexOrder[index], earliestCompletionTime[index], duration[index]);
-
-            // If the ECT of the tree exceeds the LCT of the activity, throw inconsistency.
-            if (tree.getECT() > latestCompletionTime[index]) {
-                failure = true;
-                return true;
+            if (!present[i] || est[i] != lst[i] || ect[i] != lct[i])
+                continue;
+            for (int j = i + 1; j < n; j++) {
+                if (present[j] && est[j] == lst[j] && ect[j] == lct[j]
+                        && ect[i] > est[j] && ect[j] > est[i]) {
+                    throw INCONSISTENCY;
+                }
             }
         }
+    }
 
-        return false;
+    /**
+     * Fails if the present activities cannot be completed in time,
+     * the optional activities that would overload the resource become absent.
+     */
+    private void overLoadChecker() {
+        lambdaTree.reset();
+        for (int k = 0; k < n; k++) {
+            int i = orderedByLCT[k];
+            if (present[i]) {
+                lambdaTree.insertTheta(rank[i], est[i] + length[i], length[i]);
+            } else if (optional[i]) {
+                lambdaTree.insertLambda(rank[i], est[i] + length[i], length[i]);
+            } else {
+                continue;
+            }
+            if (lambdaTree.getECT() > lct[i]) {
+                throw INCONSISTENCY;
+            }
+            while (lambdaTree.getECTBar() > lct[i]) {
+                int r = lambdaTree.getResponsibleECTBar();
+                act[orderedByEST[r]].setAbsent();
+                lambdaTree.remove(r);
+            }
+        }
     }
 
     /**
      * @return true if one domain was changed by the detectable precedence algo
      */
     private boolean detectablePrecedence() {
-        // 4: add the Detectable Precedences algorithm.
         tree.reset();
-
-        System.arraycopy(orderedIndices(earliestStartingTime), 0, orderedByEST, 0, n);
-        getIndexOrder(orderedByEST, indexOrder);
-
-        System.arraycopy(orderedIndices(latestCompletionTimeMinusDuration), 0, orderedByLCTMinusDuration, 0, n);
-        System.arraycopy(orderedIndices(earliestStartingTimePlusDuration), 0, orderedByESTPlusDuration, 0, n);
-
         int j = 0;
-        for (int i = 0; i < n; i++) {
-            int iIndex = orderedByESTPlusDuration[i];
-            int jIndex = orderedByLCTMinusDuration[j];
-
-            while (earliestStartingTimePlusDuration[iIndex] > latestCompletionTimeMinusDuration[jIndex]) {
-                tree.insert(indexOrder[jIndex], earliestCompletionTime[jIndex], duration[jIndex]);
-                if (j < n - 1) {
-                    jIndex = orderedByLCTMinusDuration[++j];
-                } else {
-                    break;
+        for (int k = 0; k < n; k++) {
+            int i = orderedByECT[k];
+            while (j < n && ect[i] > lst[orderedByLST[j]]) {
+                int q = orderedByLST[j++];
+                if (present[q]) {
+                    tree.insert(rank[q], est[q] + length[q], length[q]);
                 }
             }
+            newEst[i] = inactive(i) ? est[i] : Math.max(est[i], ectWithout(i));
+        }
+        return updateEst();
+    }
 
-            if (tree.isPresent(indexOrder[iIndex])) {
-                tree.remove(indexOrder[iIndex]);
-                tmp[iIndex] = Math.max(earliestStartingTime[iIndex], tree.getECT());
-                tree.insert(indexOrder[iIndex], earliestCompletionTime[iIndex], duration[iIndex]);
-            } else {
-                tmp[iIndex] = Math.max(earliestStartingTime[iIndex], tree.getECT());
+    /**
+     * @return true if one domain was changed by the not-last algo
+     */
+    private boolean notLast() {
+        tree.reset();
+        int j = 0;
+        int last = -1; // last activity inserted in the tree
+        for (int k = 0; k < n; k++) {
+            int i = orderedByLCT[k];
+            while (j < n && lct[i] > lst[orderedByLST[j]]) {
+                int q = orderedByLST[j++];
+                if (present[q]) {
+                    tree.insert(rank[q], est[q] + length[q], length[q]);
+                    last = q;
+                }
+            }
+            newLct[i] = lct[i];
+            if (last >= 0 && !inactive(i) && ectWithout(i) > lst[i]) {
+                newLct[i] = Math.min(lct[i], lst[last]);
             }
         }
-
         boolean changed = false;
         for (int i = 0; i < n; i++) {
-            if (tmp[i] != earliestStartingTime[i]) {
-                start[i].removeBelow(tmp[i]);
+            if (newLct[i] < lct[i]) {
+                act[i].setEndMax(newLct[i]);
                 changed = true;
             }
         }
-
         return changed;
     }
 
     /**
-     * @return true if one domain was changed by the not-last algo
+     * @return true if one domain was changed by the edge-finding algo
      */
-    private boolean notLast() {
-        // 5: add the Not-Last algorithm.
-        tree.reset();
-
-        System.arraycopy(orderedIndices(earliestStartingTime), 0, orderedByEST, 0, n);
-        getIndexOrder(orderedByEST, indexOrder);
-
-        System.arraycopy(orderedIndices(latestCompletionTimeMinusDuration), 0, orderedByLCTMinusDuration, 0, n);
-        System.arraycopy(orderedIndices(latestCompletionTime), 0, orderedByLCT, 0, n);
-
-        System.arraycopy(latestCompletionTime, 0, tmp, 0, n);
-
-        int j = 0;
+    private boolean edgeFinding() {
+        boolean changed = false;
+        lambdaTree.reset();
         for (int i = 0; i < n; i++) {
-            int iIndex = orderedByLCT[i];
-            int jIndex = orderedByLCTMinusDuration[j];
-
-            while (latestCompletionTime[iIndex] > latestCompletionTimeMinusDuration[jIndex]) {
-                tree.insert(indexOrder[jIndex], earliestCompletionTime[jIndex], duration[jIndex]);
-                if (j < n - 1) {
-                    jIndex = orderedByLCTMinusDuration[++j];
+            // the optional activities are gray from the start
+            if (present[i]) {
+                lambdaTree.insertTheta(rank[i], est[i] + length[i], length[i]);
+            } else if (optional[i]) {
+                lambdaTree.insertLambda(rank[i], est[i] + length[i], length[i]);
+            }
+            newEst[i] = est[i];
+        }
+        // Theta holds the present activities with a latest completion time up to lct[j]
+        for (int k = n - 1; k >= 0; k--) {
+            int j = orderedByLCT[k];
+            if (inactive(j)) {
+                continue;
+            }
+            if (lambdaTree.getECT() > lct[j]) {
+                throw INCONSISTENCY;
+            }
+            // the responsible gray activity cannot end before the activities of Theta
+            while (lambdaTree.getECTBar() > lct[j]) {
+                int i = orderedByEST[lambdaTree.getResponsibleECTBar()];
+                if (optional[i] && lct[i] <= lct[j]) {
+                    // it would overload the resource
+                    act[i].setAbsent();
+                    changed = true;
                 } else {
-                    break;
+                    newEst[i] = Math.max(newEst[i], lambdaTree.getECT());
                 }
+                lambdaTree.remove(rank[i]);
             }
-
-            int ect = tree.getECT();
-            if (tree.isPresent(indexOrder[iIndex])) {
-                tree.remove(indexOrder[iIndex]);
-                ect = tree.getECT();
-                tree.insert(indexOrder[iIndex], earliestCompletionTime[iIndex], duration[iIndex]);
+            if (present[j]) {
+                lambdaTree.insertLambda(rank[j], est[j] + length[j], length[j]);
             }
+        }
+        return updateEst() || changed;
+    }
 
-            if (ect > latestCompletionTimeMinusDuration[iIndex]) {
-                tmp[iIndex] = Math.min(latestCompletionTimeMinusDuration[jIndex], latestCompletionTime[iIndex]);
-            }
+    /**
+     * @param i an activity
+     * @return the earliest completion time of the tree without i
+     */
+    private int ectWithout(int i) {
+        if (!tree.isPresent(rank[i])) {
+            return tree.getECT();
         }
+        tree.remove(rank[i]);
+        int ectTree = tree.getECT();
+        tree.insert(rank[i], est[i] + length[i], length[i]);
+        return ectTree;
+    }
 
+    private boolean updateEst() {
         boolean changed = false;
         for (int i = 0; i < n; i++) {
-            changed = changed || tmp[i] != latestCompletionTime[i];
-
-            end[i].removeAbove(tmp[i]);
+            if (newEst[i] > est[i]) {
+                act[i].setStartMin(newEst[i]);
+                changed = true;
+            }
         }
-
         return changed;
     }
-
-
 }
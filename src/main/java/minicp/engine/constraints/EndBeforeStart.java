@@ -0,0 +1,57 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntervalVar;
+
+/**
+ * Precedence constraint between two intervals:
+ * if both are present, the first one ends before the second one starts.
+ * An interval is only filtered from the other one once the other one is present.
+ */
+public class EndBeforeStart extends AbstractConstraint { // end(a) <= start(b)
+
+    private final IntervalVar a;
+    private final IntervalVar b;
+
+    public EndBeforeStart(IntervalVar a, IntervalVar b) {
+        super(a.getSolver());
+        this.a = a;
+        this.b = b;
+    }
+
+    @Override
+    public void post() {
+        a.propagateOnChange(this);
+        b.propagateOnChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        if (a.isAbsent() || b.isAbsent()) {
+            setActive(false);
+            return;
+        }
+        if (b.isPresent())
+            a.setEndMax(b.startMax());
+        if (a.isPresent())
+            b.setStartMin(a.endMin());
+        if (a.isAbsent() || b.isAbsent() || a.endMax() <= b.startMin())
+            setActive(false);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateLong;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Weighted Linear Sum Constraint
+ * <p>This constraint holds iff
+ * {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] rel c}
+ * where {@code rel} is {@code <=}, {@code ==} or {@code !=}.
+ * <p>The coefficients are applied natively rather than
+ * through {@link minicp.engine.core.IntVarViewMul} views and
+ * every computation is done on {@code long} such that
+ * large coefficients and domains cannot overflow.
+ * The contribution of the bound variables is maintained
+ * incrementally in a reversible sum and those variables are
+ * no longer visited. The bounds are only filtered
+ * when the slack is smaller than the largest span
+ * {@code |a[i]|*(max(x[i])-min(x[i]))} of a free variable.
+ */
+public class LinearSum extends AbstractConstraint {
+
+    /**
+     * Relation between the weighted sum and the constant.
+     */
+    public enum Relation {
+        /**
+         * {@code a[0]*x[0]+...+a[n-1]*x[n-1] <= c}
+         */
+        LESS_OR_EQUAL,
+        /**
+         * {@code a[0]*x[0]+...+a[n-1]*x[n-1] == c}
+         */
+        EQUAL,
+        /**
+         * {@code a[0]*x[0]+...+a[n-1]*x[n-1] != c}
+         */
+        NOT_EQUAL
+    }
+
+    private final int[] a;
+    private final IntVar[] x;
+    private final Relation rel;
+    private final long c;
+    private final int n;
+
+    private final int[] free;
+    private final StateInt nFree;
+    private final StateLong sumFixed;
+    private final long[] minTerm; // bounds of a[i]*x[i] at the start of the propagation
+    private final long[] maxTerm;
+
+    /**
+     * Creates a weighted linear sum constraint.
+     * The variables with a zero coefficient are ignored.
+     *
+     * @param a the coefficients
+     * @param x the variables, with the same length as a
+     * @param rel the relation between the weighted sum and c
+     * @param c the right hand side
+     */
+    public LinearSum(int[] a, IntVar[] x, Relation rel, long c) {
+        super(x[0].getSolver());
+        if (a.length != x.length)
+            throw new IllegalArgumentException("one coefficient per variable is expected");
+        int nonZero = 0;
+        for (int ai : a)
+            if (ai != 0) nonZero++;
+        this.n = nonZero;
+        this.a = new int[n];
+        this.x = new IntVar[n];
+        for (int i = 0, k = 0; i < a.length; i++) {
+            if (a[i] != 0) {
+                this.a[k] = a[i];
+                this.x[k++] = x[i];
+            }
+        }
+        this.rel = rel;
+        this.c = c;
+        free = new int[n];
+        for (int i = 0; i < n; i++) free[i] = i;
+        nFree = getSolver().getStateManager().makeStateInt(n);
+        sumFixed = getSolver().getStateManager().makeStateLong(0);
+        minTerm = new long[n];
+        maxTerm = new long[n];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x) {
+            if (rel == Relation.NOT_EQUAL) var.propagateOnBind(this);
+            else var.propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int nU = nFree.value();
+        long fixed = sumFixed.value();
+        long sumMin = 0;
+        long sumMax = 0;
+        long maxSpan = 0;
+        for (int i = nU - 1; i >= 0; i--) {
+            int idx = free[i];
+            IntVar var = x[idx];
+            long ai = a[idx];
+            if (var.isBound()) {
+                fixed += ai * var.min();
+                free[i] = free[nU - 1];
+                free[nU - 1] = idx;
+                nU--;
+            } else {
+                long lo = ai > 0 ? ai * var.min() : ai * var.max();
+                long hi = ai > 0 ? ai * var.max() : ai * var.min();
+                minTerm[idx] = lo;
+                maxTerm[idx] = hi;
+                sumMin += lo;
+                sumMax += hi;
+                maxSpan = Math.max(maxSpan, hi - lo);
+            }
+        }
+        if (nU != nFree.value()) {
+            nFree.setValue(nU);
+            sumFixed.setValue(fixed);
+        }
+        long rhs = c - fixed;
+
+        if (rel == Relation.NOT_EQUAL) {
+            if (nU == 0) {
+                if (rhs == 0) throw INCONSISTENCY;
+                setActive(false);
+            } else if (nU == 1) {
+                int idx = free[0];
+                if (rhs % a[idx] == 0) {
+                    long v = rhs / a[idx];
+                    if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE)
+                        x[idx].remove((int) v);
+                }
+                setActive(false);
+            }
+            return;
+        }
+
+        if (sumMin > rhs || (rel == Relation.EQUAL && sumMax < rhs))
+            throw INCONSISTENCY;
+        if (nU == 0) return;
+        long slackUp = rhs - sumMin; // how much a term can grow above its minimum
+        long slackDown = rel == Relation.EQUAL ? sumMax - rhs : Long.MAX_VALUE; // how much it can decrease
+        if (slackUp >= maxSpan && slackDown >= maxSpan) {
+            if (rel == Relation.LESS_OR_EQUAL && sumMax <= rhs) setActive(false); // entailed
+            return;
+        }
+        for (int i = nU - 1; i >= 0; i--) {
+            int idx = free[i];
+            long ai = a[idx];
+            long span = maxTerm[idx] - minTerm[idx];
+            if (span > slackUp) {
+                // a[idx]*x[idx] <= minTerm + slackUp
+                long ub = minTerm[idx] + slackUp;
+                if (ai > 0) x[idx].removeAbove(clamp(Math.floorDiv(ub, ai)));
+                else x[idx].removeBelow(clamp(ceilDiv(ub, ai)));
+            }
+            if (span > slackDown) {
+                // a[idx]*x[idx] >= maxTerm - slackDown
+                long lb = maxTerm[idx] - slackDown;
+                if (ai > 0) x[idx].removeBelow(clamp(ceilDiv(lb, ai)));
+                else x[idx].removeAbove(clamp(Math.floorDiv(lb, ai)));
+            }
+        }
+    }
+
+    private static long ceilDiv(long p, long q) {
+        return -Math.floorDiv(-p, q);
+    }
+
+    private static int clamp(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+}
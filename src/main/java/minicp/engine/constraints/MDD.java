@@ -0,0 +1,521 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseSet;
+import minicp.util.DFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Multi-valued decision diagram constraint.
+ * <p>The assignment of {@code x} must be the sequence of labels
+ * of a path from the root to the terminal node of a layered
+ * {@link Diagram}, the edges from layer i to layer i+1 being labelled
+ * with values of {@code x[i]}.
+ *
+ * <p>The filtering is domain consistent and incremental:
+ * the alive edges are a reversible sparse-set and each node
+ * maintains a reversible count of its alive incoming and outgoing edges.
+ * The removal of a value kills its edges, a node without incoming
+ * or outgoing edge kills all its other edges,
+ * and a value is removed when its last edge is killed,
+ * such that each propagation costs time proportional to the killed edges.
+ *
+ * <p>Perez, G., & Régin, J. C. (2014). Improving GAC-4 for table and MDD constraints.
+ * In CP (pp. 606-621).
+ */
+public class MDD extends AbstractConstraint {
+
+    /**
+     * Reduced layered decision diagram.
+     * <p>Diagrams are compiled from a table with {@link #fromTable(int, int[][])}
+     * or by unrolling an automaton with {@link #fromAutomaton(DFA, int)}.
+     * In both cases, every node lies on a path from the root to the terminal node
+     * and the equivalent nodes of a layer (having the same labelled outgoing edges)
+     * are merged.
+     */
+    public static final class Diagram {
+
+        private final int arity;
+        private final int[] nodeLayer;
+        // edges, sorted by layer
+        private final int[] tail;
+        private final int[] label;
+        private final int[] head;
+
+        private Diagram(int arity, int[] width, List<int[]>[] edges) {
+            this.arity = arity;
+            int[] first = new int[arity + 1];
+            for (int i = 1; i <= arity; i++) first[i] = first[i - 1] + width[i - 1];
+            nodeLayer = new int[first[arity] + width[arity]];
+            for (int i = 0; i <= arity; i++)
+                Arrays.fill(nodeLayer, first[i], first[i] + width[i], i);
+            int nEdges = 0;
+            for (int i = 0; i < arity; i++) nEdges += edges[i].size();
+            tail = new int[nEdges];
+            label = new int[nEdges];
+            head = new int[nEdges];
+            int e = 0;
+            for (int i = 0; i < arity; i++) {
+                for (int[] edge : edges[i]) {
+                    tail[e] = first[i] + edge[0];
+                    label[e] = edge[1];
+                    head[e] = first[i + 1] + edge[2];
+                    e++;
+                }
+            }
+        }
+
+        /**
+         * Compiles the reduced diagram of a table.
+         *
+         * @param arity the number of variables
+         * @param table the tuples, the second dimension must be equal to arity
+         * @return the reduced diagram whose paths are the tuples of the table
+         */
+        public static Diagram fromTable(int arity, int[][] table) {
+            if (arity <= 0) throw new IllegalArgumentException("arity should be > 0");
+            int[] width = new int[arity + 1];
+            List<int[]>[] edges = newEdgeLists(arity);
+            width[0] = 1;
+            width[arity] = 1;
+            HashMap<Long, Integer>[] children = newMaps(arity);
+            for (int[] t : table) {
+                if (t.length != arity)
+                    throw new IllegalArgumentException("tuple of size " + t.length + " instead of " + arity);
+                int node = 0;
+                for (int i = 0; i < arity; i++) {
+                    long key = ((long) node << 32) | (t[i] & 0xFFFFFFFFL);
+                    Integer child = children[i].get(key);
+                    if (child == null) {
+                        child = i == arity - 1 ? 0 : width[i + 1]++;
+                        children[i].put(key, child);
+                        edges[i].add(new int[]{node, t[i], child});
+                    }
+                    node = child;
+                }
+            }
+            return reduce(arity, width, edges);
+        }
+
+        /**
+         * Compiles the reduced diagram of the words of a given length accepted by an automaton.
+         *
+         * @param dfa the automaton
+         * @param length the length of the words, that is the number of variables
+         * @return the reduced diagram whose paths are the accepted words of the given length
+         */
+        public static Diagram fromAutomaton(DFA dfa, int length) {
+            return unroll(dfa, length, null);
+        }
+
+        /**
+         * Compiles the reduced diagram of the words accepted by an automaton
+         * whose letters are in the domains of some variables.
+         *
+         * @param dfa the automaton
+         * @param x the variables, the letter i of a word must be in the domain of x[i]
+         * @return the reduced diagram whose paths are the accepted words
+         *         of length {@code x.length} within the domains
+         */
+        public static Diagram fromAutomaton(DFA dfa, IntVar[] x) {
+            return unroll(dfa, x.length, x);
+        }
+
+        private static Diagram unroll(DFA dfa, int length, IntVar[] x) {
+            if (length <= 0) throw new IllegalArgumentException("length should be > 0");
+            int[] symbols = dfa.symbols();
+            int[] width = new int[length + 1];
+            List<int[]>[] edges = newEdgeLists(length);
+            // node[s] is the local index of state s in the current layer, -1 if unreachable
+            int[] node = new int[dfa.numberOfStates()];
+            int[] nextNode = new int[dfa.numberOfStates()];
+            int[] states = new int[dfa.numberOfStates()];
+            int[] nextStates = new int[dfa.numberOfStates()];
+            Arrays.fill(node, -1);
+            Arrays.fill(nextNode, -1);
+            states[0] = dfa.initialState();
+            node[dfa.initialState()] = 0;
+            width[0] = 1;
+            width[length] = 1;
+            for (int i = 0; i < length; i++) {
+                int nNext = 0;
+                for (int k = 0; k < width[i]; k++) {
+                    int s = states[k];
+                    for (int a : symbols) {
+                        if (x != null && !x[i].contains(a)) continue;
+                        int t = dfa.next(s, a);
+                        if (t < 0) continue;
+                        if (i == length - 1) {
+                            if (dfa.isFinal(t)) edges[i].add(new int[]{k, a, 0});
+                        } else {
+                            if (nextNode[t] < 0) {
+                                nextNode[t] = nNext;
+                                nextStates[nNext++] = t;
+                            }
+                            edges[i].add(new int[]{k, a, nextNode[t]});
+                        }
+                    }
+                }
+                if (i < length - 1) {
+                    width[i + 1] = nNext;
+                    for (int k = 0; k < width[i]; k++) node[states[k]] = -1;
+                    int[] tmp = node;
+                    node = nextNode;
+                    nextNode = tmp;
+                    tmp = states;
+                    states = nextStates;
+                    nextStates = tmp;
+                }
+            }
+            return reduce(length, width, edges);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static List<int[]>[] newEdgeLists(int arity) {
+            List<int[]>[] edges = new List[arity];
+            for (int i = 0; i < arity; i++) edges[i] = new ArrayList<>();
+            return edges;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static HashMap<Long, Integer>[] newMaps(int arity) {
+            HashMap<Long, Integer>[] maps = new HashMap[arity];
+            for (int i = 0; i < arity; i++) maps[i] = new HashMap<>();
+            return maps;
+        }
+
+        /**
+         * Removes the nodes that cannot reach the terminal node
+         * and merges the equivalent nodes, from the last layer to the first one.
+         * The edges are given as {@code {tail, label, head}}
+         * with the local indices of the nodes in their layer.
+         */
+        private static Diagram reduce(int arity, int[] width, List<int[]>[] edges) {
+            int[] newWidth = new int[arity + 1];
+            List<int[]>[] newEdges = newEdgeLists(arity);
+            newWidth[arity] = 1;
+            int[] map = new int[]{0}; // new index of the nodes of the next layer
+            for (int i = arity - 1; i >= 0; i--) {
+                List<List<Integer>> out = new ArrayList<>();
+                for (int k = 0; k < width[i]; k++) out.add(new ArrayList<>());
+                List<int[]> layerEdges = new ArrayList<>(edges[i]);
+                layerEdges.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[2], b[2]));
+                for (int[] e : layerEdges) {
+                    int h = map[e[2]];
+                    if (h < 0) continue;
+                    List<Integer> o = out.get(e[0]);
+                    int n = o.size();
+                    if (n > 0 && o.get(n - 2) == e[1] && o.get(n - 1) == h) continue; // duplicate
+                    o.add(e[1]);
+                    o.add(h);
+                }
+                HashMap<List<Integer>, Integer> signatures = new HashMap<>();
+                int[] newMap = new int[width[i]];
+                for (int k = 0; k < width[i]; k++) {
+                    List<Integer> o = out.get(k);
+                    if (o.isEmpty()) {
+                        newMap[k] = -1;
+                        continue;
+                    }
+                    Integer id = signatures.get(o);
+                    if (id == null) {
+                        id = newWidth[i]++;
+                        signatures.put(o, id);
+                        for (int j = 0; j < o.size(); j += 2)
+                            newEdges[i].add(new int[]{id, o.get(j), o.get(j + 1)});
+                    }
+                    newMap[k] = id;
+                }
+                map = newMap;
+            }
+            if (newWidth[0] == 0) {
+                // no path from the root, the diagram is empty
+                newWidth[0] = 1;
+                for (int i = 0; i < arity; i++) newEdges[i].clear();
+            }
+            return new Diagram(arity, newWidth, newEdges);
+        }
+
+        /**
+         * Returns the number of layers of edges, that is the number of variables.
+         *
+         * @return the arity of the diagram
+         */
+        public int arity() {
+            return arity;
+        }
+
+        /**
+         * Returns the number of nodes, including the root and the terminal node.
+         *
+         * @return the number of nodes
+         */
+        public int numberOfNodes() {
+            return nodeLayer.length;
+        }
+
+        /**
+         * Returns the number of edges.
+         *
+         * @return the number of edges
+         */
+        public int numberOfEdges() {
+            return tail.length;
+        }
+
+        /**
+         * Returns the number of paths from the root to the terminal node,
+         * that is the number of tuples represented by the diagram.
+         *
+         * @return the number of paths
+         */
+        public long numberOfPaths() {
+            long[] paths = new long[nodeLayer.length];
+            paths[0] = 1;
+            for (int e = 0; e < tail.length; e++)
+                paths[head[e]] += paths[tail[e]];
+            return tail.length == 0 ? 0 : paths[nodeLayer.length - 1];
+        }
+
+        /**
+         * Checks if a tuple is a path of the diagram.
+         *
+         * @param tuple the tuple of size {@link #arity()}
+         * @return true if the labels of a path from the root to the terminal node are the tuple
+         */
+        public boolean contains(int... tuple) {
+            int node = 0;
+            int e = 0;
+            for (int i = 0; i < arity; i++) {
+                while (e < tail.length && nodeLayer[tail[e]] < i) e++;
+                while (e < tail.length && nodeLayer[tail[e]] == i && (tail[e] != node || label[e] != tuple[i])) e++;
+                if (e == tail.length || nodeLayer[tail[e]] != i) return false;
+                node = head[e];
+            }
+            return true;
+        }
+    }
+
+    private final IntVar[] x;
+    private final int[] tail;
+    private final int[] label;
+    private final int[] head;
+    private final int[] edgeLayer;
+    private final int[][] inEdges; // inEdges[n] are the edges entering node n
+    private final int[][] outEdges; // outEdges[n] are the edges leaving node n
+    private final int[] ofs; // ofs[i] is the smallest value of x[i] at creation
+    private final int[][][] valueEdges; // valueEdges[i][v-ofs[i]] are the edges of layer i labelled v
+    private final int[] supportIndex; // supportIndex[e] is label[e]-ofs[i], -1 if label[e] is out of the domain
+
+    private final StateSparseSet alive; // the alive edges
+    private final StateInt[] nIn; // nIn[n] is the number of alive edges entering n
+    private final StateInt[] nOut; // nOut[n] is the number of alive edges leaving n
+    private final StateInt[][] nSupports; // nSupports[i][v-ofs[i]] is the number of alive edges of layer i labelled v
+
+    // lastDom[i][0..lastSize[i]-1] are the values of x[i] at the last propagation
+    private final int[][] lastDom;
+    private final StateInt[] lastSize;
+
+    private final int[] killed; // stack of the killed edges to process
+    private int nKilled = 0;
+
+    /**
+     * Creates an MDD constraint.
+     *
+     * @param x the variables, x[i] being the label of the edges of layer i
+     * @param diagram the diagram, its arity must be equal to the size of x
+     */
+    public MDD(IntVar[] x, Diagram diagram) {
+        super(x[0].getSolver());
+        if (diagram.arity() != x.length)
+            throw new IllegalArgumentException("the arity of the diagram should be " + x.length);
+        StateManager sm = getSolver().getStateManager();
+        this.x = x.clone();
+        int n = x.length;
+        int nNodes = diagram.numberOfNodes();
+        int nEdges = diagram.numberOfEdges();
+        tail = diagram.tail;
+        label = diagram.label;
+        head = diagram.head;
+        edgeLayer = new int[nEdges];
+
+        int[] inDegree = new int[nNodes];
+        int[] outDegree = new int[nNodes];
+        for (int e = 0; e < nEdges; e++) {
+            edgeLayer[e] = diagram.nodeLayer[tail[e]];
+            outDegree[tail[e]]++;
+            inDegree[head[e]]++;
+        }
+        inEdges = new int[nNodes][];
+        outEdges = new int[nNodes][];
+        for (int k = 0; k < nNodes; k++) {
+            inEdges[k] = new int[inDegree[k]];
+            outEdges[k] = new int[outDegree[k]];
+        }
+        Arrays.fill(inDegree, 0);
+        Arrays.fill(outDegree, 0);
+        for (int e = 0; e < nEdges; e++) {
+            outEdges[tail[e]][outDegree[tail[e]]++] = e;
+            inEdges[head[e]][inDegree[head[e]]++] = e;
+        }
+
+        ofs = new int[n];
+        valueEdges = new int[n][][];
+        supportIndex = new int[nEdges];
+        int[][] count = new int[n][];
+        for (int i = 0; i < n; i++) {
+            ofs[i] = x[i].min();
+            count[i] = new int[x[i].max() - x[i].min() + 1];
+        }
+        for (int e = 0; e < nEdges; e++) {
+            int i = edgeLayer[e];
+            int v = label[e] - ofs[i];
+            supportIndex[e] = x[i].contains(label[e]) ? v : -1;
+            if (supportIndex[e] >= 0) count[i][v]++;
+        }
+        nSupports = new StateInt[n][];
+        for (int i = 0; i < n; i++) {
+            valueEdges[i] = new int[count[i].length][];
+            nSupports[i] = new StateInt[count[i].length];
+            for (int v = 0; v < count[i].length; v++) {
+                valueEdges[i][v] = new int[count[i][v]];
+                nSupports[i][v] = sm.makeStateInt(count[i][v]);
+                count[i][v] = 0;
+            }
+        }
+        for (int e = 0; e < nEdges; e++) {
+            int v = supportIndex[e];
+            if (v >= 0) valueEdges[edgeLayer[e]][v][count[edgeLayer[e]][v]++] = e;
+        }
+
+        alive = new StateSparseSet(sm, Math.max(nEdges, 1), 0);
+        if (nEdges == 0) alive.remove(0);
+        nIn = new StateInt[nNodes];
+        nOut = new StateInt[nNodes];
+        for (int k = 0; k < nNodes; k++) {
+            nIn[k] = sm.makeStateInt(inEdges[k].length);
+            nOut[k] = sm.makeStateInt(outEdges[k].length);
+        }
+
+        lastDom = new int[n][];
+        lastSize = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            lastDom[i] = new int[x[i].size()];
+            x[i].fillArray(lastDom[i]);
+            lastSize[i] = sm.makeStateInt(x[i].size());
+        }
+        killed = new int[Math.max(nEdges, 1)];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x)
+            var.propagateOnDomainChange(this);
+        // the edges labelled by values outside of the domains
+        for (int e = 0; e < tail.length; e++) {
+            int v = supportIndex[e];
+            if (v < 0 || !x[edgeLayer[e]].contains(label[e]))
+                kill(e);
+        }
+        processKilled();
+        // the values without any edge
+        for (int i = 0; i < x.length; i++) {
+            for (int v = 0; v < nSupports[i].length; v++) {
+                if (nSupports[i][v].value() == 0)
+                    x[i].remove(v + ofs[i]);
+            }
+        }
+        for (int i = 0; i < x.length; i++)
+            syncDomain(i, false);
+    }
+
+    @Override
+    public void propagate() {
+        for (int i = 0; i < x.length; i++) {
+            if (x[i].size() != lastSize[i].value()) {
+                syncDomain(i, true);
+                processKilled();
+            }
+        }
+        // the values removed by this propagation have no alive edge
+        for (int i = 0; i < x.length; i++)
+            syncDomain(i, false);
+    }
+
+    /**
+     * Updates the values of x[i] stored at the last propagation.
+     *
+     * @param i the index of a variable
+     * @param killEdges if the edges of the removed values must be killed
+     */
+    private void syncDomain(int i, boolean killEdges) {
+        int[] values = lastDom[i];
+        int s = lastSize[i].value();
+        if (s == x[i].size()) return;
+        for (int j = s - 1; j >= 0; j--) {
+            int v = values[j];
+            if (!x[i].contains(v)) {
+                if (killEdges) {
+                    for (int e : valueEdges[i][v - ofs[i]]) {
+                        if (alive.contains(e)) kill(e);
+                    }
+                }
+                values[j] = values[s - 1];
+                values[s - 1] = v;
+                s--;
+            }
+        }
+        lastSize[i].setValue(s);
+    }
+
+    private void kill(int e) {
+        alive.remove(e);
+        killed[nKilled++] = e;
+    }
+
+    private void processKilled() {
+        try {
+            while (nKilled > 0) {
+                int e = killed[--nKilled];
+                int i = edgeLayer[e];
+                int v = supportIndex[e];
+                if (v >= 0 && nSupports[i][v].decrement() == 0)
+                    x[i].remove(label[e]);
+                int t = tail[e];
+                if (nOut[t].decrement() == 0) {
+                    for (int f : inEdges[t])
+                        if (alive.contains(f)) kill(f);
+                }
+                int h = head[e];
+                if (nIn[h].decrement() == 0) {
+                    for (int f : outEdges[h])
+                        if (alive.contains(f)) kill(f);
+                }
+            }
+        } finally {
+            nKilled = 0;
+        }
+    }
+}
@@ -93,6 +93,16 @@ public class MaximumMatching {
     }
 
 
+    /**
+     * Checks if a value is matched to a variable in the current matching.
+     *
+     * @param v a value
+     * @return true if some variable is matched to v
+     */
+    public boolean isMatched(int v) {
+        return v >= min && v <= max && valMatch[v - min] >= 0;
+    }
+
     private void findInitialMatching() { //returns the size of the maximum matching
         sizeMatching = 0;
         for (int k = 0; k < x.length; k++) {
@@ -0,0 +1,61 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.DFA;
+
+/**
+ * Regular constraint.
+ * <p>The sequence {@code x[0], x[1], ..., x[n-1]} must be a word
+ * accepted by a deterministic finite automaton,
+ * typically to model the shift patterns of a rostering problem.
+ *
+ * <p>The automaton is unrolled over the domains of {@code x}
+ * into a layered graph whose nodes of layer i are the states
+ * reachable after reading i letters, the states that cannot reach an
+ * accepting state after n letters are removed and the equivalent states of a layer are merged.
+ * The graph is then filtered by an {@link MDD} constraint,
+ * which maintains reversible support counters on the edges,
+ * states and values, such that each value removal costs time
+ * proportional to the edges it kills.
+ *
+ * <p>Pesant, G. (2004). A regular language membership constraint
+ * for finite sequences of variables. In CP (pp. 482-495).
+ */
+public class Regular extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final DFA automaton;
+
+    /**
+     * Creates a regular constraint.
+     *
+     * @param x the non empty sequence of variables
+     * @param automaton the automaton accepting the valid sequences
+     */
+    public Regular(IntVar[] x, DFA automaton) {
+        super(x[0].getSolver());
+        this.x = x;
+        this.automaton = automaton;
+    }
+
+    @Override
+    public void post() {
+        getSolver().post(new MDD(x, MDD.Diagram.fromAutomaton(automaton, x)));
+    }
+}
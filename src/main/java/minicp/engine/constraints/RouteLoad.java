@@ -0,0 +1,166 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import java.util.Arrays;
+
+/**
+ * Load of the vehicles on routes given by a successor model.
+ * <p>{@code load[i]} is the load of the vehicle when it leaves node i,
+ * such that {@code load[succ[i]] = load[i] + demand[succ[i]]}
+ * with a positive demand for a pickup and a negative one for a delivery.
+ * The load never exceeds the capacity nor becomes negative.
+ * The successor of the end of a route is the start of another one,
+ * whose load is not related to the one of the end.
+ * <p>The loads are propagated forward and backward along the partial paths
+ * formed by the bound successors, such that a path whose loads
+ * overflow the capacity fails as soon as it is formed.
+ * The successors that would exceed the capacity are then removed
+ * and the load of each node is bounded by the loads of its possible
+ * successors and predecessors, up to a fix-point.
+ */
+public class RouteLoad extends AbstractConstraint {
+
+    private final IntVar[] succ;
+    private final IntVar[] load;
+    private final int[] demand;
+    private final int capacity;
+    private final boolean[] isEnd;
+    private final boolean[] hasBoundPred;
+    private final boolean[] hasEndPred;
+    private final int[] predMin;
+    private final int[] predMax;
+    private final int[] path;
+    private final int[] values;
+
+    /**
+     * Creates a route load constraint.
+     *
+     * @param succ the successor of each node
+     * @param load the load of the vehicle when leaving each node
+     * @param demand the variation of the load at each node
+     * @param ends the ends of the routes, whose successors are not related by the load
+     * @param capacity the capacity of the vehicles
+     */
+    public RouteLoad(IntVar[] succ, IntVar[] load, int[] demand, int[] ends, int capacity) {
+        super(succ[0].getSolver());
+        this.succ = succ;
+        this.load = load;
+        this.demand = demand;
+        this.capacity = capacity;
+        int n = succ.length;
+        isEnd = new boolean[n];
+        for (int e : ends)
+            isEnd[e] = true;
+        hasBoundPred = new boolean[n];
+        hasEndPred = new boolean[n];
+        predMin = new int[n];
+        predMax = new int[n];
+        path = new int[n];
+        values = new int[n];
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < succ.length; i++) {
+            load[i].removeBelow(0);
+            load[i].removeAbove(capacity);
+            succ[i].propagateOnDomainChange(this);
+            load[i].propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        boolean changed;
+        do {
+            propagatePaths();
+            changed = propagateSuccessors();
+        } while (changed);
+    }
+
+    // loads along the maximal paths of bound successors
+    private void propagatePaths() {
+        int n = succ.length;
+        Arrays.fill(hasBoundPred, false);
+        for (int i = 0; i < n; i++)
+            if (!isEnd[i] && succ[i].isBound())
+                hasBoundPred[succ[i].min()] = true;
+        for (int h = 0; h < n; h++) {
+            if (hasBoundPred[h]) continue;
+            int length = 0;
+            int i = h;
+            path[length++] = i;
+            while (!isEnd[i] && succ[i].isBound() && length < n) {
+                int j = succ[i].min();
+                load[j].removeBelow(load[i].min() + demand[j]);
+                load[j].removeAbove(load[i].max() + demand[j]);
+                path[length++] = j;
+                i = j;
+            }
+            for (int k = length - 1; k > 0; k--) {
+                int j = path[k];
+                i = path[k - 1];
+                load[i].removeBelow(load[j].min() - demand[j]);
+                load[i].removeAbove(load[j].max() - demand[j]);
+            }
+        }
+    }
+
+    // successors compatible with the loads, returns true if a load changed or a successor became bound
+    private boolean propagateSuccessors() {
+        int n = succ.length;
+        boolean changed = false;
+        Arrays.fill(predMin, Integer.MAX_VALUE);
+        Arrays.fill(predMax, Integer.MIN_VALUE);
+        Arrays.fill(hasEndPred, false);
+        for (int i = 0; i < n; i++) {
+            if (succ[i].isBound()) {
+                if (isEnd[i]) hasEndPred[succ[i].min()] = true;
+                continue; // already consistent along the paths
+            }
+            int s = succ[i].fillArray(values);
+            if (isEnd[i]) {
+                for (int j = 0; j < s; j++)
+                    hasEndPred[values[j]] = true;
+                continue;
+            }
+            int lMin = load[i].min();
+            int lMax = load[i].max();
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int j = 0; j < s; j++) {
+                int v = values[j];
+                if (lMin + demand[v] > load[v].max() || lMax + demand[v] < load[v].min()) {
+                    succ[i].remove(v);
+                    continue;
+                }
+                min = Math.min(min, load[v].min() - demand[v]);
+                max = Math.max(max, load[v].max() - demand[v]);
+                predMin[v] = Math.min(predMin[v], lMin + demand[v]);
+                predMax[v] = Math.max(predMax[v], lMax + demand[v]);
+            }
+            changed |= RouteTimes.restrict(load[i], min, max) || succ[i].isBound();
+        }
+        for (int v = 0; v < n; v++)
+            if (!hasBoundPred[v] && !hasEndPred[v] && predMin[v] <= predMax[v])
+                changed |= RouteTimes.restrict(load[v], predMin[v], predMax[v]);
+        return changed;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.GraphUtil.CSRGraph;
+
+import java.util.Arrays;
+
+/**
+ * Travel times, time windows and pickup and delivery requests
+ * on routes given by a successor model.
+ * <p>Node i is reached at {@code time[i]}, whose domain is its time window,
+ * and the vehicle leaves it as soon as it arrives such that
+ * {@code time[succ[i]] = time[i] + transition[i][succ[i]]}.
+ * The successor of the end of a route is the start of another one
+ * and carries no travel time.
+ * Request k picks up at node {@code pickup[k]} and drops at node {@code drop[k]}
+ * at most {@code maxRideTime} later, on the same route.
+ * <p>A single propagator replaces the element constraints of the
+ * decomposition: the successors that are incompatible with the times
+ * are removed and the time of each node is bounded by the times
+ * of its possible successors and predecessors, up to a fix-point.
+ * Each propagation scans the successor domains once to collect the
+ * possible predecessors, the fix-point is then computed with a queue
+ * of the nodes whose neighbors or request partner changed.
+ * The transition times are expected to satisfy the triangle inequality
+ * such that a drop can be reached from its pickup
+ * in {@code transition[pickup[k]][drop[k]]}.
+ */
+public class RouteTimes extends AbstractConstraint {
+
+    private final IntVar[] succ;
+    private final IntVar[] time;
+    private final int[][] transition;
+    private final boolean[] isEnd;
+    private final int[] pickup;
+    private final int[] drop;
+    private final int maxRideTime;
+    private final int[] partner; // the other node of the request of each node, -1 if none
+    private final boolean[] isPickup;
+    private final CSRGraph preds; // possible predecessors at the start of the propagation
+    private final int[] queue;
+    private final boolean[] inQueue;
+    private int head;
+    private int size;
+    private final int[] values;
+
+    /**
+     * Creates a route times constraint.
+     *
+     * @param succ the successor of each node
+     * @param time the arrival time at each node
+     * @param transition the travel time between each pair of nodes
+     * @param ends the ends of the routes, whose successors carry no travel time
+     * @param pickup the pickup node of each request
+     * @param drop the drop node of each request
+     * @param maxRideTime the maximum time between a pickup and its drop
+     */
+    public RouteTimes(IntVar[] succ, IntVar[] time, int[][] transition, int[] ends,
+                      int[] pickup, int[] drop, int maxRideTime) {
+        super(succ[0].getSolver());
+        this.succ = succ;
+        this.time = time;
+        this.transition = transition;
+        this.pickup = pickup;
+        this.drop = drop;
+        this.maxRideTime = maxRideTime;
+        int n = succ.length;
+        isEnd = new boolean[n];
+        for (int e : ends)
+            isEnd[e] = true;
+        partner = new int[n];
+        Arrays.fill(partner, -1);
+        isPickup = new boolean[n];
+        for (int k = 0; k < pickup.length; k++) {
+            isPickup[pickup[k]] = true;
+            partner[pickup[k]] = drop[k];
+            partner[drop[k]] = pickup[k];
+        }
+        preds = new CSRGraph(n);
+        queue = new int[n];
+        inQueue = new boolean[n];
+        values = new int[n];
+    }
+
+    @Override
+    public void post() {
+        for (int k = 0; k < pickup.length; k++)
+            succ[drop[k]].remove(pickup[k]);
+        for (int i = 0; i < succ.length; i++) {
+            succ[i].propagateOnDomainChange(this);
+            time[i].propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int n = succ.length;
+        preds.clear(n);
+        for (int i = 0; i < n; i++) {
+            int s = succ[i].fillArray(values);
+            for (int j = 0; j < s; j++)
+                preds.addEdge(values[j], i);
+        }
+        preds.build();
+        // every node is queued, including after a failure of the last propagation
+        for (int i = 0; i < n; i++) {
+            queue[i] = i;
+            inQueue[i] = true;
+        }
+        head = 0;
+        size = n;
+        while (size > 0) {
+            int i = queue[head];
+            head = head + 1 == n ? 0 : head + 1;
+            size--;
+            inQueue[i] = false;
+            filter(i);
+        }
+    }
+
+    private void enqueue(int i) {
+        if (!inQueue[i]) {
+            inQueue[i] = true;
+            int tail = head + size;
+            queue[tail < queue.length ? tail : tail - queue.length] = i;
+            size++;
+        }
+    }
+
+    // enqueues the nodes whose bounds depend on the time of i
+    private void timeChanged(int i) {
+        enqueue(i);
+        for (int e = preds.begin(i); e < preds.end(i); e++)
+            enqueue(preds.head(e));
+        int s = succ[i].fillArray(values);
+        for (int j = 0; j < s; j++)
+            enqueue(values[j]);
+        if (partner[i] >= 0)
+            enqueue(partner[i]);
+    }
+
+    private void filter(int i) {
+        boolean changed = false;
+        // bounds from the successors, whose predecessor bounds change on a removal
+        if (!isEnd[i]) {
+            int tMin = time[i].min();
+            int tMax = time[i].max();
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int s = succ[i].fillArray(values);
+            for (int j = 0; j < s; j++) {
+                int v = values[j];
+                int t = transition[i][v];
+                if (tMin + t > time[v].max() || tMax + t < time[v].min()) {
+                    succ[i].remove(v);
+                    enqueue(v);
+                    continue;
+                }
+                min = Math.min(min, time[v].min() - t);
+                max = Math.max(max, time[v].max() - t);
+            }
+            // an empty domain has already failed
+            changed |= restrict(time[i], min, max);
+        }
+        // bounds from the predecessors, unless it may follow the end of a route
+        int predMin = Integer.MAX_VALUE;
+        int predMax = Integer.MIN_VALUE;
+        for (int e = preds.begin(i); e < preds.end(i); e++) {
+            int u = preds.head(e);
+            if (!succ[u].contains(i)) continue;
+            if (isEnd[u]) {
+                predMin = Integer.MAX_VALUE;
+                predMax = Integer.MIN_VALUE;
+                break;
+            }
+            int t = transition[u][i];
+            predMin = Math.min(predMin, time[u].min() + t);
+            predMax = Math.max(predMax, time[u].max() + t);
+        }
+        if (predMin <= predMax)
+            changed |= restrict(time[i], predMin, predMax);
+        // ride time of the request of i
+        int j = partner[i];
+        if (j >= 0) {
+            boolean pick = isPickup[i];
+            IntVar p = time[pick ? i : j];
+            IntVar d = time[pick ? j : i];
+            int t = pick ? transition[i][j] : transition[j][i];
+            boolean dChanged = restrict(d, p.min() + t, p.max() + maxRideTime);
+            boolean pChanged = restrict(p, d.min() - maxRideTime, d.max() - t);
+            changed |= pick ? pChanged : dChanged;
+            if (pick ? dChanged : pChanged) timeChanged(j);
+        }
+        if (changed) timeChanged(i);
+    }
+    // restricts the domain of x to [min,max], true if it changed
+    static boolean restrict(IntVar x, int min, int max) {
+        boolean changed = false;
+        if (x.min() < min) {
+            x.removeBelow(min);
+            changed = true;
+        }
+        if (x.max() > max) {
+            x.removeAbove(max);
+            changed = true;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.SequenceVar;
+
+import java.util.Arrays;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Capacity of a vehicle following a {@link SequenceVar}
+ * with pickup and delivery requests.
+ * <p>Request k loads {@code load[k]} at node {@code pickup[k]} and unloads it
+ * at node {@code drop[k]}. Both nodes are either excluded or members
+ * with the pickup before the drop, and the sum of the loads of the
+ * requests in the vehicle never exceeds the capacity.
+ * <p>The load after a member only accounts for the requests whose pickup
+ * and drop are both members and enclose it. Since the order of the members
+ * never changes, this load can only increase and the insertions
+ * that would exceed the capacity are removed for good.
+ */
+public class SequenceCapacity extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final int[] pickup;
+    private final int[] drop;
+    private final int[] load;
+    private final int capacity;
+    private final int[] request; // request of each node, -1 if none
+    private final int[] rank; // rank of each member in the sequence
+    private final int[] loadAfter; // load after each member
+    private final int[] members;
+    private final int[] preds;
+
+    /**
+     * Creates a capacity constraint.
+     *
+     * @param seq the sequence
+     * @param pickup the pickup node of each request
+     * @param drop the drop node of each request
+     * @param load the non negative load of each request
+     * @param capacity the capacity of the vehicle
+     */
+    public SequenceCapacity(SequenceVar seq, int[] pickup, int[] drop, int[] load, int capacity) {
+        super(seq.getSolver());
+        this.seq = seq;
+        this.pickup = pickup;
+        this.drop = drop;
+        this.load = load;
+        this.capacity = capacity;
+        int n = seq.nNode();
+        request = new int[n];
+        Arrays.fill(request, -1);
+        for (int k = 0; k < pickup.length; k++) {
+            request[pickup[k]] = k;
+            request[drop[k]] = k;
+        }
+        rank = new int[n + 2];
+        loadAfter = new int[n + 2];
+        members = new int[n + 2];
+        preds = new int[n + 1];
+    }
+
+    @Override
+    public void post() {
+        for (int k = 0; k < pickup.length; k++)
+            if (load[k] > capacity) {
+                seq.exclude(pickup[k]);
+                seq.exclude(drop[k]);
+            }
+        seq.propagateOnInsert(this);
+        seq.propagateOnExclude(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        // a request is either fully excluded or fully visited
+        for (int k = 0; k < pickup.length; k++) {
+            if (seq.isExcluded(pickup[k])) seq.exclude(drop[k]);
+            else if (seq.isExcluded(drop[k])) seq.exclude(pickup[k]);
+        }
+        // rank of each member
+        int nMembers = 0;
+        for (int i = seq.start(); ; i = seq.next(i)) {
+            rank[i] = nMembers;
+            members[nMembers++] = i;
+            if (i == seq.end()) break;
+        }
+        // load after each member
+        int current = 0;
+        for (int r = 0; r < nMembers; r++) {
+            int i = members[r];
+            int k = i < seq.nNode() ? request[i] : -1;
+            if (k >= 0 && seq.isMember(pickup[k]) && seq.isMember(drop[k])) {
+                if (rank[drop[k]] < rank[pickup[k]]) throw INCONSISTENCY; // the drop is before the pickup
+                current += i == pickup[k] ? load[k] : -load[k];
+            }
+            if (current > capacity) throw INCONSISTENCY;
+            loadAfter[i] = current;
+        }
+        for (int k = 0; k < pickup.length; k++) {
+            int p = pickup[k];
+            int d = drop[k];
+            if (seq.isPossible(p) && seq.isPossible(d)) {
+                // the request is in the vehicle right after the pickup
+                int nPreds = seq.fillInsert(p, preds);
+                for (int l = 0; l < nPreds; l++)
+                    if (loadAfter[preds[l]] + load[k] > capacity)
+                        seq.removeInsert(p, preds[l]);
+                // and right before the drop
+                nPreds = seq.fillInsert(d, preds);
+                for (int l = 0; l < nPreds; l++)
+                    if (loadAfter[preds[l]] + load[k] > capacity)
+                        seq.removeInsert(d, preds[l]);
+            } else if (seq.isMember(p) && seq.isPossible(d)) {
+                // the drop is after the pickup and the request is in the vehicle in between
+                int max = 0;
+                for (int r = 0; r < nMembers - 1; r++) {
+                    int q = members[r];
+                    if (r >= rank[p]) max = Math.max(max, loadAfter[q]);
+                    if (r < rank[p] || max + load[k] > capacity)
+                        seq.removeInsert(d, q);
+                }
+            } else if (seq.isPossible(p) && seq.isMember(d)) {
+                // the pickup is before the drop and the request is in the vehicle in between
+                int max = 0;
+                for (int r = nMembers - 2; r >= 0; r--) {
+                    int q = members[r];
+                    if (r < rank[d]) max = Math.max(max, loadAfter[q]);
+                    if (r >= rank[d] || max + load[k] > capacity)
+                        seq.removeInsert(p, q);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+
+/**
+ * Length of a {@link SequenceVar}, that is the sum of the distances
+ * between the consecutive members from the start to the end.
+ * <p>The length of the current partial sequence is a lower bound of the
+ * length, and the insertions whose cost, the distance added by the detour,
+ * exceeds the maximum length are removed.
+ * A node that cannot be inserted after any member is excluded.
+ * The distances must satisfy the triangle inequality
+ * such that inserting other nodes never makes a detour shorter.
+ */
+public class SequenceDistance extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final int[][] distance;
+    private final IntVar length;
+    private final int[] nodes;
+
+    /**
+     * Creates a length constraint.
+     *
+     * @param seq the sequence
+     * @param distance the distance between each pair of nodes, including the start and the end
+     * @param length the length of the sequence
+     */
+    public SequenceDistance(SequenceVar seq, int[][] distance, IntVar length) {
+        super(seq.getSolver());
+        this.seq = seq;
+        this.distance = distance;
+        this.length = length;
+        nodes = new int[seq.nNode()];
+    }
+
+    @Override
+    public void post() {
+        seq.propagateOnInsert(this);
+        seq.propagateOnExclude(this);
+        length.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int current = 0;
+        for (int i = seq.start(); i != seq.end(); i = seq.next(i))
+            current += distance[i][seq.next(i)];
+        length.removeBelow(current);
+        if (seq.isBound()) {
+            length.removeAbove(current);
+            return;
+        }
+        int gap = length.max() - current;
+        int nPossible = seq.fillPossible(nodes);
+        for (int k = 0; k < nPossible; k++) {
+            int x = nodes[k];
+            boolean insertable = false;
+            for (int p = seq.start(); p != seq.end(); p = seq.next(p)) {
+                int s = seq.next(p);
+                if (distance[p][x] + distance[x][s] - distance[p][s] > gap)
+                    seq.removeInsert(x, p);
+                else
+                    insertable = true;
+            }
+            // by the triangle inequality, the detours after the future members are not shorter
+            if (!insertable)
+                seq.exclude(x);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Smart table constraint.
+ * <p>Each row of a smart table is a conjunction of restrictions, one per variable,
+ * that are either unary ({@code *}, {@code =v}, {@code !=v}, {@code <=v}, {@code >=v},
+ * {@code in S}, {@code notin S}) or binary ({@code x[i] op x[j] + c}
+ * with op one of {@code =, !=, <=, >=}).
+ * An assignment is valid if it satisfies every restriction of at least one row.
+ * A smart row typically compresses a huge number of ordinary tuples,
+ * the propagator works directly on the rows without expanding them.
+ *
+ * <p>The filtering is a simple tabular reduction (STR2):
+ * the valid rows are kept in a reversible sparse-set
+ * and each propagation removes the rows that are no longer valid
+ * while collecting the supported values of the unbound variables.
+ * It is domain consistent when the rows contain only unary restrictions.
+ * The binary restrictions of a row are filtered one by one,
+ * which is weaker when the restrictions of a row share variables.
+ *
+ * <p>Mairy, J. B., Deville, Y., & Lecoutre, C. (2015).
+ * The smart table constraint. In CPAIOR (pp. 271-287).
+ */
+public class SmartTable extends AbstractConstraint {
+
+    private static final int STAR = 0;
+    private static final int EQ = 1;
+    private static final int NE = 2;
+    private static final int LE = 3;
+    private static final int GE = 4;
+    private static final int IN = 5;
+    private static final int NOT_IN = 6;
+
+    /**
+     * Restriction on one variable of a row of a smart table.
+     * Restrictions are created with the static factory methods,
+     * for instance {@code Entry.le(3)} for {@code x[i] <= 3}
+     * or {@code Entry.leVar(j, 1)} for {@code x[i] <= x[j] + 1}.
+     */
+    public static final class Entry {
+
+        private static final Entry ANY = new Entry(STAR, 0, null, -1, 0);
+
+        private final int op;
+        private final int value;
+        private final int[] values;
+        private final int var;
+        private final int offset;
+
+        private Entry(int op, int value, int[] values, int var, int offset) {
+            this.op = op;
+            this.value = value;
+            this.values = values;
+            this.var = var;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the restriction accepting any value.
+         *
+         * @return {@code *}
+         */
+        public static Entry star() {
+            return ANY;
+        }
+
+        /**
+         * Returns the restriction {@code x[i] == v}.
+         *
+         * @param v the value
+         * @return {@code =v}
+         */
+        public static Entry eq(int v) {
+            return new Entry(EQ, v, null, -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] != v}.
+         *
+         * @param v the value
+         * @return {@code !=v}
+         */
+        public static Entry ne(int v) {
+            return new Entry(NE, v, null, -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] <= v}.
+         *
+         * @param v the value
+         * @return {@code <=v}
+         */
+        public static Entry le(int v) {
+            return new Entry(LE, v, null, -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] < v}.
+         *
+         * @param v the value
+         * @return {@code <v}
+         */
+        public static Entry lt(int v) {
+            return le(v - 1);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] >= v}.
+         *
+         * @param v the value
+         * @return {@code >=v}
+         */
+        public static Entry ge(int v) {
+            return new Entry(GE, v, null, -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] > v}.
+         *
+         * @param v the value
+         * @return {@code >v}
+         */
+        public static Entry gt(int v) {
+            return ge(v + 1);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] in values}.
+         *
+         * @param values the accepted values
+         * @return {@code in values}
+         */
+        public static Entry in(int... values) {
+            return new Entry(IN, 0, sortedDistinct(values), -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] notin values}.
+         *
+         * @param values the forbidden values
+         * @return {@code notin values}
+         */
+        public static Entry notIn(int... values) {
+            return new Entry(NOT_IN, 0, sortedDistinct(values), -1, 0);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] == x[j] + c}.
+         *
+         * @param j the index of the other variable in the scope
+         * @param c the offset
+         * @return {@code =x[j]+c}
+         */
+        public static Entry eqVar(int j, int c) {
+            return new Entry(EQ, 0, null, j, c);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] != x[j] + c}.
+         *
+         * @param j the index of the other variable in the scope
+         * @param c the offset
+         * @return {@code !=x[j]+c}
+         */
+        public static Entry neVar(int j, int c) {
+            return new Entry(NE, 0, null, j, c);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] <= x[j] + c}.
+         *
+         * @param j the index of the other variable in the scope
+         * @param c the offset
+         * @return {@code <=x[j]+c}
+         */
+        public static Entry leVar(int j, int c) {
+            return new Entry(LE, 0, null, j, c);
+        }
+
+        /**
+         * Returns the restriction {@code x[i] >= x[j] + c}.
+         *
+         * @param j the index of the other variable in the scope
+         * @param c the offset
+         * @return {@code >=x[j]+c}
+         */
+        public static Entry geVar(int j, int c) {
+            return new Entry(GE, 0, null, j, c);
+        }
+
+        private boolean isBinary() {
+            return var >= 0;
+        }
+
+        private Entry reverse(int i) {
+            int rop = op == LE ? GE : op == GE ? LE : op;
+            return new Entry(rop, 0, null, i, -offset);
+        }
+
+        private static int[] sortedDistinct(int[] values) {
+            return Arrays.stream(values).sorted().distinct().toArray();
+        }
+
+        @Override
+        public String toString() {
+            String[] ops = {"*", "=", "!=", "<=", ">=", "in", "notin"};
+            if (op == STAR) return "*";
+            if (isBinary()) return ops[op] + "x[" + var + "]" + (offset == 0 ? "" : (offset > 0 ? "+" : "") + offset);
+            if (values != null) return ops[op] + Arrays.toString(values);
+            return ops[op] + value;
+        }
+    }
+
+    private final IntVar[] x;
+    private final Entry[][] unary; // unary[r][i] is the unary restriction of x[i] in row r
+    private final Entry[][] binary; // the binary restrictions of row r
+    private final int[][] binaryOwner; // binaryOwner[r][k] is the variable restricted by binary[r][k]
+    // links[r][i] are the binary restrictions of row r on x[i], in both directions
+    private final Entry[][][] links;
+
+    private final int[] rows; // rows[0..nRows-1] are the valid rows
+    private final StateInt nRows;
+
+    private final int[] ofs;
+    private final int[][] supportStamp; // supportStamp[i][v-ofs[i]] == stamp if x[i]=v is supported
+    private final int[] nSupported;
+    private int stamp = 0;
+    private final int[] unsupported; // indices of the variables with values not yet supported
+    private int nUnsupported;
+    private final int[] dom; // domain iterator
+
+    /**
+     * Creates a smart table constraint.
+     *
+     * @param x the non empty scope of the constraint
+     * @param table the rows of the table,
+     *              the second dimension must be of the same size as the array x
+     *              and {@code table[r][i]} is the restriction on {@code x[i]} in row {@code r}
+     */
+    public SmartTable(IntVar[] x, Entry[][] table) {
+        super(x[0].getSolver());
+        this.x = x.clone();
+        int n = x.length;
+        int nr = table.length;
+        unary = new Entry[nr][n];
+        binary = new Entry[nr][];
+        binaryOwner = new int[nr][];
+        links = new Entry[nr][n][];
+        for (int r = 0; r < nr; r++) {
+            if (table[r].length != n)
+                throw new IllegalArgumentException("row " + r + " should have " + n + " entries");
+            ArrayList<Entry> bin = new ArrayList<>();
+            ArrayList<Integer> owner = new ArrayList<>();
+            ArrayList<ArrayList<Entry>> lk = new ArrayList<>();
+            for (int i = 0; i < n; i++) lk.add(new ArrayList<>());
+            for (int i = 0; i < n; i++) {
+                Entry e = table[r][i];
+                if (e.isBinary()) {
+                    if (e.var >= n || e.var == i)
+                        throw new IllegalArgumentException("invalid variable index in " + e);
+                    bin.add(e);
+                    owner.add(i);
+                    lk.get(i).add(e);
+                    lk.get(e.var).add(e.reverse(i));
+                    unary[r][i] = Entry.ANY;
+                } else {
+                    unary[r][i] = e;
+                }
+            }
+            binary[r] = bin.toArray(new Entry[0]);
+            binaryOwner[r] = owner.stream().mapToInt(Integer::intValue).toArray();
+            for (int i = 0; i < n; i++)
+                links[r][i] = lk.get(i).toArray(new Entry[0]);
+        }
+        rows = new int[nr];
+        for (int r = 0; r < nr; r++) rows[r] = r;
+        nRows = getSolver().getStateManager().makeStateInt(nr);
+
+        ofs = new int[n];
+        supportStamp = new int[n][];
+        for (int i = 0; i < n; i++) {
+            ofs[i] = x[i].min();
+            supportStamp[i] = new int[x[i].max() - x[i].min() + 1];
+        }
+        nSupported = new int[n];
+        unsupported = new int[n];
+        dom = new int[Arrays.stream(x).mapToInt(IntVar::size).max().getAsInt()];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x)
+            var.propagateOnDomainChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        stamp++;
+        nUnsupported = 0;
+        for (int i = 0; i < x.length; i++) {
+            nSupported[i] = 0;
+            if (!x[i].isBound()) unsupported[nUnsupported++] = i;
+        }
+        int n = nRows.value();
+        for (int k = n - 1; k >= 0; k--) {
+            int r = rows[k];
+            if (isValid(r)) {
+                collectSupports(r);
+            } else {
+                n--;
+                rows[k] = rows[n];
+                rows[n] = r;
+            }
+        }
+        nRows.setValue(n);
+        if (n == 0)
+            throw InconsistencyException.INCONSISTENCY;
+        for (int u = 0; u < nUnsupported; u++) {
+            int i = unsupported[u];
+            int nVal = x[i].fillArray(dom);
+            for (int k = 0; k < nVal; k++) {
+                if (supportStamp[i][dom[k] - ofs[i]] != stamp)
+                    x[i].remove(dom[k]);
+            }
+        }
+    }
+
+    private boolean isValid(int r) {
+        Entry[] row = unary[r];
+        for (int i = 0; i < x.length; i++) {
+            if (row[i].op != STAR && !accepts(row[i], x[i]))
+                return false;
+        }
+        Entry[] bin = binary[r];
+        for (int k = 0; k < bin.length; k++) {
+            if (!acceptsBinary(r, binaryOwner[r][k], bin[k]))
+                return false;
+        }
+        return true;
+    }
+
+    // checks if some value of y satisfies the unary restriction e
+    private boolean accepts(Entry e, IntVar y) {
+        switch (e.op) {
+            case EQ:
+                return y.contains(e.value);
+            case NE:
+                return !y.isBound() || y.min() != e.value;
+            case LE:
+                return y.min() <= e.value;
+            case GE:
+                return y.max() >= e.value;
+            case IN:
+                for (int v : e.values)
+                    if (y.contains(v)) return true;
+                return false;
+            case NOT_IN:
+                if (y.size() > e.values.length) return true;
+                int nVal = y.fillArray(dom);
+                for (int k = 0; k < nVal; k++)
+                    if (Arrays.binarySearch(e.values, dom[k]) < 0) return true;
+                return false;
+            default: // STAR
+                return true;
+        }
+    }
+
+    // checks if the value v satisfies the unary restriction e
+    private static boolean accepts(Entry e, int v) {
+        switch (e.op) {
+            case EQ:
+                return v == e.value;
+            case NE:
+                return v != e.value;
+            case LE:
+                return v <= e.value;
+            case GE:
+                return v >= e.value;
+            case IN:
+                return Arrays.binarySearch(e.values, v) >= 0;
+            case NOT_IN:
+                return Arrays.binarySearch(e.values, v) < 0;
+            default: // STAR
+                return true;
+        }
+    }
+
+    // bounds and membership of x[j] restricted by its unary restriction in row r
+
+    private int rowMin(int r, int j) {
+        Entry e = unary[r][j];
+        return e.op == GE || e.op == EQ ? Math.max(x[j].min(), e.value) : x[j].min();
+    }
+
+    private int rowMax(int r, int j) {
+        Entry e = unary[r][j];
+        return e.op == LE || e.op == EQ ? Math.min(x[j].max(), e.value) : x[j].max();
+    }
+
+    private boolean rowContains(int r, int j, int v) {
+        return x[j].contains(v) && accepts(unary[r][j], v);
+    }
+
+    // checks if some values of x[i] and x[e.var] satisfy the binary restriction e of row r
+    private boolean acceptsBinary(int r, int i, Entry e) {
+        int j = e.var;
+        switch (e.op) {
+            case EQ:
+                if (x[i].size() <= x[j].size()) {
+                    int nVal = x[i].fillArray(dom);
+                    for (int k = 0; k < nVal; k++)
+                        if (accepts(unary[r][i], dom[k]) && rowContains(r, j, dom[k] - e.offset)) return true;
+                } else {
+                    int nVal = x[j].fillArray(dom);
+                    for (int k = 0; k < nVal; k++)
+                        if (accepts(unary[r][j], dom[k]) && rowContains(r, i, dom[k] + e.offset)) return true;
+                }
+                return false;
+            case NE:
+                return !x[i].isBound() || !x[j].isBound() || x[i].min() != x[j].min() + e.offset;
+            case LE:
+                return rowMin(r, i) <= rowMax(r, j) + e.offset;
+            default: // GE
+                return rowMax(r, i) >= rowMin(r, j) + e.offset;
+        }
+    }
+
+    private void collectSupports(int r) {
+        for (int u = nUnsupported - 1; u >= 0; u--) {
+            int i = unsupported[u];
+            Entry e = unary[r][i];
+            if (e.op == STAR && links[r][i].length == 0) {
+                nSupported[i] = x[i].size();
+            } else {
+                collectSupports(r, i);
+            }
+            if (nSupported[i] == x[i].size()) {
+                // every value of x[i] is supported
+                unsupported[u] = unsupported[--nUnsupported];
+            }
+        }
+    }
+
+    private void collectSupports(int r, int i) {
+        Entry e = unary[r][i];
+        Entry[] lk = links[r][i];
+        int lo = rowMin(r, i);
+        int hi = rowMax(r, i);
+        for (Entry l : lk) {
+            if (l.op == LE || l.op == EQ) hi = Math.min(hi, rowMax(r, l.var) + l.offset);
+            if (l.op == GE || l.op == EQ) lo = Math.max(lo, rowMin(r, l.var) + l.offset);
+        }
+        int[] sup = supportStamp[i];
+        for (int v = lo; v <= hi; v++) {
+            if (sup[v - ofs[i]] == stamp || !rowContains(r, i, v)) continue;
+            if (supportedByLinks(r, v, lk)) {
+                sup[v - ofs[i]] = stamp;
+                nSupported[i]++;
+            }
+        }
+    }
+
+    private boolean supportedByLinks(int r, int v, Entry[] lk) {
+        for (Entry l : lk) {
+            int j = l.var;
+            if (l.op == EQ && !rowContains(r, j, v - l.offset)) return false;
+            if (l.op == NE && x[j].isBound() && v == x[j].min() + l.offset) return false;
+        }
+        return true;
+    }
+}
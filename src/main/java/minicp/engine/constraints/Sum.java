@@ -18,13 +18,14 @@ package minicp.engine.constraints;
 import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.state.State;
 import minicp.state.StateInt;
-import minicp.util.exception.InconsistencyException;
+import minicp.state.StateLong;
 
 import java.util.Arrays;
 import java.util.stream.IntStream;
 
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
 /**
  * Sum Constraint
  */
@@ -32,7 +33,7 @@ public class Sum extends AbstractConstraint {
 
     private int[] free;
     private StateInt nFrees;
-    private State<Long> sumFixed;
+    private StateLong sumFixed;
     private IntVar[] x;
     private int[] min, max;
     private int n;
@@ -77,7 +78,7 @@ public class Sum extends AbstractConstraint {
         min = new int[x.length];
         max = new int[x.length];
         nFrees = getSolver().getStateManager().makeStateInt(n);
-        sumFixed = getSolver().getStateManager().makeStateRef(Long.valueOf(0));
+        sumFixed = getSolver().getStateManager().makeStateLong(0);
         free = IntStream.range(0, n).toArray();
     }
 
@@ -92,7 +93,8 @@ public class Sum extends AbstractConstraint {
     public void propagate() {
         // Filter the unbound vars and update the partial sum
         int nU = nFrees.value();
-        long sumMin = sumFixed.value(), sumMax = sumFixed.value();
+        long fixed = sumFixed.value();
+        long sumMin = fixed, sumMax = fixed;
         for (int i = nU - 1; i >= 0; i--) {
             int idx = free[i];
             min[idx] = x[idx].min();
@@ -100,21 +102,28 @@ public class Sum extends AbstractConstraint {
             sumMin += min[idx]; // Update partial sum
             sumMax += max[idx];
             if (x[idx].isBound()) {
-                sumFixed.setValue(sumFixed.value() + x[idx].min());
+                fixed += min[idx];
                 free[i] = free[nU - 1]; // Swap the variables
                 free[nU - 1] = idx;
                 nU--;
             }
         }
-        nFrees.setValue(nU);
+        if (nU != nFrees.value()) {
+            nFrees.setValue(nU);
+            sumFixed.setValue(fixed);
+        }
         if (sumMin > 0 || sumMax < 0) {
-            throw new InconsistencyException();
+            throw INCONSISTENCY;
         }
 
         for (int i = nU - 1; i >= 0; i--) {
             int idx = free[i];
-            x[idx].removeAbove(-((int) (sumMin - min[idx])));
-            x[idx].removeBelow(-((int) (sumMax - max[idx])));
+            x[idx].removeAbove(clamp(-(sumMin - min[idx])));
+            x[idx].removeBelow(clamp(-(sumMax - max[idx])));
         }
     }
+
+    private static int clamp(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
 }
@@ -17,30 +17,41 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseBitSet;
 import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
-import java.util.BitSet;
-
-import static minicp.cp.Factory.minus;
 
 /**
  * Implementation of Compact Table algorithm described in
  * <p><i>Compact-Table: Efficiently Filtering Table Constraints with Reversible Sparse Bit-Sets</i>
  * Jordan Demeulenaere, Renaud Hartert, Christophe Lecoutre, Guillaume Perez, Laurent Perron, Jean-Charles Régin, Pierre Schaus
  * <p>See <a href="https://www.info.ucl.ac.be/~pschaus/assets/publi/cp2016-compacttable.pdf">The article.</a>
+ * <p>The set of valid tuples is a {@link StateSparseBitSet} updated incrementally:
+ * only the variables whose domain changed since the last propagation are processed,
+ * either from the removed values (delta) or from the remaining ones (reset),
+ * whichever is the smallest.
+ * The support of each value is checked first on its residue,
+ * the index of the last word where a support was found.
  */
 public class TableCT extends AbstractConstraint {
-    private IntVar[] x; //variables
-    private int[][] table; //the table
-    //supports[i][v] is the set of tuples supported by x[i]=v
-    private BitSet[][] supports;
+    private final IntVar[] x; //variables
+    private final int[] ofs; // ofs[i] is the smallest value of x[i] at creation
+    //supports[i][v-ofs[i]] is the set of tuples supported by x[i]=v
+    private final StateSparseBitSet.BitSet[][] supports;
+    //residues[i][v-ofs[i]] is the index of a word where a support of x[i]=v was last found
+    private final int[][] residues;
+
+    private final StateSparseBitSet currTable; // the set of valid tuples
+    private final StateSparseBitSet.BitSet mask;
 
-    private BitSet supportedTuples;
-    private BitSet tmpSupport;
+    // lastDom[i][0..lastSize[i]-1] are the values of x[i] at the last propagation
+    private final int[][] lastDom;
+    private final StateInt[] lastSize;
 
-    private int[] dom; // domain iterator
+    private final int[] dom; // domain iterator
 
     /**
      * Table constraint.
@@ -60,69 +71,162 @@ public class TableCT extends AbstractConstraint {
      */
     public TableCT(IntVar[] x, int[][] table) {
         super(x[0].getSolver());
-        this.x = new IntVar[x.length];
-        this.table = table;
+        StateManager sm = getSolver().getStateManager();
+        this.x = x.clone();
+        int n = x.length;
         dom = new int[Arrays.stream(x).map(IntVar::size).max(Integer::compare).get()];
-
-        // Allocate supportedByVarVal
-        supports = new BitSet[x.length][];
-        for (int i = 0; i < x.length; i++) {
-            this.x[i] = minus(x[i], x[i].min()); // map the variables domain to start at 0
-            supports[i] = new BitSet[x[i].max() - x[i].min() + 1];
+        currTable = new StateSparseBitSet(sm, Math.max(table.length, 1));
+        if (table.length == 0) currTable.intersect(currTable.new BitSet());
+        mask = currTable.new BitSet();
+
+        ofs = new int[n];
+        supports = new StateSparseBitSet.BitSet[n][];
+        residues = new int[n][];
+        lastDom = new int[n][];
+        lastSize = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            ofs[i] = x[i].min();
+            supports[i] = new StateSparseBitSet.BitSet[x[i].max() - x[i].min() + 1];
             for (int j = 0; j < supports[i].length; j++)
-                supports[i][j] = new BitSet();
+                supports[i][j] = currTable.new BitSet();
+            residues[i] = new int[supports[i].length];
+            lastDom[i] = new int[x[i].size()];
+            x[i].fillArray(lastDom[i]);
+            lastSize[i] = sm.makeStateInt(x[i].size());
         }
 
-        // Set values in supportedByVarVal, which contains all the tuples supported by each var-val pair
-        for (int t = 0; t < table.length; t++) { //i is the index of the tuple (in table)
-            for (int i = 0; i < x.length; i++) { //j is the index of the current variable (in x)
+        // Set values in supports, which contains all the tuples supported by each var-val pair
+        for (int t = 0; t < table.length; t++) { //t is the index of the tuple (in table)
+            for (int i = 0; i < n; i++) { //i is the index of the current variable (in x)
                 if (x[i].contains(table[t][i])) {
-                    supports[i][table[t][i] - x[i].min()].set(t);
+                    supports[i][table[t][i] - ofs[i]].set(t);
                 }
             }
         }
-
-        supportedTuples = new BitSet(table.length);
-        tmpSupport = new BitSet(table.length);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < supports[i].length; j++)
+                residues[i][j] = Math.max(supports[i][j].firstNonZeroWord(), 0);
+        }
     }
 
     @Override
     public void post() {
         for (IntVar var : x)
             var.propagateOnDomainChange(this);
-        propagate();
+        // every tuple with a value outside of the domains is invalid
+        for (int i = 0; i < x.length; i++) {
+            resetTable(i);
+            if (currTable.isEmpty())
+                throw InconsistencyException.INCONSISTENCY;
+        }
+        filterDomains(-1);
     }
 
-
-
     @Override
     public void propagate() {
-        // Bit-set of tuple indices all set to 1
-        supportedTuples.set(0, table.length);
-
-        // compute supportedTuples as
-        // supportedTuples = (supports[0][x[0].min()] | ... | supports[0][x[0].max()] ) & ... &
-        //                   (supports[x.length][x[0].min()] | ... | supports[x.length][x[0].max()] )
-        //
-
-        for (int i = 0; i < supports.length; i++) {
-            tmpSupport.clear();
-            for (int j = 0; j < supports[i].length; j++) {
-                if (x[i].contains(j))
-                    tmpSupport.or(supports[i][j]);
+        int nChanged = 0;
+        int lastChanged = -1;
+        for (int i = 0; i < x.length; i++) {
+            if (x[i].size() != lastSize[i].value()) {
+                updateTable(i);
+                if (currTable.isEmpty())
+                    throw InconsistencyException.INCONSISTENCY;
+                nChanged++;
+                lastChanged = i;
+            }
+        }
+        if (nChanged == 0) return;
+        // when a single variable changed, its remaining values keep all their supports
+        filterDomains(nChanged == 1 ? lastChanged : -1);
+    }
+
+    /**
+     * Removes from the valid tuples those that are no longer supported by x[i],
+     * using the removed values if they are fewer than the remaining ones.
+     *
+     * @param i the index of a variable whose domain changed
+     */
+    private void updateTable(int i) {
+        int size = x[i].size();
+        int nRemoved = lastSize[i].value() - size;
+        if (nRemoved < size) {
+            mask.clear();
+            int[] values = lastDom[i];
+            int s = lastSize[i].value();
+            for (int j = s - 1; j >= 0; j--) {
+                int v = values[j];
+                if (!x[i].contains(v)) {
+                    mask.union(supports[i][v - ofs[i]]);
+                    values[j] = values[s - 1];
+                    values[s - 1] = v;
+                    s--;
+                }
             }
-            supportedTuples.and(tmpSupport);
+            lastSize[i].setValue(s);
+            currTable.intersectComplement(mask);
+        } else {
+            resetTable(i);
         }
+    }
 
+    /**
+     * Intersects the valid tuples with the union of the supports of the values of x[i].
+     *
+     * @param i the index of a variable
+     */
+    private void resetTable(int i) {
+        mask.clear();
+        int nVal = x[i].fillArray(dom);
+        for (int v = 0; v < nVal; v++)
+            mask.union(supports[i][dom[v] - ofs[i]]);
+        currTable.intersect(mask);
+        syncDomain(i);
+    }
+
+    /**
+     * Removes the values without support from the domains.
+     *
+     * @param skip the index of a variable that needs no filtering, -1 if none
+     */
+    private void filterDomains(int skip) {
         for (int i = 0; i < x.length; i++) {
+            if (i == skip || x[i].isBound()) continue; // a bound variable supports every valid tuple
             int nVal = x[i].fillArray(dom);
-            for (int v = 0; v < nVal; v++) {
-                // the condition for removing the setValue dom[v] from x[i] is to check if
-                // there is no intersection between supportedTuples and the support[i][dom[v]]
-                if (!supportedTuples.intersects(supports[i][dom[v]])) {
-                    x[i].remove(dom[v]);
+            int[] res = residues[i];
+            for (int k = 0; k < nVal; k++) {
+                int v = dom[k] - ofs[i];
+                if (!currTable.intersectsAt(supports[i][v], res[v])) {
+                    int idx = currTable.intersectIndex(supports[i][v]);
+                    if (idx == -1)
+                        x[i].remove(dom[k]);
+                    else
+                        res[v] = idx;
                 }
             }
+            // the removed values have no valid tuple, the table does not need to be updated
+            if (x[i].size() != nVal)
+                syncDomain(i);
+        }
+    }
+
+    /**
+     * Updates the values of x[i] stored at the last propagation
+     * without updating the valid tuples.
+     *
+     * @param i the index of a variable
+     */
+    private void syncDomain(int i) {
+        int[] values = lastDom[i];
+        int s = lastSize[i].value();
+        if (s == x[i].size()) return;
+        for (int j = s - 1; j >= 0; j--) {
+            int v = values[j];
+            if (!x[i].contains(v)) {
+                values[j] = values[s - 1];
+                values[s - 1] = v;
+                s--;
+            }
         }
+        lastSize[i].setValue(s);
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+/**
+ * Extension of the {@link ThetaTree} where the leaves
+ * can also be gray, that is activities of a set Lambda.
+ * Besides the earliest completion time of the set Theta,
+ * it computes the largest earliest completion time
+ * obtained by adding at most one gray activity to Theta
+ * and which gray activity is responsible for it.
+ * This is the data structure of the O(n log n) edge-finding.
+ *
+ * <p>Vilím, P. (2008). Global constraints in scheduling. PhD thesis,
+ * Charles University in Prague, Section 2.5.
+ */
+public class ThetaLambdaTree {
+
+    private static final int NONE = -1;
+
+    private final int isize; // number of leaves, the leaf of position pos is at index isize + pos
+    private final int[] sumP;
+    private final int[] ect;
+    private final int[] sumPBar;
+    private final int[] ectBar;
+    private final int[] respSumPBar;
+    private final int[] respEctBar;
+
+    /**
+     * Creates a theta-lambda-tree able to store
+     * the specified number of activities, each identified
+     * as a number between 0 and size-1.
+     * As in the {@link ThetaTree}, activity i is assumed
+     * to start possibly earlier than activity i+1.
+     *
+     * @param size the number of activities that can possibly be inserted in the tree
+     */
+    public ThetaLambdaTree(int size) {
+        int leaves = 1;
+        while (leaves < size) {
+            leaves <<= 1;
+        }
+        isize = leaves;
+        // the root is at index 1 and the children of node k are 2k and 2k+1
+        sumP = new int[2 * leaves];
+        ect = new int[2 * leaves];
+        sumPBar = new int[2 * leaves];
+        ectBar = new int[2 * leaves];
+        respSumPBar = new int[2 * leaves];
+        respEctBar = new int[2 * leaves];
+        reset();
+    }
+
+    /**
+     * Removes all the activities from this tree.
+     */
+    public void reset() {
+        for (int k = 1; k < sumP.length; k++) {
+            setLeaf(k, 0, Integer.MIN_VALUE, 0, Integer.MIN_VALUE, NONE);
+        }
+    }
+
+    /**
+     * Inserts an activity in Theta, replacing
+     * the activity at this position if any.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param ect earliest completion time
+     * @param dur duration
+     */
+    public void insertTheta(int pos, int ect, int dur) {
+        int k = isize + pos;
+        setLeaf(k, dur, ect, dur, ect, NONE);
+        reCompute(k >> 1);
+    }
+
+    /**
+     * Inserts an activity in Lambda, replacing
+     * the activity at this position if any.
+     * Typically used to move an activity from Theta to Lambda.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param ect earliest completion time
+     * @param dur duration
+     */
+    public void insertLambda(int pos, int ect, int dur) {
+        int k = isize + pos;
+        setLeaf(k, 0, Integer.MIN_VALUE, dur, ect, pos);
+        reCompute(k >> 1);
+    }
+
+    /**
+     * Removes the activity at a given position, be it in Theta or in Lambda.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     */
+    public void remove(int pos) {
+        int k = isize + pos;
+        setLeaf(k, 0, Integer.MIN_VALUE, 0, Integer.MIN_VALUE, NONE);
+        reCompute(k >> 1);
+    }
+
+    /**
+     * The earliest completion time of the activities of Theta.
+     *
+     * @return the earliest completion time of Theta
+     */
+    public int getECT() {
+        return ect[1];
+    }
+
+    /**
+     * The largest earliest completion time of Theta
+     * with at most one activity of Lambda.
+     *
+     * @return the earliest completion time of Theta and one gray activity
+     */
+    public int getECTBar() {
+        return ectBar[1];
+    }
+
+    /**
+     * The position of the gray activity responsible
+     * for {@link #getECTBar()}.
+     *
+     * @return the position of the gray activity responsible
+     *         for {@link #getECTBar()}, or -1 if
+     *         {@code getECTBar() == getECT()}
+     */
+    public int getResponsibleECTBar() {
+        return respEctBar[1];
+    }
+
+    private void setLeaf(int k, int p, int e, int pBar, int eBar, int resp) {
+        sumP[k] = p;
+        ect[k] = e;
+        sumPBar[k] = pBar;
+        ectBar[k] = eBar;
+        respSumPBar[k] = resp;
+        respEctBar[k] = resp;
+    }
+
+    private void reCompute(int k) {
+        while (k > 0) {
+            int l = k << 1;
+            int r = l + 1;
+            sumP[k] = sumP[l] + sumP[r];
+            ect[k] = Math.max(ect[r], ect[l] + sumP[r]);
+
+            // on ties, prefer the side with a gray activity such that
+            // a responsible activity is found whenever ectBar > ect
+            int pl = sumPBar[l] + sumP[r];
+            int pr = sumP[l] + sumPBar[r];
+            if (pl > pr || (pl == pr && respSumPBar[l] != NONE)) {
+                sumPBar[k] = pl;
+                respSumPBar[k] = respSumPBar[l];
+            } else {
+                sumPBar[k] = pr;
+                respSumPBar[k] = respSumPBar[r];
+            }
+
+            int e = ectBar[r];
+            int resp = respEctBar[r];
+            int el = ect[l] + sumPBar[r];
+            if (el > e || (el == e && resp == NONE)) {
+                e = el;
+                resp = respSumPBar[r];
+            }
+            int ebl = ectBar[l] + sumP[r];
+            if (ebl > e || (ebl == e && resp == NONE)) {
+                e = ebl;
+                resp = respEctBar[l];
+            }
+            ectBar[k] = e;
+            respEctBar[k] = resp;
+            k >>= 1;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+/**
+ * Reversible time-indexed resource profile.
+ * <p>The height of the profile over a fixed horizon
+ * is stored in a segment tree of {@link StateInt}
+ * where each node holds the maximum height over its time window.
+ * Adding a demand over a time window only updates
+ * {@code O(log H)} nodes, {@code H} being the size of the horizon,
+ * such that compulsory parts can be added incrementally
+ * and are removed on backtrack by the state manager.
+ */
+public class TimeTable {
+
+    /**
+     * Returned by the queries when no time point satisfies the condition.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final int min;
+    private final int max;
+    private final int size; // number of leaves, a power of two
+    // node 1 is the root and the children of node k are 2k and 2k+1,
+    // the value of a node is the maximum height over its window,
+    // not counting the heights added to its ancestors
+    private final StateInt[] tree;
+
+    /**
+     * Creates an empty profile over a horizon.
+     * The heights added must be non negative.
+     *
+     * @param sm the state manager
+     * @param min the first time point of the horizon
+     * @param max the time point right after the horizon
+     */
+    public TimeTable(StateManager sm, int min, int max) {
+        this.min = min;
+        this.max = Math.max(min + 1, max);
+        int s = 1;
+        while (s < this.max - min) s <<= 1;
+        size = s;
+        tree = new StateInt[2 * size];
+        for (int k = 1; k < 2 * size; k++)
+            tree[k] = sm.makeStateInt(0);
+    }
+
+    /**
+     * Returns the maximum height of the profile.
+     *
+     * @return the maximum height over the horizon
+     */
+    public int maxHeight() {
+        return tree[1].value();
+    }
+
+    /**
+     * Returns the height of the profile at a time point.
+     *
+     * @param t a time point
+     * @return the height at t, 0 outside the horizon
+     */
+    public int height(int t) {
+        if (t < min || t >= max) return 0;
+        int k = t - min + size;
+        int h = tree[k].value();
+        for (k >>= 1; k >= 1; k >>= 1)
+            h += added(k);
+        return h;
+    }
+
+    /**
+     * Returns the maximum height of the profile over a time window.
+     *
+     * @param from the first time point of the window
+     * @param to the time point right after the window
+     * @return the maximum height in {@code [from, to)}, 0 if the window is empty
+     */
+    public int maxHeight(int from, int to) {
+        from = Math.max(from, min);
+        to = Math.min(to, max);
+        if (from >= to) return 0;
+        return maxHeight(1, 0, size, from - min, to - min);
+    }
+
+    private int maxHeight(int k, int lo, int hi, int from, int to) {
+        if (from <= lo && hi <= to) return tree[k].value();
+        int mid = (lo + hi) >>> 1;
+        int h = 0;
+        if (from < mid) h = maxHeight(2 * k, lo, mid, from, to);
+        if (to > mid) h = Math.max(h, maxHeight(2 * k + 1, mid, hi, from, to));
+        return added(k) + h;
+    }
+
+    /**
+     * Adds a height over a time window.
+     *
+     * @param from the first time point of the window
+     * @param to the time point right after the window
+     * @param h the height to add
+     */
+    public void add(int from, int to, int h) {
+        from = Math.max(from, min);
+        to = Math.min(to, max);
+        if (from < to && h != 0)
+            add(1, 0, size, from - min, to - min, h);
+    }
+
+    private int added(int k) {
+        return tree[k].value() - Math.max(tree[2 * k].value(), tree[2 * k + 1].value());
+    }
+
+    private void add(int k, int lo, int hi, int from, int to, int h) {
+        if (from <= lo && hi <= to) {
+            tree[k].setValue(tree[k].value() + h);
+            return;
+        }
+        int a = added(k);
+        int mid = (lo + hi) >>> 1;
+        if (from < mid) add(2 * k, lo, mid, from, to, h);
+        if (to > mid) add(2 * k + 1, mid, hi, from, to, h);
+        tree[k].setValue(a + Math.max(tree[2 * k].value(), tree[2 * k + 1].value()));
+    }
+
+    /**
+     * Returns the last time point of a window where the height
+     * is strictly above a threshold.
+     *
+     * @param from the first time point of the window
+     * @param to the time point right after the window
+     * @param h the threshold
+     * @return the largest t in {@code [from, to)} with a height larger than h,
+     *         {@link #NONE} if there is none
+     */
+    public int lastAbove(int from, int to, int h) {
+        if (h < 0 && from < to) return to - 1; // the heights are non negative
+        from = Math.max(from, min);
+        to = Math.min(to, max);
+        if (from >= to) return NONE;
+        int t = lastAbove(1, 0, size, from - min, to - min, h, 0);
+        return t == NONE ? NONE : t + min;
+    }
+
+    private int lastAbove(int k, int lo, int hi, int from, int to, int h, int acc) {
+        if (tree[k].value() + acc <= h || hi <= from || to <= lo) return NONE;
+        if (k >= size) return lo;
+        acc += added(k);
+        int mid = (lo + hi) >>> 1;
+        int t = lastAbove(2 * k + 1, mid, hi, from, to, h, acc);
+        return t != NONE ? t : lastAbove(2 * k, lo, mid, from, to, h, acc);
+    }
+
+    /**
+     * Returns the first time point of a window where the height
+     * is strictly above a threshold.
+     *
+     * @param from the first time point of the window
+     * @param to the time point right after the window
+     * @param h the threshold
+     * @return the smallest t in {@code [from, to)} with a height larger than h,
+     *         {@link #NONE} if there is none
+     */
+    public int firstAbove(int from, int to, int h) {
+        if (h < 0 && from < to) return from; // the heights are non negative
+        from = Math.max(from, min);
+        to = Math.min(to, max);
+        if (from >= to) return NONE;
+        int t = firstAbove(1, 0, size, from - min, to - min, h, 0);
+        return t == NONE ? NONE : t + min;
+    }
+
+    private int firstAbove(int k, int lo, int hi, int from, int to, int h, int acc) {
+        if (tree[k].value() + acc <= h || hi <= from || to <= lo) return NONE;
+        if (k >= size) return lo;
+        acc += added(k);
+        int mid = (lo + hi) >>> 1;
+        int t = firstAbove(2 * k, lo, mid, from, to, h, acc);
+        return t != NONE ? t : firstAbove(2 * k + 1, mid, hi, from, to, h, acc);
+    }
+}
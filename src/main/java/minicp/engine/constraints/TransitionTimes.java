@@ -0,0 +1,100 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+
+/**
+ * Transition times and time windows on a {@link SequenceVar}.
+ * <p>Each node i is visited at {@code time[i]}, whose domain is its time window,
+ * and the visit lasts {@code service[i]}. A member node is visited
+ * at least {@code service[i] + transition[i][j]} before its successor j.
+ * The times of the members are filtered forward and backward along
+ * the sequence and the insertions of a possible node that would
+ * exceed its time window or the one of the next member are removed.
+ * <p>The filtering of the insertions assumes that the transition times plus
+ * the service times satisfy the triangle inequality,
+ * {@code service[i] + transition[i][k] <= service[i] + transition[i][j] + service[j] + transition[j][k]},
+ * such that a removed insertion stays invalid when other nodes are inserted,
+ * and a node that cannot be inserted after any member is excluded.
+ * The times of the nodes that are not members are not filtered.
+ */
+public class TransitionTimes extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final IntVar[] time;
+    private final int[] service;
+    private final int[][] transition;
+    private final int[] nodes;
+
+    /**
+     * Creates a transition times constraint.
+     *
+     * @param seq the sequence
+     * @param time the visit time of each node, including the start and the end
+     *             of the sequence at indices {@code seq.start()} and {@code seq.end()}
+     * @param service the duration of the visit of each node, including the start and the end
+     * @param transition the transition time between each pair of nodes, including the start and the end
+     */
+    public TransitionTimes(SequenceVar seq, IntVar[] time, int[] service, int[][] transition) {
+        super(seq.getSolver());
+        this.seq = seq;
+        this.time = time;
+        this.service = service;
+        this.transition = transition;
+        nodes = new int[seq.nNode()];
+    }
+
+    @Override
+    public void post() {
+        seq.propagateOnInsert(this);
+        for (IntVar t : time)
+            t.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int start = seq.start();
+        int end = seq.end();
+        for (int i = start; i != end; ) {
+            int j = seq.next(i);
+            time[j].removeBelow(time[i].min() + service[i] + transition[i][j]);
+            i = j;
+        }
+        for (int j = end; j != start; ) {
+            int i = seq.prev(j);
+            time[i].removeAbove(time[j].max() - transition[i][j] - service[i]);
+            j = i;
+        }
+        int nPossible = seq.fillPossible(nodes);
+        for (int k = 0; k < nPossible; k++) {
+            int x = nodes[k];
+            boolean insertable = false;
+            for (int p = start; p != end; p = seq.next(p)) {
+                int s = seq.next(p);
+                int arrival = Math.max(time[x].min(), time[p].min() + service[p] + transition[p][x]);
+                if (arrival > time[x].max() || arrival + service[x] + transition[x][s] > time[s].max())
+                    seq.removeInsert(x, p);
+                else
+                    insertable = true;
+            }
+            if (!insertable)
+                seq.exclude(x);
+        }
+    }
+}
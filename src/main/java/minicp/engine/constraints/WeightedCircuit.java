@@ -0,0 +1,418 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+import java.util.Arrays;
+
+import static minicp.cp.Factory.element;
+import static minicp.cp.Factory.sum;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Weighted Hamiltonian Circuit Constraint with a successor model,
+ * also known as the TSP constraint.
+ * <p>The successors form a single circuit and the cost is the sum
+ * of the distances between each node and its successor.
+ * On top of the {@link Circuit} and of the decomposition of the sum,
+ * a lower bound of the cost of the circuits left by the domains
+ * is computed (see {@link Bound}) to prune the cost, and the successors
+ * that would increase this bound above the maximum cost are removed.
+ * The bound is only recomputed when a domain or the maximum cost changed
+ * since the last fix-point of this constraint.
+ *
+ * <p>Held, M., &amp; Karp, R. M. (1971). The traveling-salesman problem
+ * and minimum spanning trees: Part II. Mathematical programming, 1(1), 6-25.
+ * <p>Focacci, F., Lodi, A., &amp; Milano, M. (2002). Optimization-oriented
+ * global constraints. Constraints, 7(3-4), 351-365.
+ */
+public class WeightedCircuit extends AbstractConstraint {
+
+    /**
+     * Lower bound used for the filtering.
+     */
+    public enum Bound {
+        /**
+         * Held-Karp bound, a minimum 1-tree on the distances
+         * penalized by Lagrangian multipliers on the degrees,
+         * strong on symmetric distances.
+         */
+        ONE_TREE,
+        /**
+         * Minimum cost assignment of a distinct successor to each node,
+         * suited to asymmetric distances.
+         */
+        ASSIGNMENT
+    }
+
+    private static final int ROOT_ITERATIONS = 100;
+    private static final int ITERATIONS = 10;
+    private static final long INF = Long.MAX_VALUE / 4;
+    private static final double EPS = 1e-6;
+
+    private final IntVar[] succ;
+    private final int[][] distance;
+    private final IntVar cost;
+    private final Bound bound;
+    private final int n;
+
+    private final boolean[][] arc; // arc[i][j] iff j is in the domain of succ[i]
+    private final int[] values;
+    // sum of the domain sizes and maximum cost at the end of the last propagation
+    private final StateInt lastTotalSize;
+    private final StateInt lastCostMax;
+
+    // assignment: dual values and successor of each node
+    private StateInt[] u;
+    private StateInt[] v;
+    private StateInt[] match;
+    private long[] pu;
+    private long[] pv;
+    private int[] p;
+    private int[] way;
+    private long[] minv;
+    private boolean[] used;
+    private boolean[] free;
+
+    // 1-tree: Lagrangian multipliers kept from one propagation to the next
+    private double[] pi;
+    private double[] bestPi;
+    private long[][] w; // distance of each edge, INF if absent
+    private double[] key;
+    private int[] parent;
+    private int[] order;
+    private int[] degree;
+    private boolean[] inTree;
+    private double[][] maxEdge; // largest weight on the tree path between two nodes
+    private int first;
+    private int second;
+    private boolean root = true;
+
+    /**
+     * Creates a weighted circuit constraint with the 1-tree bound
+     * if the distances are symmetric and the assignment bound otherwise.
+     *
+     * @param succ the successor of each node
+     * @param distance the distance between each pair of nodes
+     * @param cost the sum of the distances between each node and its successor
+     */
+    public WeightedCircuit(IntVar[] succ, int[][] distance, IntVar cost) {
+        this(succ, distance, cost, isSymmetric(distance) ? Bound.ONE_TREE : Bound.ASSIGNMENT);
+    }
+
+    /**
+     * Creates a weighted circuit constraint with a given bound.
+     *
+     * @param succ the successor of each node
+     * @param distance the distance between each pair of nodes
+     * @param cost the sum of the distances between each node and its successor
+     * @param bound the lower bound used for the filtering
+     */
+    public WeightedCircuit(IntVar[] succ, int[][] distance, IntVar cost, Bound bound) {
+        super(succ[0].getSolver());
+        this.succ = succ;
+        this.distance = distance;
+        this.cost = cost;
+        this.bound = bound;
+        this.n = succ.length;
+        StateManager sm = getSolver().getStateManager();
+        arc = new boolean[n][n];
+        values = new int[n];
+        lastTotalSize = sm.makeStateInt(-1);
+        lastCostMax = sm.makeStateInt(-1);
+        if (bound == Bound.ASSIGNMENT) {
+            u = new StateInt[n];
+            v = new StateInt[n];
+            match = new StateInt[n];
+            for (int i = 0; i < n; i++) {
+                u[i] = sm.makeStateInt(0);
+                v[i] = sm.makeStateInt(0);
+                match[i] = sm.makeStateInt(-1);
+            }
+            pu = new long[n + 1];
+            pv = new long[n + 1];
+            p = new int[n + 1];
+            way = new int[n + 1];
+            minv = new long[n + 1];
+            used = new boolean[n + 1];
+            free = new boolean[n];
+        } else {
+            pi = new double[n];
+            bestPi = new double[n];
+            w = new long[n][n];
+            key = new double[n];
+            parent = new int[n];
+            order = new int[n];
+            degree = new int[n];
+            inTree = new boolean[n];
+            maxEdge = new double[n][n];
+        }
+    }
+
+    private static boolean isSymmetric(int[][] distance) {
+        for (int i = 0; i < distance.length; i++)
+            for (int j = 0; j < i; j++)
+                if (distance[i][j] != distance[j][i]) return false;
+        return true;
+    }
+
+    @Override
+    public void post() {
+        getSolver().post(new Circuit(succ));
+        IntVar[] distSucc = new IntVar[n];
+        for (int i = 0; i < n; i++)
+            distSucc[i] = element(distance[i], succ[i]);
+        getSolver().post(sum(distSucc, cost));
+        if (bound == Bound.ONE_TREE && n < 3) return;
+        for (IntVar x : succ)
+            x.propagateOnDomainChange(this);
+        cost.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int totalSize = 0;
+        for (IntVar x : succ) totalSize += x.size();
+        if (totalSize == lastTotalSize.value() && cost.max() == lastCostMax.value()) return;
+
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(arc[i], false);
+            int s = succ[i].fillArray(values);
+            for (int k = 0; k < s; k++) arc[i][values[k]] = true;
+        }
+        if (bound == Bound.ASSIGNMENT) filterAssignment();
+        else filterOneTree();
+
+        totalSize = 0;
+        for (IntVar x : succ) totalSize += x.size();
+        lastTotalSize.setValue(totalSize);
+        lastCostMax.setValue(cost.max());
+    }
+
+    // ---------------- assignment bound ----------------
+
+    private void filterAssignment() {
+        // the arcs of the previous assignment that were removed are unmatched,
+        // the dual values stay feasible as the remaining arcs are unchanged
+        for (int i = 1; i <= n; i++) {
+            pu[i] = u[i - 1].value();
+            pv[i] = v[i - 1].value();
+        }
+        Arrays.fill(p, 0);
+        for (int i = 0; i < n; i++) {
+            int j = match[i].value();
+            if (j >= 0 && arc[i][j]) p[j + 1] = i + 1;
+            else free[i] = true;
+        }
+        for (int i = 0; i < n; i++) {
+            if (free[i]) {
+                augment(i + 1);
+                free[i] = false;
+            }
+        }
+        long lb = 0;
+        for (int j = 1; j <= n; j++)
+            lb += distance[p[j] - 1][j - 1];
+        cost.removeBelow((int) Math.min(Integer.MAX_VALUE, lb));
+
+        // an arc increases the assignment by at least its reduced cost
+        long gap = cost.max() - lb;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (arc[i][j] && p[j + 1] != i + 1 && distance[i][j] - pu[i + 1] - pv[j + 1] > gap)
+                    succ[i].remove(j);
+            }
+        }
+        for (int j = 1; j <= n; j++) {
+            match[p[j] - 1].setValue(j - 1);
+            u[j - 1].setValue((int) pu[j]);
+            v[j - 1].setValue((int) pv[j]);
+        }
+    }
+
+    // shortest augmenting path from the free row i (Hungarian method with potentials)
+    private void augment(int i) {
+        p[0] = i;
+        int j0 = 0;
+        Arrays.fill(minv, INF);
+        Arrays.fill(used, false);
+        do {
+            used[j0] = true;
+            int i0 = p[j0];
+            long delta = INF;
+            int j1 = -1;
+            for (int j = 1; j <= n; j++) {
+                if (used[j]) continue;
+                if (arc[i0 - 1][j - 1]) {
+                    long cur = distance[i0 - 1][j - 1] - pu[i0] - pv[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                }
+                if (minv[j] < delta) {
+                    delta = minv[j];
+                    j1 = j;
+                }
+            }
+            // no perfect matching, two nodes would have the same successor
+            if (j1 < 0) throw INCONSISTENCY;
+            for (int j = 0; j <= n; j++) {
+                if (used[j]) {
+                    pu[p[j]] += delta;
+                    pv[j] -= delta;
+                } else if (minv[j] < INF) {
+                    minv[j] -= delta;
+                }
+            }
+            j0 = j1;
+        } while (p[j0] != 0);
+        do {
+            int j1 = way[j0];
+            p[j0] = p[j1];
+            j0 = j1;
+        } while (j0 != 0);
+    }
+
+    // ---------------- 1-tree bound ----------------
+
+    private void filterOneTree() {
+        // an edge can be used in both directions at the smallest distance of its arcs
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                long d = INF;
+                if (i != j && arc[i][j]) d = distance[i][j];
+                if (i != j && arc[j][i]) d = Math.min(d, distance[j][i]);
+                w[i][j] = d;
+            }
+        }
+        int iterations = root ? ROOT_ITERATIONS : ITERATIONS;
+        root = false;
+        double best = Double.NEGATIVE_INFINITY;
+        double mu = 2.0;
+        int noImprovement = 0;
+        System.arraycopy(pi, 0, bestPi, 0, n);
+        for (int it = 0; it < iterations; it++) {
+            double lb = oneTree();
+            if (lb > best + EPS) {
+                best = lb;
+                System.arraycopy(pi, 0, bestPi, 0, n);
+                noImprovement = 0;
+            } else if (++noImprovement >= 5) {
+                mu /= 2;
+                noImprovement = 0;
+            }
+            if (Math.ceil(best - EPS) > cost.max()) throw INCONSISTENCY;
+            int norm = 0;
+            for (int i = 0; i < n; i++) norm += (degree[i] - 2) * (degree[i] - 2);
+            if (norm == 0) break; // the 1-tree is a circuit
+            // subgradient step toward an estimation of the optimum
+            double ub = Math.min(cost.max(), best + Math.max(1, Math.abs(best)) * 0.05);
+            double step = mu * (ub - lb) / norm;
+            if (step <= EPS) break;
+            for (int i = 0; i < n; i++) pi[i] += step * (degree[i] - 2);
+        }
+        System.arraycopy(bestPi, 0, pi, 0, n);
+        double lb = oneTree();
+        cost.removeBelow((int) Math.ceil(lb - EPS));
+
+        // an edge out of the 1-tree replaces the largest edge of the cycle it closes
+        int max = cost.max();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (w[i][j] == INF || isTreeEdge(i, j)) continue;
+                double replaced = i == 0 ? weight(0, second) : maxEdge[i][j];
+                if (Math.ceil(lb + weight(i, j) - replaced - EPS) > max) {
+                    succ[i].remove(j);
+                    succ[j].remove(i);
+                }
+            }
+        }
+    }
+
+    private double weight(int i, int j) {
+        return w[i][j] + pi[i] + pi[j];
+    }
+
+    private boolean isTreeEdge(int i, int j) {
+        if (i == 0) return j == first || j == second;
+        return parent[i] == j || parent[j] == i;
+    }
+
+    // minimum spanning tree on the nodes 1..n-1 (Prim) plus the two smallest edges of node 0,
+    // returns the Lagrangian bound
+    private double oneTree() {
+        Arrays.fill(degree, 0);
+        Arrays.fill(inTree, false);
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        double total = 0;
+        key[1] = 0;
+        parent[1] = -1;
+        for (int k = 0; k < n - 1; k++) {
+            int best = -1;
+            for (int j = 1; j < n; j++)
+                if (!inTree[j] && (best < 0 || key[j] < key[best])) best = j;
+            if (key[best] == Double.POSITIVE_INFINITY) throw INCONSISTENCY; // not connected
+            inTree[best] = true;
+            order[k] = best;
+            if (parent[best] >= 0) {
+                int q = parent[best];
+                total += key[best];
+                degree[best]++;
+                degree[q]++;
+                // largest edge on the path to the nodes already in the tree
+                for (int l = 0; l < k; l++) {
+                    int o = order[l];
+                    double m = o == q ? key[best] : Math.max(maxEdge[o][q], key[best]);
+                    maxEdge[o][best] = m;
+                    maxEdge[best][o] = m;
+                }
+            }
+            for (int j = 1; j < n; j++) {
+                if (!inTree[j] && w[best][j] != INF) {
+                    double d = weight(best, j);
+                    if (d < key[j]) {
+                        key[j] = d;
+                        parent[j] = best;
+                    }
+                }
+            }
+        }
+        first = -1;
+        second = -1;
+        for (int j = 1; j < n; j++) {
+            if (w[0][j] == INF) continue;
+            if (first < 0 || weight(0, j) < weight(0, first)) {
+                second = first;
+                first = j;
+            } else if (second < 0 || weight(0, j) < weight(0, second)) {
+                second = j;
+            }
+        }
+        if (second < 0) throw INCONSISTENCY;
+        total += weight(0, first) + weight(0, second);
+        degree[0] = 2;
+        degree[first]++;
+        degree[second]++;
+        double sumPi = 0;
+        for (int i = 0; i < n; i++) sumPi += pi[i];
+        return total - 2 * sumPi;
+    }
+}
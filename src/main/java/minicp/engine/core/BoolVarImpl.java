@@ -21,6 +21,16 @@ public class BoolVarImpl extends IntVarImpl implements BoolVar {
         super(cp, 0, 1);
     }
 
+    /**
+     * Creates a boolean variable fixed to a given value.
+     *
+     * @param cp the solver in which the variable is created
+     * @param value the value of the variable
+     */
+    public BoolVarImpl(Solver cp, boolean value) {
+        super(cp, value ? 1 : 0, value ? 1 : 0);
+    }
+
     @Override
     public boolean isTrue() {
         return min() == 1;
@@ -0,0 +1,197 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.util.exception.InconsistencyException;
+
+/**
+ * Interval variable of a scheduling model.
+ * An interval is either absent or present, in which case
+ * it spans {@code [start, end)} with {@code end = start + length}.
+ * The presence is a {@link BoolVar} such that optional
+ * activities can be linked with the other constraints of the model,
+ * for instance to choose one among several alternative resources.
+ * <p>The bounds of an absent interval are meaningless.
+ * A modification that would empty the bounds of an optional
+ * interval makes it absent instead of failing.
+ */
+public interface IntervalVar {
+
+    /**
+     * Returns the solver in which this variable was created.
+     *
+     * @return the solver in which this variable was created
+     */
+    Solver getSolver();
+
+    /**
+     * Returns the presence of this interval.
+     *
+     * @return a boolean variable that is true if and only if the interval is present
+     */
+    BoolVar status();
+
+    /**
+     * Returns whether this interval is known to be present.
+     *
+     * @return true if the interval is present
+     */
+    boolean isPresent();
+
+    /**
+     * Returns whether this interval is known to be absent.
+     *
+     * @return true if the interval is absent
+     */
+    boolean isAbsent();
+
+    /**
+     * Returns whether the presence of this interval is not yet decided.
+     *
+     * @return true if the interval may be present or absent
+     */
+    default boolean isOptional() {
+        return !isPresent() && !isAbsent();
+    }
+
+    /**
+     * Returns whether the start and the length of this interval are fixed.
+     *
+     * @return true if the bounds of the interval are fixed
+     */
+    default boolean isFixed() {
+        return startMin() == startMax() && lengthMin() == lengthMax();
+    }
+
+    /**
+     * Returns the minimum start of this interval.
+     *
+     * @return the minimum start
+     */
+    int startMin();
+
+    /**
+     * Returns the maximum start of this interval.
+     *
+     * @return the maximum start
+     */
+    int startMax();
+
+    /**
+     * Returns the minimum end of this interval.
+     *
+     * @return the minimum end
+     */
+    int endMin();
+
+    /**
+     * Returns the maximum end of this interval.
+     *
+     * @return the maximum end
+     */
+    int endMax();
+
+    /**
+     * Returns the minimum length of this interval.
+     *
+     * @return the minimum length
+     */
+    int lengthMin();
+
+    /**
+     * Returns the maximum length of this interval.
+     *
+     * @return the maximum length
+     */
+    int lengthMax();
+
+    /**
+     * Removes from the interval the starts smaller than a given value.
+     *
+     * @param v the new minimum start
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setStartMin(int v);
+
+    /**
+     * Removes from the interval the starts larger than a given value.
+     *
+     * @param v the new maximum start
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setStartMax(int v);
+
+    /**
+     * Removes from the interval the ends smaller than a given value.
+     *
+     * @param v the new minimum end
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setEndMin(int v);
+
+    /**
+     * Removes from the interval the ends larger than a given value.
+     *
+     * @param v the new maximum end
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setEndMax(int v);
+
+    /**
+     * Removes from the interval the lengths smaller than a given value.
+     *
+     * @param v the new minimum length
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setLengthMin(int v);
+
+    /**
+     * Removes from the interval the lengths larger than a given value.
+     *
+     * @param v the new maximum length
+     * @exception InconsistencyException
+     *            if the interval is present and its bounds become empty
+     */
+    void setLengthMax(int v);
+
+    /**
+     * Makes the interval present.
+     *
+     * @exception InconsistencyException if the interval is absent
+     */
+    void setPresent();
+
+    /**
+     * Makes the interval absent.
+     *
+     * @exception InconsistencyException if the interval is present
+     */
+    void setAbsent();
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever
+     * the bounds or the presence of this interval change.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called on change events of this interval
+     */
+    void propagateOnChange(Constraint c);
+}
@@ -0,0 +1,217 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateStack;
+
+import java.security.InvalidParameterException;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Implementation of an interval variable
+ * with reversible bounds on its start, end and length.
+ * The bounds are kept consistent with {@code end = start + length}
+ * after each modification.
+ */
+public class IntervalVarImpl implements IntervalVar {
+
+    private final Solver cp;
+    private final BoolVar status;
+    private final StateInt startMin, startMax;
+    private final StateInt endMin, endMax;
+    private final StateInt lengthMin, lengthMax;
+    private final StateStack<Constraint> onChange;
+
+    /**
+     * Creates an interval variable.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start
+     * @param endMax the maximum end
+     * @param lengthMin the minimum length, non negative
+     * @param lengthMax the maximum length with {@code lengthMax >= lengthMin}
+     * @param optional true if the interval may be absent,
+     *                 otherwise it is present
+     */
+    public IntervalVarImpl(Solver cp, int startMin, int endMax, int lengthMin, int lengthMax, boolean optional) {
+        if (lengthMin < 0 || lengthMin > lengthMax || startMin + lengthMin > endMax)
+            throw new InvalidParameterException("the interval must have a non empty and non negative length");
+        this.cp = cp;
+        StateManager sm = cp.getStateManager();
+        this.status = optional ? new BoolVarImpl(cp) : new BoolVarImpl(cp, true);
+        this.startMin = sm.makeStateInt(startMin);
+        this.startMax = sm.makeStateInt(Math.min(endMax - lengthMin, Integer.MAX_VALUE - lengthMax));
+        this.endMin = sm.makeStateInt(startMin + lengthMin);
+        this.endMax = sm.makeStateInt(endMax);
+        this.lengthMin = sm.makeStateInt(lengthMin);
+        this.lengthMax = sm.makeStateInt(Math.min(lengthMax, endMax - startMin));
+        this.onChange = new StateStack<>(sm);
+    }
+
+    @Override
+    public Solver getSolver() {
+        return cp;
+    }
+
+    @Override
+    public BoolVar status() {
+        return status;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return status.isTrue();
+    }
+
+    @Override
+    public boolean isAbsent() {
+        return status.isFalse();
+    }
+
+    @Override
+    public int startMin() {
+        return startMin.value();
+    }
+
+    @Override
+    public int startMax() {
+        return startMax.value();
+    }
+
+    @Override
+    public int endMin() {
+        return endMin.value();
+    }
+
+    @Override
+    public int endMax() {
+        return endMax.value();
+    }
+
+    @Override
+    public int lengthMin() {
+        return lengthMin.value();
+    }
+
+    @Override
+    public int lengthMax() {
+        return lengthMax.value();
+    }
+
+    @Override
+    public void setStartMin(int v) {
+        if (v > startMin.value()) {
+            update(v, startMax.value(), endMin.value(), endMax.value(), lengthMin.value(), lengthMax.value());
+        }
+    }
+
+    @Override
+    public void setStartMax(int v) {
+        if (v < startMax.value()) {
+            update(startMin.value(), v, endMin.value(), endMax.value(), lengthMin.value(), lengthMax.value());
+        }
+    }
+
+    @Override
+    public void setEndMin(int v) {
+        if (v > endMin.value()) {
+            update(startMin.value(), startMax.value(), v, endMax.value(), lengthMin.value(), lengthMax.value());
+        }
+    }
+
+    @Override
+    public void setEndMax(int v) {
+        if (v < endMax.value()) {
+            update(startMin.value(), startMax.value(), endMin.value(), v, lengthMin.value(), lengthMax.value());
+        }
+    }
+
+    @Override
+    public void setLengthMin(int v) {
+        if (v > lengthMin.value()) {
+            update(startMin.value(), startMax.value(), endMin.value(), endMax.value(), v, lengthMax.value());
+        }
+    }
+
+    @Override
+    public void setLengthMax(int v) {
+        if (v < lengthMax.value()) {
+            update(startMin.value(), startMax.value(), endMin.value(), endMax.value(), lengthMin.value(), v);
+        }
+    }
+
+    @Override
+    public void setPresent() {
+        status.assign(true);
+    }
+
+    @Override
+    public void setAbsent() {
+        status.assign(false);
+    }
+
+    @Override
+    public void propagateOnChange(Constraint c) {
+        onChange.push(c);
+        if (!status.isBound())
+            status.propagateOnBind(c);
+    }
+
+    /**
+     * Makes the new bounds consistent with {@code end = start + length}
+     * and stores them, the interval becomes absent if they are empty.
+     */
+    private void update(int sMin, int sMax, int eMin, int eMax, int lMin, int lMax) {
+        if (status.isFalse())
+            return;
+        boolean changed = true;
+        while (changed && sMin <= sMax && eMin <= eMax && lMin <= lMax) {
+            changed = false;
+            if (eMin - lMax > sMin) { sMin = eMin - lMax; changed = true; }
+            if (eMax - lMin < sMax) { sMax = eMax - lMin; changed = true; }
+            if (sMin + lMin > eMin) { eMin = sMin + lMin; changed = true; }
+            if (sMax + lMax < eMax) { eMax = sMax + lMax; changed = true; }
+            if (eMin - sMax > lMin) { lMin = eMin - sMax; changed = true; }
+            if (eMax - sMin < lMax) { lMax = eMax - sMin; changed = true; }
+        }
+        if (sMin > sMax || eMin > eMax || lMin > lMax) {
+            if (status.isTrue())
+                throw INCONSISTENCY;
+            status.assign(false);
+            return;
+        }
+        startMin.setValue(sMin);
+        startMax.setValue(sMax);
+        endMin.setValue(eMin);
+        endMax.setValue(eMax);
+        lengthMin.setValue(lMin);
+        lengthMax.setValue(lMax);
+        for (int i = 0; i < onChange.size(); i++)
+            cp.schedule(onChange.get(i));
+    }
+
+    @Override
+    public String toString() {
+        if (status.isFalse())
+            return "absent";
+        return (status.isTrue() ? "" : "optional ") +
+                "[" + startMin() + ".." + startMax() + "] + [" + lengthMin() + ".." + lengthMax() +
+                "] = [" + endMin() + ".." + endMax() + "]";
+    }
+}
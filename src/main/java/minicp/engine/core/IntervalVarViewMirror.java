@@ -0,0 +1,129 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+/**
+ * A view on an interval variable mirrored in time,
+ * that is spanning {@code [-end, -start)}.
+ */
+public class IntervalVarViewMirror implements IntervalVar {
+
+    private final IntervalVar x;
+
+    public IntervalVarViewMirror(IntervalVar x) {
+        this.x = x;
+    }
+
+    @Override
+    public Solver getSolver() {
+        return x.getSolver();
+    }
+
+    @Override
+    public BoolVar status() {
+        return x.status();
+    }
+
+    @Override
+    public boolean isPresent() {
+        return x.isPresent();
+    }
+
+    @Override
+    public boolean isAbsent() {
+        return x.isAbsent();
+    }
+
+    @Override
+    public int startMin() {
+        return -x.endMax();
+    }
+
+    @Override
+    public int startMax() {
+        return -x.endMin();
+    }
+
+    @Override
+    public int endMin() {
+        return -x.startMax();
+    }
+
+    @Override
+    public int endMax() {
+        return -x.startMin();
+    }
+
+    @Override
+    public int lengthMin() {
+        return x.lengthMin();
+    }
+
+    @Override
+    public int lengthMax() {
+        return x.lengthMax();
+    }
+
+    @Override
+    public void setStartMin(int v) {
+        x.setEndMax(-v);
+    }
+
+    @Override
+    public void setStartMax(int v) {
+        x.setEndMin(-v);
+    }
+
+    @Override
+    public void setEndMin(int v) {
+        x.setStartMax(-v);
+    }
+
+    @Override
+    public void setEndMax(int v) {
+        x.setStartMin(-v);
+    }
+
+    @Override
+    public void setLengthMin(int v) {
+        x.setLengthMin(v);
+    }
+
+    @Override
+    public void setLengthMax(int v) {
+        x.setLengthMax(v);
+    }
+
+    @Override
+    public void setPresent() {
+        x.setPresent();
+    }
+
+    @Override
+    public void setAbsent() {
+        x.setAbsent();
+    }
+
+    @Override
+    public void propagateOnChange(Constraint c) {
+        x.propagateOnChange(c);
+    }
+
+    @Override
+    public String toString() {
+        return "mirror of " + x;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+/**
+ * A view on two variables {@code start} and {@code length}
+ * as an interval that is always present,
+ * that is spanning {@code [start, start + length)}.
+ */
+public class IntervalVarViewStartLength implements IntervalVar {
+
+    private final IntVar start;
+    private final IntVar length;
+    private final BoolVar status;
+
+    /**
+     * Creates a present interval starting at a variable
+     * with a variable length.
+     *
+     * @param start the start of the interval
+     * @param length the length of the interval, non negative
+     */
+    public IntervalVarViewStartLength(IntVar start, IntVar length) {
+        this.start = start;
+        this.length = length;
+        this.status = new BoolVarImpl(start.getSolver(), true);
+    }
+
+    @Override
+    public Solver getSolver() {
+        return start.getSolver();
+    }
+
+    @Override
+    public BoolVar status() {
+        return status;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return true;
+    }
+
+    @Override
+    public boolean isAbsent() {
+        return false;
+    }
+
+    @Override
+    public int startMin() {
+        return start.min();
+    }
+
+    @Override
+    public int startMax() {
+        return start.max();
+    }
+
+    @Override
+    public int endMin() {
+        return start.min() + length.min();
+    }
+
+    @Override
+    public int endMax() {
+        return start.max() + length.max();
+    }
+
+    @Override
+    public int lengthMin() {
+        return length.min();
+    }
+
+    @Override
+    public int lengthMax() {
+        return length.max();
+    }
+
+    @Override
+    public void setStartMin(int v) {
+        start.removeBelow(v);
+    }
+
+    @Override
+    public void setStartMax(int v) {
+        start.removeAbove(v);
+    }
+
+    @Override
+    public void setEndMin(int v) {
+        start.removeBelow(v - length.max());
+        length.removeBelow(v - start.max());
+    }
+
+    @Override
+    public void setEndMax(int v) {
+        start.removeAbove(v - length.min());
+        length.removeAbove(v - start.min());
+    }
+
+    @Override
+    public void setLengthMin(int v) {
+        length.removeBelow(v);
+    }
+
+    @Override
+    public void setLengthMax(int v) {
+        length.removeAbove(v);
+    }
+
+    @Override
+    public void setPresent() {
+    }
+
+    @Override
+    public void setAbsent() {
+        status.assign(false);
+    }
+
+    @Override
+    public void propagateOnChange(Constraint c) {
+        start.propagateOnBoundChange(c);
+        length.propagateOnBoundChange(c);
+    }
+
+    @Override
+    public String toString() {
+        return start + " + " + length;
+    }
+}
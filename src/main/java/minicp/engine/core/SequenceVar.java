@@ -0,0 +1,237 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.core;
+
+/**
+ * Sequence variable of a routing model.
+ * <p>The nodes {@code 0..nNode()-1} are partitioned into
+ * the member nodes, forming a partial sequence from {@link #start()}
+ * to {@link #end()}, the possible nodes that can still be inserted
+ * in the sequence and the excluded nodes that will never be part of it.
+ * A possible node can only be inserted directly after a member node
+ * (or the start) belonging to its insertion set,
+ * the constraints remove the insertions that cannot lead to a solution.
+ * A possible node without any insertion left is excluded.
+ * The variable is bound when no node is possible,
+ * the sequence being then the member nodes in their order.
+ * <p>The relative order of the member nodes never changes,
+ * the insertion of a node after a member only puts it between
+ * this member and its current successor.
+ *
+ * <p>Delecluse, A., Schaus, P., &amp; Van Hentenryck, P. (2022).
+ * Sequence variables for routing problems.
+ * In 28th International Conference on Principles and Practice of Constraint Programming.
+ */
+public interface SequenceVar {
+
+    /**
+     * Returns the solver in which this variable was created.
+     *
+     * @return the solver in which this variable was created
+     */
+    Solver getSolver();
+
+    /**
+     * Returns the number of nodes, excluding the start and the end.
+     *
+     * @return the number of nodes that can be in the sequence
+     */
+    int nNode();
+
+    /**
+     * Returns the first node of the sequence, always a member.
+     *
+     * @return the start node, equal to {@code nNode()}
+     */
+    int start();
+
+    /**
+     * Returns the last node of the sequence, always a member.
+     *
+     * @return the end node, equal to {@code nNode() + 1}
+     */
+    int end();
+
+    /**
+     * Returns whether a node is in the sequence.
+     *
+     * @param node a node, possibly the start or the end
+     * @return true if the node is a member
+     */
+    boolean isMember(int node);
+
+    /**
+     * Returns whether a node can still be inserted in the sequence.
+     *
+     * @param node a node
+     * @return true if the node is possible
+     */
+    boolean isPossible(int node);
+
+    /**
+     * Returns whether a node is excluded from the sequence.
+     *
+     * @param node a node
+     * @return true if the node is excluded
+     */
+    boolean isExcluded(int node);
+
+    /**
+     * Returns the number of member nodes, excluding the start and the end.
+     *
+     * @return the number of member nodes
+     */
+    int nMember();
+
+    /**
+     * Returns the number of possible nodes.
+     *
+     * @return the number of possible nodes
+     */
+    int nPossible();
+
+    /**
+     * Returns the number of excluded nodes.
+     *
+     * @return the number of excluded nodes
+     */
+    int nExcluded();
+
+    /**
+     * Returns whether no node is possible anymore.
+     *
+     * @return true if every node is either a member or excluded
+     */
+    default boolean isBound() {
+        return nPossible() == 0;
+    }
+
+    /**
+     * Returns the successor of a member node in the sequence.
+     *
+     * @param node a member node other than the end
+     * @return the member visited right after the node
+     */
+    int next(int node);
+
+    /**
+     * Returns the predecessor of a member node in the sequence.
+     *
+     * @param node a member node other than the start
+     * @return the member visited right before the node
+     */
+    int prev(int node);
+
+    /**
+     * Copies the member nodes in their order, excluding the start and the end.
+     *
+     * @param dest an array large enough {@code dest.length >= nMember()}
+     * @return the number of member nodes
+     */
+    int fillMember(int[] dest);
+
+    /**
+     * Copies the possible nodes in an arbitrary order.
+     *
+     * @param dest an array large enough {@code dest.length >= nPossible()}
+     * @return the number of possible nodes
+     */
+    int fillPossible(int[] dest);
+
+    /**
+     * Copies the excluded nodes in an arbitrary order.
+     *
+     * @param dest an array large enough {@code dest.length >= nExcluded()}
+     * @return the number of excluded nodes
+     */
+    int fillExcluded(int[] dest);
+
+    /**
+     * Returns whether a node can be inserted directly after a member.
+     *
+     * @param node a node
+     * @param pred a node
+     * @return true if the node is possible, pred is a member other than the end
+     *         and pred is in the insertion set of the node
+     */
+    boolean canInsert(int node, int pred);
+
+    /**
+     * Copies the members after which a possible node can be inserted,
+     * in the order of the sequence.
+     *
+     * @param node a possible node
+     * @param dest an array large enough {@code dest.length >= nMember() + 1}
+     * @return the number of insertions of the node, 0 if it is not possible
+     */
+    int fillInsert(int node, int[] dest);
+
+    /**
+     * Returns the number of members after which a possible node can be inserted.
+     *
+     * @param node a node
+     * @return the number of insertions of the node, 0 if it is not possible
+     */
+    int nInsert(int node);
+
+    /**
+     * Inserts a possible node directly after a member.
+     *
+     * @param node a possible node
+     * @param pred a member other than the end after which the node can be inserted
+     * @throws minicp.util.exception.InconsistencyException if the insertion is not valid
+     */
+    void insert(int node, int pred);
+
+    /**
+     * Excludes a node from the sequence, nothing happens if it is already excluded.
+     *
+     * @param node a node
+     * @throws minicp.util.exception.InconsistencyException if the node is a member
+     */
+    void exclude(int node);
+
+    /**
+     * Forbids the insertion of a node directly after another one,
+     * also in the future when the other one becomes a member.
+     * The node is excluded once neither the start nor a member
+     * or possible node may precede it anymore.
+     *
+     * @param node a node
+     * @param pred a node that should not precede it directly
+     */
+    void removeInsert(int node, int pred);
+
+    /**
+     * Asks that the constraint is scheduled when a node is inserted.
+     *
+     * @param c the constraint
+     */
+    void propagateOnInsert(Constraint c);
+
+    /**
+     * Asks that the constraint is scheduled when a node is excluded.
+     *
+     * @param c the constraint
+     */
+    void propagateOnExclude(Constraint c);
+
+    /**
+     * Asks that the constraint is scheduled when an insertion is removed.
+     *
+     * @param c the constraint
+     */
+    void propagateOnInsertRemoval(Constraint c);
+}
@@ -0,0 +1,276 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.core;
+
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseSet;
+import minicp.state.StateStack;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Implementation of a {@link SequenceVar}.
+ * <p>The member nodes are linked through reversible successors
+ * and predecessors such that an insertion is in constant time.
+ * The member, possible and excluded nodes are stored
+ * in this order in a single array of nodes
+ * delimited by two reversible sizes: inserting or excluding
+ * a node only swaps it at a boundary that is then moved.
+ * The insertion set of each node is a reversible sparse-set
+ * of the nodes that may directly precede it.
+ */
+public class SequenceVarImpl implements SequenceVar {
+
+    private final Solver cp;
+    private final int n;
+    private final StateInt[] next;
+    private final StateInt[] prev;
+    private final int[] nodes; // members, then possible nodes, then excluded nodes
+    private final int[] position; // position of each node in nodes
+    private final StateInt nMember;
+    private final StateInt nNotExcluded;
+    private final StateSparseSet[] insertions;
+    private final int[] values;
+    private final StateStack<Constraint> onInsert;
+    private final StateStack<Constraint> onExclude;
+    private final StateStack<Constraint> onInsertRemoval;
+
+    /**
+     * Creates a sequence variable with an empty sequence
+     * where every node is possible.
+     *
+     * @param cp the solver in which the variable is created
+     * @param nNode the number of nodes, the start is {@code nNode} and the end {@code nNode + 1}
+     */
+    public SequenceVarImpl(Solver cp, int nNode) {
+        this.cp = cp;
+        this.n = nNode;
+        StateManager sm = cp.getStateManager();
+        next = new StateInt[n + 2];
+        prev = new StateInt[n + 2];
+        for (int i = 0; i < n + 2; i++) {
+            next[i] = sm.makeStateInt(i);
+            prev[i] = sm.makeStateInt(i);
+        }
+        next[start()].setValue(end());
+        prev[end()].setValue(start());
+        nodes = new int[n];
+        position = new int[n];
+        insertions = new StateSparseSet[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+            position[i] = i;
+            // the predecessors 0..n-1 and the start
+            insertions[i] = new StateSparseSet(sm, n + 1, 0);
+            insertions[i].remove(i);
+        }
+        values = new int[n + 1];
+        nMember = sm.makeStateInt(0);
+        nNotExcluded = sm.makeStateInt(n);
+        onInsert = new StateStack<>(sm);
+        onExclude = new StateStack<>(sm);
+        onInsertRemoval = new StateStack<>(sm);
+    }
+
+    @Override
+    public Solver getSolver() {
+        return cp;
+    }
+
+    @Override
+    public int nNode() {
+        return n;
+    }
+
+    @Override
+    public int start() {
+        return n;
+    }
+
+    @Override
+    public int end() {
+        return n + 1;
+    }
+
+    @Override
+    public boolean isMember(int node) {
+        return node >= n || position[node] < nMember.value();
+    }
+
+    @Override
+    public boolean isPossible(int node) {
+        if (node >= n) return false;
+        int p = position[node];
+        return p >= nMember.value() && p < nNotExcluded.value();
+    }
+
+    @Override
+    public boolean isExcluded(int node) {
+        return node < n && position[node] >= nNotExcluded.value();
+    }
+
+    @Override
+    public int nMember() {
+        return nMember.value();
+    }
+
+    @Override
+    public int nPossible() {
+        return nNotExcluded.value() - nMember.value();
+    }
+
+    @Override
+    public int nExcluded() {
+        return n - nNotExcluded.value();
+    }
+
+    @Override
+    public int next(int node) {
+        return next[node].value();
+    }
+
+    @Override
+    public int prev(int node) {
+        return prev[node].value();
+    }
+
+    @Override
+    public int fillMember(int[] dest) {
+        int s = 0;
+        for (int i = next(start()); i != end(); i = next(i))
+            dest[s++] = i;
+        return s;
+    }
+
+    @Override
+    public int fillPossible(int[] dest) {
+        int from = nMember.value();
+        int s = nNotExcluded.value() - from;
+        System.arraycopy(nodes, from, dest, 0, s);
+        return s;
+    }
+
+    @Override
+    public int fillExcluded(int[] dest) {
+        int from = nNotExcluded.value();
+        System.arraycopy(nodes, from, dest, 0, n - from);
+        return n - from;
+    }
+
+    @Override
+    public boolean canInsert(int node, int pred) {
+        return isPossible(node) && pred != end() && isMember(pred) && insertions[node].contains(pred);
+    }
+
+    @Override
+    public int fillInsert(int node, int[] dest) {
+        if (!isPossible(node)) return 0;
+        int s = 0;
+        for (int i = start(); i != end(); i = next(i))
+            if (insertions[node].contains(i))
+                dest[s++] = i;
+        return s;
+    }
+
+    @Override
+    public int nInsert(int node) {
+        if (!isPossible(node)) return 0;
+        int s = 0;
+        for (int i = start(); i != end(); i = next(i))
+            if (insertions[node].contains(i))
+                s++;
+        return s;
+    }
+
+    @Override
+    public void insert(int node, int pred) {
+        if (!canInsert(node, pred)) throw INCONSISTENCY;
+        int succ = next(pred);
+        next[pred].setValue(node);
+        prev[node].setValue(pred);
+        next[node].setValue(succ);
+        prev[succ].setValue(node);
+        swap(node, nMember.value());
+        nMember.increment();
+        scheduleAll(onInsert);
+    }
+
+    @Override
+    public void exclude(int node) {
+        if (isExcluded(node)) return;
+        if (isMember(node)) throw INCONSISTENCY;
+        swap(node, nNotExcluded.value() - 1);
+        nNotExcluded.decrement();
+        scheduleAll(onExclude);
+    }
+
+    @Override
+    public void removeInsert(int node, int pred) {
+        if (!isPossible(node) || !insertions[node].remove(pred)) return;
+        scheduleAll(onInsertRemoval);
+        if (!hasPred(node))
+            exclude(node);
+    }
+
+    // true if the start, a member or a possible node may still precede the node
+    private boolean hasPred(int node) {
+        int s = insertions[node].fillArray(values);
+        for (int i = 0; i < s; i++)
+            if (!isExcluded(values[i]))
+                return true;
+        return false;
+    }
+
+    private void swap(int node, int p) {
+        int other = nodes[p];
+        int q = position[node];
+        nodes[p] = node;
+        position[node] = p;
+        nodes[q] = other;
+        position[other] = q;
+    }
+
+    @Override
+    public void propagateOnInsert(Constraint c) {
+        onInsert.push(c);
+    }
+
+    @Override
+    public void propagateOnExclude(Constraint c) {
+        onExclude.push(c);
+    }
+
+    @Override
+    public void propagateOnInsertRemoval(Constraint c) {
+        onInsertRemoval.push(c);
+    }
+
+    private void scheduleAll(StateStack<Constraint> constraints) {
+        for (int i = 0; i < constraints.size(); i++)
+            cp.schedule(constraints.get(i));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = next(start()); i != end(); i = next(i)) {
+            if (b.length() > 1) b.append(", ");
+            b.append(i);
+        }
+        b.append("] possible: ").append(nPossible()).append(" excluded: ").append(nExcluded());
+        return b.toString();
+    }
+}
@@ -18,6 +18,7 @@ package minicp.examples;
 import minicp.engine.constraints.Circuit;
 import minicp.engine.constraints.Element1DVarDC;
 import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
@@ -26,6 +27,7 @@ import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.insertion;
 import static minicp.cp.Factory.*;
 
 /**
@@ -177,7 +179,53 @@ public class DARP {
 
         System.out.println(stats);
 
+        System.out.println(solveWithSequence(transitions, requests, vehicleCapacity));
+    }
 
+    /**
+     * Solves the same problem with a sequence variable, the nodes being
+     * the pickups [0..n-1] and the deliveries [n..2n-1]
+     * followed by the start and the end of the route at the depot.
+     * The route ends with the last delivery.
+     *
+     * @param transitions the transition times between the positions
+     * @param requests the requests defined as {fromPos,toPos,deadline}
+     * @param vehicleCapacity the capacity of the vehicle
+     * @return the statistics of the search for the first feasible solution
+     */
+    public static SearchStatistics solveWithSequence(int[][] transitions, int[][] requests, int vehicleCapacity) {
+        int n = requests.length;
+        int[] positionIdx = new int[2 * n + 2];
+        int[] pickup = new int[n];
+        int[] drop = new int[n];
+        for (int i = 0; i < n; i++) {
+            positionIdx[i] = requests[i][0];
+            positionIdx[n + i] = requests[i][1];
+            pickup[i] = i;
+            drop[i] = n + i;
+        }
+        int[][] t = new int[2 * n + 2][2 * n + 2];
+        for (int i = 0; i < 2 * n + 2; i++)
+            for (int j = 0; j < 2 * n + 1; j++)
+                t[i][j] = transitions[positionIdx[i]][positionIdx[j]];
 
+        Solver cp = makeSolver();
+        SequenceVar route = makeSequenceVar(cp, 2 * n);
+        IntVar[] time = makeIntVarArray(cp, 2 * n + 2, 500);
+        for (int i = 0; i < n; i++)
+            time[n + i].removeAbove(requests[i][2]);
+        time[route.start()].assign(0);
+
+        cp.post(transitionTimes(route, time, new int[2 * n + 2], t));
+        int[] load = new int[n];
+        Arrays.fill(load, 1);
+        cp.post(sequenceCapacity(route, pickup, drop, load, vehicleCapacity));
+
+        DFSearch dfs = makeDfs(cp, insertion(new SequenceVar[]{route}, t));
+        dfs.onSolution(() -> {
+            for (int i = route.next(route.start()); i != route.end(); i = route.next(i))
+                System.out.println("visiting position:" + positionIdx[i] + " at time:" + time[i].min());
+        });
+        return dfs.solve(statistics -> statistics.numberOfSolutions() > 0);
     }
 }
@@ -94,7 +94,6 @@ public class DialARide {
         IntVar[] succ = makeIntVarArray(cp, m, m); // Successor array.
         IntVar[] prec = makeIntVarArray(cp, m, m); // Predecessor array.
         IntVar[] distSucc = makeIntVarArray(cp, m, maxDistSucc); // Distance to successor.
-        IntVar[] distPrec = makeIntVarArray(cp, m, maxDistSucc); // Distance to predecessor.
         IntVar[] distanceSinceDepot = makeIntVarArray(cp, m, maxRouteDuration+1); // Distance since depot.
         IntVar[] vehicles = makeIntVarArray(cp, m, k); // Truck serving a stop.
         IntVar[] load = makeIntVarArray(cp, m, vehicleCapacity+1); // Capacity at each stop.
@@ -111,7 +110,6 @@ public class DialARide {
             cp.post(equal(load[endDepots[i]], 0)); // No load at end depots.
 
             cp.post(equal(distSucc[endDepots[i]], 0)); // Distance to successor is 0 from end depot.
-            cp.post(equal(distPrec[startDepots[i]], 0)); // Distance to predecessor is 0 from start depot.
 
             cp.post(equal(distanceSinceDepot[startDepots[i]], 0)); // Start depots have distance 0.
 
@@ -189,41 +187,23 @@ public class DialARide {
             cp.post(equal(precsucc, i)); // prec[succ[i]] = i
         }
 
-        // Compute distance to successor and predecessor.
+        // Compute distance to successor.
         // distanceMatrix[i][succ[i]] = distSucc[i]
-        // distanceMatrix[i][prec[i]] = distPrec[i]
         for (int i = 0; i < m; i++) {
             cp.post(new Element1D(distanceMatrix[i], succ[i], distSucc[i]));
-            cp.post(new Element1D(distanceMatrix[i], prec[i], distPrec[i]));
         }
 
-        // Channel between distSucc and distPrec.
-        for (int i = 0; i < m; i++) {
-            IntVar dsp = elementVar(distSucc, prec[i]);
-            IntVar dps = elementVar(distPrec, succ[i]);
-            cp.post(equal(dsp, distPrec[i])); // distSucc[prec[i]] = distPrec[i]
-            cp.post(equal(dps, distSucc[i])); // distPrec[succ[i]] = distSucc[i]
-        }
-
-        // Compute distance since depot.
-        for (int i = 0; i < k; i++) {
-            // distanceSinceDepot[succ[i]] = distanceSinceDepot[i] + distSucc[i], except for i in endDepots.
-            IntVar dSDsucc = elementVar(distanceSinceDepot, succ[startDepots[i]]);
-            cp.post(equal(dSDsucc, sum(distanceSinceDepot[startDepots[i]], distSucc[startDepots[i]])));
-
-            // distanceSinceDepot[i] = distanceSinceDepot[prec[i]] + distPrec[i], except for i in startDepots.
-            IntVar dSDprec = elementVar(distanceSinceDepot, prec[endDepots[i]]);
-            cp.post(equal(distanceSinceDepot[endDepots[i]], sum(dSDprec, distPrec[endDepots[i]])));
-        }
-        for (int i = 2*k; i < m; i++) {
-            // distanceSinceDepot[succ[i]] = distanceSinceDepot[i] + distSucc[i], except for i in endDepots.
-            IntVar dSDsucc = elementVar(distanceSinceDepot, succ[i]);
-            cp.post(equal(dSDsucc, sum(distanceSinceDepot[i], distSucc[i])));
-
-            // distanceSinceDepot[i] = distanceSinceDepot[prec[i]] + distPrec[i], except for i in startDepots.
-            IntVar dSDprec = elementVar(distanceSinceDepot, prec[i]);
-            cp.post(equal(distanceSinceDepot[i], sum(dSDprec, distPrec[i])));
+        // Distance since depot along the routes, pick up before drop, maximum ride time.
+        int[] pickups = new int[n];
+        int[] drops = new int[n];
+        for (int i = 0; i < n; i++) {
+            pickups[i] = 2*k + i;
+            drops[i] = 2*k + n + i;
+            // Time windows.
+            distanceSinceDepot[pickups[i]].removeAbove(pickupRideStops.get(i).window_end); // Pick up before deadline.
+            distanceSinceDepot[drops[i]].removeAbove(dropRideStops.get(i).window_end); // Drop before deadline.
         }
+        cp.post(routeTimes(succ, distanceSinceDepot, distanceMatrix, endDepots, pickups, drops, maxRideTime));
 
         // Pick up and drop should use same vehicle.
         for (int i = 2*k; i < 2*k + n; i++) {
@@ -236,26 +216,13 @@ public class DialARide {
             cp.post(equal(vehicles[i], elementVar(vehicles, prec[i])));
         }
 
-        for (int i = 2*k; i < 2*k + n; i++) {
-            // Maximum ride time constraint.
-            cp.post(lessOrEqual(sum(distanceSinceDepot[i + n], minus(distanceSinceDepot[i])), maxRideTime));
-
-            // Time windows.
-            cp.post(lessOrEqual(plus(distanceSinceDepot[i], distanceMatrix[i][n+i]), distanceSinceDepot[n+i])); // Pick up before drop.
-            cp.post(lessOrEqual(distanceSinceDepot[i], pickupRideStops.get(i - 2*k).window_end)); // Pick up before deadline.
-            cp.post(lessOrEqual(distanceSinceDepot[i + n], dropRideStops.get(i - 2*k).window_end)); // Drop before deadline.
-        }
-
-        // Load time constraints.
-        for (int i = 2*k; i < 2*k + n; i++) {
-            // Load increases by one after pickup.
-            IntVar loadPreci = elementVar(load, prec[i]);
-            cp.post(equal(load[i], plus(loadPreci, 1)));
-
-            // Load decreases by one after drop.
-            IntVar loadPrecni = elementVar(load, prec[i + n]);
-            cp.post(equal(load[i + n], plus(loadPrecni, -1)));
+        // Load increases by one after pickup and decreases by one after drop.
+        int[] demand = new int[m];
+        for (int i = 0; i < n; i++) {
+            demand[pickups[i]] = 1;
+            demand[drops[i]] = -1;
         }
+        cp.post(routeLoad(succ, load, demand, endDepots, vehicleCapacity));
 
         // Objective: minimize total distance.
         Objective obj = cp.minimize(sum(distSucc));
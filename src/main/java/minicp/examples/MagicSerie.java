@@ -15,13 +15,13 @@
 
 package minicp.examples;
 
-import minicp.cp.Factory;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import static minicp.cp.BranchingScheme.*;
 import static minicp.cp.Factory.*;
@@ -38,13 +38,11 @@ public class MagicSerie {
 
         IntVar[] s = makeIntVarArray(cp, n, n);
 
-        for (int i = 0; i < n; i++) {
-            final int fi = i;
-            cp.post(sum(Factory.makeIntVarArray(n, j -> isEqual(s[j], fi)), s[i]));
-        }
+        // s[i] is the number of occurrences of i in s
+        cp.post(cardinality(s, IntStream.range(0, n).toArray(), s));
         cp.post(sum(s, n));
-        cp.post(sum(Factory.makeIntVarArray(n, i -> mul(s[i], i)), n));
-        cp.post(sum(makeIntVarArray(n - 1, i -> mul(s[i], i - 1)), 0));
+        cp.post(sum(IntStream.range(0, n).toArray(), s, n));
+        cp.post(sum(IntStream.range(0, n - 1).map(i -> i - 1).toArray(), Arrays.copyOf(s, n - 1), 0));
 
         long t0 = System.currentTimeMillis();
         DFSearch dfs = makeDfs(cp, () -> {
@@ -117,13 +117,7 @@ public class Steel {
 
 
             // bin packing constraint
-            for (int j = 0; j < nSlab; j++) {
-                IntVar[] wj = new IntVar[nSlab];
-                for (int i = 0; i < nOrder; i++) {
-                    wj[i] = mul(inSlab[j][i], w[i]);
-                }
-                cp.post(sum(wj, l[j]));
-            }
+            cp.post(binPacking(x, w, l));
 
             // TODO 4: add the redundant constraint that the sum of the loads is equal to the sum of elements
             
@@ -15,8 +15,7 @@
 
 package minicp.examples;
 
-import minicp.engine.constraints.Circuit;
-import minicp.engine.constraints.Element1D;
+import minicp.engine.constraints.WeightedCircuit;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -51,15 +50,10 @@ public class TSP {
 
         Solver cp = makeSolver(false);
         IntVar[] succ = makeIntVarArray(cp, n, n);
-        IntVar[] distSucc = makeIntVarArray(cp, n, 1000);
+        IntVar totalDist = makeIntVar(cp, 0, 1000 * n);
 
-        cp.post(new Circuit(succ));
-
-        for (int i = 0; i < n; i++) {
-            cp.post(new Element1D(distanceMatrix[i], succ[i], distSucc[i]));
-        }
-
-        IntVar totalDist = sum(distSucc);
+        // The circuit and its length, bounded by the Held-Karp 1-tree bound.
+        cp.post(new WeightedCircuit(succ, distanceMatrix, totalDist));
 
         Objective obj = cp.minimize(totalDist);
 
@@ -119,9 +113,5 @@ public class TSP {
         SearchStatistics stats = dfs.optimize(obj);
         System.out.println(stats);
 
-        // Solution is slow since the bounding struggles to identify shitty branches quickly
-        // (due to the selection being intelligent).
-
-
     }
 }
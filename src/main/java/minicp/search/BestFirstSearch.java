@@ -0,0 +1,145 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateManager;
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.PriorityQueue;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Best First Search.
+ * <p>The open node with the smallest priority is expanded first.
+ * The priority of a node is evaluated right after the fix-point
+ * of the branch leading to it, typically a lower bound
+ * of the objective such as {@code () -> obj.min()}.
+ * Ties are broken in favor of the deepest node then
+ * of the oldest one.
+ * Open nodes are stored as paths and re-established by replay
+ * (see {@link ReplaySearch}).
+ */
+public class BestFirstSearch extends ReplaySearch {
+
+    private static final class Node implements Comparable<Node> {
+        private final Path path;
+        private final int priority;
+        private final long id;
+
+        private Node(Path path, int priority, long id) {
+            this.path = path;
+            this.priority = priority;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            if (priority != other.priority) return priority < other.priority ? -1 : 1;
+            if (path.depth() != other.path.depth()) return path.depth() > other.path.depth() ? -1 : 1;
+            return Long.compare(id, other.id);
+        }
+    }
+
+    private final IntSupplier priority;
+
+    /**
+     * Creates a best first search.
+     *
+     * @param sm the state manager that is saved and restored
+     *           when moving from one open node to the next one
+     * @param branching a generator of closures in charge of defining the ordered
+     *                  children nodes at each node of the search tree
+     * @param priority the priority of the current node, the smallest is explored first
+     */
+    public BestFirstSearch(StateManager sm, Supplier<Procedure[]> branching, IntSupplier priority) {
+        super(sm, branching);
+        this.priority = priority;
+    }
+
+    /**
+     * Creates a best first search with a branching
+     * producing primitive decisions on an array of variables.
+     *
+     * @param cp the solver whose state manager is saved and restored
+     *           when moving from one open node to the next one
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching in charge of adding the ordered decisions
+     *                  of the children of each node
+     * @param priority the priority of the current node, the smallest is explored first
+     */
+    public BestFirstSearch(Solver cp, IntVar[] x, DecisionBranching branching, IntSupplier priority) {
+        super(cp, x, branching);
+        this.priority = priority;
+    }
+
+    @Override
+    protected void explore(SearchStatistics statistics, Predicate<SearchStatistics> limit) {
+        int base = sm.getLevel();
+        long nextId = 0;
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        open.add(new Node(ROOT, Integer.MIN_VALUE, nextId++));
+        while (!open.isEmpty()) {
+            if (limit.test(statistics)) throw new StopSearchException();
+            Node node = open.poll();
+            sm.restoreStateUntil(base);
+            sm.saveState();
+            int level = sm.getLevel();
+            Path[] children;
+            try {
+                replay(node.path);
+                int n = expand();
+                if (n == 0) {
+                    statistics.incrSolutions();
+                    notifySolution();
+                    continue;
+                }
+                children = new Path[n];
+                for (int i = 0; i < n; i++)
+                    children[i] = child(node.path, i);
+            } catch (InconsistencyException e) {
+                // the node was pruned since it was stored
+                // or the objective was tightened on a solution
+                notifyFailure();
+                statistics.incrFailures();
+                continue;
+            }
+            for (Path child : children) {
+                if (limit.test(statistics)) throw new StopSearchException();
+                sm.saveState();
+                try {
+                    statistics.incrNodes();
+                    apply(child);
+                    int p = priority.getAsInt();
+                    if (expand() == 0) {
+                        statistics.incrSolutions();
+                        notifySolution();
+                    } else {
+                        open.add(new Node(child, p, nextId++));
+                    }
+                } catch (InconsistencyException e) {
+                    notifyFailure();
+                    statistics.incrFailures();
+                }
+                sm.restoreStateUntil(level);
+            }
+        }
+    }
+}
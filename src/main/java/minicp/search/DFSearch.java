@@ -15,14 +15,16 @@
 
 package minicp.search;
 
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
 import minicp.state.StateManager;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 import minicp.util.Procedure;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -32,11 +34,25 @@ import java.util.function.Supplier;
 public class DFSearch {
 
     private Supplier<Procedure[]> branching;
+    private DecisionBranching decisionBranching;
+    private DecisionBuffer decisions;
     private StateManager sm;
 
     private List<Procedure> solutionListeners = new LinkedList<Procedure>();
     private List<Procedure> failureListeners = new LinkedList<Procedure>();
 
+    // stack of node frames used by the depth first search
+    private static final int INITIAL_CAPACITY = 64;
+    private Procedure[][] frameBranches = new Procedure[INITIAL_CAPACITY][];
+    private int[] frameLevel = new int[INITIAL_CAPACITY];
+    private int[] frameBranch = new int[INITIAL_CAPACITY];
+    private int[] frameSize = new int[INITIAL_CAPACITY];
+    private int[] frameStart = new int[INITIAL_CAPACITY];
+    private int depth = 0;
+
+    private SearchRecorder recorder = null;
+    private int outcome; // outcome of the last explored node, for the recorder
+
     /**
      * Creates a Depth First Search object with a given branching
      * that defines the search tree dynamically.
@@ -54,6 +70,36 @@ public class DFSearch {
         this.branching = branching;
     }
 
+    /**
+     * Creates a Depth First Search object with a branching
+     * producing primitive decisions on an array of variables.
+     * The decisions are applied directly by the search
+     * without allocating closures at each node.
+     *
+     * @param cp the solver whose state manager is saved and restored
+     *           at each node of the search tree
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching in charge of adding the ordered decisions
+     *                  of the children of each node in a {@link DecisionBuffer}.
+     *                  When it adds no decision, a solution is found.
+     */
+    public DFSearch(Solver cp, IntVar[] x, DecisionBranching branching) {
+        this.sm = cp.getStateManager();
+        this.decisionBranching = branching;
+        this.decisions = new DecisionBuffer(cp, x);
+    }
+
+    /**
+     * Sets a recorder that logs every node explored by the next searches,
+     * or removes it if null.
+     * The recorded tree can be re-executed with a {@link SearchReplayer}.
+     *
+     * @param recorder the recorder, it is not closed by the search
+     */
+    public void setRecorder(SearchRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     /**
      * Adds a listener that is called on each solution.
      *
@@ -236,55 +282,100 @@ public class DFSearch {
         }
     }
 
+    /**
+     * Depth first search with an explicit stack of node frames.
+     * Each frame stores the branches of an expanded node
+     * (either closures or a slice of the {@link DecisionBuffer}),
+     * the index of the next branch to explore and the state level
+     * at which the node was expanded. The frame arrays are reused
+     * from one call to the next and only grow when the depth
+     * of the search tree exceeds their capacity.
+     */
     private void dfs(SearchStatistics statistics, Predicate<SearchStatistics> limit) {
-        Stack<Procedure> alternatives = new Stack<Procedure>();
-        expandNode(alternatives, statistics); // root expansion
-        while (!alternatives.isEmpty()) {
+        depth = 0;
+        try {
             if (limit.test(statistics)) throw new StopSearchException();
-            try {
-                alternatives.pop().call();
-            } catch (InconsistencyException e) {
-                notifyFailure();
-                statistics.incrFailures();
+            expandNode(statistics); // root expansion
+            while (depth > 0) {
+                int top = depth - 1;
+                if (frameBranch[top] == frameSize[top]) {
+                    if (frameBranches[top] == null) decisions.truncate(frameStart[top]);
+                    frameBranches[top] = null;
+                    depth--;
+                    continue;
+                }
+                if (limit.test(statistics)) throw new StopSearchException();
+                int b = frameBranch[top]++;
+                sm.restoreStateUntil(frameLevel[top]);
+                sm.saveState();
+                outcome = SearchRecorder.FAILURE;
+                try {
+                    statistics.incrNodes();
+                    if (frameBranches[top] != null) {
+                        frameBranches[top][b].call();
+                    } else {
+                        decisions.truncate(frameStart[top] + frameSize[top]);
+                        decisions.apply(frameStart[top] + b);
+                    }
+                    expandNode(statistics);
+                } catch (InconsistencyException e) {
+                    notifyFailure();
+                    statistics.incrFailures();
+                }
+                if (recorder != null) record(top, b);
             }
+        } finally {
+            for (int i = 0; i < depth; i++)
+                frameBranches[i] = null;
+            depth = 0;
+            if (decisions != null) decisions.clear();
         }
     }
-    private void expandNode(Stack<Procedure> alternatives, SearchStatistics statistics) {
-        Procedure[] branches = branching.get();
 
-        // if there are no branches from the current node, signal solution has been found
-        if (branches.length == 0) {
-            alternatives.push(() -> {
-                statistics.incrSolutions();
-                notifySolution();
-            });
+    private void expandNode(SearchStatistics statistics) {
+        Procedure[] branches = null;
+        int start = 0;
+        int nBranches;
+        if (decisionBranching != null) {
+            start = decisions.size();
+            decisionBranching.branch(decisions);
+            nBranches = decisions.size() - start;
+        } else {
+            branches = branching.get();
+            nBranches = branches.length;
         }
 
-        // push right to left on the stack so that left is first (since stack is lifo)
-        for (int i =  branches.length - 1; i >= 0; i--) {
-            Procedure alt = branches[i];
-
-            // pop first (since stack is lifo)
-            alternatives.push(() -> {
-                sm.restoreState();
-            });
-
-            // then call and expansion (since stack is lifo)
-            alternatives.push(() -> {
-                statistics.incrNodes();
-                alt.call();
-
-                // this not does get called if an InconsistencyException is thrown
-                expandNode(alternatives, statistics);
-            });
+        // if there are no branches from the current node, signal solution has been found
+        if (nBranches == 0) {
+            outcome = SearchRecorder.SOLUTION;
+            statistics.incrSolutions();
+            notifySolution();
+            return;
+        }
+        outcome = SearchRecorder.EXPANDED;
 
-            // finally, push (since stack is lifo)
-            alternatives.push(() -> {
-                sm.saveState();
-            });
+        if (depth == frameBranches.length) {
+            int capacity = depth * 2;
+            frameBranches = Arrays.copyOf(frameBranches, capacity);
+            frameLevel = Arrays.copyOf(frameLevel, capacity);
+            frameBranch = Arrays.copyOf(frameBranch, capacity);
+            frameSize = Arrays.copyOf(frameSize, capacity);
+            frameStart = Arrays.copyOf(frameStart, capacity);
         }
+        frameBranches[depth] = branches;
+        frameLevel[depth] = sm.getLevel();
+        frameBranch[depth] = 0;
+        frameSize[depth] = nBranches;
+        frameStart[depth] = start;
+        depth++;
     }
 
-    
-
+    private void record(int frame, int branch) {
+        if (frameBranches[frame] != null) {
+            recorder.node(frame + 1, branch, outcome);
+        } else {
+            int i = frameStart[frame] + branch;
+            recorder.node(frame + 1, branch, decisions.var(i), decisions.op(i), decisions.value(i), outcome);
+        }
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+/**
+ * Branching that describes the children of a node
+ * as primitive (variable index, operator, value) decisions
+ * instead of closures.
+ * Unlike a {@code Supplier<Procedure[]>} branching,
+ * it does not allocate anything at each node:
+ * the decisions are written in a {@link DecisionBuffer}
+ * owned by the search that applies them directly.
+ * <p>Example of a binary branching on the first unbound variable:
+ * <pre>
+ * {@code
+ * DecisionBranching b = decisions -> {
+ *     for (int i = 0; i < x.length; i++)
+ *         if (!x[i].isBound()) {
+ *             decisions.addEqualBranches(i, x[i].min());
+ *             return;
+ *         }
+ * };
+ * }
+ * </pre>
+ *
+ * @see DFSearch#DFSearch(minicp.engine.core.Solver, minicp.engine.core.IntVar[], DecisionBranching)
+ */
+@FunctionalInterface
+public interface DecisionBranching {
+
+    /**
+     * Adds the decisions of the children of the current node
+     * to the buffer, from the left most to the right most child.
+     * Nothing is added when the current node is a solution.
+     *
+     * @param decisions the buffer in which the decisions are added
+     */
+    void branch(DecisionBuffer decisions);
+}
@@ -0,0 +1,233 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of decisions encoded as primitive
+ * (variable index, operator, value) triples.
+ * <p>The variable index refers to the array of variables
+ * given at the creation of the buffer.
+ * The buffer is used as a stack by {@link DFSearch}:
+ * the decisions of the nodes on the current path
+ * are stored one after the other and the decisions of a node
+ * are discarded when all its children have been explored.
+ *
+ * @see DecisionBranching
+ */
+public final class DecisionBuffer {
+
+    /**
+     * Operator of the decision {@code x[var] == val}
+     */
+    public static final int EQ = 0;
+    /**
+     * Operator of the decision {@code x[var] != val}
+     */
+    public static final int NEQ = 1;
+    /**
+     * Operator of the decision {@code x[var] <= val}
+     */
+    public static final int LEQ = 2;
+    /**
+     * Operator of the decision {@code x[var] >= val}
+     */
+    public static final int GEQ = 3;
+
+    private static final String[] SYMBOL = {"==", "!=", "<=", ">="};
+
+    private final Solver cp;
+    private final IntVar[] x;
+    private int[] var;
+    private int[] op;
+    private int[] val;
+    private int size;
+
+    /**
+     * Creates an empty decision buffer.
+     *
+     * @param cp the solver in which the decisions are applied
+     * @param x the variables referred to by the decisions
+     */
+    public DecisionBuffer(Solver cp, IntVar[] x) {
+        this.cp = cp;
+        this.x = x;
+        var = new int[64];
+        op = new int[64];
+        val = new int[64];
+        size = 0;
+    }
+
+    /**
+     * Adds a decision at the end of the buffer.
+     * The decisions of a node must be added from the left most
+     * to the right most one.
+     *
+     * @param var the index of the variable in the array
+     * @param op the operator, one of {@link #EQ}, {@link #NEQ}, {@link #LEQ}, {@link #GEQ}
+     * @param val the value
+     */
+    public void add(int var, int op, int val) {
+        if (op < EQ || op > GEQ) throw new IllegalArgumentException("unknown operator " + op);
+        if (size == this.var.length) {
+            this.var = Arrays.copyOf(this.var, size * 2);
+            this.op = Arrays.copyOf(this.op, size * 2);
+            this.val = Arrays.copyOf(this.val, size * 2);
+        }
+        this.var[size] = var;
+        this.op[size] = op;
+        this.val[size] = val;
+        size++;
+    }
+
+    /**
+     * Adds the binary decisions {@code x[var] == val} and {@code x[var] != val}.
+     *
+     * @param var the index of the variable in the array
+     * @param val the value
+     */
+    public void addEqualBranches(int var, int val) {
+        add(var, EQ, val);
+        add(var, NEQ, val);
+    }
+
+    /**
+     * Returns the number of decisions in the buffer.
+     *
+     * @return the number of decisions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the decisions at position {@code size} and after.
+     *
+     * @param size the new size of the buffer, {@code 0 <= size <= size()}
+     */
+    public void truncate(int size) {
+        assert (size >= 0 && size <= this.size);
+        this.size = size;
+    }
+
+    /**
+     * Removes all the decisions.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the variable of the decision at the given position.
+     *
+     * @param i the position of the decision, {@code 0 <= i < size()}
+     * @return the index of the variable in {@link #variables()}
+     */
+    public int var(int i) {
+        return var[i];
+    }
+
+    /**
+     * Returns the operator of the decision at the given position.
+     *
+     * @param i the position of the decision, {@code 0 <= i < size()}
+     * @return the operator, one of {@link #EQ}, {@link #NEQ}, {@link #LEQ}, {@link #GEQ}
+     */
+    public int op(int i) {
+        return op[i];
+    }
+
+    /**
+     * Returns the value of the decision at the given position.
+     *
+     * @param i the position of the decision, {@code 0 <= i < size()}
+     * @return the value compared to the variable
+     */
+    public int value(int i) {
+        return val[i];
+    }
+
+    /**
+     * Returns the variables referred to by the decisions.
+     *
+     * @return the variables
+     */
+    public IntVar[] variables() {
+        return x;
+    }
+
+    /**
+     * Applies the decision at the given position and computes the fix-point.
+     * A {@link minicp.util.exception.InconsistencyException} is thrown
+     * if the decision leads to a failure.
+     *
+     * @param i the position of the decision in the buffer
+     */
+    public void apply(int i) {
+        apply(x[var[i]], op[i], val[i]);
+    }
+
+    /**
+     * Applies a decision and computes the fix-point.
+     *
+     * @param xi the variable
+     * @param op the operator, one of {@link #EQ}, {@link #NEQ}, {@link #LEQ}, {@link #GEQ}
+     * @param v the value
+     */
+    public void apply(IntVar xi, int op, int v) {
+        switch (op) {
+            case EQ:
+                xi.assign(v);
+                break;
+            case NEQ:
+                xi.remove(v);
+                break;
+            case LEQ:
+                xi.removeAbove(v);
+                break;
+            case GEQ:
+                xi.removeBelow(v);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown operator " + op);
+        }
+        cp.fixPoint();
+    }
+
+    /**
+     * Returns a readable representation of a decision.
+     *
+     * @param i the position of the decision in the buffer
+     * @return a string of the form {@code x[var] op val}
+     */
+    public String toString(int i) {
+        return "x[" + var[i] + "] " + SYMBOL[op[i]] + " " + val[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) b.append(", ");
+            b.append(toString(i));
+        }
+        return b.append("]").toString();
+    }
+}
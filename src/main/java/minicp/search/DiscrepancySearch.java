@@ -0,0 +1,134 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateManager;
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Iterative Limited Discrepancy Search.
+ * <p>The discrepancy of the branch at index i of a node is i
+ * and the discrepancy of a node is the sum of the discrepancies
+ * of the branches from the root.
+ * Iteration d explores every node of discrepancy d
+ * by diving along the left most branches.
+ * The right branches met during a dive are stored as open nodes
+ * for the iteration of their own discrepancy, such that
+ * every node is explored only once over all the iterations,
+ * unlike a {@link LimitedDiscrepancyBranching} restarted with
+ * increasing limits.
+ * Open nodes are stored as paths and re-established by replay
+ * (see {@link ReplaySearch}).
+ *
+ * <p>Harvey, W. D., & Ginsberg, M. L. (1995).
+ * Limited discrepancy search. In IJCAI (1) (pp. 607-615).
+ */
+public class DiscrepancySearch extends ReplaySearch {
+
+    private final int maxDiscrepancy;
+
+    /**
+     * Creates a discrepancy search.
+     *
+     * @param sm the state manager that is saved and restored
+     *           when moving from one open node to the next one
+     * @param branching a generator of closures in charge of defining the ordered
+     *                  children nodes at each node of the search tree
+     * @param maxDiscrepancy the maximum discrepancy (non negative),
+     *                       the nodes with a larger discrepancy are never explored
+     */
+    public DiscrepancySearch(StateManager sm, Supplier<Procedure[]> branching, int maxDiscrepancy) {
+        super(sm, branching);
+        if (maxDiscrepancy < 0) throw new IllegalArgumentException("max discrepancy should be >= 0");
+        this.maxDiscrepancy = maxDiscrepancy;
+    }
+
+    /**
+     * Creates a discrepancy search with a branching
+     * producing primitive decisions on an array of variables.
+     *
+     * @param cp the solver whose state manager is saved and restored
+     *           when moving from one open node to the next one
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching in charge of adding the ordered decisions
+     *                  of the children of each node
+     * @param maxDiscrepancy the maximum discrepancy (non negative),
+     *                       the nodes with a larger discrepancy are never explored
+     */
+    public DiscrepancySearch(Solver cp, IntVar[] x, DecisionBranching branching, int maxDiscrepancy) {
+        super(cp, x, branching);
+        if (maxDiscrepancy < 0) throw new IllegalArgumentException("max discrepancy should be >= 0");
+        this.maxDiscrepancy = maxDiscrepancy;
+    }
+
+    @Override
+    protected void explore(SearchStatistics statistics, Predicate<SearchStatistics> limit) {
+        int base = sm.getLevel();
+        ArrayList<ArrayDeque<Path>> open = new ArrayList<>();
+        open.add(new ArrayDeque<>());
+        open.get(0).add(ROOT);
+        for (int d = 0; d < open.size(); d++) {
+            ArrayDeque<Path> nodes = open.get(d);
+            while (!nodes.isEmpty()) {
+                if (limit.test(statistics)) throw new StopSearchException();
+                Path node = nodes.poll();
+                sm.restoreStateUntil(base);
+                sm.saveState();
+                try {
+                    if (node != ROOT) {
+                        replay(node.parent());
+                        statistics.incrNodes();
+                        apply(node);
+                    }
+                    dive(node, d, open, statistics, limit);
+                } catch (InconsistencyException e) {
+                    notifyFailure();
+                    statistics.incrFailures();
+                }
+            }
+            open.set(d, null);
+        }
+    }
+
+    private void dive(Path node, int d, ArrayList<ArrayDeque<Path>> open,
+                      SearchStatistics statistics, Predicate<SearchStatistics> limit) {
+        while (true) {
+            if (limit.test(statistics)) throw new StopSearchException();
+            int n = expand();
+            if (n == 0) {
+                statistics.incrSolutions();
+                notifySolution();
+                return;
+            }
+            // defer the right branches to the iteration of their discrepancy
+            for (int i = 1; i < n && d + i <= maxDiscrepancy; i++) {
+                while (open.size() <= d + i) open.add(new ArrayDeque<>());
+                open.get(d + i).add(child(node, i));
+            }
+            statistics.incrNodes();
+            node = child(node, 0);
+            apply(node);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateManager;
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Base class of the search engines that do not explore
+ * the tree in depth first order.
+ * <p>The open nodes of the search tree are stored
+ * as paths from the root, that is the decision of the branch
+ * leading to the node linked to the path of its parent,
+ * such that the siblings share the path of their parent.
+ * A node is re-established by applying again the decisions
+ * of its path from the root, without calling the branching,
+ * such that it is the same node even if the objective
+ * was tightened since it was stored.
+ * The decisions are either the closures generated by a
+ * {@code Supplier<Procedure[]>} branching, that must then apply
+ * the same decision whenever they are called on the same path,
+ * or primitive decisions of a {@link DecisionBranching}.
+ */
+public abstract class ReplaySearch {
+
+    /**
+     * Path from the root to a node of the search tree.
+     */
+    protected static final class Path {
+        private final Path parent;
+        private final int depth;
+        private final Procedure branch; // null for a primitive decision
+        private final int var;
+        private final int op;
+        private final int val;
+
+        private Path(Path parent, Procedure branch, int var, int op, int val) {
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.branch = branch;
+            this.var = var;
+            this.op = op;
+            this.val = val;
+        }
+
+        /**
+         * Returns the path of the parent node.
+         *
+         * @return the path of the parent, null for the root
+         */
+        public Path parent() {
+            return parent;
+        }
+
+        /**
+         * Returns the number of decisions from the root.
+         *
+         * @return the depth of the node
+         */
+        public int depth() {
+            return depth;
+        }
+    }
+
+    /**
+     * The path of the root node, without any decision.
+     */
+    protected static final Path ROOT = new Path(null, null, 0, 0, 0);
+
+    protected final StateManager sm;
+    private final Supplier<Procedure[]> branching;
+    private final DecisionBranching decisionBranching;
+    private final DecisionBuffer decisions;
+    private Procedure[] branches; // branches of the last expanded node
+    private Path[] replayed = new Path[64];
+
+    private List<Procedure> solutionListeners = new LinkedList<Procedure>();
+    private List<Procedure> failureListeners = new LinkedList<Procedure>();
+
+    /**
+     * Creates a search with a given branching
+     * that defines the search tree dynamically.
+     *
+     * @param sm the state manager that is saved and restored
+     *           when moving from one open node to the next one
+     * @param branching a generator of closures in charge of defining the ordered
+     *                  children nodes at each node of the search tree.
+     *                  When it returns an empty array, a solution is found.
+     *                  A failure occurs when a {@link InconsistencyException}
+     *                  is thrown.
+     */
+    protected ReplaySearch(StateManager sm, Supplier<Procedure[]> branching) {
+        this.sm = sm;
+        this.branching = branching;
+        this.decisionBranching = null;
+        this.decisions = null;
+    }
+
+    /**
+     * Creates a search with a branching producing
+     * primitive decisions on an array of variables.
+     *
+     * @param cp the solver whose state manager is saved and restored
+     *           when moving from one open node to the next one
+     * @param x the variables referred to by the indices of the decisions
+     * @param branching a branching in charge of adding the ordered decisions
+     *                  of the children of each node in a {@link DecisionBuffer}.
+     *                  When it adds no decision, a solution is found.
+     */
+    protected ReplaySearch(Solver cp, IntVar[] x, DecisionBranching branching) {
+        this.sm = cp.getStateManager();
+        this.branching = null;
+        this.decisionBranching = branching;
+        this.decisions = new DecisionBuffer(cp, x);
+    }
+
+    /**
+     * Adds a listener that is called on each solution.
+     *
+     * @param listener the closure to be called whenever a solution is found
+     */
+    public void onSolution(Procedure listener) {
+        solutionListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener that is called whenever a failure occurs.
+     *
+     * @param listener the closure to be called whenever a failure occurs
+     */
+    public void onFailure(Procedure listener) {
+        failureListeners.add(listener);
+    }
+
+    protected void notifySolution() {
+        solutionListeners.forEach(s -> s.call());
+    }
+
+    protected void notifyFailure() {
+        failureListeners.forEach(s -> s.call());
+    }
+
+    /**
+     * Explores the search tree from the current state.
+     * The state is restored by the caller once the exploration is over.
+     *
+     * @param statistics the statistics to update
+     * @param limit a predicate called at each node
+     *              that stops the search when it becomes true
+     */
+    protected abstract void explore(SearchStatistics statistics, Predicate<SearchStatistics> limit);
+
+    private SearchStatistics solve(SearchStatistics statistics, Predicate<SearchStatistics> limit) {
+        sm.withNewState(() -> {
+            try {
+                explore(statistics, limit);
+                statistics.setCompleted();
+            } catch (StopSearchException ignored) {
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * Effectively starts the search
+     * looking for every solution.
+     *
+     * @return an object with the statistics on the search
+     */
+    public SearchStatistics solve() {
+        return solve(new SearchStatistics(), stats -> false);
+    }
+
+    /**
+     * Effectively starts the search
+     * with a given predicate called at each node
+     * to stop the search when it becomes true.
+     *
+     * @param limit a predicate called at each node
+     *             that stops the search when it becomes true
+     * @return an object with the statistics on the search
+     */
+    public SearchStatistics solve(Predicate<SearchStatistics> limit) {
+        return solve(new SearchStatistics(), limit);
+    }
+
+    /**
+     * Effectively starts a branch and bound search with a given objective.
+     *
+     * @param obj the objective to optimize that is tightened each
+     *            time a new solution is found
+     * @return an object with the statistics on the search
+     */
+    public SearchStatistics optimize(Objective obj) {
+        return optimize(obj, stats -> false);
+    }
+
+    /**
+     * Effectively starts a branch and bound search with a given objective
+     * and with a given predicate called at each node
+     * to stop the search when it becomes true.
+     * The open nodes that cannot improve the best solution
+     * are discarded as failures when they are replayed.
+     *
+     * @param obj the objective to optimize that is tightened each
+     *            time a new solution is found
+     * @param limit a predicate called at each node
+     *             that stops the search when it becomes true
+     * @return an object with the statistics on the search
+     */
+    public SearchStatistics optimize(Objective obj, Predicate<SearchStatistics> limit) {
+        onSolution(() -> obj.tighten());
+        return solve(new SearchStatistics(), limit);
+    }
+
+    /**
+     * Calls the branching in the current state.
+     * The branches are kept until the next call
+     * to create the paths of the children with {@link #child(Path, int)}.
+     *
+     * @return the number of children of the current node,
+     *         0 if it is a solution
+     */
+    protected int expand() {
+        if (decisionBranching != null) {
+            decisions.clear();
+            decisionBranching.branch(decisions);
+            return decisions.size();
+        }
+        branches = branching.get();
+        return branches.length;
+    }
+
+    /**
+     * Returns the path of a child of the node expanded
+     * by the last call to {@link #expand()}.
+     *
+     * @param path the path of the expanded node
+     * @param branch the index of the branch leading to the child
+     * @return the path of the child node
+     */
+    protected Path child(Path path, int branch) {
+        if (decisionBranching != null)
+            return new Path(path, null, decisions.var(branch), decisions.op(branch), decisions.value(branch));
+        return new Path(path, branches[branch], 0, 0, 0);
+    }
+
+    /**
+     * Applies the last decision of a path and computes the fix-point.
+     * A {@link InconsistencyException} is thrown if it fails.
+     *
+     * @param path the path of a node, other than the root
+     */
+    protected void apply(Path path) {
+        if (path.branch != null)
+            path.branch.call();
+        else
+            decisions.apply(decisions.variables()[path.var], path.op, path.val);
+    }
+
+    /**
+     * Re-establishes a node by applying the decisions of its path
+     * from the current state, that is the state of the root.
+     * A {@link InconsistencyException} is thrown if one
+     * of the decisions fails, for instance because the
+     * objective was tightened since the node was stored.
+     *
+     * @param path the path of the node
+     */
+    protected void replay(Path path) {
+        if (replayed.length < path.depth)
+            replayed = Arrays.copyOf(replayed, path.depth * 2);
+        int k = 0;
+        for (Path p = path; p.parent != null; p = p.parent)
+            replayed[k++] = p;
+        try {
+            while (k > 0)
+                apply(replayed[--k]);
+        } finally {
+            Arrays.fill(replayed, 0, path.depth, null);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Records the search tree explored by a {@link DFSearch}
+ * in a compact binary format that can be re-executed
+ * with a {@link SearchReplayer}.
+ * <p>Each node is recorded in the order it is visited with
+ * its depth, the index of the branch leading to it,
+ * the decision of this branch when the search uses
+ * a {@link DecisionBranching}, and its outcome
+ * ({@link #EXPANDED}, {@link #FAILURE} or {@link #SOLUTION}).
+ * Integers are written as variable length quantities
+ * such that a node typically takes a few bytes.
+ *
+ * @see DFSearch#setRecorder(SearchRecorder)
+ */
+public class SearchRecorder implements Closeable {
+
+    /**
+     * Outcome of a node that has children
+     */
+    public static final int EXPANDED = 0;
+    /**
+     * Outcome of a node that failed
+     */
+    public static final int FAILURE = 1;
+    /**
+     * Outcome of a node that is a solution
+     */
+    public static final int SOLUTION = 2;
+
+    static final int MAGIC = 0x4d435052; // "MCPR"
+    static final int VERSION = 1;
+    static final int DECISION_FLAG = 4;
+
+    private final DataOutputStream out;
+    private long nNodes = 0;
+
+    /**
+     * Creates a recorder writing in a file.
+     *
+     * @param fileName the path of the file, created or overwritten
+     * @throws IOException if the file cannot be opened
+     */
+    public SearchRecorder(String fileName) throws IOException {
+        this(new FileOutputStream(fileName));
+    }
+
+    /**
+     * Creates a recorder writing in a stream.
+     *
+     * @param out the stream, closed with the recorder
+     */
+    public SearchRecorder(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a node reached by a closure branch.
+     *
+     * @param depth the depth of the node, the children of the root have depth 1
+     * @param branch the index of the branch leading to the node
+     * @param outcome the outcome of the node
+     */
+    public void node(int depth, int branch, int outcome) {
+        try {
+            out.writeByte(outcome);
+            writeVarInt(depth);
+            writeVarInt(branch);
+            nNodes++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a node reached by a decision.
+     *
+     * @param depth the depth of the node, the children of the root have depth 1
+     * @param branch the index of the branch leading to the node
+     * @param var the variable index of the decision
+     * @param op the operator of the decision
+     * @param val the value of the decision
+     * @param outcome the outcome of the node
+     * @see DecisionBuffer
+     */
+    public void node(int depth, int branch, int var, int op, int val, int outcome) {
+        try {
+            out.writeByte(outcome | DECISION_FLAG);
+            writeVarInt(depth);
+            writeVarInt(branch);
+            writeVarInt(var);
+            out.writeByte(op);
+            writeVarInt((val << 1) ^ (val >> 31)); // zig-zag encoding of negative values
+            nNodes++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of nodes recorded so far.
+     *
+     * @return the number of nodes recorded
+     */
+    public long numberOfNodes() {
+        return nNodes;
+    }
+
+    private void writeVarInt(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Flushes and closes the underlying stream.
+     */
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
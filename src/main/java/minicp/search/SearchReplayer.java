@@ -0,0 +1,275 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateManager;
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static minicp.search.SearchRecorder.*;
+
+/**
+ * Re-executes a search tree recorded by a {@link SearchRecorder}
+ * against the same model and measures the time
+ * spent in each node, that is the time to apply the branch
+ * and to compute the fix-point.
+ * <p>The nodes are replayed in the order they were recorded,
+ * independently of the branching heuristic when the
+ * decisions were recorded, such that two versions of the
+ * engine can be compared on exactly the same tree.
+ * Recorded closure branches are re-executed by calling
+ * the branching in the parent state, which should then generate
+ * the same branches as during the recording.
+ * A node that cannot be replayed, because its parent was not expanded
+ * or its branch is not generated anymore, is reported as a failure
+ * and is not counted in the statistics.
+ */
+public class SearchReplayer {
+
+    /**
+     * Listener called for each replayed node.
+     */
+    @FunctionalInterface
+    public interface NodeListener {
+        /**
+         * Called once a node has been replayed.
+         *
+         * @param node the index of the node in the recording
+         * @param depth the depth of the node
+         * @param branch the index of the branch leading to the node
+         * @param recorded the recorded outcome of the node
+         * @param replayed the outcome of the node when replayed,
+         *                 a divergence with the recording occurs if it differs from recorded
+         * @param nanos the time in nanoseconds spent to apply the branch
+         *              and compute the fix-point
+         */
+        void node(long node, int depth, int branch, int recorded, int replayed, long nanos);
+    }
+
+    private final StateManager sm;
+    private final Supplier<Procedure[]> branching;
+    private final DecisionBuffer decisions;
+    private final DecisionBranching decisionBranching;
+    private List<Procedure> solutionListeners = new LinkedList<Procedure>();
+
+    /**
+     * Creates a replayer for recordings made with a closure branching.
+     *
+     * @param sm the state manager of the model
+     * @param branching the branching used during the recording
+     */
+    public SearchReplayer(StateManager sm, Supplier<Procedure[]> branching) {
+        this.sm = sm;
+        this.branching = branching;
+        this.decisions = null;
+        this.decisionBranching = null;
+    }
+
+    /**
+     * Creates a replayer for recordings made with a {@link DecisionBranching},
+     * independently of the branching.
+     * A replayed node that does not fail is a solution
+     * if all the variables are bound.
+     *
+     * @param cp the solver of the model
+     * @param x the variables referred to by the recorded decisions
+     */
+    public SearchReplayer(Solver cp, IntVar[] x) {
+        this(cp, x, null);
+    }
+
+    /**
+     * Creates a replayer for recordings made with a {@link DecisionBranching}.
+     * A replayed node that does not fail is a solution
+     * if the branching does not generate any decision.
+     *
+     * @param cp the solver of the model
+     * @param x the variables referred to by the recorded decisions
+     * @param branching the branching used during the recording,
+     *                  or null to consider that the solutions are the nodes
+     *                  where all the variables are bound
+     */
+    public SearchReplayer(Solver cp, IntVar[] x, DecisionBranching branching) {
+        this.sm = cp.getStateManager();
+        this.branching = null;
+        this.decisions = new DecisionBuffer(cp, x);
+        this.decisionBranching = branching;
+    }
+
+    /**
+     * Adds a listener that is called on each replayed solution,
+     * typically to tighten the objective as during the recording.
+     *
+     * @param listener the closure to be called whenever a solution is replayed
+     */
+    public void onSolution(Procedure listener) {
+        solutionListeners.add(listener);
+    }
+
+    /**
+     * Replays a recording stored in a file.
+     *
+     * @param fileName the path of the recording
+     * @param listener the listener called for each replayed node
+     * @return the statistics of the replayed tree
+     * @throws IOException if the file cannot be read
+     */
+    public SearchStatistics replay(String fileName, NodeListener listener) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            return replay(in, listener);
+        }
+    }
+
+    /**
+     * Replays a recording read from a stream.
+     * The state is restored once the replay is over.
+     *
+     * @param in the stream of the recording
+     * @param listener the listener called for each replayed node
+     * @return the statistics of the replayed tree
+     */
+    public SearchStatistics replay(InputStream in, NodeListener listener) {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        SearchStatistics statistics = new SearchStatistics();
+        try {
+            if (data.readInt() != MAGIC || data.readByte() != VERSION)
+                throw new IllegalArgumentException("not a search recording");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sm.withNewState(() -> {
+            replay(data, listener, statistics);
+            statistics.setCompleted();
+        });
+        return statistics;
+    }
+
+    private void replay(DataInputStream data, NodeListener listener, SearchStatistics statistics) {
+        int[] level = new int[64];
+        boolean[] valid = new boolean[64];
+        Procedure[][] branches = new Procedure[64][];
+        level[0] = sm.getLevel();
+        valid[0] = true;
+        boolean rootExpanded = false;
+        long node = 0;
+        while (true) {
+            int tag;
+            int depth, branch, var = 0, op = 0, val = 0;
+            try {
+                tag = data.read();
+                if (tag < 0) return;
+                depth = readVarInt(data);
+                branch = readVarInt(data);
+                if ((tag & DECISION_FLAG) != 0) {
+                    var = readVarInt(data);
+                    op = data.readByte();
+                    int z = readVarInt(data);
+                    val = (z >>> 1) ^ -(z & 1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            boolean isDecision = (tag & DECISION_FLAG) != 0;
+            int recorded = tag & ~DECISION_FLAG;
+            if (depth >= level.length) {
+                level = Arrays.copyOf(level, depth * 2);
+                valid = Arrays.copyOf(valid, depth * 2);
+                branches = Arrays.copyOf(branches, depth * 2);
+            }
+            if (!isDecision && branching == null || isDecision && decisions == null)
+                throw new IllegalStateException("the recording does not match the kind of branching of the replayer");
+
+            if (!isDecision && !rootExpanded) {
+                branches[0] = branching.get();
+                rootExpanded = true;
+            }
+            int replayed = FAILURE;
+            long nanos = 0;
+            valid[depth] = false;
+            if (valid[depth - 1] && (isDecision || branch < branches[depth - 1].length)) {
+                sm.restoreStateUntil(level[depth - 1]);
+                sm.saveState();
+                level[depth] = sm.getLevel();
+                statistics.incrNodes();
+                long t0 = System.nanoTime();
+                try {
+                    if (isDecision) {
+                        decisions.apply(decisions.variables()[var], op, val);
+                        nanos = System.nanoTime() - t0;
+                        replayed = isSolution() ? SOLUTION : EXPANDED;
+                    } else {
+                        branches[depth - 1][branch].call();
+                        nanos = System.nanoTime() - t0;
+                        branches[depth] = branching.get();
+                        replayed = branches[depth].length == 0 ? SOLUTION : EXPANDED;
+                    }
+                    valid[depth] = replayed == EXPANDED;
+                } catch (InconsistencyException e) {
+                    if (nanos == 0) nanos = System.nanoTime() - t0;
+                    statistics.incrFailures();
+                }
+                if (replayed == SOLUTION) {
+                    statistics.incrSolutions();
+                    try {
+                        solutionListeners.forEach(s -> s.call());
+                    } catch (InconsistencyException ignored) {
+                    }
+                }
+            }
+            listener.node(node++, depth, branch, recorded, replayed, nanos);
+        }
+    }
+
+    // true if the current node of a decision recording is a solution
+    private boolean isSolution() {
+        if (decisionBranching != null) {
+            decisions.clear();
+            decisionBranching.branch(decisions);
+            boolean leaf = decisions.size() == 0;
+            decisions.clear();
+            return leaf;
+        }
+        for (IntVar xi : decisions.variables())
+            if (!xi.isBound()) return false;
+        return true;
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        int v = 0;
+        int shift = 0;
+        while (true) {
+            int b = data.read();
+            if (b < 0) throw new EOFException("truncated search recording");
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+        }
+    }
+}
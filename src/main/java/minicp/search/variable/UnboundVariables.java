@@ -0,0 +1,133 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search.variable;
+
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Reversible sparse-set of the unbound variables of an array.
+ * <p>The indices of the unbound variables are kept in the
+ * prefix {@code [0,size)} of an internal array.
+ * Bound variables are swapped out of this prefix the next time
+ * {@link #update()} is called and the size is restored through the
+ * {@link StateManager#saveState()} / {@link StateManager#restoreState()}
+ * methods. A variable selection thus only costs a time proportional to the
+ * number of variables that were still unbound at the parent node
+ * rather than to the length of the array.
+ */
+public class UnboundVariables {
+
+    private final IntVar[] x;
+    private final int[] unbound;
+    private final StateInt nUnbound;
+
+    /**
+     * Creates the set of unbound variables of an array.
+     *
+     * @param sm the state manager that saves/restores the set
+     * @param x the variables to track
+     */
+    public UnboundVariables(StateManager sm, IntVar... x) {
+        this.x = x;
+        this.unbound = new int[x.length];
+        for (int i = 0; i < x.length; i++)
+            unbound[i] = i;
+        this.nUnbound = sm.makeStateInt(x.length);
+    }
+
+    /**
+     * Removes the variables that became bound since the last call
+     * and returns the number of unbound variables.
+     *
+     * @return the number of unbound variables
+     */
+    public int update() {
+        int nU = nUnbound.value();
+        for (int i = nU - 1; i >= 0; i--) {
+            int idx = unbound[i];
+            if (x[idx].isBound()) {
+                unbound[i] = unbound[nU - 1];
+                unbound[nU - 1] = idx;
+                nU--;
+            }
+        }
+        nUnbound.setValue(nU);
+        return nU;
+    }
+
+    /**
+     * Returns the number of variables that were unbound
+     * at the last call to {@link #update()}.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return nUnbound.value();
+    }
+
+    /**
+     * Returns the index in the original array
+     * of the i-th element of the set.
+     *
+     * @param i a position in the set, {@code 0 <= i < size()}
+     * @return the index in the array of the variable at position i
+     */
+    public int index(int i) {
+        return unbound[i];
+    }
+
+    /**
+     * Selects the unbound variable minimizing a function.
+     * Ties are broken by the smallest index in the array such that
+     * the selection is the same as the one of
+     * {@link minicp.cp.BranchingScheme#selectMin(Object[], java.util.function.Predicate, java.util.function.Function)}
+     * on the unbound variables.
+     *
+     * @param f the evaluation function
+     * @return the unbound variable minimizing f or null if every variable is bound
+     */
+    public IntVar selectMin(ToIntFunction<IntVar> f) {
+        int sel = selectMinIndex(f);
+        return sel == -1 ? null : x[sel];
+    }
+
+    /**
+     * Selects the index of the unbound variable minimizing a function.
+     *
+     * @param f the evaluation function
+     * @return the index in the array of the unbound variable minimizing f
+     *         or -1 if every variable is bound
+     * @see #selectMin(ToIntFunction)
+     */
+    public int selectMinIndex(ToIntFunction<IntVar> f) {
+        int nU = update();
+        int sel = -1;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < nU; i++) {
+            int idx = unbound[i];
+            int v = f.applyAsInt(x[idx]);
+            if (sel == -1 || v < best || (v == best && idx < sel)) {
+                sel = idx;
+                best = v;
+            }
+        }
+        return sel;
+    }
+}
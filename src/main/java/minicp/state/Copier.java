@@ -113,6 +113,13 @@ public class Copier implements StateManager {
         return s;
     }
 
+    @Override
+    public StateLong makeStateLong(long initValue) {
+        CopyLong s = new CopyLong(initValue);
+        store.add(s);
+        return s;
+    }
+
     @Override
     public StateMap makeStateMap() {
         CopyMap s = new CopyMap<>();
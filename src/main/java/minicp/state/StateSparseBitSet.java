@@ -28,7 +28,7 @@ public class StateSparseBitSet {
 
     /* Variables used to store value of the bitset */
     private int nWords;
-    private State<Long>[] words;
+    private StateLong[] words;
 
     /* Variables used to make set sparse */
     private int[] nonZeroIdx;
@@ -95,6 +95,19 @@ public class StateSparseBitSet {
                 words[nonZeroIdx[i]] &= other.words[nonZeroIdx[i]];
             }
         }
+
+        /**
+         * Returns the index of the first non-zero word of this bit-set,
+         * considering all the words and not only the non-zero words of the outer sparse-bit-set.
+         *
+         * @return the index of the first non-zero word, -1 if the bit-set is empty
+         */
+        public int firstNonZeroWord() {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i] != 0L) return i;
+            }
+            return -1;
+        }
     }
 
 
@@ -107,8 +120,8 @@ public class StateSparseBitSet {
     public StateSparseBitSet(StateManager sm, int n) {
         nWords = (n + 63) >>> 6; // divided by 64
         //System.out.println("nwords:"+nWords);
-        words = new State[nWords];
-        Arrays.setAll(words, i -> sm.makeStateRef(Long.valueOf(0xFFFFFFFFFFFFFFFFL)));
+        words = new StateLong[nWords];
+        Arrays.setAll(words, i -> sm.makeStateLong(0xFFFFFFFFFFFFFFFFL));
         nonZeroIdx = new int[nWords];
         Arrays.setAll(nonZeroIdx, i -> i);
         nNonZero = sm.makeStateInt(nWords);
@@ -120,18 +133,74 @@ public class StateSparseBitSet {
      * @param bs the sparset-set to intersect with
      */
     public void intersect(BitSet bs) {
-        for (int i = nNonZero.value() - 1; i >= 0; i--) {
-            State<Long> w = words[nonZeroIdx[i]];
+        int n = nNonZero.value();
+        for (int i = n - 1; i >= 0; i--) {
+            StateLong w = words[nonZeroIdx[i]];
             long wn = w.value() & bs.words[nonZeroIdx[i]];
             if (wn == 0L) {
-                nNonZero.decrement();
+                w.setValue(0L);
+                n--;
                 int tmp = nonZeroIdx[i];
-                nonZeroIdx[i] = nonZeroIdx[nNonZero.value()];
-                nonZeroIdx[nNonZero.value()] = tmp;
+                nonZeroIdx[i] = nonZeroIdx[n];
+                nonZeroIdx[n] = tmp;
             } else {
                 w.setValue(wn);
             }
         }
+        nNonZero.setValue(n);
+    }
+
+    /**
+     * Intersect this sparse-set with the complement of bs,
+     * that is removes all the bits set in bs.
+     *
+     * @param bs the bit-set whose bits are removed
+     */
+    public void intersectComplement(BitSet bs) {
+        int n = nNonZero.value();
+        for (int i = n - 1; i >= 0; i--) {
+            StateLong w = words[nonZeroIdx[i]];
+            long wn = w.value() & ~bs.words[nonZeroIdx[i]];
+            if (wn == 0L) {
+                w.setValue(0L);
+                n--;
+                int tmp = nonZeroIdx[i];
+                nonZeroIdx[i] = nonZeroIdx[n];
+                nonZeroIdx[n] = tmp;
+            } else if (wn != w.value()) {
+                w.setValue(wn);
+            }
+        }
+        nNonZero.setValue(n);
+    }
+
+    /**
+     * Checks if the word at a given index has a non empty intersection with bs.
+     * This is typically used with a residue, that is a word index where an
+     * intersection was found previously.
+     *
+     * @param bs the bit-set to intersect with
+     * @param wordIndex the index of the word
+     * @return true if the words at wordIndex of this set and of bs have a common bit
+     */
+    public boolean intersectsAt(BitSet bs, int wordIndex) {
+        return (words[wordIndex].value() & bs.words[wordIndex]) != 0L;
+    }
+
+    /**
+     * Returns the index of a word where this sparse-set has a non empty intersection with bs.
+     *
+     * @param bs the bit-set to intersect with
+     * @return the index of a word with a non empty intersection, -1 if the intersection is empty
+     */
+    public int intersectIndex(BitSet bs) {
+        for (int i = nNonZero.value() - 1; i >= 0; i--) {
+            int idx = nonZeroIdx[i];
+            if ((words[idx].value() & bs.words[idx]) != 0L) {
+                return idx;
+            }
+        }
+        return -1;
     }
 
     public boolean isEmpty() {
@@ -141,7 +210,7 @@ public class StateSparseBitSet {
     public boolean hasEmptyIntersection(BitSet bs) {
         //System.out.println("nonNonZero:"+nNonZero.value());
         for (int i = nNonZero.value() - 1; i >= 0; i--) {
-            State<Long> w = words[nonZeroIdx[i]];
+            StateLong w = words[nonZeroIdx[i]];
             //System.out.println("intersectino word" + nonZeroIdx[i] +" = "+(w.value() & bs.words[nonZeroIdx[i]]));
             if ((w.value() & bs.words[nonZeroIdx[i]]) != 0L) {
                 return false;
@@ -0,0 +1,154 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic finite automaton over integer symbols.
+ * <p>States are identified from 0 to {@link #numberOfStates()}-1
+ * and the transitions are added one by one with
+ * {@link #addTransition(int, int, int)}.
+ * A missing transition leads to a rejection.
+ */
+public class DFA {
+
+    private final int nStates;
+    private final int initial;
+    private final boolean[] isFinal;
+    private final Map<Integer, Integer>[] delta;
+    private final TreeSet<Integer> symbols = new TreeSet<>();
+
+    /**
+     * Creates an automaton without any transition.
+     *
+     * @param nStates the number of states
+     * @param initial the initial state
+     * @param finals the accepting states
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DFA(int nStates, int initial, int... finals) {
+        this.nStates = nStates;
+        checkState(initial);
+        this.initial = initial;
+        isFinal = new boolean[nStates];
+        for (int f : finals) {
+            checkState(f);
+            isFinal[f] = true;
+        }
+        delta = new Map[nStates];
+        for (int s = 0; s < nStates; s++)
+            delta[s] = new HashMap<>();
+    }
+
+    private void checkState(int s) {
+        if (s < 0 || s >= nStates)
+            throw new IllegalArgumentException("invalid state " + s);
+    }
+
+    /**
+     * Adds a transition, replacing the previous one from the same state on the same symbol.
+     *
+     * @param from the origin state
+     * @param symbol the symbol read
+     * @param to the destination state
+     */
+    public void addTransition(int from, int symbol, int to) {
+        checkState(from);
+        checkState(to);
+        delta[from].put(symbol, to);
+        symbols.add(symbol);
+    }
+
+    /**
+     * Returns the state reached from a state by reading a symbol.
+     *
+     * @param state the origin state
+     * @param symbol the symbol read
+     * @return the destination state, -1 if there is no such transition
+     */
+    public int next(int state, int symbol) {
+        Integer to = delta[state].get(symbol);
+        return to == null ? -1 : to;
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return the number of states
+     */
+    public int numberOfStates() {
+        return nStates;
+    }
+
+    /**
+     * Returns the initial state.
+     *
+     * @return the initial state
+     */
+    public int initialState() {
+        return initial;
+    }
+
+    /**
+     * Checks if a state is accepting.
+     *
+     * @param state the state
+     * @return true if the state is accepting
+     */
+    public boolean isFinal(int state) {
+        return isFinal[state];
+    }
+
+    /**
+     * Returns the symbols appearing in at least one transition.
+     *
+     * @return the symbols in increasing order
+     */
+    public int[] symbols() {
+        return symbols.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Checks if a word is accepted.
+     *
+     * @param word the sequence of symbols
+     * @return true if reading the word from the initial state ends in an accepting state
+     */
+    public boolean accepts(int... word) {
+        int s = initial;
+        for (int a : word) {
+            s = next(s, a);
+            if (s < 0) return false;
+        }
+        return isFinal[s];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("DFA(initial=" + initial + ", finals=");
+        int[] finals = IntStream.range(0, nStates).filter(s -> isFinal[s]).toArray();
+        b.append(Arrays.toString(finals));
+        for (int s = 0; s < nStates; s++)
+            for (Map.Entry<Integer, Integer> t : delta[s].entrySet())
+                b.append(", ").append(s).append("-").append(t.getKey()).append("->").append(t.getValue());
+        return b.append(")").toString();
+    }
+}
@@ -16,8 +16,6 @@
 package minicp.util;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiConsumer;
 
 /**
  * Algorithms and Graph interface
@@ -136,6 +134,680 @@ public class GraphUtil {
         }
     }
 
+    /**
+     * Directed graph with a compressed sparse row (CSR) adjacency in int arrays.
+     * <p>The graph is filled by calling {@link #clear(int)},
+     * {@link #addEdge(int, int)} for each edge and then {@link #build()}.
+     * The arrays are reused when the graph is cleared and only grow when needed
+     * such that rebuilding the graph at each propagation does not allocate.
+     * The successors of a node u are iterated with
+     * <pre>
+     * {@code
+     * for (int e = g.begin(u); e < g.end(u); e++) {
+     *     int v = g.head(e);
+     * }
+     * }
+     * </pre>
+     */
+    public static class CSRGraph {
+
+        private int n;
+        private int m;
+        private int[] tails;
+        private int[] heads; // heads of the edges in the order they were added
+        private int[] weights; // weights of the edges in the order they were added
+        private int[] start; // out edges of u are adj[start[u]..start[u+1]-1]
+        private int[] adj;
+        private int[] adjWeight;
+
+        /**
+         * Creates an empty graph.
+         *
+         * @param n the number of nodes, identified from 0 to n-1
+         */
+        public CSRGraph(int n) {
+            tails = new int[16];
+            heads = new int[16];
+            weights = new int[16];
+            adj = new int[16];
+            adjWeight = new int[16];
+            start = new int[n + 1];
+            clear(n);
+        }
+
+        /**
+         * Removes all the edges.
+         *
+         * @param n the new number of nodes
+         */
+        public void clear(int n) {
+            this.n = n;
+            this.m = 0;
+            if (start.length < n + 1) start = new int[n + 1];
+            Arrays.fill(start, 0, n + 1, 0);
+        }
+
+        /**
+         * Adds an edge, the adjacency is updated by {@link #build()}.
+         *
+         * @param u the tail of the edge
+         * @param v the head of the edge
+         */
+        public void addEdge(int u, int v) {
+            addEdge(u, v, 0);
+        }
+
+        /**
+         * Adds a weighted edge, the adjacency is updated by {@link #build()}.
+         *
+         * @param u the tail of the edge
+         * @param v the head of the edge
+         * @param w the weight of the edge
+         */
+        public void addEdge(int u, int v, int w) {
+            if (m == tails.length) {
+                tails = Arrays.copyOf(tails, m * 2);
+                heads = Arrays.copyOf(heads, m * 2);
+                weights = Arrays.copyOf(weights, m * 2);
+            }
+            tails[m] = u;
+            heads[m] = v;
+            weights[m] = w;
+            m++;
+        }
+
+        /**
+         * Computes the adjacency from the edges added since the last {@link #clear(int)}.
+         * The successors of each node are in the order the edges were added.
+         */
+        public void build() {
+            if (adj.length < m) {
+                adj = new int[tails.length];
+                adjWeight = new int[tails.length];
+            }
+            for (int e = 0; e < m; e++) start[tails[e] + 1]++;
+            for (int u = 0; u < n; u++) start[u + 1] += start[u];
+            for (int e = 0; e < m; e++) {
+                int k = start[tails[e]]++;
+                adj[k] = heads[e];
+                adjWeight[k] = weights[e];
+            }
+            for (int u = n; u > 0; u--) start[u] = start[u - 1];
+            start[0] = 0;
+        }
+
+        /**
+         * @return the number of nodes, identified from 0 to n-1
+         */
+        public int n() {
+            return n;
+        }
+
+        /**
+         * @return the number of edges
+         */
+        public int m() {
+            return m;
+        }
+
+        /**
+         * @param u a node
+         * @return the index of the first out edge of u
+         */
+        public int begin(int u) {
+            return start[u];
+        }
+
+        /**
+         * @param u a node
+         * @return one plus the index of the last out edge of u
+         */
+        public int end(int u) {
+            return start[u + 1];
+        }
+
+        /**
+         * @param e the index of an edge, between begin(u) and end(u)-1 for some node u
+         * @return the head of the edge
+         */
+        public int head(int e) {
+            return adj[e];
+        }
+
+        /**
+         * @param e the index of an edge, between begin(u) and end(u)-1 for some node u
+         * @return the weight of the edge, 0 if it was added without weight
+         */
+        public int weight(int e) {
+            return adjWeight[e];
+        }
+
+        /**
+         * Fills a graph with the reverse of every edge of this graph.
+         *
+         * @param reversed the graph to fill, it is cleared and built
+         */
+        public void reverse(CSRGraph reversed) {
+            reversed.clear(n);
+            for (int e = 0; e < m; e++)
+                reversed.addEdge(heads[e], tails[e], weights[e]);
+            reversed.build();
+        }
+    }
+
+    /**
+     * Iterative breadth first search, depth first search and topological sort
+     * on a {@link CSRGraph}, without allocation once the buffers
+     * reached the size of the largest graph.
+     */
+    public static class Traversal {
+
+        private int[] queue = new int[0];
+        private int[] next = new int[0]; // next out edge to visit
+        private int[] mark = new int[0];
+        private int magic = 0;
+
+        private void ensureCapacity(int n) {
+            if (queue.length < n) {
+                queue = new int[n];
+                next = new int[n];
+                mark = new int[n];
+                magic = 0;
+            }
+            if (++magic == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                magic = 1;
+            }
+        }
+
+        /**
+         * Breadth first search.
+         *
+         * @param g the graph
+         * @param source the node from which the search starts
+         * @param order receives the reached nodes by increasing distance, of size at least {@code g.n()}
+         * @param dist receives the number of edges of a shortest path from the source
+         *             for each node, -1 if it is not reached, of size at least {@code g.n()}
+         * @return the number of reached nodes
+         */
+        public int bfs(CSRGraph g, int source, int[] order, int[] dist) {
+            int n = g.n();
+            Arrays.fill(dist, 0, n, -1);
+            int head = 0;
+            int tail = 0;
+            order[tail++] = source;
+            dist[source] = 0;
+            while (head < tail) {
+                int u = order[head++];
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.head(e);
+                    if (dist[v] < 0) {
+                        dist[v] = dist[u] + 1;
+                        order[tail++] = v;
+                    }
+                }
+            }
+            return tail;
+        }
+
+        /**
+         * Depth first search.
+         *
+         * @param g the graph
+         * @param source the node from which the search starts
+         * @param preorder receives the reached nodes in the order they are discovered,
+         *                 of size at least {@code g.n()}
+         * @return the number of reached nodes
+         */
+        public int dfs(CSRGraph g, int source, int[] preorder) {
+            ensureCapacity(g.n());
+            int[] stack = queue;
+            int sp = 0;
+            int count = 0;
+            stack[sp++] = source;
+            mark[source] = magic;
+            next[source] = g.begin(source);
+            preorder[count++] = source;
+            while (sp > 0) {
+                int u = stack[sp - 1];
+                if (next[u] < g.end(u)) {
+                    int v = g.head(next[u]++);
+                    if (mark[v] != magic) {
+                        mark[v] = magic;
+                        next[v] = g.begin(v);
+                        preorder[count++] = v;
+                        stack[sp++] = v;
+                    }
+                } else {
+                    sp--;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Checks if a path exists between two nodes.
+         *
+         * @param g the graph
+         * @param source the first node of the path
+         * @param target the last node of the path
+         * @return true if a directed path from source to target exists
+         */
+        public boolean pathExists(CSRGraph g, int source, int target) {
+            ensureCapacity(g.n());
+            int[] stack = queue;
+            int sp = 0;
+            stack[sp++] = source;
+            mark[source] = magic;
+            while (sp > 0) {
+                int u = stack[--sp];
+                if (u == target) return true;
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.head(e);
+                    if (mark[v] != magic) {
+                        mark[v] = magic;
+                        stack[sp++] = v;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Topological sort (Kahn algorithm).
+         *
+         * @param g the graph
+         * @param order receives the nodes such that every edge goes from a node
+         *              to a later one, of size at least {@code g.n()}
+         * @return true if the graph is acyclic, false otherwise
+         *         in which case order is only partially filled
+         */
+        public boolean topologicalSort(CSRGraph g, int[] order) {
+            int n = g.n();
+            ensureCapacity(n);
+            int[] inDegree = next;
+            Arrays.fill(inDegree, 0, n, 0);
+            for (int u = 0; u < n; u++)
+                for (int e = g.begin(u); e < g.end(u); e++)
+                    inDegree[g.head(e)]++;
+            int head = 0;
+            int tail = 0;
+            for (int u = 0; u < n; u++)
+                if (inDegree[u] == 0) order[tail++] = u;
+            while (head < tail) {
+                int u = order[head++];
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.head(e);
+                    if (--inDegree[v] == 0) order[tail++] = v;
+                }
+            }
+            return tail == n;
+        }
+    }
+
+    /**
+     * Single source shortest paths on the weights of a {@link CSRGraph},
+     * without allocation once the buffers reached the size of the largest graph.
+     * Unreachable nodes have a distance {@link #INFINITY}.
+     */
+    public static class ShortestPaths {
+
+        /**
+         * Distance of the unreachable nodes
+         */
+        public static final long INFINITY = Long.MAX_VALUE;
+
+        private int[] heap = new int[0]; // binary heap of nodes ordered by distance
+        private int[] position = new int[0]; // position of a node in the heap, -1 if absent
+        private int[] order = new int[0];
+        private final Traversal traversal = new Traversal();
+        private long[] dist;
+
+        /**
+         * Dijkstra algorithm, the weights must be non negative.
+         *
+         * @param g the graph
+         * @param source the source node
+         * @param dist receives the length of a shortest path from the source to each node,
+         *             of size at least {@code g.n()}
+         * @param pred receives the predecessor of each node on a shortest path,
+         *             -1 for the source and the unreachable nodes,
+         *             of size at least {@code g.n()}, can be null
+         */
+        public void dijkstra(CSRGraph g, int source, long[] dist, int[] pred) {
+            int n = g.n();
+            if (heap.length < n) {
+                heap = new int[n];
+                position = new int[n];
+            }
+            this.dist = dist;
+            Arrays.fill(dist, 0, n, INFINITY);
+            Arrays.fill(position, 0, n, -1);
+            if (pred != null) Arrays.fill(pred, 0, n, -1);
+            int size = 0;
+            dist[source] = 0;
+            heap[size] = source;
+            position[source] = size++;
+            while (size > 0) {
+                int u = heap[0];
+                position[u] = -1;
+                size--;
+                if (size > 0) {
+                    heap[0] = heap[size];
+                    position[heap[0]] = 0;
+                    siftDown(0, size);
+                }
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.head(e);
+                    long d = dist[u] + g.weight(e);
+                    if (d < dist[v]) {
+                        if (dist[v] == INFINITY) {
+                            heap[size] = v;
+                            position[v] = size++;
+                        }
+                        dist[v] = d;
+                        if (pred != null) pred[v] = u;
+                        siftUp(position[v]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Shortest paths in a directed acyclic graph, the weights can be negative.
+         *
+         * @param g the acyclic graph
+         * @param source the source node
+         * @param dist receives the length of a shortest path from the source to each node,
+         *             of size at least {@code g.n()}
+         * @param pred receives the predecessor of each node on a shortest path,
+         *             -1 for the source and the unreachable nodes,
+         *             of size at least {@code g.n()}, can be null
+         * @throws IllegalArgumentException if the graph has a cycle
+         */
+        public void dagShortestPaths(CSRGraph g, int source, long[] dist, int[] pred) {
+            int n = g.n();
+            if (order.length < n) order = new int[n];
+            if (!traversal.topologicalSort(g, order))
+                throw new IllegalArgumentException("the graph has a cycle");
+            Arrays.fill(dist, 0, n, INFINITY);
+            if (pred != null) Arrays.fill(pred, 0, n, -1);
+            dist[source] = 0;
+            for (int k = 0; k < n; k++) {
+                int u = order[k];
+                if (dist[u] == INFINITY) continue;
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.head(e);
+                    long d = dist[u] + g.weight(e);
+                    if (d < dist[v]) {
+                        dist[v] = d;
+                        if (pred != null) pred[v] = u;
+                    }
+                }
+            }
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (dist[heap[p]] <= dist[v]) break;
+                heap[i] = heap[p];
+                position[heap[i]] = i;
+                i = p;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private void siftDown(int i, int size) {
+            int v = heap[i];
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) break;
+                if (c + 1 < size && dist[heap[c + 1]] < dist[heap[c]]) c++;
+                if (dist[v] <= dist[heap[c]]) break;
+                heap[i] = heap[c];
+                position[heap[i]] = i;
+                i = c;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+
+    /**
+     * Iterative version of the Tarjan algorithm computing the strongly connected components
+     * of a {@link CSRGraph}, without recursion nor allocation once the buffers
+     * reached the size of the largest graph.
+     */
+    public static class Tarjan {
+
+        private int[] index = new int[0];
+        private int[] low = new int[0];
+        private int[] next = new int[0]; // next out edge to visit
+        private int[] stack = new int[0];
+        private int[] calls = new int[0];
+        private boolean[] onStack = new boolean[0];
+
+        /**
+         * Computes the strongly connected components.
+         * The components are numbered in reverse topological order,
+         * that is an edge between two components goes from a larger
+         * number to a smaller or equal one.
+         *
+         * @param g the graph
+         * @param component the array receiving the component of each node,
+         *                  of size at least {@code g.n()}
+         * @return the number of components
+         */
+        public int run(CSRGraph g, int[] component) {
+            int n = g.n();
+            if (index.length < n) {
+                index = new int[n];
+                low = new int[n];
+                next = new int[n];
+                stack = new int[n];
+                calls = new int[n];
+                onStack = new boolean[n];
+            }
+            Arrays.fill(index, 0, n, -1);
+            int counter = 0;
+            int nComponents = 0;
+            int sp = 0;
+            for (int s = 0; s < n; s++) {
+                if (index[s] >= 0) continue;
+                int cs = 0;
+                index[s] = low[s] = counter++;
+                next[s] = g.begin(s);
+                stack[sp++] = s;
+                onStack[s] = true;
+                calls[cs++] = s;
+                while (cs > 0) {
+                    int u = calls[cs - 1];
+                    if (next[u] < g.end(u)) {
+                        int v = g.head(next[u]++);
+                        if (index[v] < 0) {
+                            index[v] = low[v] = counter++;
+                            next[v] = g.begin(v);
+                            stack[sp++] = v;
+                            onStack[v] = true;
+                            calls[cs++] = v;
+                        } else if (onStack[v] && index[v] < low[u]) {
+                            low[u] = index[v];
+                        }
+                    } else {
+                        cs--;
+                        if (low[u] == index[u]) {
+                            int w;
+                            do {
+                                w = stack[--sp];
+                                onStack[w] = false;
+                                component[w] = nComponents;
+                            } while (w != u);
+                            nComponents++;
+                        }
+                        if (cs > 0) {
+                            int p = calls[cs - 1];
+                            if (low[u] < low[p]) low[p] = low[u];
+                        }
+                    }
+                }
+            }
+            return nComponents;
+        }
+    }
+
+    /**
+     * Dominator tree of a {@link CSRGraph} from a root node,
+     * without allocation once the buffers reached the size of the largest graph.
+     * A node d dominates a node v if every path from the root to v goes through d,
+     * every node dominates itself.
+     * <p>The immediate dominators are computed with the iterative algorithm
+     * of Cooper, Harvey and Kennedy that is fast in practice on small
+     * and medium graphs, then the tree is numbered
+     * to answer the dominance queries in constant time.
+     *
+     * <p>Cooper, K. D., Harvey, T. J., &amp; Kennedy, K. (2001).
+     * A simple, fast dominance algorithm. Software Practice &amp; Experience, 4(1-10).
+     */
+    public static class Dominators {
+
+        private int[] idom = new int[0];
+        private int[] postorder = new int[0]; // reached nodes in depth first postorder
+        private int[] number = new int[0]; // index in postorder, -1 if not reached
+        private int[] next = new int[0];
+        private int[] stack = new int[0];
+        private int[] first = new int[0]; // children of u in the tree are children[first[u]..first[u+1]-1]
+        private int[] children = new int[0];
+        private int[] pre = new int[0]; // preorder in the tree
+        private int[] last = new int[0]; // largest preorder in the subtree
+
+        /**
+         * Computes the dominator tree.
+         *
+         * @param g the graph
+         * @param reversed the reverse of g, see {@link CSRGraph#reverse(CSRGraph)}
+         * @param root the root of the paths
+         * @return the number of nodes reachable from the root
+         */
+        public int run(CSRGraph g, CSRGraph reversed, int root) {
+            int n = g.n();
+            if (idom.length < n) {
+                idom = new int[n];
+                postorder = new int[n];
+                number = new int[n];
+                next = new int[n];
+                stack = new int[n];
+                first = new int[n + 1];
+                children = new int[n];
+                pre = new int[n];
+                last = new int[n];
+            }
+            // depth first postorder, -2 marks the nodes on the stack
+            Arrays.fill(number, 0, n, -1);
+            int count = 0;
+            int sp = 0;
+            stack[sp++] = root;
+            number[root] = -2;
+            next[root] = g.begin(root);
+            while (sp > 0) {
+                int u = stack[sp - 1];
+                if (next[u] < g.end(u)) {
+                    int v = g.head(next[u]++);
+                    if (number[v] == -1) {
+                        number[v] = -2;
+                        next[v] = g.begin(v);
+                        stack[sp++] = v;
+                    }
+                } else {
+                    sp--;
+                    number[u] = count;
+                    postorder[count++] = u;
+                }
+            }
+            // immediate dominators by reverse postorder until the fix-point
+            Arrays.fill(idom, 0, n, -1);
+            idom[root] = root;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int k = count - 2; k >= 0; k--) {
+                    int v = postorder[k];
+                    int d = -1;
+                    for (int e = reversed.begin(v); e < reversed.end(v); e++) {
+                        int p = reversed.head(e);
+                        if (idom[p] >= 0) d = d < 0 ? p : intersect(p, d);
+                    }
+                    if (idom[v] != d) {
+                        idom[v] = d;
+                        changed = true;
+                    }
+                }
+            }
+            // preorder numbering of the tree for the dominance queries
+            Arrays.fill(first, 0, n + 1, 0);
+            for (int k = 0; k < count - 1; k++) first[idom[postorder[k]] + 1]++;
+            for (int u = 0; u < n; u++) first[u + 1] += first[u];
+            for (int k = 0; k < count - 1; k++) {
+                int v = postorder[k];
+                children[first[idom[v]]++] = v;
+            }
+            for (int u = n; u > 0; u--) first[u] = first[u - 1];
+            first[0] = 0;
+            int counter = 0;
+            sp = 0;
+            stack[sp++] = root;
+            pre[root] = counter++;
+            next[root] = first[root];
+            while (sp > 0) {
+                int u = stack[sp - 1];
+                if (next[u] < first[u + 1]) {
+                    int v = children[next[u]++];
+                    pre[v] = counter++;
+                    next[v] = first[v];
+                    stack[sp++] = v;
+                } else {
+                    sp--;
+                    last[u] = counter - 1;
+                }
+            }
+            return count;
+        }
+
+        private int intersect(int a, int b) {
+            while (a != b) {
+                while (number[a] < number[b]) a = idom[a];
+                while (number[b] < number[a]) b = idom[b];
+            }
+            return a;
+        }
+
+        /**
+         * Returns the immediate dominator of a node from the last {@link #run(CSRGraph, CSRGraph, int)}.
+         *
+         * @param v a node
+         * @return the immediate dominator of v, the root for the root
+         *         and -1 if v is not reachable from the root
+         */
+        public int idom(int v) {
+            return idom[v];
+        }
+
+        /**
+         * Checks the dominance between two nodes from the last {@link #run(CSRGraph, CSRGraph, int)}.
+         *
+         * @param d a node
+         * @param v a node
+         * @return true if both nodes are reachable from the root
+         *         and every path from the root to v goes through d
+         */
+        public boolean dominates(int d, int v) {
+            if (number[d] < 0 || number[v] < 0) return false;
+            return pre[d] <= pre[v] && pre[v] <= last[d];
+        }
+    }
+
     /**
      * Transpose the graph i.e. every edge is reversed.
      *
@@ -170,64 +842,11 @@ public class GraphUtil {
      *          components it belongs to
      */
     public static int[] stronglyConnectedComponents(Graph graph) {
-        //Compute the suffix order
-        Stack<Integer> firstOrder = new Stack<>();
-        int[] visited = new int[graph.n()];
-        Arrays.fill(visited, 0);
-        for (int i = 0; i < graph.n(); i++) {
-            if (visited[i] == 0) {
-                dfsNode(graph, (suffix, b) -> {
-                    if (suffix) firstOrder.push(b);
-                }, visited, i);
-            }
-        }
-
-        //Reverse the order, and do the dfs of the transposed graph
-        Arrays.fill(visited, 0);
         int[] scc = new int[graph.n()];
-        AtomicInteger cpt = new AtomicInteger(0);
-        Graph tranposed = GraphUtil.transpose(graph);
-
-        while (!firstOrder.empty()) {
-            int next = firstOrder.pop();
-            if (visited[next] == 0) {
-                cpt.incrementAndGet();
-                dfsNode(tranposed, (suffix, x) -> {
-                    if (!suffix) scc[x] = cpt.get();
-                }, visited, next);
-            }
-        }
+        new Tarjan().run(toCSR(graph), scc);
         return scc;
     }
 
-    private static void dfsNode(Graph graph, BiConsumer<Boolean, Integer> action, int[] visited, int start) {
-        Stack<Integer> todo = new Stack<>();
-        todo.add(start);
-
-        // seen = 1
-        // visited = 2
-        // closed = 3
-        while (!todo.isEmpty()) {
-            int cur = todo.peek();
-            if (visited[cur] == 0) {
-                visited[cur] = 1; //seen
-                action.accept(false, cur);
-                for (int next : graph.out(cur)) {
-                    if (visited[next] == 0) {
-                        todo.add(next);
-                    }
-                }
-                visited[cur] = 2; //visited
-            } else if (visited[cur] == 2) {
-                action.accept(true, cur);
-                visited[cur] = 3; //closed
-                todo.pop();
-            }
-            else
-                todo.pop();
-        }
-    }
-
     /**
      * Checks if a path exists between start and end
      * @param graph
@@ -236,9 +855,21 @@ public class GraphUtil {
      * @return true if a directed path from start to end exists, false otherwise
      */
     public static boolean pathExists(Graph graph, int start, int end) {
-        int[] visited = new int[graph.n()];
-        Arrays.fill(visited, 0);
-        dfsNode(graph,(v,n) -> {},visited,start);
-        return visited[end] != 0;
+        return new Traversal().pathExists(toCSR(graph), start, end);
+    }
+
+    /**
+     * Copies a graph in a {@link CSRGraph}.
+     *
+     * @param graph a graph
+     * @return the graph with the same edges in CSR form
+     */
+    public static CSRGraph toCSR(Graph graph) {
+        CSRGraph g = new CSRGraph(graph.n());
+        for (int u = 0; u < graph.n(); u++)
+            for (int v : graph.out(u))
+                g.addEdge(u, v);
+        g.build();
+        return g;
     }
 }
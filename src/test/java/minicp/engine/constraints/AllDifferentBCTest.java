@@ -0,0 +1,171 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class AllDifferentBCTest extends SolverTest {
+
+    @Test
+    public void hallIntervalTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 4),
+                makeIntVar(cp, 2, 5)};
+        cp.post(allDifferentBC(x));
+        assertEquals(3, x[2].min());
+        assertEquals(3, x[3].min());
+        assertEquals(4, x[2].max());
+
+        cp.post(lessOrEqual(x[3], 4));
+        // [1,4] is a Hall interval
+        assertEquals(3, x[2].min());
+        assertEquals(3, x[3].min());
+    }
+
+    @Test
+    public void upperBoundTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 5, 6),
+                makeIntVar(cp, 5, 6),
+                makeIntVar(cp, 0, 6)};
+        cp.post(allDifferentBC(x));
+        assertEquals(4, x[2].max());
+    }
+
+    @Test
+    public void failureTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 3),
+                makeIntVar(cp, 1, 3),
+                makeIntVar(cp, 2, 3),
+                makeIntVar(cp, 1, 2)};
+        try {
+            cp.post(allDifferentBC(x));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void defaultForLargeDomains() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 100, 100);
+        assertTrue(allDifferent(x) instanceof AllDifferentBC);
+        assertTrue(allDifferent(makeIntVarArray(cp, 5, 5)) instanceof AllDifferentFW);
+    }
+
+    @Test
+    public void defaultNotWeakerThanForwardChecking() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 100);
+        cp.post(allDifferent(x));
+        x[0].assign(50);
+        cp.fixPoint();
+        for (int i = 1; i < 3; i++) {
+            assertFalse(x[i].contains(50));
+            assertEquals(99, x[i].size());
+        }
+    }
+
+    private static boolean supported(int[] lo, int[] hi, int i, int v) {
+        int[] val = new int[lo.length];
+        val[i] = v;
+        return assign(lo, hi, val, i, i == 0 ? 1 : 0);
+    }
+
+    // tries to assign the variables from k in their interval, all different from each other
+    private static boolean assign(int[] lo, int[] hi, int[] val, int fixed, int k) {
+        if (k == lo.length) return true;
+        if (k == fixed) return assign(lo, hi, val, fixed, k + 1);
+        for (int v = lo[k]; v <= hi[k]; v++) {
+            boolean used = false;
+            for (int j = 0; j < k; j++) used |= val[j] == v;
+            if (v == val[fixed]) used = true;
+            if (used) continue;
+            val[k] = v;
+            if (assign(lo, hi, val, fixed, k + 1)) return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void randomBoundsConsistencyTest() {
+        Random rand = new Random(2003);
+        for (int iter = 0; iter < 300; iter++) {
+            int n = 2 + rand.nextInt(5);
+            int[] lo = new int[n];
+            int[] hi = new int[n];
+            for (int i = 0; i < n; i++) {
+                lo[i] = rand.nextInt(8);
+                hi[i] = lo[i] + rand.nextInt(4);
+            }
+            boolean feasible = false;
+            for (int v = lo[0]; v <= hi[0]; v++) feasible |= supported(lo, hi, 0, v);
+            Solver cp = solverFactory.get();
+            IntVar[] x = new IntVar[n];
+            for (int i = 0; i < n; i++) x[i] = makeIntVar(cp, lo[i], hi[i]);
+            try {
+                cp.post(allDifferentBC(x));
+                assertTrue(feasible);
+                for (int i = 0; i < n; i++) {
+                    assertTrue(supported(lo, hi, i, x[i].min()));
+                    assertTrue(supported(lo, hi, i, x[i].max()));
+                    if (x[i].min() > lo[i]) assertFalse(supported(lo, hi, i, x[i].min() - 1));
+                    if (x[i].max() < hi[i]) assertFalse(supported(lo, hi, i, x[i].max() + 1));
+                }
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                Solver cp2 = solverFactory.get();
+                IntVar[] y = new IntVar[n];
+                for (int i = 0; i < n; i++) y[i] = makeIntVar(cp2, lo[i], hi[i]);
+                cp2.post(new AllDifferentFW(y));
+                assertEquals(makeDfs(cp2, firstFail(y)).solve().numberOfSolutions(), stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertFalse(feasible);
+            }
+        }
+    }
+
+    @Test
+    public void reversedBoundsTest() {
+        // the bounds are in the reverse order of the variables
+        // such that the insertion sort falls back to a full sort
+        int n = 16;
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[n];
+        for (int i = 0; i < n; i++) x[i] = makeIntVar(cp, n - 1 - i, n - 1);
+        cp.post(allDifferentBC(x));
+        for (int i = 0; i < n; i++) {
+            assertTrue(x[i].isBound());
+            assertEquals(n - 1 - i, x[i].min());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.and;
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class BinPackingTest extends SolverTest {
+
+    @Test
+    public void testLoadSizeReasoning() {
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] bin = makeIntVarArray(cp, 3, 2);
+            IntVar[] load = makeIntVarArray(cp, 2, 0, 5);
+            cp.post(binPacking(bin, new int[]{4, 3, 2}, load));
+            // the total size is 9, such that each bin has a load of at least 4
+            assertEquals(4, load[0].min());
+            assertEquals(4, load[1].min());
+            bin[0].assign(0);
+            cp.fixPoint();
+            assertTrue(bin[1].isBound());
+            assertEquals(1, bin[1].min());
+            // 4 + 2 > 5, so the last item is with the one of size 3
+            assertTrue(bin[2].isBound());
+            assertEquals(1, bin[2].min());
+            assertEquals(4, load[0].min());
+            assertEquals(5, load[1].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testKnapsackReasoning() {
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] bin = makeIntVarArray(cp, 4, 2);
+            IntVar[] load = new IntVar[]{makeIntVar(cp, 5, 5), makeIntVar(cp, 0, 20)};
+            cp.post(binPacking(bin, new int[]{4, 4, 3, 3}, load));
+            // no subset of {4, 4, 3, 3} sums to 5
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] bin = makeIntVarArray(cp, 4, 2);
+            IntVar[] load = new IntVar[]{makeIntVar(cp, 5, 7), makeIntVar(cp, 0, 20)};
+            cp.post(binPacking(bin, new int[]{4, 4, 3, 3}, load));
+            // the subsets sum to 0, 3, 4, 6, 7, 8, ...
+            assertEquals(6, load[0].min());
+            assertEquals(7, load[0].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testLowerBoundL2() {
+        try {
+            Solver cp = solverFactory.get();
+            // three items larger than half of the capacity need three bins
+            IntVar[] bin = makeIntVarArray(cp, 3, 2);
+            IntVar[] load = makeIntVarArray(cp, 2, 0, 10);
+            cp.post(binPacking(bin, new int[]{6, 6, 6}, load));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testSameSolutionsAsDecomposition() {
+        try {
+            Random rand = new Random(0);
+            for (int iter = 0; iter < 50; iter++) {
+                int nItems = 3 + rand.nextInt(4);
+                int nBins = 2 + rand.nextInt(3);
+                int[] size = new int[nItems];
+                for (int i = 0; i < nItems; i++) size[i] = rand.nextInt(8);
+                int capa = 5 + rand.nextInt(10);
+                int minLoad = rand.nextInt(5);
+                assertEquals(countSolutions(size, nBins, minLoad, capa, true),
+                        countSolutions(size, nBins, minLoad, capa, false));
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    private int countSolutions(int[] size, int nBins, int minLoad, int capa, boolean global) {
+        Solver cp = solverFactory.get();
+        IntVar[] bin = makeIntVarArray(cp, size.length, nBins);
+        IntVar[] load = makeIntVarArray(cp, nBins, minLoad, capa);
+        try {
+            if (global) {
+                cp.post(binPacking(bin, size, load));
+            } else {
+                for (int j = 0; j < nBins; j++) {
+                    IntVar[] inBin = new IntVar[size.length];
+                    for (int i = 0; i < size.length; i++)
+                        inBin[i] = mul(isEqual(bin[i], j), size[i]);
+                    cp.post(sum(inBin, load[j]));
+                }
+            }
+            DFSearch dfs = makeDfs(cp, and(firstFail(bin), firstFail(load)));
+            SearchStatistics stats = dfs.solve();
+            return stats.numberOfSolutions();
+        } catch (InconsistencyException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class CardinalityTest extends SolverTest {
+
+    @Test
+    public void simpleTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        // value 0 exactly 2 times, value 1 at most once
+        cp.post(cardinality(x, new int[]{0, 1}, new int[]{2, 0}, new int[]{2, 1}));
+        cp.post(equal(x[0], 0));
+        cp.post(equal(x[1], 0));
+        for (int i = 2; i < 4; i++)
+            assertFalse(x[i].contains(0));
+        cp.post(equal(x[2], 1));
+        assertTrue(x[3].isBound());
+        assertEquals(2, x[3].min());
+    }
+
+    @Test
+    public void lowerCapacityTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        x[0].remove(2);
+        x[1].remove(2);
+        // value 2 at least once, only x[2] can take it
+        cp.post(cardinality(x, new int[]{2}, new int[]{1}, new int[]{3}));
+        assertTrue(x[2].isBound());
+        assertEquals(2, x[2].min());
+    }
+
+    @Test
+    public void failureTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        try {
+            // 3 variables but at most 2 occurrences in total
+            cp.post(cardinality(x, new int[]{0, 1}, new int[]{0, 0}, new int[]{1, 1}));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void magicSerieTest() {
+        int[] expected = new int[]{0, 0, 0, 0, 2, 1, 0, 1, 1};
+        for (int n = 4; n <= 8; n++) {
+            Solver cp = solverFactory.get();
+            IntVar[] s = makeIntVarArray(cp, n, n);
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) values[i] = i;
+            cp.post(cardinality(s, values, s));
+            DFSearch dfs = makeDfs(cp, firstFail(s));
+            assertEquals(expected[n], dfs.solve().numberOfSolutions());
+        }
+    }
+
+    private static boolean supported(int[][] dom, int[] values, int[] low, int[] up, int i, int v) {
+        int[] val = new int[dom.length];
+        return assign(dom, values, low, up, val, i, v, 0);
+    }
+
+    // tries to assign the variables from k with x[fixed] = v such that the capacities are satisfied
+    private static boolean assign(int[][] dom, int[] values, int[] low, int[] up, int[] val, int fixed, int v, int k) {
+        if (k == dom.length) {
+            for (int j = 0; j < values.length; j++) {
+                int c = 0;
+                for (int w : val) if (w == values[j]) c++;
+                if (c < low[j] || c > up[j]) return false;
+            }
+            return true;
+        }
+        if (k == fixed) {
+            val[k] = v;
+            return assign(dom, values, low, up, val, fixed, v, k + 1);
+        }
+        for (int w : dom[k]) {
+            val[k] = w;
+            if (assign(dom, values, low, up, val, fixed, v, k + 1)) return true;
+        }
+        return false;
+    }
+
+    private static int[][] randomDomains(Random rand, int n) {
+        int[][] dom = new int[n][];
+        for (int i = 0; i < n; i++) {
+            dom[i] = rand.ints(0, 6).distinct().limit(1 + rand.nextInt(4)).toArray();
+        }
+        return dom;
+    }
+
+    private static IntVar[] makeVariables(Solver cp, int[][] dom) {
+        IntVar[] x = new IntVar[dom.length];
+        for (int i = 0; i < dom.length; i++)
+            x[i] = makeIntVar(cp, java.util.Arrays.stream(dom[i]).boxed().collect(java.util.stream.Collectors.toSet()));
+        return x;
+    }
+
+    @Test
+    public void randomArcConsistencyTest() {
+        Random rand = new Random(1996);
+        int[] values = new int[]{1, 2, 3, 4};
+        for (int iter = 0; iter < 300; iter++) {
+            int n = 2 + rand.nextInt(4);
+            int[][] dom = randomDomains(rand, n);
+            int[] low = new int[values.length];
+            int[] up = new int[values.length];
+            for (int k = 0; k < values.length; k++) {
+                low[k] = rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            boolean feasible = false;
+            for (int v : dom[0]) feasible |= supported(dom, values, low, up, 0, v);
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeVariables(cp, dom);
+            try {
+                cp.post(cardinality(x, values, low, up));
+                assertTrue(feasible);
+                for (int i = 0; i < n; i++)
+                    for (int v : dom[i])
+                        assertEquals(supported(dom, values, low, up, i, v), x[i].contains(v));
+            } catch (InconsistencyException e) {
+                assertFalse(feasible);
+            }
+        }
+    }
+
+    @Test
+    public void randomBoundsTest() {
+        Random rand = new Random(2003);
+        int[] values = new int[]{1, 2, 3, 4};
+        for (int iter = 0; iter < 300; iter++) {
+            int n = 2 + rand.nextInt(4);
+            int[][] dom = new int[n][];
+            for (int i = 0; i < n; i++) {
+                int lo = rand.nextInt(5);
+                dom[i] = java.util.stream.IntStream.rangeClosed(lo, lo + rand.nextInt(3)).toArray();
+            }
+            boolean lowerFree = rand.nextBoolean();
+            int[] low = new int[values.length];
+            int[] up = new int[values.length];
+            for (int k = 0; k < values.length; k++) {
+                low[k] = lowerFree ? 0 : rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            boolean feasible = false;
+            for (int v : dom[0]) feasible |= supported(dom, values, low, up, 0, v);
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeVariables(cp, dom);
+            try {
+                cp.post(cardinalityBC(x, values, low, up));
+                if (lowerFree) {
+                    assertTrue(feasible);
+                    // the bounds are supported by the interval relaxation
+                    // where the values without capacity are removed
+                    for (int i = 0; i < n; i++) {
+                        assertTrue(supported(dom, values, low, up, i, x[i].min()));
+                        assertTrue(supported(dom, values, low, up, i, x[i].max()));
+                    }
+                }
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                Solver cp2 = solverFactory.get();
+                IntVar[] y = makeVariables(cp2, dom);
+                cp2.post(cardinality(y, values, low, up));
+                assertEquals(makeDfs(cp2, firstFail(y)).solve().numberOfSolutions(), stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertFalse(feasible);
+            }
+        }
+    }
+
+    @Test
+    public void boundsComparedToDCTest() {
+        Random rand = new Random(2024);
+        int[] values = new int[]{1, 2, 3, 4};
+        for (int iter = 0; iter < 300; iter++) {
+            int n = 2 + rand.nextInt(4);
+            int[][] dom = new int[n][];
+            for (int i = 0; i < n; i++) {
+                int lo = rand.nextInt(5);
+                dom[i] = java.util.stream.IntStream.rangeClosed(lo, lo + rand.nextInt(3)).toArray();
+            }
+            boolean lowerFree = rand.nextBoolean();
+            int[] low = new int[values.length];
+            int[] up = new int[values.length];
+            for (int k = 0; k < values.length; k++) {
+                low[k] = lowerFree ? 0 : rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeVariables(cp, dom);
+            Solver cp2 = solverFactory.get();
+            IntVar[] y = makeVariables(cp2, dom);
+            boolean dcFails = false;
+            try {
+                cp2.post(new CardinalityDC(y, values, low, up));
+            } catch (InconsistencyException e) {
+                dcFails = true;
+            }
+            try {
+                cp.post(cardinalityBC(x, values, low, up));
+                // the domain consistent bounds are the tightest bounds
+                assertFalse(lowerFree && dcFails);
+                for (int i = 0; i < n && !dcFails; i++) {
+                    if (lowerFree) {
+                        // bounds consistent for the upper capacities
+                        assertEquals(y[i].min(), x[i].min());
+                        assertEquals(y[i].max(), x[i].max());
+                    } else {
+                        // weaker for the lower capacities
+                        assertTrue(x[i].min() <= y[i].min());
+                        assertTrue(x[i].max() >= y[i].max());
+                    }
+                }
+            } catch (InconsistencyException e) {
+                assertTrue(dcFails);
+            }
+        }
+    }
+}
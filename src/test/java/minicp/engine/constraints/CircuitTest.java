@@ -26,8 +26,11 @@ import minicp.util.exception.NotImplementedException;
 import minicp.util.NotImplementedExceptionAssume;
 import org.junit.Test;
 
+import java.util.EnumSet;
+
 import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -130,5 +133,124 @@ public class CircuitTest extends SolverTest {
         }
     }
 
+    @Test
+    public void testDominatorsFiltering() {
+        try {
+            Solver cp = solverFactory.get();
+            int[][] domains = new int[][]{{1, 2}, {2, 3}, {1, 3}, {4, 1}, {0, 2}};
+            IntVar[] x = new IntVar[domains.length];
+            for (int i = 0; i < x.length; i++)
+                x[i] = makeIntVar(cp, java.util.Arrays.stream(domains[i]).boxed().collect(java.util.stream.Collectors.toSet()));
+            cp.post(circuit(x, Circuit.AllDifferentLevel.FORWARD_CHECKING, EnumSet.of(Circuit.Rule.DOMINATORS)));
+            // 4 is the only predecessor of 0 and 3 the only one of 4
+            assertTrue(x[4].isBound() && x[4].min() == 0);
+            assertTrue(x[3].isBound() && x[3].min() == 4);
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testDominatorsFixPoint() {
+        java.util.Random rand = new java.util.Random(0);
+        for (int iter = 0; iter < 500; iter++) {
+            int n = 6 + rand.nextInt(4);
+            java.util.List<java.util.Set<Integer>> domains = new java.util.ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                java.util.Set<Integer> d = new java.util.HashSet<>();
+                for (int j = 0; j < n; j++)
+                    if (j != i && rand.nextInt(100) < 40) d.add(j);
+                if (d.isEmpty()) d.add((i + 1) % n);
+                domains.add(d);
+            }
+            try {
+                Solver cp = solverFactory.get();
+                IntVar[] x = new IntVar[n];
+                for (int i = 0; i < n; i++)
+                    x[i] = makeIntVar(cp, domains.get(i));
+                cp.post(circuit(x, Circuit.AllDifferentLevel.FORWARD_CHECKING, EnumSet.of(Circuit.Rule.DOMINATORS)));
+                // posting the constraint again on the filtered domains removes nothing
+                Solver cp2 = solverFactory.get();
+                IntVar[] y = new IntVar[n];
+                for (int i = 0; i < n; i++) {
+                    java.util.Set<Integer> d = new java.util.HashSet<>();
+                    for (int v = x[i].min(); v <= x[i].max(); v++)
+                        if (x[i].contains(v)) d.add(v);
+                    y[i] = makeIntVar(cp2, d);
+                }
+                cp2.post(circuit(y, Circuit.AllDifferentLevel.FORWARD_CHECKING, EnumSet.of(Circuit.Rule.DOMINATORS)));
+                for (int i = 0; i < n; i++)
+                    assertEquals(x[i].size(), y[i].size());
+            } catch (InconsistencyException ignored) {
+            } catch (NotImplementedException e) {
+                NotImplementedExceptionAssume.fail(e);
+            }
+        }
+    }
+
+    @Test
+    public void testStrongConnectivity() {
+        // the nodes 2, 3, 4, 5 cannot reach the nodes 0 and 1
+        int[][] domains = new int[][]{{1, 2}, {0}, {3, 4, 5}, {2, 4, 5}, {2, 3, 5}, {2, 3, 4}};
+        for (EnumSet<Circuit.Rule> rules : new EnumSet[]{EnumSet.noneOf(Circuit.Rule.class),
+                EnumSet.of(Circuit.Rule.STRONG_CONNECTIVITY)}) {
+            try {
+                Solver cp = solverFactory.get();
+                IntVar[] x = new IntVar[domains.length];
+                for (int i = 0; i < x.length; i++)
+                    x[i] = makeIntVar(cp, java.util.Arrays.stream(domains[i]).boxed().collect(java.util.stream.Collectors.toSet()));
+                cp.post(circuit(x, Circuit.AllDifferentLevel.FORWARD_CHECKING, rules));
+                assertTrue("the failure is detected with the graph reasoning", rules.isEmpty());
+            } catch (InconsistencyException e) {
+                assertTrue("the failure is not detected without the graph reasoning", !rules.isEmpty());
+            } catch (NotImplementedException e) {
+                NotImplementedExceptionAssume.fail(e);
+            }
+        }
+    }
+
+    @Test
+    public void testFilteringsSameSolutions() {
+        java.util.Random rand = new java.util.Random(0);
+        Circuit.AllDifferentLevel[] levels = Circuit.AllDifferentLevel.values();
+        EnumSet<Circuit.Rule>[] rules = new EnumSet[]{EnumSet.noneOf(Circuit.Rule.class),
+                EnumSet.of(Circuit.Rule.STRONG_CONNECTIVITY), EnumSet.of(Circuit.Rule.DOMINATORS)};
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 5 + rand.nextInt(3);
+            boolean[][] removed = new boolean[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    removed[i][j] = rand.nextInt(100) < 35;
+            long expected = -1;
+            for (Circuit.AllDifferentLevel level : levels) {
+                for (EnumSet<Circuit.Rule> rule : rules) {
+                    Solver cp = solverFactory.get();
+                    IntVar[] x = makeIntVarArray(cp, n, n);
+                    long[] nSols = new long[1];
+                    try {
+                        for (int i = 0; i < n; i++)
+                            for (int j = 0; j < n; j++)
+                                if (removed[i][j]) x[i].remove(j);
+                        cp.post(circuit(x, level, rule));
+                        DFSearch dfs = makeDfs(cp, firstFail(x));
+                        dfs.onSolution(() -> {
+                            int[] sol = new int[n];
+                            for (int i = 0; i < n; i++) sol[i] = x[i].min();
+                            assertTrue("Solution is not an hamiltonian Circuit", checkHamiltonian(sol));
+                            nSols[0]++;
+                        });
+                        dfs.solve();
+                    } catch (InconsistencyException e) {
+                    } catch (NotImplementedException e) {
+                        NotImplementedExceptionAssume.fail(e);
+                    }
+                    if (expected < 0) expected = nSols[0];
+                    assertEquals(expected, nSols[0]);
+                }
+            }
+        }
+    }
 
 }
@@ -19,6 +19,7 @@ import com.github.guillaumederval.javagrading.GradeClass;
 import minicp.engine.SolverTest;
 import minicp.engine.constraints.Profile.Rectangle;
 import minicp.engine.core.IntVar;
+import minicp.engine.core.IntervalVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
@@ -31,9 +32,11 @@ import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.schedule;
 import static minicp.cp.Factory.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @GradeClass(totalValue = 1, defaultCpuTimeout = 1000)
 public class CumulativeTest extends SolverTest {
@@ -189,6 +192,108 @@ public class CumulativeTest extends SolverTest {
     }
 
 
+    @Test
+    public void testRandomSameAsDecomp() {
+        java.util.Random rand = new java.util.Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            Solver cp = solverFactory.get();
+            int n = 3 + rand.nextInt(2);
+            IntVar[] s = makeIntVarArray(cp, n, 6);
+            int[] d = IntStream.range(0, n).map(i -> rand.nextInt(4)).toArray();
+            int[] r = IntStream.range(0, n).map(i -> rand.nextInt(3)).toArray();
+            int capa = 2 + rand.nextInt(3);
+            DFSearch search = makeDfs(cp, firstFail(s));
+
+            cp.getStateManager().saveState();
+            cp.post(new Cumulative(s, d, r, capa));
+            SearchStatistics stats1 = search.solve();
+            cp.getStateManager().restoreState();
+
+            cp.post(new CumulativeDecomposition(s, d, r, capa));
+            SearchStatistics stats2 = search.solve();
+
+            assertEquals(stats2.numberOfSolutions(), stats1.numberOfSolutions());
+            assertEquals(stats2.numberOfFailures(), stats1.numberOfFailures());
+        }
+    }
+
+    @Test
+    public void testLargeHorizon() {
+        Solver cp = solverFactory.get();
+        IntVar[] s = makeIntVarArray(cp, 2, 2 * Cumulative.MAX_HORIZON);
+        int[] d = new int[]{5, 5};
+        int[] r = new int[]{2, 2};
+
+        cp.post(new Cumulative(s, d, r, 3));
+        cp.post(equal(s[0], 100000));
+        s[1].removeBelow(99998);
+        cp.fixPoint();
+        assertEquals(100005, s[1].min());
+    }
+
+    @Test
+    public void testFilteringLevelsSameSolutions() {
+        java.util.Random rand = new java.util.Random(1);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 3 + rand.nextInt(3);
+            int[] d = IntStream.range(0, n).map(i -> rand.nextInt(5)).toArray();
+            int[] r = IntStream.range(0, n).map(i -> rand.nextInt(3)).toArray();
+            int capa = 2 + rand.nextInt(2);
+            long[] solutions = new long[Cumulative.Filtering.values().length];
+            long[] failures = new long[solutions.length];
+            for (Cumulative.Filtering filtering : Cumulative.Filtering.values()) {
+                Solver cp = solverFactory.get();
+                IntVar[] s = makeIntVarArray(cp, n, 7);
+                try {
+                    cp.post(cumulative(s, d, r, capa, filtering));
+                    SearchStatistics stats = makeDfs(cp, firstFail(s)).solve();
+                    solutions[filtering.ordinal()] = stats.numberOfSolutions();
+                    failures[filtering.ordinal()] = stats.numberOfFailures();
+                } catch (InconsistencyException e) {
+                }
+            }
+            for (int k = 1; k < solutions.length; k++) {
+                assertEquals(solutions[0], solutions[k]);
+                assertTrue(failures[k] <= failures[k - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeFinding() {
+        Solver cp = solverFactory.get();
+        // a and b must execute in [0, 4), leaving 12 - 8 = 4 units of energy
+        // such that c, of demand 2, cannot execute before 2
+        IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 10)};
+        int[] d = new int[]{2, 2, 3};
+        int[] r = new int[]{2, 2, 2};
+        cp.getStateManager().saveState();
+        cp.post(cumulative(s, d, r, 3));
+        assertEquals(0, s[2].min());
+        cp.getStateManager().restoreState();
+        cp.post(cumulative(s, d, r, 3, Cumulative.Filtering.TIME_TABLE_EDGE_FINDING));
+        assertEquals(2, s[2].min());
+    }
+
+    @Test
+    public void testEnergeticReasoning() {
+        Solver cp = solverFactory.get();
+        IntVar[] s = new IntVar[]{makeIntVar(cp, 1, 5), makeIntVar(cp, 1, 1), makeIntVar(cp, 0, 4),
+                makeIntVar(cp, 1, 3), makeIntVar(cp, 1, 3)};
+        int[] d = new int[]{1, 1, 3, 2, 3};
+        int[] r = new int[]{3, 1, 3, 1, 3};
+        cp.getStateManager().saveState();
+        cp.post(cumulative(s, d, r, 4, Cumulative.Filtering.TIME_TABLE_EDGE_FINDING));
+        assertEquals(0, makeDfs(cp, firstFail(s)).solve().numberOfSolutions());
+        cp.getStateManager().restoreState();
+        try {
+            // the overload is detected without search
+            cp.post(cumulative(s, d, r, 4, Cumulative.Filtering.ENERGETIC_REASONING));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
     private static int[] discreteProfile(Rectangle... rectangles) {
         int min = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(r -> r.start()).min(Integer::compare).get();
         int max = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(r -> r.end()).max(Integer::compare).get();
@@ -204,5 +309,129 @@ public class CumulativeTest extends SolverTest {
         return heights;
     }
 
+    @Test
+    public void testOptionalSameAsChecker() {
+        java.util.Random rand = new java.util.Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 3 + rand.nextInt(2);
+            int[] min = new int[n];
+            int[] max = new int[n];
+            int[] lmin = new int[n];
+            int[] lmax = new int[n];
+            boolean[] opt = new boolean[n];
+            int[] r = IntStream.range(0, n).map(i -> rand.nextInt(3)).toArray();
+            int capa = 2 + rand.nextInt(2);
+            for (int i = 0; i < n; i++) {
+                min[i] = rand.nextInt(4);
+                lmin[i] = rand.nextInt(4);
+                lmax[i] = lmin[i] + rand.nextInt(2);
+                max[i] = min[i] + lmax[i] + rand.nextInt(4);
+                opt[i] = rand.nextBoolean();
+            }
+            long expected = -1;
+            for (Cumulative.Filtering filtering : new Cumulative.Filtering[]{null,
+                    Cumulative.Filtering.TIME_TABLE, Cumulative.Filtering.ENERGETIC_REASONING}) {
+                Solver cp = solverFactory.get();
+                IntervalVar[] x = new IntervalVar[n];
+                for (int i = 0; i < n; i++)
+                    x[i] = makeIntervalVar(cp, min[i], max[i], lmin[i], lmax[i], opt[i]);
+                DFSearch dfs = makeDfs(cp, schedule(x));
+                long[] nSols = new long[1];
+                dfs.onSolution(() -> {
+                    boolean ok = true;
+                    for (int t = 0; t < 20; t++) {
+                        int h = 0;
+                        for (int i = 0; i < n; i++)
+                            if (x[i].isPresent() && x[i].startMin() <= t && t < x[i].endMin())
+                                h += r[i];
+                        ok &= h <= capa;
+                    }
+                    // with the constraint, every solution is valid
+                    assertTrue(ok || filtering == null);
+                    if (ok) nSols[0]++;
+                });
+                try {
+                    if (filtering != null) cp.post(new Cumulative(x, r, capa, filtering));
+                    dfs.solve();
+                } catch (InconsistencyException e) {
+                }
+                if (expected < 0) expected = nSols[0];
+                assertEquals(expected, nSols[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testVariableDemandsPruning() {
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 0), makeIntVar(cp, 1, 2)};
+            IntVar[] d = new IntVar[]{makeIntVar(cp, 5, 5), makeIntVar(cp, 4, 6)};
+            IntVar[] r = new IntVar[]{makeIntVar(cp, 2, 2), makeIntVar(cp, 0, 3)};
+            IntVar capa = makeIntVar(cp, 0, 3);
+            cp.post(cumulative(s, d, r, capa));
+            // the compulsory part [2,5) of the second activity overlaps the first one
+            assertEquals(1, r[1].max());
+            assertEquals(2, capa.min());
+
+            r[1].assign(1);
+            cp.fixPoint();
+            assertEquals(3, capa.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testVariableDurationsSameAsChecker() {
+        java.util.Random rand = new java.util.Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 3;
+            int[] sMax = IntStream.range(0, n).map(i -> rand.nextInt(5)).toArray();
+            int[] dMin = IntStream.range(0, n).map(i -> rand.nextInt(3)).toArray();
+            int[] rMin = IntStream.range(0, n).map(i -> rand.nextInt(3)).toArray();
+            int capaMax = 2 + rand.nextInt(2);
+            long expected = -1;
+            for (Cumulative.Filtering filtering : new Cumulative.Filtering[]{null,
+                    Cumulative.Filtering.TIME_TABLE, Cumulative.Filtering.ENERGETIC_REASONING}) {
+                Solver cp = solverFactory.get();
+                IntVar[] s = IntStream.range(0, n).mapToObj(i -> makeIntVar(cp, 0, sMax[i])).toArray(IntVar[]::new);
+                IntVar[] d = IntStream.range(0, n).mapToObj(i -> makeIntVar(cp, dMin[i], dMin[i] + 2)).toArray(IntVar[]::new);
+                IntVar[] r = IntStream.range(0, n).mapToObj(i -> makeIntVar(cp, rMin[i], rMin[i] + 1)).toArray(IntVar[]::new);
+                IntVar capa = makeIntVar(cp, 1, capaMax);
+                IntVar[] all = new IntVar[3 * n + 1];
+                for (int i = 0; i < n; i++) {
+                    all[i] = s[i];
+                    all[n + i] = d[i];
+                    all[2 * n + i] = r[i];
+                }
+                all[3 * n] = capa;
+                DFSearch dfs = makeDfs(cp, firstFail(all));
+                long[] nSols = new long[1];
+                dfs.onSolution(() -> {
+                    boolean ok = true;
+                    for (int t = 0; t < 20; t++) {
+                        int h = 0;
+                        for (int i = 0; i < n; i++)
+                            if (s[i].min() <= t && t < s[i].min() + d[i].min())
+                                h += r[i].min();
+                        ok &= h <= capa.min();
+                    }
+                    // with the constraint, every solution is valid
+                    assertTrue(ok || filtering == null);
+                    if (ok) nSols[0]++;
+                });
+                try {
+                    if (filtering != null) cp.post(cumulative(s, d, r, capa, filtering));
+                    dfs.solve();
+                } catch (InconsistencyException e) {
+                }
+                if (expected < 0) expected = nSols[0];
+                assertEquals(expected, nSols[0]);
+            }
+        }
+    }
 
 }
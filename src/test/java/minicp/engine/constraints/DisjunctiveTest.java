@@ -19,6 +19,7 @@ import com.github.guillaumederval.javagrading.GradeClass;
 import minicp.engine.SolverTest;
 import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
+import minicp.engine.core.IntervalVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
@@ -29,10 +30,14 @@ import org.junit.Assume;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
 
 import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.schedule;
 import static minicp.cp.Factory.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @GradeClass(totalValue = 1, defaultCpuTimeout = 1000)
 public class DisjunctiveTest extends SolverTest {
@@ -198,5 +203,138 @@ public class DisjunctiveTest extends SolverTest {
         }
     }
 
+    @Test
+    public void testEdgeFinding() {
+        // edge-finding pushes C after a set of activities
+        // which the other rules do not detect
+        EnumSet<Disjunctive.Rule> weak = EnumSet.of(Disjunctive.Rule.OVERLOAD_CHECKING,
+                Disjunctive.Rule.DETECTABLE_PRECEDENCE, Disjunctive.Rule.NOT_FIRST_NOT_LAST);
+        for (EnumSet<Disjunctive.Rule> rules : Arrays.asList(weak, EnumSet.allOf(Disjunctive.Rule.class))) {
+            Solver cp = solverFactory.get();
+            IntVar sA = makeIntVar(cp, 7, 10);
+            IntVar sB = makeIntVar(cp, 3, 12);
+            IntVar sC = makeIntVar(cp, 4, 23);
+            IntVar sD = makeIntVar(cp, 9, 13);
+            IntVar sE = makeIntVar(cp, 4, 15);
+
+            try {
+                cp.post(new Disjunctive(new IntVar[]{sA, sB, sC, sD, sE}, new int[]{3, 2, 4, 5, 2}, rules));
+                assertEquals(rules.contains(Disjunctive.Rule.EDGE_FINDING) ? 15 : 6, sC.min());
+            } catch (InconsistencyException e) {
+                assert (false);
+            } catch (NotImplementedException e) {
+                NotImplementedExceptionAssume.fail(e);
+            }
+        }
+    }
+
+    @Test
+    public void testRulesSameSolutions() {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 3 + rand.nextInt(3);
+            int[] d = new int[n];
+            int[] min = new int[n];
+            int[] max = new int[n];
+            for (int i = 0; i < n; i++) {
+                d[i] = 1 + rand.nextInt(4);
+                min[i] = rand.nextInt(10);
+                max[i] = min[i] + rand.nextInt(12);
+            }
+            long expected = -1;
+            for (int subset = 0; subset <= 1 << Disjunctive.Rule.values().length; subset++) {
+                try {
+                    Solver cp = solverFactory.get();
+                    IntVar[] s = makeIntVarArray(n, i -> makeIntVar(cp, min[i], max[i]));
+                    if (subset == 1 << Disjunctive.Rule.values().length) {
+                        decomposeDisjunctive(s, d);
+                    } else {
+                        EnumSet<Disjunctive.Rule> rules = EnumSet.noneOf(Disjunctive.Rule.class);
+                        for (Disjunctive.Rule r : Disjunctive.Rule.values())
+                            if ((subset & (1 << r.ordinal())) != 0) rules.add(r);
+                        cp.post(new Disjunctive(s, d, rules));
+                    }
+                    long sols = makeDfs(cp, firstFail(s)).solve().numberOfSolutions();
+                    if (expected < 0) expected = sols;
+                    assertEquals(expected, sols);
+                } catch (InconsistencyException e) {
+                    if (expected < 0) expected = 0;
+                    assertEquals(expected, 0);
+                } catch (NotImplementedException e) {
+                    NotImplementedExceptionAssume.fail(e);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOptionalActivity() {
+        Solver cp = solverFactory.get();
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 6);
+        IntervalVar b = makeIntervalVar(cp, 2, 11, 6, 6, true); // overloads with a
+        IntervalVar c = makeIntervalVar(cp, 0, 20, 4, 4, true);
+
+        try {
+            cp.post(disjunctive(new IntervalVar[]{a, b, c}));
+            assertTrue(b.isAbsent());
+            assertTrue(c.isOptional());
+            assertEquals(0, c.startMin()); // c may execute before a
+            a.setStartMin(1);
+            a.setEndMax(9);
+            cp.fixPoint();
+            assertEquals(7, c.startMin());
+            assertTrue(a.startMin() == 1 && a.endMax() == 9);
+        } catch (InconsistencyException e) {
+            assert (false);
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testOptionalSameAsChecker() {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 3 + rand.nextInt(2);
+            int[] min = new int[n];
+            int[] max = new int[n];
+            int[] lmin = new int[n];
+            int[] lmax = new int[n];
+            boolean[] opt = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                min[i] = rand.nextInt(5);
+                lmin[i] = rand.nextInt(4);
+                lmax[i] = lmin[i] + rand.nextInt(2);
+                max[i] = min[i] + lmax[i] + rand.nextInt(5);
+                opt[i] = rand.nextBoolean();
+            }
+            long[] nSols = new long[2];
+            for (int k = 0; k < 2; k++) {
+                Solver cp = solverFactory.get();
+                IntervalVar[] x = new IntervalVar[n];
+                for (int i = 0; i < n; i++)
+                    x[i] = makeIntervalVar(cp, min[i], max[i], lmin[i], lmax[i], opt[i]);
+                DFSearch dfs = makeDfs(cp, schedule(x));
+                boolean post = k == 0;
+                int sol = k;
+                dfs.onSolution(() -> {
+                    boolean ok = true;
+                    for (int i = 0; i < n; i++)
+                        for (int j = i + 1; j < n; j++)
+                            if (x[i].isPresent() && x[j].isPresent())
+                                ok &= x[i].endMin() <= x[j].startMin() || x[j].endMin() <= x[i].startMin();
+                    // with the constraint, every solution is valid
+                    assertTrue(ok || !post);
+                    if (ok) nSols[sol]++;
+                });
+                try {
+                    if (post) cp.post(disjunctive(x));
+                    dfs.solve();
+                } catch (InconsistencyException e) {
+                }
+            }
+            assertEquals(nSols[1], nSols[0]);
+        }
+    }
 
 }
@@ -0,0 +1,149 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class LinearSumTest extends SolverTest {
+
+    @Test
+    public void weightedSumTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{makeIntVar(cp, 0, 5), makeIntVar(cp, 0, 5), makeIntVar(cp, 0, 5)};
+        IntVar y = sum(new int[]{2, -3, 1}, x);
+        assertEquals(-15, y.min());
+        assertEquals(15, y.max());
+        cp.post(lessOrEqual(y, 0));
+        cp.post(equal(x[1], 1));
+        // 2*x0 + x2 <= 3
+        assertEquals(1, x[0].max());
+        assertEquals(3, x[2].max());
+    }
+
+    @Test
+    public void lessOrEqualTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{makeIntVar(cp, 0, 10), makeIntVar(cp, -10, 10)};
+        // 3*x0 - 2*x1 <= 4
+        cp.post(lessOrEqual(new int[]{3, -2}, x, 4));
+        assertEquals(8, x[0].max());
+        assertEquals(-2, x[1].min());
+        cp.post(equal(x[1], 0));
+        assertEquals(1, x[0].max());
+    }
+
+    @Test
+    public void notEqualTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = new IntVar[]{makeIntVar(cp, 0, 10), makeIntVar(cp, 0, 10)};
+        // 2*x0 + 3*x1 != 12
+        cp.post(notEqual(new int[]{2, 3}, x, 12));
+        cp.post(equal(x[1], 2));
+        assertFalse(x[0].contains(3));
+        assertEquals(10, x[0].size());
+        cp.post(equal(x[1], 2));
+        try {
+            cp.post(notEqual(new int[]{2, 3}, new IntVar[]{makeIntVar(cp, 3, 3), x[1]}, 12));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void overflowTest() {
+        Solver cp = solverFactory.get();
+        int big = 1000000;
+        int[] a = new int[]{big, big, big};
+        IntVar[] x = new IntVar[]{makeIntVar(cp, 0, big), makeIntVar(cp, 0, big), makeIntVar(cp, 0, big)};
+        // the terms and the sum are far above the int range
+        cp.post(lessOrEqual(a, x, 2 * big));
+        for (IntVar var : x) assertEquals(2, var.max());
+        IntVar[] y = new IntVar[]{makeIntVar(cp, 0, big), makeIntVar(cp, 0, big), makeIntVar(cp, 0, big)};
+        cp.post(new LinearSum(a, y, LinearSum.Relation.EQUAL, 3L * big * big));
+        for (IntVar var : y) assertEquals(big, var.min());
+        try {
+            cp.post(new LinearSum(a, x, LinearSum.Relation.EQUAL, 3L * big * big));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    private static int count(int[] a, int[] lo, int[] hi, LinearSum.Relation rel, int c, int i, long partial) {
+        if (i == a.length) {
+            switch (rel) {
+                case LESS_OR_EQUAL:
+                    return partial <= c ? 1 : 0;
+                case EQUAL:
+                    return partial == c ? 1 : 0;
+                default:
+                    return partial != c ? 1 : 0;
+            }
+        }
+        int total = 0;
+        for (int v = lo[i]; v <= hi[i]; v++)
+            total += count(a, lo, hi, rel, c, i + 1, partial + (long) a[i] * v);
+        return total;
+    }
+
+    @Test
+    public void randomTest() {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 300; iter++) {
+            int n = 1 + rand.nextInt(4);
+            int[] a = new int[n];
+            int[] lo = new int[n];
+            int[] hi = new int[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = rand.nextInt(9) - 4;
+                lo[i] = rand.nextInt(7) - 3;
+                hi[i] = lo[i] + rand.nextInt(5);
+            }
+            int c = rand.nextInt(21) - 10;
+            LinearSum.Relation rel = LinearSum.Relation.values()[rand.nextInt(3)];
+            int expected = count(a, lo, hi, rel, c, 0, 0);
+            Solver cp = solverFactory.get();
+            IntVar[] x = new IntVar[n];
+            for (int i = 0; i < n; i++) x[i] = makeIntVar(cp, lo[i], hi[i]);
+            try {
+                cp.post(new LinearSum(a, x, rel, c));
+                if (rel == LinearSum.Relation.LESS_OR_EQUAL) {
+                    // bounds consistency
+                    for (int i = 0; i < n; i++) {
+                        int[] l = lo.clone();
+                        int[] h = hi.clone();
+                        l[i] = h[i] = x[i].min();
+                        assertTrue(count(a, l, h, rel, c, 0, 0) > 0);
+                        l[i] = h[i] = x[i].max();
+                        assertTrue(count(a, l, h, rel, c, 0, 0) > 0);
+                    }
+                }
+                assertEquals(expected, makeDfs(cp, firstFail(x)).solve().numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.DFA;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class MDDTest extends SolverTest {
+
+    // words over {0,1} without two consecutive 1
+    private static DFA noConsecutiveOnes() {
+        DFA dfa = new DFA(2, 0, 0, 1);
+        dfa.addTransition(0, 0, 0);
+        dfa.addTransition(0, 1, 1);
+        dfa.addTransition(1, 0, 0);
+        return dfa;
+    }
+
+    @Test
+    public void reductionFromTable() {
+        int[][] all = new int[8][];
+        for (int k = 0; k < 8; k++)
+            all[k] = new int[]{k & 1, (k >> 1) & 1, (k >> 2) & 1};
+        MDD.Diagram d = MDD.Diagram.fromTable(3, all);
+        assertEquals(4, d.numberOfNodes());
+        assertEquals(6, d.numberOfEdges());
+        assertEquals(8, d.numberOfPaths());
+
+        MDD.Diagram d2 = MDD.Diagram.fromTable(3, new int[][]{{0, 1, 2}, {1, 1, 2}, {0, 1, 2}});
+        assertEquals(4, d2.numberOfNodes());
+        assertEquals(2, d2.numberOfPaths());
+        assertTrue(d2.contains(1, 1, 2));
+        assertFalse(d2.contains(1, 2, 2));
+
+        assertEquals(0, MDD.Diagram.fromTable(2, new int[0][]).numberOfPaths());
+    }
+
+    @Test
+    public void reductionFromAutomaton() {
+        MDD.Diagram d = MDD.Diagram.fromAutomaton(noConsecutiveOnes(), 10);
+        assertEquals(144, d.numberOfPaths()); // fibonacci
+        // two states per layer except the first and the terminal
+        assertEquals(1 + 9 * 2 + 1, d.numberOfNodes());
+        assertTrue(d.contains(1, 0, 1, 0, 0, 0, 1, 0, 0, 1));
+        assertFalse(d.contains(1, 1, 0, 0, 0, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void simpleTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 12);
+        int[][] table = new int[][]{{0, 0, 2},
+                {3, 5, 7},
+                {6, 9, 10},
+                {1, 2, 3}};
+        cp.post(new MDD(x, MDD.Diagram.fromTable(3, table)));
+        assertEquals(4, x[0].size());
+        assertEquals(4, x[1].size());
+        assertEquals(4, x[2].size());
+
+        cp.post(notEqual(x[1], 5));
+        cp.post(notEqual(x[2], 10));
+        assertEquals(2, x[0].size());
+        assertFalse(x[0].contains(3));
+        assertFalse(x[1].contains(9));
+
+        cp.post(lessOrEqual(x[2], 2));
+        assertTrue(x[0].isBound());
+        assertTrue(x[1].isBound());
+        assertEquals(0, x[0].min());
+    }
+
+    @Test
+    public void emptyDiagramFails() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 2, 3);
+        try {
+            cp.post(new MDD(x, MDD.Diagram.fromTable(2, new int[][]{{5, 0}})));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void automatonTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 10, 2);
+        cp.post(new MDD(x, MDD.Diagram.fromAutomaton(noConsecutiveOnes(), 10)));
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+        assertEquals(144, stats.numberOfSolutions());
+        assertEquals(0, stats.numberOfFailures());
+    }
+
+    @Test
+    public void randomTest() {
+        Random rand = new Random(1515);
+        for (int iter = 0; iter < 100; iter++) {
+            int[][][] tables = new int[3][50][3];
+            for (int[][] t : tables)
+                for (int[] row : t)
+                    for (int j = 0; j < 3; j++)
+                        row[j] = rand.nextInt(7) + iter % 2;
+            SearchStatistics expected = solve(tables, false);
+            SearchStatistics actual = solve(tables, true);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertNotNull(actual);
+                assertEquals(expected.numberOfSolutions(), actual.numberOfSolutions());
+                assertEquals(expected.numberOfFailures(), actual.numberOfFailures());
+                assertEquals(expected.numberOfNodes(), actual.numberOfNodes());
+            }
+        }
+    }
+
+    private SearchStatistics solve(int[][][] tables, boolean mdd) {
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, 5, 9);
+            cp.post(allDifferent(x));
+            IntVar[][] scopes = {{x[0], x[1], x[2]}, {x[2], x[3], x[4]}, {x[0], x[2], x[4]}};
+            for (int k = 0; k < 3; k++) {
+                if (mdd) cp.post(new MDD(scopes[k], MDD.Diagram.fromTable(3, tables[k])));
+                else cp.post(new TableCT(scopes[k], tables[k]));
+            }
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+}
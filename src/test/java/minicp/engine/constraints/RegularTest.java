@@ -0,0 +1,111 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.DFA;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class RegularTest extends SolverTest {
+
+    // shifts 0 (off), 1 (day), 2 (night): at most two consecutive nights and no day right after a night
+    private static DFA shifts() {
+        DFA dfa = new DFA(3, 0, 0, 1, 2);
+        dfa.addTransition(0, 0, 0);
+        dfa.addTransition(0, 1, 0);
+        dfa.addTransition(0, 2, 1);
+        dfa.addTransition(1, 0, 0);
+        dfa.addTransition(1, 2, 2);
+        dfa.addTransition(2, 0, 0);
+        return dfa;
+    }
+
+    @Test
+    public void simpleTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 5, 3);
+        cp.post(regular(x, shifts()));
+        assertEquals(3, x[0].size());
+
+        cp.post(equal(x[1], 2));
+        cp.post(equal(x[2], 2));
+        // a night cannot be followed by a day, nor by a third night
+        assertTrue(x[3].isBound());
+        assertEquals(0, x[3].min());
+        assertFalse(x[0].contains(2));
+        assertEquals(3, x[4].size());
+    }
+
+    @Test
+    public void failureTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        try {
+            cp.post(equal(x[0], 2));
+            cp.post(equal(x[2], 1));
+            cp.post(regular(x, shifts()));
+            cp.post(notEqual(x[1], 0));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void randomTest() {
+        Random rand = new Random(98765);
+        for (int iter = 0; iter < 50; iter++) {
+            int nStates = 2 + rand.nextInt(4);
+            DFA dfa = new DFA(nStates, 0, rand.nextInt(nStates), rand.nextInt(nStates));
+            for (int s = 0; s < nStates; s++)
+                for (int a = 0; a < 3; a++)
+                    if (rand.nextInt(4) != 0) dfa.addTransition(s, a, rand.nextInt(nStates));
+            int n = 6;
+            // brute force count
+            int expected = 0;
+            int[] word = new int[n];
+            for (int k = 0; k < 729; k++) {
+                int c = k;
+                for (int i = 0; i < n; i++) {
+                    word[i] = c % 3;
+                    c /= 3;
+                }
+                if (dfa.accepts(word)) expected++;
+            }
+            int actual;
+            try {
+                Solver cp = solverFactory.get();
+                IntVar[] x = makeIntVarArray(cp, n, 3);
+                cp.post(regular(x, dfa));
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                assertEquals(0, stats.numberOfFailures()); // domain consistent
+                actual = stats.numberOfSolutions();
+            } catch (InconsistencyException e) {
+                actual = 0;
+            }
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class RouteLoadTest extends SolverTest {
+
+    // number of routes from node 0 to node 1 visiting every node
+    // without exceeding the capacity nor having a negative load
+    private static int countRoutes(int[] order, int k, boolean[] used, int[] demand, int capacity) {
+        if (k == order.length) {
+            int load = 0;
+            for (int i : order) {
+                load += demand[i];
+                if (load < 0 || load > capacity) return 0;
+            }
+            load += demand[1];
+            return load >= 0 && load <= capacity ? 1 : 0;
+        }
+        int count = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                order[k] = i + 2;
+                count += countRoutes(order, k + 1, used, demand, capacity);
+                used[i] = false;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testPartialPathFails() {
+        try {
+            Solver cp = solverFactory.get();
+            int[] demand = {0, 0, 2, 2, -2, -2};
+            IntVar[] succ = makeIntVarArray(cp, 6, 6);
+            IntVar[] load = makeIntVarArray(cp, 6, 0, 10);
+            load[0].assign(0);
+            succ[1].assign(0);
+            cp.post(new RouteLoad(succ, load, demand, new int[]{1}, 3));
+            // a delivery cannot follow the start
+            assertFalse(succ[0].contains(4));
+            assertFalse(succ[0].contains(5));
+            assertEquals(3, load[2].max());
+            cp.getStateManager().saveState();
+            try {
+                // the path 2 -> 3 overflows the capacity, wherever it starts
+                succ[2].assign(3);
+                cp.fixPoint();
+                fail("the path exceeds the capacity");
+            } catch (InconsistencyException e) {
+            }
+            cp.getStateManager().restoreState();
+            succ[2].assign(4);
+            cp.fixPoint();
+            assertEquals(2, load[2].min());
+            assertEquals(0, load[4].min());
+            assertEquals(1, load[4].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testSameSolutionsAsEnumeration() {
+        try {
+            Random rand = new Random(3);
+            for (int iter = 0; iter < 40; iter++) {
+                int m = 4 + rand.nextInt(4);
+                int[] demand = new int[m];
+                for (int i = 2; i < m; i++)
+                    demand[i] = rand.nextInt(7) - 3;
+                int capacity = 2 + rand.nextInt(4);
+                int expected = countRoutes(new int[m - 2], 0, new boolean[m - 2], demand, capacity);
+
+                Solver cp = solverFactory.get();
+                IntVar[] succ = makeIntVarArray(cp, m, m);
+                IntVar[] load = makeIntVarArray(cp, m, -10, 10);
+                int found;
+                try {
+                    load[0].assign(0);
+                    succ[1].assign(0);
+                    cp.post(new Circuit(succ));
+                    cp.post(new RouteLoad(succ, load, demand, new int[]{1}, capacity));
+                    DFSearch dfs = makeDfs(cp, firstFail(succ));
+                    dfs.onSolution(() -> {
+                        for (int i = 0; i < m; i++)
+                            assertTrue(load[i].isBound());
+                    });
+                    SearchStatistics stats = dfs.solve();
+                    found = stats.numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    found = 0;
+                }
+                assertEquals(expected, found);
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class RouteTimesTest extends SolverTest {
+
+    // a single route from node 0 to node 1, request k picks up at 2+k and drops at 2+r+k
+    private static int countRoutes(int[] order, int k, boolean[] used, int[][] t,
+                                   int[] from, int[] to, int r, int maxRideTime) {
+        int m = t.length;
+        if (k == order.length) {
+            int[] time = new int[m];
+            int p = 0;
+            for (int i = 0; i <= order.length; i++) {
+                int s = i < order.length ? order[i] : 1;
+                time[s] = time[p] + t[p][s];
+                if (time[s] < from[s] || time[s] > to[s]) return 0;
+                p = s;
+            }
+            for (int q = 0; q < r; q++) {
+                int ride = time[2 + r + q] - time[2 + q];
+                if (ride < 0 || ride > maxRideTime) return 0;
+            }
+            return 1;
+        }
+        int count = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                order[k] = i + 2;
+                count += countRoutes(order, k + 1, used, t, from, to, r, maxRideTime);
+                used[i] = false;
+            }
+        }
+        return count;
+    }
+
+    private static int[] nodes(int from, int n) {
+        int[] t = new int[n];
+        for (int i = 0; i < n; i++) t[i] = from + i;
+        return t;
+    }
+
+    @Test
+    public void testChainAndRideTime() {
+        try {
+            Solver cp = solverFactory.get();
+            // depot 0 and 1, pickup 2 and drop 3
+            int[][] t = {{0, 0, 4, 6}, {0, 0, 4, 6}, {4, 4, 0, 3}, {6, 6, 3, 0}};
+            IntVar[] succ = makeIntVarArray(cp, 4, 4);
+            IntVar[] time = makeIntVarArray(cp, 4, 0, 100);
+            time[0].assign(0);
+            succ[1].assign(0);
+            cp.post(new Circuit(succ));
+            cp.post(new RouteTimes(succ, time, t, new int[]{1}, new int[]{2}, new int[]{3}, 5));
+            // the drop cannot be before the pickup
+            assertFalse(succ[0].contains(3));
+            assertFalse(succ[3].contains(2));
+            assertEquals(4, time[2].min());
+            assertEquals(7, time[3].min());
+            assertEquals(13, time[1].min());
+            time[1].removeAbove(13);
+            cp.fixPoint();
+            assertEquals(4, time[2].max());
+            assertEquals(7, time[3].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testMaxRideTimeFails() {
+        try {
+            Solver cp = solverFactory.get();
+            int[][] t = {{0, 0, 4, 6}, {0, 0, 4, 6}, {4, 4, 0, 3}, {6, 6, 3, 0}};
+            IntVar[] succ = makeIntVarArray(cp, 4, 4);
+            IntVar[] time = makeIntVarArray(cp, 4, 0, 100);
+            time[0].assign(0);
+            succ[1].assign(0);
+            cp.post(new RouteTimes(succ, time, t, new int[]{1}, new int[]{2}, new int[]{3}, 2));
+            fail("the drop cannot be reached within the ride time");
+        } catch (InconsistencyException e) {
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testSameSolutionsAsEnumeration() {
+        try {
+            Random rand = new Random(11);
+            for (int iter = 0; iter < 30; iter++) {
+                int r = 1 + rand.nextInt(3);
+                int m = 2 + 2 * r;
+                int[][] t = TransitionTimesTest.randomTransitions(rand, m - 2);
+                // the depot is at the position of the start and end of the transitions
+                int[][] tr = new int[m][m];
+                for (int i = 0; i < m; i++)
+                    for (int j = 0; j < m; j++)
+                        tr[i][j] = t[i < 2 ? m - 2 + i : i - 2][j < 2 ? m - 2 + j : j - 2];
+                int[] from = new int[m];
+                int[] to = new int[m];
+                for (int i = 0; i < m; i++) {
+                    from[i] = rand.nextInt(4) == 0 ? rand.nextInt(40) : 0;
+                    to[i] = from[i] + 20 + rand.nextInt(100);
+                }
+                from[0] = 0;
+                to[0] = 0;
+                int maxRideTime = 10 + rand.nextInt(40);
+                int expected = countRoutes(new int[m - 2], 0, new boolean[m - 2], tr, from, to, r, maxRideTime);
+
+                Solver cp = solverFactory.get();
+                IntVar[] succ = makeIntVarArray(cp, m, m);
+                IntVar[] time = new IntVar[m];
+                for (int i = 0; i < m; i++)
+                    time[i] = makeIntVar(cp, from[i], to[i]);
+                int found;
+                try {
+                    succ[1].assign(0);
+                    cp.post(new Circuit(succ));
+                    cp.post(new RouteTimes(succ, time, tr, new int[]{1}, nodes(2, r), nodes(2 + r, r), maxRideTime));
+                    DFSearch dfs = makeDfs(cp, firstFail(succ));
+                    dfs.onSolution(() -> {
+                        for (int i = 0; i < m; i++)
+                            assertTrue(time[i].isBound());
+                    });
+                    SearchStatistics stats = dfs.solve();
+                    found = stats.numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    found = 0;
+                }
+                assertEquals(expected, found);
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+}
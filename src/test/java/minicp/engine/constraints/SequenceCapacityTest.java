@@ -0,0 +1,157 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class SequenceCapacityTest extends SolverTest {
+
+    // number of orders of the given requests with each pickup before its drop
+    // and a load that never exceeds the capacity, request k has nodes k and r+k
+    private static int countOrders(int r, int requests, int[] load, int capacity, int visited, int current) {
+        int count = 0;
+        boolean done = true;
+        for (int k = 0; k < r; k++) {
+            if ((requests & (1 << k)) == 0) continue;
+            boolean picked = (visited & (1 << k)) != 0;
+            boolean dropped = (visited & (1 << (r + k))) != 0;
+            if (!picked) {
+                done = false;
+                if (current + load[k] <= capacity)
+                    count += countOrders(r, requests, load, capacity, visited | (1 << k), current + load[k]);
+            } else if (!dropped) {
+                done = false;
+                count += countOrders(r, requests, load, capacity, visited | (1 << (r + k)), current - load[k]);
+            }
+        }
+        return done ? 1 : count;
+    }
+
+    private static int[][] requests(int r) {
+        int[] pickup = new int[r];
+        int[] drop = new int[r];
+        for (int k = 0; k < r; k++) {
+            pickup[k] = k;
+            drop[k] = r + k;
+        }
+        return new int[][]{pickup, drop};
+    }
+
+    @Test
+    public void testPrecedenceAndLoad() {
+        try {
+            Solver cp = solverFactory.get();
+            int[][] pd = requests(2);
+            SequenceVar seq = makeSequenceVar(cp, 4);
+            cp.post(sequenceCapacity(seq, pd[0], pd[1], new int[]{3, 2}, 4));
+            seq.insert(0, seq.start());
+            cp.fixPoint();
+            // the drop of request 0 is after its pickup
+            assertFalse(seq.canInsert(2, seq.start()));
+            assertTrue(seq.canInsert(2, 0));
+            // request 1 cannot be picked while request 0 is in the vehicle
+            seq.insert(2, 0);
+            cp.fixPoint();
+            assertFalse(seq.canInsert(1, 0));
+            assertTrue(seq.canInsert(1, seq.start()));
+            assertTrue(seq.canInsert(1, 2));
+            seq.insert(1, 2);
+            cp.fixPoint();
+            assertFalse(seq.canInsert(3, 0));
+            assertFalse(seq.canInsert(3, seq.start()));
+            assertEquals(1, seq.nInsert(3));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testExclusionOfRequest() {
+        try {
+            Solver cp = solverFactory.get();
+            int[][] pd = requests(2);
+            SequenceVar seq = makeSequenceVar(cp, 4);
+            cp.post(sequenceCapacity(seq, pd[0], pd[1], new int[]{5, 2}, 4));
+            assertTrue(seq.isExcluded(0));
+            assertTrue(seq.isExcluded(2));
+            seq.exclude(3);
+            cp.fixPoint();
+            assertTrue(seq.isExcluded(1));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testSameSolutionsAsEnumeration() {
+        try {
+            Random rand = new Random(7);
+            for (int iter = 0; iter < 20; iter++) {
+                int r = 2 + rand.nextInt(2);
+                int n = 2 * r;
+                int[] load = new int[r];
+                for (int k = 0; k < r; k++) load[k] = 1 + rand.nextInt(4);
+                int[] capacity = {3 + rand.nextInt(3), 2 + rand.nextInt(3)};
+                int expected = 0;
+                for (int inFirst = 0; inFirst < (1 << r); inFirst++) {
+                    int inSecond = ((1 << r) - 1) & ~inFirst;
+                    expected += countOrders(r, inFirst, load, capacity[0], 0, 0)
+                            * countOrders(r, inSecond, load, capacity[1], 0, 0);
+                }
+
+                Solver cp = solverFactory.get();
+                int[][] pd = requests(r);
+                int[][] t = TransitionTimesTest.randomTransitions(rand, n);
+                SequenceVar[] seqs = new SequenceVar[2];
+                int found;
+                try {
+                    for (int v = 0; v < 2; v++) {
+                        seqs[v] = makeSequenceVar(cp, n);
+                        cp.post(sequenceCapacity(seqs[v], pd[0], pd[1], load, capacity[v]));
+                    }
+                    DFSearch dfs = makeDfs(cp, insertion(seqs, t));
+                    dfs.onSolution(() -> assertEquals(n, seqs[0].nMember() + seqs[1].nMember()));
+                    SearchStatistics stats = dfs.solve();
+                    found = stats.numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    found = 0;
+                }
+                assertEquals(expected, found);
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+}
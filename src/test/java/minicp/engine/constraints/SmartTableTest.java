@@ -0,0 +1,202 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.constraints.SmartTable.Entry;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class SmartTableTest extends SolverTest {
+
+    private static final int N = 4;
+    private static final int D = 6;
+
+    private Entry randomEntry(Random rand, int i, boolean withBinary) {
+        int v = rand.nextInt(D);
+        switch (rand.nextInt(withBinary ? 11 : 7)) {
+            case 0: return Entry.star();
+            case 1: return Entry.eq(v);
+            case 2: return Entry.ne(v);
+            case 3: return Entry.le(v);
+            case 4: return Entry.gt(v);
+            case 5: return Entry.in(v, rand.nextInt(D));
+            case 6: return Entry.notIn(v, rand.nextInt(D));
+            default:
+                int j = (i + 1 + rand.nextInt(N - 1)) % N;
+                int c = rand.nextInt(3) - 1;
+                switch (rand.nextInt(4)) {
+                    case 0: return Entry.eqVar(j, c);
+                    case 1: return Entry.neVar(j, c);
+                    case 2: return Entry.leVar(j, c);
+                    default: return Entry.geVar(j, c);
+                }
+        }
+    }
+
+    private static boolean satisfies(Entry[] row, int[] t) {
+        for (int i = 0; i < row.length; i++) {
+            String e = row[i].toString();
+            if (!accepts(e, t, t[i])) return false;
+        }
+        return true;
+    }
+
+    // evaluates a restriction from its textual form
+    private static boolean accepts(String e, int[] t, int v) {
+        if (e.equals("*")) return true;
+        String op = e.startsWith("!=") || e.startsWith("<=") || e.startsWith(">=") ? e.substring(0, 2)
+                : e.startsWith("notin") ? "notin" : e.startsWith("in") ? "in" : "=";
+        String arg = e.substring(op.length());
+        if (op.equals("in") || op.equals("notin")) {
+            boolean found = false;
+            for (String s : arg.substring(1, arg.length() - 1).split(", "))
+                found |= Integer.parseInt(s) == v;
+            return op.equals("in") == found;
+        }
+        int w;
+        if (arg.startsWith("x[")) {
+            int end = arg.indexOf(']');
+            w = t[Integer.parseInt(arg.substring(2, end))];
+            if (end + 1 < arg.length()) w += Integer.parseInt(arg.substring(end + 1).replace("+", ""));
+        } else {
+            w = Integer.parseInt(arg);
+        }
+        switch (op) {
+            case "=": return v == w;
+            case "!=": return v != w;
+            case "<=": return v <= w;
+            default: return v >= w;
+        }
+    }
+
+    private static int[][] expand(Entry[][] table) {
+        List<int[]> tuples = new ArrayList<>();
+        int[] t = new int[N];
+        for (int k = 0; k < Math.pow(D, N); k++) {
+            int c = k;
+            for (int i = 0; i < N; i++) {
+                t[i] = c % D;
+                c /= D;
+            }
+            for (Entry[] row : table) {
+                if (satisfies(row, t)) {
+                    tuples.add(t.clone());
+                    break;
+                }
+            }
+        }
+        return tuples.toArray(new int[0][]);
+    }
+
+    private SearchStatistics solve(boolean smart, Entry[][] table, int[][] tuples) {
+        try {
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, N, D);
+            cp.post(notEqual(x[0], x[3]));
+            if (smart) cp.post(new SmartTable(x, table));
+            else cp.post(new TableDecomp(x, tuples));
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void simpleTest() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 10);
+        Entry[][] table = new Entry[][]{
+                {Entry.le(3), Entry.star(), Entry.eqVar(0, 1)},
+                {Entry.eq(8), Entry.ne(2), Entry.in(2, 5)}
+        };
+        cp.post(new SmartTable(x, table));
+        assertEquals(5, x[0].size()); // {0,1,2,3,8}
+        assertEquals(10, x[1].size());
+        assertEquals(5, x[2].size()); // {1,2,3,4,5}
+
+        cp.post(equal(x[0], 8));
+        assertEquals(9, x[1].size());
+        assertFalse(x[1].contains(2));
+        assertEquals(2, x[2].size());
+
+        cp.post(notEqual(x[2], 5));
+        assertTrue(x[2].isBound());
+        assertEquals(2, x[2].min());
+    }
+
+    @Test
+    public void emptyTableFails() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 2, 10);
+        try {
+            cp.post(new SmartTable(x, new Entry[][]{{Entry.gt(20), Entry.star()}}));
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void randomUnaryTest() {
+        // with unary restrictions only the filtering is domain consistent
+        Random rand = new Random(4242);
+        for (int iter = 0; iter < 50; iter++) {
+            Entry[][] table = new Entry[1 + rand.nextInt(6)][N];
+            for (Entry[] row : table)
+                for (int i = 0; i < N; i++)
+                    row[i] = randomEntry(rand, i, false);
+            int[][] tuples = expand(table);
+            SearchStatistics expected = solve(false, table, tuples);
+            SearchStatistics actual = solve(true, table, tuples);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertNotNull(actual);
+                assertEquals(expected.numberOfSolutions(), actual.numberOfSolutions());
+                assertEquals(expected.numberOfNodes(), actual.numberOfNodes());
+                assertEquals(expected.numberOfFailures(), actual.numberOfFailures());
+            }
+        }
+    }
+
+    @Test
+    public void randomBinaryTest() {
+        Random rand = new Random(1789);
+        for (int iter = 0; iter < 50; iter++) {
+            Entry[][] table = new Entry[1 + rand.nextInt(6)][N];
+            for (Entry[] row : table)
+                for (int i = 0; i < N; i++)
+                    row[i] = randomEntry(rand, i, true);
+            int[][] tuples = expand(table);
+            SearchStatistics expected = solve(false, table, tuples);
+            SearchStatistics actual = solve(true, table, tuples);
+            long nExpected = expected == null ? 0 : expected.numberOfSolutions();
+            long nActual = actual == null ? 0 : actual.numberOfSolutions();
+            assertEquals(nExpected, nActual);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThetaLambdaTreeTest {
+
+    @Test
+    public void simpleTest0() {
+        ThetaLambdaTree tree = new ThetaLambdaTree(4);
+        tree.insertTheta(0, 5, 5);
+        tree.insertTheta(1, 31, 6);
+        tree.insertTheta(2, 30, 4);
+        tree.insertTheta(3, 42, 10);
+        assertEquals(45, tree.getECT());
+        assertEquals(45, tree.getECTBar());
+        assertEquals(-1, tree.getResponsibleECTBar());
+
+        tree.insertLambda(3, 42, 10);
+        assertEquals(35, tree.getECT());
+        assertEquals(45, tree.getECTBar());
+        assertEquals(3, tree.getResponsibleECTBar());
+
+        tree.insertLambda(1, 31, 6);
+        assertEquals(30, tree.getECT());
+        assertEquals(42, tree.getECTBar());
+        assertEquals(3, tree.getResponsibleECTBar());
+
+        tree.remove(3);
+        assertEquals(30, tree.getECT());
+        assertEquals(35, tree.getECTBar());
+        assertEquals(1, tree.getResponsibleECTBar());
+
+        tree.reset();
+        assertEquals(Integer.MIN_VALUE, tree.getECT());
+    }
+
+    private static int ect(int[] est, int[] dur, boolean[] in) {
+        // the activities are sorted by est, the ect is achieved by a suffix
+        int ect = Integer.MIN_VALUE;
+        for (int k = 0; k < est.length; k++) {
+            int sum = 0;
+            boolean any = false;
+            for (int l = k; l < est.length; l++) {
+                if (in[l]) {
+                    sum += dur[l];
+                    any = true;
+                }
+            }
+            if (any && in[k]) {
+                ect = Math.max(ect, est[k] + sum);
+            }
+        }
+        return ect;
+    }
+
+    @Test
+    public void randomTest() {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 500; iter++) {
+            int n = 1 + rand.nextInt(9);
+            int[] est = new int[n];
+            int[] dur = new int[n];
+            int[] state = new int[n]; // 0: absent, 1: theta, 2: lambda
+            for (int i = 0; i < n; i++) {
+                est[i] = (i == 0 ? 0 : est[i - 1]) + rand.nextInt(5);
+                dur[i] = rand.nextInt(6);
+            }
+            ThetaLambdaTree tree = new ThetaLambdaTree(n);
+            for (int step = 0; step < 20; step++) {
+                int i = rand.nextInt(n);
+                state[i] = rand.nextInt(3);
+                if (state[i] == 0) tree.remove(i);
+                else if (state[i] == 1) tree.insertTheta(i, est[i] + dur[i], dur[i]);
+                else tree.insertLambda(i, est[i] + dur[i], dur[i]);
+
+                boolean[] theta = new boolean[n];
+                for (int k = 0; k < n; k++) theta[k] = state[k] == 1;
+                int ectTheta = ect(est, dur, theta);
+                assertEquals(ectTheta, tree.getECT());
+                int ectBar = ectTheta;
+                for (int g = 0; g < n; g++) {
+                    if (state[g] == 2) {
+                        theta[g] = true;
+                        ectBar = Math.max(ectBar, ect(est, dur, theta));
+                        theta[g] = false;
+                    }
+                }
+                assertEquals(ectBar, tree.getECTBar());
+                int resp = tree.getResponsibleECTBar();
+                if (ectBar > ectTheta) {
+                    assertEquals(2, state[resp]);
+                    theta[resp] = true;
+                    assertEquals(ectBar, ect(est, dur, theta));
+                }
+            }
+        }
+    }
+}
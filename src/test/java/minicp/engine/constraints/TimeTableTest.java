@@ -0,0 +1,93 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.state.StateManager;
+import minicp.state.StateManagerTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeTableTest extends StateManagerTest {
+
+    private static int lastAbove(int[] heights, int min, int from, int to, int h) {
+        for (int t = to - 1; t >= from; t--) {
+            int ht = t < min || t >= min + heights.length ? 0 : heights[t - min];
+            if (ht > h) return t;
+        }
+        return TimeTable.NONE;
+    }
+
+    private static int firstAbove(int[] heights, int min, int from, int to, int h) {
+        for (int t = from; t < to; t++) {
+            int ht = t < min || t >= min + heights.length ? 0 : heights[t - min];
+            if (ht > h) return t;
+        }
+        return TimeTable.NONE;
+    }
+
+    @Test
+    public void randomTest() {
+        Random rand = new Random(7);
+        for (int iter = 0; iter < 50; iter++) {
+            StateManager sm = stateFactory.get();
+            int min = rand.nextInt(21) - 10;
+            int length = 1 + rand.nextInt(40);
+            TimeTable profile = new TimeTable(sm, min, min + length);
+            int[][] heights = new int[6][];
+            heights[0] = new int[length];
+            for (int level = 1; level < heights.length; level++) {
+                sm.saveState();
+                heights[level] = heights[level - 1].clone();
+                for (int k = 0; k < 3; k++) {
+                    int from = min - 2 + rand.nextInt(length + 4);
+                    int to = from + rand.nextInt(10);
+                    int h = rand.nextInt(5);
+                    profile.add(from, to, h);
+                    for (int t = Math.max(from, min); t < Math.min(to, min + length); t++)
+                        heights[level][t - min] += h;
+                }
+                check(profile, heights[level], min, rand);
+            }
+            for (int level = heights.length - 2; level >= 0; level--) {
+                sm.restoreState();
+                check(profile, heights[level], min, rand);
+            }
+        }
+    }
+
+    private static void check(TimeTable profile, int[] heights, int min, Random rand) {
+        int max = 0;
+        for (int t = 0; t < heights.length; t++) {
+            assertEquals(heights[t], profile.height(t + min));
+            max = Math.max(max, heights[t]);
+        }
+        assertEquals(max, profile.maxHeight());
+        for (int k = 0; k < 20; k++) {
+            int from = min - 3 + rand.nextInt(heights.length + 6);
+            int to = from + rand.nextInt(12);
+            int h = rand.nextInt(8) - 1;
+            assertEquals(lastAbove(heights, min, from, to, h), profile.lastAbove(from, to, h));
+            assertEquals(firstAbove(heights, min, from, to, h), profile.firstAbove(from, to, h));
+            int maxWindow = 0;
+            for (int t = Math.max(from, min); t < Math.min(to, min + heights.length); t++)
+                maxWindow = Math.max(maxWindow, heights[t - min]);
+            assertEquals(maxWindow, profile.maxHeight(from, to));
+        }
+    }
+}
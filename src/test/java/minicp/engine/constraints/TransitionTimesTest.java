@@ -0,0 +1,155 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class TransitionTimesTest extends SolverTest {
+
+    // manhattan distances between random points, the start and end at the origin
+    static int[][] randomTransitions(Random rand, int n) {
+        int[] x = new int[n + 2];
+        int[] y = new int[n + 2];
+        for (int i = 0; i < n; i++) {
+            x[i] = rand.nextInt(20);
+            y[i] = rand.nextInt(20);
+        }
+        int[][] t = new int[n + 2][n + 2];
+        for (int i = 0; i < n + 2; i++)
+            for (int j = 0; j < n + 2; j++)
+                t[i][j] = Math.abs(x[i] - x[j]) + Math.abs(y[i] - y[j]);
+        return t;
+    }
+
+    // number of orders of the n nodes that can be visited within the windows and length
+    private static int countOrders(int[] order, int k, boolean[] used, int[][] t, int[] service,
+                                   int[] from, int[] to, int maxLength) {
+        int n = order.length;
+        if (k == n) {
+            int time = from[n];
+            int length = 0;
+            int p = n;
+            for (int i = 0; i <= n; i++) {
+                int s = i < n ? order[i] : n + 1;
+                time = Math.max(from[s], time + service[p] + t[p][s]);
+                length += t[p][s];
+                if (time > to[s]) return 0;
+                p = s;
+            }
+            return length <= maxLength ? 1 : 0;
+        }
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                order[k] = i;
+                count += countOrders(order, k + 1, used, t, service, from, to, maxLength);
+                used[i] = false;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testTimesOfMembers() {
+        try {
+            Solver cp = solverFactory.get();
+            SequenceVar seq = makeSequenceVar(cp, 2);
+            int[][] t = {{0, 5, 3, 3}, {5, 0, 4, 4}, {3, 4, 0, 0}, {3, 4, 0, 0}};
+            int[] service = {2, 1, 0, 0};
+            IntVar[] time = makeIntVarArray(cp, 4, 0, 100);
+            time[1] = makeIntVar(cp, 0, 6);
+            cp.post(transitionTimes(seq, time, service, t));
+            seq.insert(0, seq.start());
+            cp.fixPoint();
+            assertEquals(3, time[0].min());
+            assertEquals(8, time[seq.end()].min());
+            // after node 0, node 1 is reached at 3 + 2 + 5 = 10 > 6
+            assertFalse(seq.canInsert(1, 0));
+            assertTrue(seq.canInsert(1, seq.start()));
+        } catch (InconsistencyException e) {
+            assert (false);
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testSameSolutionsAsEnumeration() {
+        try {
+            Random rand = new Random(42);
+            for (int iter = 0; iter < 30; iter++) {
+                int n = 3 + rand.nextInt(4);
+                int[][] t = randomTransitions(rand, n);
+                int[] service = new int[n + 2];
+                int[] from = new int[n + 2];
+                int[] to = new int[n + 2];
+                for (int i = 0; i < n; i++) {
+                    service[i] = rand.nextInt(5);
+                    from[i] = rand.nextInt(80);
+                    to[i] = from[i] + 10 + rand.nextInt(60);
+                }
+                to[n] = 0;
+                to[n + 1] = 200;
+                int maxLength = 40 + rand.nextInt(80);
+                int expected = countOrders(new int[n], 0, new boolean[n], t, service, from, to, maxLength);
+
+                Solver cp = solverFactory.get();
+                SequenceVar seq = makeSequenceVar(cp, n);
+                IntVar[] time = new IntVar[n + 2];
+                for (int i = 0; i < n + 2; i++)
+                    time[i] = makeIntVar(cp, from[i], to[i]);
+                IntVar length = makeIntVar(cp, 0, maxLength);
+                int found;
+                try {
+                    cp.post(transitionTimes(seq, time, service, t));
+                    cp.post(sequenceDistance(seq, t, length));
+                    DFSearch dfs = makeDfs(cp, insertion(new SequenceVar[]{seq}, t));
+                    dfs.onSolution(() -> {
+                        assertTrue(seq.isBound());
+                        assertEquals(n, seq.nMember());
+                        assertTrue(length.isBound());
+                    });
+                    SearchStatistics stats = dfs.solve();
+                    found = stats.numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    found = 0;
+                }
+                assertEquals(expected, found);
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.constraints;
+
+import com.github.guillaumederval.javagrading.GradeClass;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.NotImplementedException;
+import minicp.util.NotImplementedExceptionAssume;
+import minicp.util.io.InputReader;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@GradeClass(totalValue = 1, defaultCpuTimeout = 10000)
+public class WeightedCircuitTest extends SolverTest {
+
+    private static int[][] randomDistances(Random rand, int n, boolean symmetric) {
+        int[][] d = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                d[i][j] = symmetric && j < i ? d[j][i] : rand.nextInt(50);
+        return d;
+    }
+
+    // number of circuits of cost at most maxCost, with or without the bound
+    private long countSolutions(int[][] d, int maxCost, WeightedCircuit.Bound bound) {
+        int n = d.length;
+        Solver cp = solverFactory.get();
+        IntVar[] succ = makeIntVarArray(cp, n, n);
+        IntVar cost = makeIntVar(cp, 0, maxCost);
+        long[] nSols = new long[1];
+        try {
+            if (bound == null) {
+                cp.post(new Circuit(succ));
+                IntVar[] distSucc = new IntVar[n];
+                for (int i = 0; i < n; i++) distSucc[i] = element(d[i], succ[i]);
+                cp.post(sum(distSucc, cost));
+            } else {
+                cp.post(new WeightedCircuit(succ, d, cost, bound));
+            }
+            DFSearch dfs = makeDfs(cp, firstFail(succ));
+            dfs.onSolution(() -> {
+                int c = 0;
+                int[] sol = new int[n];
+                for (int i = 0; i < n; i++) {
+                    sol[i] = succ[i].min();
+                    c += d[i][sol[i]];
+                }
+                assertTrue(CircuitTest.checkHamiltonian(sol));
+                assertTrue(c <= maxCost);
+                assertEquals(c, cost.min());
+                nSols[0]++;
+            });
+            dfs.solve();
+        } catch (InconsistencyException e) {
+        }
+        return nSols[0];
+    }
+
+    @Test
+    public void testSameSolutionsAsDecomposition() {
+        try {
+            Random rand = new Random(0);
+            for (int iter = 0; iter < 20; iter++) {
+                int n = 4 + rand.nextInt(4);
+                int[][] d = randomDistances(rand, n, iter % 2 == 0);
+                int maxCost = 40 + rand.nextInt(100);
+                long expected = countSolutions(d, maxCost, null);
+                assertEquals(expected, countSolutions(d, maxCost, WeightedCircuit.Bound.ASSIGNMENT));
+                assertEquals(expected, countSolutions(d, maxCost, WeightedCircuit.Bound.ONE_TREE));
+            }
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testLowerBound() {
+        try {
+            // the two cheapest successors of each node are 1 apart
+            // but a circuit must use an edge of distance 10
+            int[][] d = new int[][]{
+                    {0, 1, 1, 10, 10, 10},
+                    {1, 0, 1, 10, 10, 10},
+                    {1, 1, 0, 10, 10, 10},
+                    {10, 10, 10, 0, 1, 1},
+                    {10, 10, 10, 1, 0, 1},
+                    {10, 10, 10, 1, 1, 0}};
+            for (WeightedCircuit.Bound bound : WeightedCircuit.Bound.values()) {
+                Solver cp = solverFactory.get();
+                IntVar[] succ = makeIntVarArray(cp, 6, 6);
+                IntVar cost = makeIntVar(cp, 0, 100);
+                cp.post(new WeightedCircuit(succ, d, cost, bound));
+                assertTrue(cost.min() >= (bound == WeightedCircuit.Bound.ONE_TREE ? 24 : 6));
+            }
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @Test
+    public void testOptimalityProof() {
+        try {
+            // instance gr17, the optimal circuit has a length of 2085
+            InputReader reader = new InputReader("data/tsp.txt");
+            int n = reader.getInt();
+            int[][] d = reader.getMatrix(n, n);
+            Solver cp = solverFactory.get();
+            IntVar[] succ = makeIntVarArray(cp, n, n);
+            IntVar cost = makeIntVar(cp, 0, 100000);
+            cp.post(circuit(succ, d, cost));
+            DFSearch dfs = makeDfs(cp, firstFail(succ));
+            int[] best = new int[]{-1};
+            dfs.onSolution(() -> best[0] = cost.min());
+            SearchStatistics stats = dfs.optimize(cp.minimize(cost));
+            assertTrue(stats.isCompleted());
+            assertEquals(2085, best[0]);
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.engine.SolverTest;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class IntervalVarTest extends SolverTest {
+
+    @Test
+    public void testBounds() {
+        Solver cp = solverFactory.get();
+        IntervalVar x = makeIntervalVar(cp, 0, 20, 3, 8, false);
+        assertTrue(x.isPresent());
+        assertEquals(0, x.startMin());
+        assertEquals(17, x.startMax());
+        assertEquals(3, x.endMin());
+        assertEquals(20, x.endMax());
+
+        cp.getStateManager().saveState();
+
+        x.setEndMax(10);
+        assertEquals(7, x.startMax());
+        assertEquals(8, x.lengthMax());
+        x.setStartMin(5);
+        assertEquals(5, x.lengthMax());
+        assertEquals(8, x.endMin());
+        x.setEndMin(10);
+        assertEquals(10, x.endMin());
+        assertEquals(7, x.startMax());
+        assertFalse(x.isFixed());
+        x.setLengthMin(5);
+        assertEquals(5, x.startMax());
+        assertTrue(x.isFixed());
+
+        cp.getStateManager().restoreState();
+        assertEquals(17, x.startMax());
+        assertEquals(3, x.lengthMin());
+
+        try {
+            x.setStartMin(18);
+            fail("a present interval cannot become empty");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void testOptional() {
+        Solver cp = solverFactory.get();
+        IntervalVar x = makeIntervalVar(cp, 0, 10, 4, 4, true);
+        assertTrue(x.isOptional());
+
+        cp.getStateManager().saveState();
+        x.setStartMin(7);
+        assertTrue(x.isAbsent());
+        assertFalse(x.status().isBound() && x.status().isTrue());
+        // the bounds of an absent interval are not filtered anymore
+        x.setStartMin(100);
+        cp.getStateManager().restoreState();
+
+        assertTrue(x.isOptional());
+        assertEquals(0, x.startMin());
+        x.setPresent();
+        try {
+            x.setStartMin(7);
+            fail("a present interval cannot become empty");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @Test
+    public void testPropagation() {
+        Solver cp = solverFactory.get();
+        IntervalVar x = makeIntervalVar(cp, 0, 10, 2, 2, true);
+        int[] nCalls = new int[1];
+        cp.post(new AbstractConstraint(cp) {
+            @Override
+            public void post() {
+                x.propagateOnChange(this);
+            }
+
+            @Override
+            public void propagate() {
+                nCalls[0]++;
+            }
+        });
+        x.setStartMin(3);
+        cp.fixPoint();
+        assertEquals(1, nCalls[0]);
+        x.status().assign(true);
+        cp.fixPoint();
+        assertEquals(2, nCalls[0]);
+        x.setStartMin(3);
+        cp.fixPoint();
+        assertEquals(2, nCalls[0]);
+    }
+
+    @Test
+    public void testViews() {
+        Solver cp = solverFactory.get();
+        IntVar s = makeIntVar(cp, 0, 10);
+        IntervalVar x = makeIntervalVar(s, 3);
+        assertTrue(x.isPresent());
+        assertEquals(13, x.endMax());
+        x.setEndMax(9);
+        assertEquals(6, s.max());
+
+        IntervalVar m = new IntervalVarViewMirror(x);
+        assertEquals(-9, m.startMin());
+        assertEquals(-3, m.startMax());
+        assertEquals(0, m.endMax());
+        m.setEndMax(-2);
+        assertEquals(2, s.min());
+        m.setStartMin(-6);
+        assertEquals(3, s.max());
+    }
+}
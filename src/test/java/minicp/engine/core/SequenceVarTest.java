@@ -0,0 +1,157 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+package minicp.engine.core;
+
+import minicp.engine.SolverTest;
+import minicp.util.exception.InconsistencyException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class SequenceVarTest extends SolverTest {
+
+    private static int[] members(SequenceVar seq) {
+        int[] dest = new int[seq.nNode()];
+        int s = seq.fillMember(dest);
+        return Arrays.copyOf(dest, s);
+    }
+
+    @Test
+    public void testInsertAndExclude() {
+        Solver cp = solverFactory.get();
+        SequenceVar seq = makeSequenceVar(cp, 5);
+        assertEquals(5, seq.start());
+        assertEquals(6, seq.end());
+        assertEquals(seq.end(), seq.next(seq.start()));
+        assertEquals(0, seq.nMember());
+        assertEquals(5, seq.nPossible());
+        assertEquals(1, seq.nInsert(2));
+
+        cp.getStateManager().saveState();
+
+        seq.insert(2, seq.start());
+        seq.insert(0, seq.start());
+        seq.insert(4, 2);
+        assertArrayEquals(new int[]{0, 2, 4}, members(seq));
+        assertEquals(2, seq.prev(4));
+        assertEquals(seq.end(), seq.next(4));
+        assertEquals(4, seq.nInsert(1));
+        seq.exclude(3);
+        assertTrue(seq.isExcluded(3));
+        assertEquals(1, seq.nPossible());
+        assertFalse(seq.isBound());
+
+        cp.getStateManager().saveState();
+        seq.insert(1, 4);
+        assertTrue(seq.isBound());
+        assertArrayEquals(new int[]{0, 2, 4, 1}, members(seq));
+        cp.getStateManager().restoreState();
+
+        assertArrayEquals(new int[]{0, 2, 4}, members(seq));
+        assertTrue(seq.isPossible(1));
+
+        try {
+            seq.exclude(2);
+            fail("a member cannot be excluded");
+        } catch (InconsistencyException e) {
+        }
+        try {
+            seq.insert(3, 0);
+            fail("an excluded node cannot be inserted");
+        } catch (InconsistencyException e) {
+        }
+
+        cp.getStateManager().restoreState();
+        assertEquals(0, seq.nMember());
+        assertEquals(5, seq.nPossible());
+        assertEquals(seq.end(), seq.next(seq.start()));
+    }
+
+    @Test
+    public void testRemoveInsert() {
+        Solver cp = solverFactory.get();
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        seq.insert(0, seq.start());
+        seq.insert(1, 0);
+        assertEquals(3, seq.nInsert(2));
+
+        seq.removeInsert(2, 0);
+        assertFalse(seq.canInsert(2, 0));
+        assertEquals(2, seq.nInsert(2));
+        // a node that is not yet a member can still become a predecessor
+        seq.removeInsert(2, 3);
+        assertFalse(seq.isExcluded(2));
+        seq.removeInsert(2, seq.start());
+        assertTrue(seq.isPossible(2));
+        seq.removeInsert(2, 1);
+        assertTrue(seq.isExcluded(2));
+        assertEquals(0, seq.nInsert(2));
+    }
+
+    @Test
+    public void testRemoveInsertBeforePossiblePred() {
+        Solver cp = solverFactory.get();
+        SequenceVar seq = makeSequenceVar(cp, 2);
+        // node 0 may still be inserted after node 1
+        seq.removeInsert(0, seq.start());
+        assertTrue(seq.isPossible(0));
+        assertEquals(0, seq.nInsert(0));
+        seq.insert(1, seq.start());
+        assertTrue(seq.canInsert(0, 1));
+        seq.insert(0, 1);
+        assertArrayEquals(new int[]{1, 0}, members(seq));
+    }
+
+    @Test
+    public void testRemoveInsertExcludesWithoutPred() {
+        Solver cp = solverFactory.get();
+        SequenceVar seq = makeSequenceVar(cp, 2);
+        seq.removeInsert(0, seq.start());
+        seq.exclude(1);
+        assertTrue(seq.isPossible(0));
+        // the excluded node 1 will never precede node 0
+        seq.removeInsert(0, 1);
+        assertTrue(seq.isExcluded(0));
+    }
+
+    @Test
+    public void testInsertionsSchedulePropagation() {
+        Solver cp = solverFactory.get();
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        int[] nCalls = new int[1];
+        cp.post(new AbstractConstraint(cp) {
+            @Override
+            public void post() {
+                seq.propagateOnInsert(this);
+            }
+
+            @Override
+            public void propagate() {
+                nCalls[0]++;
+                // node 2 cannot be right after node 0
+                if (seq.isMember(0))
+                    seq.removeInsert(2, 0);
+            }
+        });
+        seq.insert(0, seq.start());
+        cp.fixPoint();
+        assertEquals(1, nCalls[0]);
+        assertFalse(seq.canInsert(2, 0));
+        assertTrue(seq.canInsert(2, seq.start()));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.Procedure;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.firstFailDecisions;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class BestFirstSearchTest extends SolverTest {
+
+    @Test
+    public void testAllSolutions() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        cp.post(allDifferent(x));
+        BestFirstSearch bfs = makeBestFirst(cp, firstFail(x), () -> 0);
+        SearchStatistics stats = bfs.solve();
+        assertEquals(24, stats.numberOfSolutions());
+        assertTrue(stats.isCompleted());
+        for (IntVar xi : x)
+            assertEquals(4, xi.size());
+    }
+
+    @Test
+    public void testFirstSolutionIsOptimal() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 5, 5);
+        cp.post(allDifferent(x));
+        // the largest values are tried first by the branching
+        IntVar obj = sum(mul(x[0], 3), mul(x[1], 2), x[2]);
+        BestFirstSearch bfs = makeBestFirst(cp, () -> {
+            for (IntVar xi : x)
+                if (!xi.isBound()) {
+                    int v = xi.max();
+                    return new Procedure[]{
+                            () -> cp.post(equal(xi, v)),
+                            () -> cp.post(notEqual(xi, v))};
+                }
+            return new Procedure[0];
+        }, () -> obj.min());
+        int[] first = new int[]{-1};
+        bfs.onSolution(() -> {
+            if (first[0] == -1) first[0] = obj.min();
+        });
+        SearchStatistics stats = bfs.optimize(cp.minimize(obj));
+        assertTrue(stats.isCompleted());
+        assertEquals(3 * 0 + 2 * 1 + 2, first[0]);
+        assertEquals(1, stats.numberOfSolutions());
+    }
+
+    @Test
+    public void testLimit() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        cp.post(allDifferent(x));
+        SearchStatistics stats = makeBestFirst(cp, firstFail(x), () -> 0).solve(s -> s.numberOfSolutions() >= 3);
+        assertEquals(3, stats.numberOfSolutions());
+        assertFalse(stats.isCompleted());
+    }
+
+    /**
+     * Posts random notEqual and lessOrEqual constraints
+     * on the variables and returns a weighted sum to minimize.
+     */
+    static IntVar randomModel(Solver cp, IntVar[] x, Random rnd) {
+        for (int k = 0; k < x.length; k++) {
+            int i = rnd.nextInt(x.length);
+            int j = rnd.nextInt(x.length);
+            if (i == j) continue;
+            if (rnd.nextBoolean()) cp.post(notEqual(x[i], x[j]));
+            else cp.post(lessOrEqual(x[i], x[j]));
+        }
+        int[] w = new int[x.length];
+        for (int i = 0; i < x.length; i++)
+            w[i] = rnd.nextInt(11) - 5;
+        return sum(w, x);
+    }
+
+    /**
+     * Returns the optimum of the random model of a given seed
+     * found by a search, by a depth first search if it is null,
+     * or {@code Integer.MAX_VALUE} if there is no solution.
+     */
+    static int randomOptimum(Solver cp, long seed, BiFunction<Solver, IntVar[], ReplaySearch> search) {
+        IntVar[] x = makeIntVarArray(cp, 6, 5);
+        IntVar obj = randomModel(cp, x, new Random(seed));
+        int[] best = new int[]{Integer.MAX_VALUE};
+        SearchStatistics stats;
+        if (search == null) {
+            DFSearch dfs = makeDfs(cp, firstFail(x));
+            dfs.onSolution(() -> best[0] = obj.min());
+            stats = dfs.optimize(cp.minimize(obj));
+        } else {
+            ReplaySearch engine = search.apply(cp, x);
+            engine.onSolution(() -> best[0] = obj.min());
+            stats = engine.optimize(cp.minimize(obj));
+        }
+        assertTrue(stats.isCompleted());
+        return best[0];
+    }
+
+    @Test
+    public void testOptimizeFirstFail() {
+        for (long seed = 0; seed < 200; seed++) {
+            int opt = randomOptimum(solverFactory.get(), seed, null);
+            assertEquals(opt, randomOptimum(solverFactory.get(), seed,
+                    (cp, x) -> makeBestFirst(cp, firstFail(x), () -> 0)));
+            assertEquals(opt, randomOptimum(solverFactory.get(), seed,
+                    (cp, x) -> makeBestFirst(cp, x, firstFailDecisions(x), () -> 0)));
+        }
+    }
+
+    @Test
+    public void testRootSolutionWithObjective() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 2, 1);
+        SearchStatistics stats = makeBestFirst(cp, firstFail(x), () -> 0).optimize(cp.minimize(x[0]));
+        assertTrue(stats.isCompleted());
+        assertEquals(1, stats.numberOfSolutions());
+    }
+}
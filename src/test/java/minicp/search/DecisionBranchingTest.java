@@ -0,0 +1,111 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.firstFailDecisions;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecisionBranchingTest extends SolverTest {
+
+    private static IntVar[] queens(Solver cp, int n) {
+        IntVar[] q = makeIntVarArray(cp, n, n);
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++) {
+                cp.post(notEqual(q[i], q[j]));
+                cp.post(notEqual(q[i], q[j], j - i));
+                cp.post(notEqual(q[i], q[j], i - j));
+            }
+        return q;
+    }
+
+    @Test
+    public void testSameTreeAsProcedureBranching() {
+        for (int n = 4; n <= 8; n++) {
+            Solver cp1 = solverFactory.get();
+            IntVar[] q1 = queens(cp1, n);
+            SearchStatistics stats1 = makeDfs(cp1, firstFail(q1)).solve();
+
+            Solver cp2 = solverFactory.get();
+            IntVar[] q2 = queens(cp2, n);
+            SearchStatistics stats2 = makeDfs(cp2, q2, firstFailDecisions(q2)).solve();
+
+            assertEquals(stats1.numberOfSolutions(), stats2.numberOfSolutions());
+            assertEquals(stats1.numberOfNodes(), stats2.numberOfNodes());
+            assertEquals(stats1.numberOfFailures(), stats2.numberOfFailures());
+            assertTrue(stats2.isCompleted());
+        }
+    }
+
+    @Test
+    public void testOperators() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 2, 4);
+        AtomicInteger nSols = new AtomicInteger(0);
+        // split the domain of the first unbound variable in two halves
+        DFSearch dfs = makeDfs(cp, x, decisions -> {
+            for (int i = 0; i < x.length; i++) {
+                if (!x[i].isBound()) {
+                    int mid = (x[i].min() + x[i].max()) / 2;
+                    decisions.add(i, DecisionBuffer.LEQ, mid);
+                    decisions.add(i, DecisionBuffer.GEQ, mid + 1);
+                    return;
+                }
+            }
+        });
+        dfs.onSolution(() -> {
+            nSols.incrementAndGet();
+            assertTrue(x[0].isBound() && x[1].isBound());
+        });
+        SearchStatistics stats = dfs.solve();
+        assertEquals(16, nSols.get());
+        assertEquals(16, stats.numberOfSolutions());
+        assertEquals(0, stats.numberOfFailures());
+    }
+
+    @Test
+    public void testLimitAndRestore() {
+        Solver cp = solverFactory.get();
+        IntVar[] q = queens(cp, 8);
+        DFSearch dfs = makeDfs(cp, q, firstFailDecisions(q));
+        SearchStatistics stats = dfs.solve(s -> s.numberOfSolutions() >= 3);
+        assertEquals(3, stats.numberOfSolutions());
+        for (IntVar qi : q)
+            assertEquals(8, qi.size());
+        // a second search starts from scratch
+        stats = dfs.solve();
+        assertEquals(92, stats.numberOfSolutions());
+    }
+
+    @Test
+    public void testDeepSearch() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 1000, 2);
+        DFSearch dfs = makeDfs(cp, x, firstFailDecisions(x));
+        SearchStatistics stats = dfs.solve(s -> s.numberOfSolutions() >= 1);
+        assertEquals(1, stats.numberOfSolutions());
+        assertEquals(1000, stats.numberOfNodes());
+    }
+}
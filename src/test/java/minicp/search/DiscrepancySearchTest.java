@@ -0,0 +1,139 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.cp.BranchingScheme;
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.util.Procedure;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.firstFailDecisions;
+import static minicp.search.BestFirstSearchTest.randomOptimum;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class DiscrepancySearchTest extends SolverTest {
+
+    private static Supplier<Procedure[]> binary(StateInt i, int[] values) {
+        return () -> {
+            if (i.value() >= values.length)
+                return BranchingScheme.EMPTY;
+            else return BranchingScheme.branch(
+                    () -> { // left branch
+                        values[i.value()] = 0;
+                        i.increment();
+                    },
+                    () -> { // right branch
+                        values[i.value()] = 1;
+                        i.increment();
+                    });
+        };
+    }
+
+    @Test
+    public void testSameNodesAsLimitedDiscrepancyBranching() {
+        StateManager sm = solverFactory.get().getStateManager();
+        StateInt i = sm.makeStateInt(0);
+        int[] values = new int[4];
+
+        DiscrepancySearch lds = new DiscrepancySearch(sm, binary(i, values), 2);
+        lds.onSolution(() -> {
+            int n1 = 0;
+            for (int k = 0; k < values.length; k++)
+                n1 += values[k];
+            assertTrue(n1 <= 2);
+        });
+        SearchStatistics stats = lds.solve();
+
+        assertEquals(11, stats.numberOfSolutions());
+        assertEquals(0, stats.numberOfFailures());
+        assertEquals(24, stats.numberOfNodes());
+        assertTrue(stats.isCompleted());
+        assertEquals(0, (int) i.value());
+    }
+
+    @Test
+    public void testIncreasingDiscrepancy() {
+        StateManager sm = solverFactory.get().getStateManager();
+        StateInt i = sm.makeStateInt(0);
+        int[] values = new int[5];
+        List<Integer> discrepancies = new ArrayList<>();
+
+        DiscrepancySearch lds = new DiscrepancySearch(sm, binary(i, values), Integer.MAX_VALUE);
+        lds.onSolution(() -> {
+            int n1 = 0;
+            for (int k = 0; k < values.length; k++)
+                n1 += values[k];
+            discrepancies.add(n1);
+        });
+        SearchStatistics stats = lds.solve();
+
+        // every node is visited exactly once
+        assertEquals(32, stats.numberOfSolutions());
+        assertEquals(32 + 16 + 8 + 4 + 2, stats.numberOfNodes());
+        for (int k = 1; k < discrepancies.size(); k++)
+            assertTrue(discrepancies.get(k - 1) <= discrepancies.get(k));
+    }
+
+    @Test
+    public void testOptimize() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 5, 5);
+        cp.post(allDifferent(x));
+        IntVar obj = sum(x[0], mul(x[1], 2), x[4]);
+        DiscrepancySearch lds = makeLds(cp, firstFail(x), Integer.MAX_VALUE);
+        int[] best = new int[]{Integer.MAX_VALUE};
+        lds.onSolution(() -> {
+            assertTrue(obj.min() < best[0]);
+            best[0] = obj.min();
+        });
+        SearchStatistics stats = lds.optimize(cp.minimize(obj));
+        assertTrue(stats.isCompleted());
+        assertEquals(1 + 2 * 0 + 2, best[0]);
+    }
+
+    @Test
+    public void testLimit() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        cp.post(allDifferent(x));
+        SearchStatistics stats = makeLds(cp, firstFail(x), 10).solve(s -> s.numberOfSolutions() >= 5);
+        assertEquals(5, stats.numberOfSolutions());
+        assertFalse(stats.isCompleted());
+        for (IntVar xi : x)
+            assertEquals(4, xi.size());
+    }
+
+    @Test
+    public void testOptimizeFirstFail() {
+        for (long seed = 0; seed < 200; seed++) {
+            int opt = randomOptimum(solverFactory.get(), seed, null);
+            assertEquals(opt, randomOptimum(solverFactory.get(), seed,
+                    (cp, x) -> makeLds(cp, firstFail(x), Integer.MAX_VALUE)));
+            assertEquals(opt, randomOptimum(solverFactory.get(), seed,
+                    (cp, x) -> makeLds(cp, x, firstFailDecisions(x), Integer.MAX_VALUE)));
+        }
+    }
+}
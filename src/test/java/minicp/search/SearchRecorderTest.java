@@ -0,0 +1,230 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.Procedure;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.firstFailDecisions;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class SearchRecorderTest extends SolverTest {
+
+    private static IntVar[] queens(Solver cp, int n) {
+        IntVar[] q = makeIntVarArray(cp, n, n);
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++) {
+                cp.post(notEqual(q[i], q[j]));
+                cp.post(notEqual(q[i], q[j], j - i));
+                cp.post(notEqual(q[i], q[j], i - j));
+            }
+        return q;
+    }
+
+    @Test
+    public void testReplayClosureBranching() {
+        Solver cp = solverFactory.get();
+        IntVar[] q = queens(cp, 6);
+        Supplier<Procedure[]> branching = firstFail(q);
+        DFSearch dfs = makeDfs(cp, branching);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        SearchStatistics stats = dfs.solve();
+        recorder.close();
+        assertEquals(stats.numberOfNodes(), recorder.numberOfNodes());
+
+        AtomicInteger divergences = new AtomicInteger(0);
+        SearchReplayer replayer = new SearchReplayer(cp.getStateManager(), branching);
+        SearchStatistics replayed = replayer.replay(new ByteArrayInputStream(out.toByteArray()),
+                (node, depth, branch, recorded, outcome, nanos) -> {
+                    assertTrue(nanos >= 0);
+                    if (recorded != outcome) divergences.incrementAndGet();
+                });
+        assertEquals(0, divergences.get());
+        assertEquals(stats.numberOfNodes(), replayed.numberOfNodes());
+        assertEquals(stats.numberOfFailures(), replayed.numberOfFailures());
+        assertEquals(stats.numberOfSolutions(), replayed.numberOfSolutions());
+        for (IntVar qi : q)
+            assertEquals(6, qi.size());
+    }
+
+    @Test
+    public void testReplayDecisionsWithoutBranching() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 5, 5);
+        cp.post(allDifferent(x));
+        IntVar obj = sum(x[0], mul(x[1], 2), x[4]);
+        DFSearch dfs = makeDfs(cp, x, firstFailDecisions(x));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        SearchStatistics stats = dfs.optimize(cp.minimize(obj));
+        recorder.close();
+
+        // replay on a fresh copy of the model
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 5, 5);
+        cp2.post(allDifferent(y));
+        IntVar obj2 = sum(y[0], mul(y[1], 2), y[4]);
+        Objective min = cp2.minimize(obj2);
+        SearchReplayer replayer = new SearchReplayer(cp2, y);
+        replayer.onSolution(() -> min.tighten());
+        AtomicInteger divergences = new AtomicInteger(0);
+        SearchStatistics replayed = replayer.replay(new ByteArrayInputStream(out.toByteArray()),
+                (node, depth, branch, recorded, outcome, nanos) -> {
+                    if (recorded != outcome) divergences.incrementAndGet();
+                });
+        assertEquals(0, divergences.get());
+        assertEquals(stats.numberOfNodes(), replayed.numberOfNodes());
+        assertEquals(stats.numberOfSolutions(), replayed.numberOfSolutions());
+    }
+
+    @Test
+    public void testDivergenceIsReported() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        DFSearch dfs = makeDfs(cp, x, firstFailDecisions(x));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        dfs.solve();
+        recorder.close();
+
+        // the replayed model is more constrained than the recorded one
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 3, 3);
+        cp2.post(allDifferent(y));
+        AtomicInteger divergences = new AtomicInteger(0);
+        new SearchReplayer(cp2, y).replay(new ByteArrayInputStream(out.toByteArray()),
+                (node, depth, branch, recorded, outcome, nanos) -> {
+                    if (recorded != outcome) divergences.incrementAndGet();
+                });
+        assertTrue(divergences.get() > 0);
+    }
+
+    @Test
+    public void testReplayDecisionsWithBranching() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        cp.post(allDifferent(x));
+        DFSearch dfs = makeDfs(cp, x, firstFailDecisions(x));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        SearchStatistics stats = dfs.solve();
+        recorder.close();
+
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 4, 4);
+        cp2.post(allDifferent(y));
+        AtomicInteger divergences = new AtomicInteger(0);
+        SearchStatistics replayed = new SearchReplayer(cp2, y, firstFailDecisions(y))
+                .replay(new ByteArrayInputStream(out.toByteArray()),
+                        (node, depth, branch, recorded, outcome, nanos) -> {
+                            if (recorded != outcome) divergences.incrementAndGet();
+                        });
+        assertEquals(0, divergences.get());
+        assertEquals(stats.numberOfNodes(), replayed.numberOfNodes());
+        assertEquals(stats.numberOfSolutions(), replayed.numberOfSolutions());
+    }
+
+    @Test
+    public void testSolutionDivergenceIsReported() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        cp.post(allDifferent(x));
+        DFSearch dfs = makeDfs(cp, x, firstFailDecisions(x));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        dfs.solve();
+        recorder.close();
+
+        // the recorded solutions are not solutions anymore
+        // since the last variable is not bound by the propagation
+        for (boolean withBranching : new boolean[]{false, true}) {
+            Solver cp2 = solverFactory.get();
+            IntVar[] y = makeIntVarArray(cp2, 3, 3);
+            SearchReplayer replayer = withBranching ?
+                    new SearchReplayer(cp2, y, firstFailDecisions(y)) :
+                    new SearchReplayer(cp2, y);
+            AtomicInteger divergences = new AtomicInteger(0);
+            SearchStatistics replayed = replayer.replay(new ByteArrayInputStream(out.toByteArray()),
+                    (node, depth, branch, recorded, outcome, nanos) -> {
+                        if (recorded == SearchRecorder.SOLUTION && outcome != SearchRecorder.SOLUTION)
+                            divergences.incrementAndGet();
+                    });
+            assertEquals(6, divergences.get());
+            assertEquals(0, replayed.numberOfSolutions());
+        }
+    }
+
+    // one branch per value of the first unbound variable
+    private static Supplier<Procedure[]> valueBranching(IntVar[] x) {
+        return () -> {
+            for (IntVar xi : x) {
+                if (!xi.isBound()) {
+                    int[] values = new int[xi.size()];
+                    xi.fillArray(values);
+                    Procedure[] branches = new Procedure[values.length];
+                    for (int k = 0; k < values.length; k++) {
+                        int v = values[k];
+                        branches[k] = () -> xi.assign(v);
+                    }
+                    return branches;
+                }
+            }
+            return new Procedure[0];
+        };
+    }
+
+    @Test
+    public void testMissingBranchIsReported() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 2, 3);
+        DFSearch dfs = makeDfs(cp, valueBranching(x));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchRecorder recorder = new SearchRecorder(out);
+        dfs.setRecorder(recorder);
+        dfs.solve();
+        recorder.close();
+
+        // the last branch of each node is not generated anymore
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 2, 2);
+        AtomicInteger divergences = new AtomicInteger(0);
+        SearchStatistics replayed = new SearchReplayer(cp2.getStateManager(), valueBranching(y))
+                .replay(new ByteArrayInputStream(out.toByteArray()),
+                        (node, depth, branch, recorded, outcome, nanos) -> {
+                            if (recorded != outcome) divergences.incrementAndGet();
+                        });
+        // x[0] == 2 and its 3 children, x[1] == 2 below x[0] == 0 and x[0] == 1
+        assertEquals(1 + 3 + 2, divergences.get());
+        assertEquals(2 + 4, replayed.numberOfNodes());
+        assertEquals(4, replayed.numberOfSolutions());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.variable.UnboundVariables;
+import minicp.state.StateManager;
+import org.junit.Test;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.selectMin;
+import static minicp.cp.Factory.*;
+import static org.junit.Assert.*;
+
+public class UnboundVariablesTest extends SolverTest {
+
+    @Test
+    public void testUpdateAndRestore() {
+        Solver cp = solverFactory.get();
+        StateManager sm = cp.getStateManager();
+        IntVar[] x = makeIntVarArray(cp, 5, 3);
+        UnboundVariables unbound = new UnboundVariables(sm, x);
+        assertEquals(5, unbound.update());
+
+        sm.saveState();
+        x[1].assign(0);
+        x[3].assign(2);
+        assertEquals(3, unbound.update());
+        for (int i = 0; i < unbound.size(); i++)
+            assertFalse(x[unbound.index(i)].isBound());
+
+        sm.saveState();
+        x[0].assign(1);
+        assertEquals(2, unbound.update());
+        sm.restoreState();
+        assertEquals(3, unbound.size());
+
+        sm.restoreState();
+        assertEquals(5, unbound.size());
+        assertEquals(5, unbound.update());
+    }
+
+    @Test
+    public void testSelectMinSameAsScan() {
+        Solver cp = solverFactory.get();
+        StateManager sm = cp.getStateManager();
+        IntVar[] x = makeIntVarArray(cp, 6, 5);
+        UnboundVariables unbound = new UnboundVariables(sm, x);
+
+        x[0].assign(2);
+        x[2].removeAbove(2);
+        x[4].removeAbove(2);
+        x[5].removeAbove(1);
+
+        IntVar expected = selectMin(x, xi -> xi.size() > 1, IntVar::size);
+        assertSame(expected, unbound.selectMin(IntVar::size));
+        assertSame(x[5], unbound.selectMin(IntVar::size));
+
+        x[5].assign(1);
+        expected = selectMin(x, xi -> xi.size() > 1, IntVar::size);
+        assertSame(expected, unbound.selectMin(IntVar::size));
+        assertSame(x[2], unbound.selectMin(IntVar::size));
+
+        for (IntVar xi : x)
+            xi.assign(xi.min());
+        assertNull(unbound.selectMin(IntVar::size));
+    }
+
+    @Test
+    public void testFirstFailSearch() {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        cp.post(allDifferent(x));
+        DFSearch dfs = makeDfs(cp, firstFail(x));
+        SearchStatistics stats = dfs.solve();
+        assertEquals(0, stats.numberOfSolutions());
+        assertTrue(stats.isCompleted());
+
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 3, 3);
+        cp2.post(allDifferent(y));
+        stats = makeDfs(cp2, firstFail(y)).solve();
+        assertEquals(6, stats.numberOfSolutions());
+    }
+}
@@ -66,4 +66,46 @@ public class StateSparseBitSetTest extends StateManagerTest {
     }
 
 
+
+    @Test
+    public void testIntersectComplementAndIndex() {
+
+        StateManager sm = stateFactory.get();
+        StateSparseBitSet set = new StateSparseBitSet(sm, 256);
+
+        StateSparseBitSet.BitSet b1 = set.new BitSet(); // [0..127]
+        StateSparseBitSet.BitSet b2 = set.new BitSet(); // {200}
+
+        for (int i = 0; i < 128; i++) {
+            b1.set(i);
+        }
+        b2.set(200);
+
+        assertEquals(0, b1.firstNonZeroWord());
+        assertEquals(3, b2.firstNonZeroWord());
+        assertEquals(-1, set.new BitSet().firstNonZeroWord());
+        assertTrue(set.intersectsAt(b2, 3));
+        assertFalse(set.intersectsAt(b2, 2));
+
+        sm.saveState();
+
+        set.intersectComplement(b1); // set is now [128..255]
+
+        assertTrue(set.hasEmptyIntersection(b1));
+        assertEquals(-1, set.intersectIndex(b1));
+        assertEquals(3, set.intersectIndex(b2));
+
+        set.intersectComplement(b2); // set is now [128..199] U [201..255]
+
+        assertEquals(-1, set.intersectIndex(b2));
+        assertFalse(set.intersectsAt(b2, 3));
+        assertFalse(set.isEmpty());
+
+        sm.restoreState();
+
+        assertTrue(!set.hasEmptyIntersection(b1));
+        assertTrue(set.intersectsAt(b1, 1));
+        assertEquals(3, set.intersectIndex(b2));
+    }
+
 }
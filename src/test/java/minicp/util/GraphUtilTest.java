@@ -28,7 +28,9 @@ import static minicp.util.GraphUtil.Graph;
 import static minicp.util.GraphUtil.pathExists;
 import static minicp.util.GraphUtil.stronglyConnectedComponents;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(GradingRunner.class)
 public class GraphUtilTest {
@@ -222,6 +224,206 @@ public class GraphUtilTest {
         }
     }
 
+    @Test
+    public void randomTestTarjan() {
+        Random rand = new Random(36);
+        GraphUtil.CSRGraph csr = new GraphUtil.CSRGraph(1);
+        GraphUtil.Tarjan tarjan = new GraphUtil.Tarjan();
+        for (int test = 0; test < 200; test++) {
+            int n = 1 + rand.nextInt(20);
+            Integer[][] out = new Integer[n][];
+            csr.clear(n);
+            for (int i = 0; i < n; i++) {
+                LinkedList<Integer> nei = new LinkedList<>();
+                for (int j = 0; j < n; j++)
+                    if (rand.nextInt(100) < 12)
+                        nei.add(j);
+                out[i] = nei.toArray(new Integer[0]);
+            }
+            // edges added in a shuffled order
+            for (int k = 0; k < n * n; k++) {
+                int i = k % n;
+                int j = k / n;
+                if (Arrays.asList(out[i]).contains(j)) csr.addEdge(i, j);
+            }
+            csr.build();
+            Integer[][] in = inFromOut(out);
+            Graph g = new Graph() {
+                @Override
+                public int n() {
+                    return n;
+                }
+
+                @Override
+                public Iterable<Integer> in(int idx) {
+                    return Arrays.asList(in[idx]);
+                }
+
+                @Override
+                public Iterable<Integer> out(int idx) {
+                    return Arrays.asList(out[idx]);
+                }
+            };
+            int[] scc = new int[n];
+            int nComponents = tarjan.run(csr, scc);
+            checkScc(g, scc);
+            for (int i = 0; i < n; i++) {
+                assertEquals(out[i].length, csr.end(i) - csr.begin(i));
+                for (int e = csr.begin(i); e < csr.end(i); e++) {
+                    // reverse topological order of the components
+                    assertTrue(scc[i] >= scc[csr.head(e)]);
+                }
+                assertTrue(scc[i] < nComponents);
+            }
+        }
+    }
+
+    private static GraphUtil.CSRGraph randomCSR(Random rand, int n, int proba, boolean acyclic, boolean weighted) {
+        GraphUtil.CSRGraph g = new GraphUtil.CSRGraph(n);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                if ((!acyclic || i < j) && rand.nextInt(100) < proba)
+                    g.addEdge(i, j, weighted ? rand.nextInt(20) - (acyclic ? 5 : 0) : 1);
+        g.build();
+        return g;
+    }
+
+    // Floyd-Warshall distances, Long.MAX_VALUE if unreachable
+    private static long[][] allPairs(GraphUtil.CSRGraph g) {
+        int n = g.n();
+        long[][] d = new long[n][n];
+        for (long[] row : d) Arrays.fill(row, Long.MAX_VALUE);
+        for (int u = 0; u < n; u++) {
+            d[u][u] = 0;
+            for (int e = g.begin(u); e < g.end(u); e++)
+                d[u][g.head(e)] = Math.min(d[u][g.head(e)], g.weight(e));
+        }
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    if (d[i][k] != Long.MAX_VALUE && d[k][j] != Long.MAX_VALUE)
+                        d[i][j] = Math.min(d[i][j], d[i][k] + d[k][j]);
+        return d;
+    }
+
+    @Test
+    public void randomTestTraversals() {
+        Random rand = new Random(37);
+        GraphUtil.Traversal traversal = new GraphUtil.Traversal();
+        int[] order = new int[30];
+        int[] dist = new int[30];
+        for (int test = 0; test < 100; test++) {
+            int n = 1 + rand.nextInt(30);
+            GraphUtil.CSRGraph g = randomCSR(rand, n, 8, false, false);
+            long[][] d = allPairs(g);
+            int source = rand.nextInt(n);
+            int nReached = traversal.bfs(g, source, order, dist);
+            int expectedReached = 0;
+            for (int v = 0; v < n; v++) {
+                if (d[source][v] == Long.MAX_VALUE) {
+                    assertEquals(-1, dist[v]);
+                } else {
+                    expectedReached++;
+                    assertEquals(d[source][v], dist[v]);
+                    assertTrue(traversal.pathExists(g, source, v));
+                }
+            }
+            assertEquals(expectedReached, nReached);
+            for (int k = 1; k < nReached; k++)
+                assertTrue(dist[order[k - 1]] <= dist[order[k]]);
+            assertEquals(expectedReached, traversal.dfs(g, source, order));
+            assertEquals(source, order[0]);
+
+            GraphUtil.CSRGraph reversed = new GraphUtil.CSRGraph(1);
+            g.reverse(reversed);
+            for (int v = 0; v < n; v++)
+                assertEquals(traversal.pathExists(g, source, v), traversal.pathExists(reversed, v, source));
+        }
+    }
+
+    @Test
+    public void randomTestTopologicalSort() {
+        Random rand = new Random(38);
+        GraphUtil.Traversal traversal = new GraphUtil.Traversal();
+        for (int test = 0; test < 100; test++) {
+            int n = 2 + rand.nextInt(20);
+            GraphUtil.CSRGraph dag = randomCSR(rand, n, 20, true, false);
+            int[] order = new int[n];
+            assertTrue(traversal.topologicalSort(dag, order));
+            int[] rank = new int[n];
+            for (int k = 0; k < n; k++) rank[order[k]] = k;
+            for (int u = 0; u < n; u++)
+                for (int e = dag.begin(u); e < dag.end(u); e++)
+                    assertTrue(rank[u] < rank[dag.head(e)]);
+            GraphUtil.CSRGraph cycle = new GraphUtil.CSRGraph(n);
+            for (int u = 0; u < n; u++) cycle.addEdge(u, (u + 1) % n);
+            cycle.build();
+            assertFalse(traversal.topologicalSort(cycle, order));
+        }
+    }
+
+    @Test
+    public void randomTestShortestPaths() {
+        Random rand = new Random(39);
+        GraphUtil.ShortestPaths sp = new GraphUtil.ShortestPaths();
+        long[] dist = new long[25];
+        int[] pred = new int[25];
+        for (int test = 0; test < 100; test++) {
+            int n = 1 + rand.nextInt(25);
+            boolean acyclic = test % 2 == 0;
+            GraphUtil.CSRGraph g = randomCSR(rand, n, 15, acyclic, true);
+            long[][] d = allPairs(g);
+            int source = rand.nextInt(n);
+            if (acyclic) sp.dagShortestPaths(g, source, dist, pred);
+            else sp.dijkstra(g, source, dist, pred);
+            for (int v = 0; v < n; v++) {
+                if (d[source][v] == Long.MAX_VALUE) {
+                    assertEquals(GraphUtil.ShortestPaths.INFINITY, dist[v]);
+                    assertEquals(-1, pred[v]);
+                } else {
+                    assertEquals(d[source][v], dist[v]);
+                    if (v != source) assertTrue(pred[v] >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomTestDominators() {
+        Random rand = new Random(40);
+        GraphUtil.Dominators dominators = new GraphUtil.Dominators();
+        GraphUtil.Traversal traversal = new GraphUtil.Traversal();
+        GraphUtil.CSRGraph reversed = new GraphUtil.CSRGraph(1);
+        for (int test = 0; test < 100; test++) {
+            int n = 1 + rand.nextInt(15);
+            GraphUtil.CSRGraph g = randomCSR(rand, n, 15, false, false);
+            g.reverse(reversed);
+            int root = rand.nextInt(n);
+            int nReached = dominators.run(g, reversed, root);
+            int expectedReached = 0;
+            for (int v = 0; v < n; v++) {
+                boolean reached = traversal.pathExists(g, root, v);
+                if (reached) expectedReached++;
+                assertEquals(reached, dominators.idom(v) >= 0);
+                for (int d = 0; d < n; d++) {
+                    // d dominates v if v is no longer reachable once d is removed
+                    boolean expected = reached && (d == v || d == root);
+                    if (reached && d != v && d != root) {
+                        GraphUtil.CSRGraph h = new GraphUtil.CSRGraph(n);
+                        for (int u = 0; u < n; u++)
+                            for (int e = g.begin(u); e < g.end(u); e++)
+                                if (u != d && g.head(e) != d) h.addEdge(u, g.head(e));
+                        h.build();
+                        expected = !traversal.pathExists(h, root, v);
+                    }
+                    assertEquals(expected, dominators.dominates(d, v));
+                }
+                if (reached && v != root) assertTrue(dominators.dominates(dominators.idom(v), v));
+            }
+            assertEquals(expectedReached, nReached);
+        }
+    }
+
     private static void checkScc(Graph g, int[] scc) {
         for (int start = 0; start < g.n(); start++) {
             for (int end = 0; end < g.n(); end++) {